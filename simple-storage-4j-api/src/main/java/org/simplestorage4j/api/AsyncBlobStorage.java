@@ -0,0 +1,39 @@
+package org.simplestorage4j.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * asynchronous facet of a BlobStorage, cf <code>BlobStorage.async()</code>
+ *
+ * methods return immediately, and complete the returned future when the operation is done
+ * (or exceptionally on failure). Implementations are either native non-blocking (reactive clients),
+ * or adapters offloading blocking calls to a bounded executor, cf ExecutorAsyncBlobStorage.
+ */
+public interface AsyncBlobStorage {
+
+	/** underlying (blocking) BlobStorage */
+	public BlobStorage blobStorage();
+
+	/** @return future of file info, completed with null when path does not exist */
+	public CompletableFuture<BlobStoreFileInfo> pathInfoAsync(String filePath);
+
+	public CompletableFuture<Boolean> existsAsync(String filePath);
+
+	public CompletableFuture<List<BlobStoreFileInfo>> listAsync(String filePath);
+
+	public CompletableFuture<Void> mkdirsAsync(String filePath);
+
+	public CompletableFuture<Void> deleteFileAsync(String filePath);
+
+	public CompletableFuture<Void> renameFileAsync(String filePath, String newFilePath);
+
+	public CompletableFuture<byte[]> readFileAsync(String filePath);
+
+	public CompletableFuture<byte[]> readAtAsync(String filePath, long position, int len);
+
+	public CompletableFuture<Void> writeFileAsync(String filePath, byte[] data);
+
+	public CompletableFuture<Void> writeAppendToFileAsync(String filePath, byte[] appendData);
+
+}
@@ -2,15 +2,45 @@ package org.simplestorage4j.api;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.simplestorage4j.api.util.BlobStorageIOUtils;
+import org.simplestorage4j.api.util.BlobStorageRangeCoalescer;
+import org.simplestorage4j.api.util.BlobStorageRangeCoalescer.CombinedFileRange;
+import org.simplestorage4j.api.util.BlobStorageRetryPolicy;
 import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.api.util.ExecutorAsyncBlobStorage;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+import org.simplestorage4j.api.util.ReopeningSeekableBlobInputStream;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.val;
 
 public abstract class BlobStorage {
@@ -21,6 +51,36 @@ public abstract class BlobStorage {
 	
 	public final String displayName;
 	
+	public static final long DEFAULT_SEEKABLE_READ_AHEAD = 1024 * 1024;
+
+	@Getter @Setter
+	protected BlobStorageVectoredReadParams vectoredReadParams = new BlobStorageVectoredReadParams();
+
+	/** for openSeekableRead(): max forward seek done by skipping bytes in opened stream, instead of re-opening */
+	@Getter @Setter
+	protected long seekableReadAhead = DEFAULT_SEEKABLE_READ_AHEAD;
+
+	/** executor for default async() adapter, null for shared <code>ExecutorAsyncBlobStorage.defaultExecutor()</code> */
+	@Getter @Setter
+	protected Executor asyncExecutor;
+
+	/** for pathInfos(): min count of paths in same parent dir, to use a single list() instead of 1 pathInfo() per path */
+	@Getter @Setter
+	protected int pathInfosListMinCount = 4;
+
+	/** for pathInfos(): max listing pages per parent dir (paginated backends), then paths not yet listed fall back to
+	 * pathInfo(), so that a few paths in a huge dir do not list it fully */
+	@Getter @Setter
+	protected int pathInfosListMaxPages = 4;
+
+	/** for pathInfos(): max concurrent list() or pathInfo() calls */
+	@Getter @Setter
+	protected int pathInfosConcurrency = 16;
+
+	/** retries of calls wrapped by utilities (cf BlobStorageIOUtils), with a retry budget per storage */
+	@Getter @Setter
+	protected BlobStorageRetryPolicy retryPolicy = new BlobStorageRetryPolicy();
+
 	// ------------------------------------------------------------------------
 	
     public BlobStorage(BlobStorageId id, BlobStorageGroupId groupId, String displayName) {
@@ -62,6 +122,53 @@ public abstract class BlobStorage {
 
 	public abstract List<BlobStoreFileInfo> list(String filePath);
 
+	/**
+	 * lazy recursive listing of all files (and dirs, cf options) under filePath, page by page.
+	 * Iterator must be closed when not fully consumed.
+	 * default: depth-first walk using list(), 1 page per dir
+	 */
+	public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String filePath, BlobStorageListOptions options) {
+		val pendingDirs = new ArrayDeque<String>();
+		pendingDirs.add(filePath);
+		return new PrefetchingPageIterator<BlobStoreFileInfo>(listPrefetchExecutor(options)) {
+			@Override
+			protected List<BlobStoreFileInfo> fetchNextPage() {
+				val dir = pendingDirs.pollFirst();
+				if (dir == null) {
+					return null;
+				}
+				val res = new ArrayList<BlobStoreFileInfo>();
+				for(val child : list(dir)) {
+					if (child.isDir) {
+						pendingDirs.addFirst(child.path);
+						if (! options.isIncludeDirs()) {
+							continue;
+						}
+					}
+					res.add(child);
+				}
+				return res;
+			}
+		};
+	}
+
+	/**
+	 * Stream variant of listRecursive(), stream must be closed when not fully consumed
+	 */
+	public Stream<BlobStoreFileInfo> listRecursiveStream(String filePath, BlobStorageListOptions options) {
+		val iter = listRecursive(filePath, options);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize((Iterator<BlobStoreFileInfo>) iter,
+				Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> iter.close());
+	}
+
+	protected Executor listPrefetchExecutor(BlobStorageListOptions options) {
+		if (! options.isPrefetch()) {
+			return null;
+		}
+		return (asyncExecutor != null)? asyncExecutor : ExecutorAsyncBlobStorage.defaultExecutor();
+	}
+
 	public abstract void deleteFile(String filePath);
 
 	public abstract void renameFile(String filePath, String newFilePath);
@@ -78,17 +185,59 @@ public abstract class BlobStorage {
 
 	public abstract InputStream openRead(String filePath, long position);
 
+	public SeekableBlobInputStream openSeekableRead(String filePath) {
+		return openSeekableRead(filePath, 0);
+	}
+
+	/**
+	 * open a seekable stream, initially at position.
+	 * default: lazily re-open <code>openRead(filePath, pos)</code> when seeking
+	 */
+	public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+		return new ReopeningSeekableBlobInputStream(filePath, position, seekableReadAhead) {
+			@Override
+			protected InputStream openAt(long pos) {
+				return openRead(filePath, pos);
+			}
+		};
+	}
+
 
 	
 	// only [int].. 2Go supported here
 	public abstract void writeFile(String filePath, byte[] data);
 
+	/** write file content from <code>data[off, off+len)</code>, typically from a pooled buffer bigger than content */
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		if (off == 0 && len == data.length) {
+			writeFile(filePath, data);
+			return;
+		}
+		try (val out = openWrite(filePath, false)) {
+			out.write(data, off, len);
+		} catch (IOException ex) {
+			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		}
+	}
+
 	public abstract void writeAppendToFile(String filePath, byte[] appendData);
 
 
 	// only [int].. 2Go supported here
 	public abstract byte[] readFile(String filePath);
 
+	/**
+	 * read file content, streamed to output (not limited to 2Go)
+	 * @return length read
+	 */
+	public long readFileTo(String filePath, OutputStream output) {
+		try (val in = openRead(filePath)) {
+			return BlobStorageIOUtils.copy(in, output);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "'", ex);
+		}
+	}
+
 	public final byte[] readAt(String filePath, long position, int len) {
 		byte[] res = new byte[len];
 		readAt(res, 0, filePath, position, len);
@@ -98,6 +247,279 @@ public abstract class BlobStorage {
 	public abstract void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len);
 
 
+	// ByteBuffer (NIO) api
+	// ------------------------------------------------------------------------
+
+	/**
+	 * read <code>dst.remaining()</code> bytes at position into dst (heap or direct buffer), advancing dst position.
+	 * default adapter: delegate to readAt(byte[]..) for heap buffers, copy through a temporary array for direct buffers
+	 */
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		val len = dst.remaining();
+		if (dst.hasArray()) {
+			readAt(dst.array(), dst.arrayOffset() + dst.position(), filePath, position, len);
+			dst.position(dst.position() + len);
+		} else {
+			val tmp = readAt(filePath, position, len);
+			dst.put(tmp);
+		}
+	}
+
+	/**
+	 * write file content from buffers (gathering write), consuming their remaining bytes.
+	 * default adapter: write to openWrite() stream
+	 */
+	public void write(String filePath, ByteBuffer... srcs) {
+		try (val out = openWrite(filePath, false)) {
+			val channel = Channels.newChannel(out);
+			for(val src: srcs) {
+				while(src.hasRemaining()) {
+					channel.write(src);
+				}
+			}
+		} catch (IOException ex) {
+			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		}
+	}
+
+
+	// Server-side copy api
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return true when <code>copyFrom(src, ..)</code> can copy from srcStorage without transferring data through this JVM
+	 */
+	public boolean supportsCopyFrom(BlobStorage srcStorage) {
+		return false;
+	}
+
+	public void copyFrom(BlobStoragePath src, String destFilePath) {
+		copyFrom(src, destFilePath, -1);
+	}
+
+	/**
+	 * server-side copy of src file to destFilePath, only when <code>supportsCopyFrom(src.blobStorage)</code>
+	 * @param srcFileLen length of src file if already known, -1 otherwise
+	 */
+	public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+		throw new UnsupportedOperationException("server-side copy not supported from " + src.blobStorage.displayName + " to " + displayName);
+	}
+
+	// Bulk metadata api
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return file infos by path (in order of filePaths, null value for not existing path).
+	 * paths are grouped by parent dir: groups of at least <code>pathInfosListMinCount</code> paths are answered
+	 * by a single listing (cf pathInfosOfSameParent()), other paths by pathInfo().
+	 * Calls are executed on asyncExecutor (or shared default), at most <code>pathInfosConcurrency</code> in flight
+	 */
+	public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> filePaths) {
+		val tasks = new ArrayList<Supplier<Map<String, BlobStoreFileInfo>>>();
+		for(val e : BlobStorageUtils.groupByParentPath(filePaths).entrySet()) {
+			val parentPath = e.getKey();
+			val paths = e.getValue();
+			if (paths.size() >= pathInfosListMinCount) {
+				tasks.add(() -> pathInfosOfSameParent(parentPath, paths));
+			} else {
+				for(val path : paths) {
+					tasks.add(() -> Collections.singletonMap(path, pathInfo(path)));
+				}
+			}
+		}
+		val found = new HashMap<String, BlobStoreFileInfo>();
+		if (tasks.size() == 1) {
+			found.putAll(tasks.get(0).get());
+		} else {
+			val executor = (asyncExecutor != null)? asyncExecutor : ExecutorAsyncBlobStorage.defaultExecutor();
+			val concurrency = Math.max(1, pathInfosConcurrency);
+			val inFlight = new ArrayDeque<CompletableFuture<Map<String, BlobStoreFileInfo>>>();
+			try {
+				for(val task : tasks) {
+					if (inFlight.size() >= concurrency) {
+						found.putAll(inFlight.pollFirst().get());
+					}
+					inFlight.addLast(CompletableFuture.supplyAsync(task, executor));
+				}
+				while(! inFlight.isEmpty()) {
+					found.putAll(inFlight.pollFirst().get());
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("interrupted while querying pathInfos in " + displayName, ex);
+			} catch (ExecutionException ex) {
+				throw new RuntimeException("Failed to query pathInfos in " + displayName, ex.getCause());
+			} finally {
+				for(val f : inFlight) {
+					f.cancel(false);
+				}
+			}
+		}
+		val res = new LinkedHashMap<String, BlobStoreFileInfo>();
+		for(val path : filePaths) {
+			res.put(path, found.get(path));
+		}
+		return res;
+	}
+
+	/**
+	 * @return file infos of paths having the same parent dir.
+	 * default: list() parent dir, match by child name (fallback to pathInfo() per path if listing fails)
+	 */
+	protected Map<String, BlobStoreFileInfo> pathInfosOfSameParent(String parentPath, List<String> filePaths) {
+		List<BlobStoreFileInfo> children;
+		try {
+			children = list(parentPath);
+		} catch(RuntimeException ex) {
+			children = null;
+		}
+		if (children == null) {
+			val res = new HashMap<String, BlobStoreFileInfo>();
+			for(val path : filePaths) {
+				res.put(path, pathInfo(path));
+			}
+			return res;
+		}
+		return matchChildInfos(filePaths, children);
+	}
+
+	/**
+	 * helper for paginated pathInfosOfSameParent(): match children listed so far,
+	 * then pathInfo() for paths not covered by a truncated listing, cf pathsAfterListedName()
+	 */
+	protected Map<String, BlobStoreFileInfo> matchChildInfos(List<String> filePaths, List<BlobStoreFileInfo> children, String lastListedName) {
+		val res = matchChildInfos(filePaths, children);
+		for(val path : pathsAfterListedName(filePaths, lastListedName)) {
+			res.put(path, pathInfo(path));
+		}
+		return res;
+	}
+
+	/**
+	 * @return paths with child name after lastListedName (listings are sorted by name), empty when lastListedName is null (complete listing)
+	 */
+	protected static List<String> pathsAfterListedName(List<String> filePaths, String lastListedName) {
+		val res = new ArrayList<String>();
+		if (lastListedName != null) {
+			for(val path : filePaths) {
+				if (BlobStorageUtils.childNameOf(path).compareTo(lastListedName) > 0) {
+					res.add(path);
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return max child name of paths, to stop paginated listing once reached
+	 */
+	protected static String maxChildNameOf(List<String> filePaths) {
+		String res = "";
+		for(val path : filePaths) {
+			val childName = BlobStorageUtils.childNameOf(path);
+			if (childName.compareTo(res) > 0) {
+				res = childName;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * helper for pathInfosOfSameParent(): match listed children of parent dir to paths, by child name
+	 */
+	protected static Map<String, BlobStoreFileInfo> matchChildInfos(List<String> filePaths, List<BlobStoreFileInfo> children) {
+		val childByName = new HashMap<String, BlobStoreFileInfo>();
+		for(val child : children) {
+			childByName.put(child.childName(), child);
+		}
+		val res = new HashMap<String, BlobStoreFileInfo>();
+		for(val path : filePaths) {
+			val child = childByName.get(BlobStorageUtils.childNameOf(path));
+			res.put(path, (child != null)? new BlobStoreFileInfo(path, child.isDir, child.fileLength, child.lastModifTime) : null);
+		}
+		return res;
+	}
+
+	// Async api
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return asynchronous facet of this storage.
+	 * default: adapter offloading blocking calls to <code>asyncExecutor</code>, sub-classes may be natively non-blocking
+	 */
+	public AsyncBlobStorage async() {
+		val executor = (asyncExecutor != null)? asyncExecutor : ExecutorAsyncBlobStorage.defaultExecutor();
+		return new ExecutorAsyncBlobStorage(this, executor);
+	}
+
+	// Vectored read api
+	// ------------------------------------------------------------------------
+
+	/**
+	 * read several ranges of a file, returning one future per range (in same order as ranges).
+	 * nearby ranges are merged into fewer backend requests, cf <code>vectoredReadParams</code>
+	 */
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		val res = new ArrayList<CompletableFuture<byte[]>>(ranges.size());
+		for(int i = 0; i < ranges.size(); i++) {
+			res.add(new CompletableFuture<>());
+		}
+		val params = this.vectoredReadParams;
+		val combinedRanges = BlobStorageRangeCoalescer.coalesce(ranges, params.getMaxMergeGap(), params.getMaxMergedSize());
+		for(val combinedRange: combinedRanges) {
+			if (combinedRange.length == 0) {
+				// only empty ranges: no backend request (an empty http range would be invalid)
+				for(val idx: combinedRange.rangeIndexes) {
+					res.get(idx).complete(new byte[0]);
+				}
+				continue;
+			}
+			executor.submit(() -> {
+				try {
+					readCombinedRange(filePath, combinedRange, ranges, res);
+				} catch(Throwable ex) {
+					for(val idx: combinedRange.rangeIndexes) {
+						res.get(idx).completeExceptionally(ex);
+					}
+				}
+			});
+		}
+		return res;
+	}
+
+	/**
+	 * read one combined range, then complete futures of its underlying ranges.
+	 * default: readAt whole combined range, then slice
+	 */
+	protected void readCombinedRange(String filePath, CombinedFileRange combinedRange,
+			List<BlobStorageFileRange> ranges, List<CompletableFuture<byte[]>> results) {
+		val data = readAt(filePath, combinedRange.offset, combinedRange.length);
+		for(val idx: combinedRange.rangeIndexes) {
+			val range = ranges.get(idx);
+			val from = (int) (range.offset - combinedRange.offset);
+			results.get(idx).complete(Arrays.copyOfRange(data, from, from + range.length));
+		}
+	}
+
+	/**
+	 * helper for sub-classes: read underlying ranges from a (ranged) stream opened at combinedRange.offset,
+	 * skipping gaps instead of buffering the whole combined range. Not applicable to overlapping ranges.
+	 */
+	protected static void readCombinedRangeFromStream(InputStream in, CombinedFileRange combinedRange,
+			List<BlobStorageFileRange> ranges, List<CompletableFuture<byte[]>> results) throws IOException {
+		long currPosition = combinedRange.offset;
+		for(val idx: combinedRange.rangeIndexes) { // sorted by offset
+			val range = ranges.get(idx);
+			val gap = range.offset - currPosition;
+			if (gap > 0) {
+				BlobStorageIOUtils.skipFully(in, gap);
+			}
+			val data = BlobStorageIOUtils.readFully(in, range.length);
+			currPosition = range.end();
+			results.get(idx).complete(data);
+		}
+	}
+
 	// Json helper
 	// ------------------------------------------------------------------------
 	
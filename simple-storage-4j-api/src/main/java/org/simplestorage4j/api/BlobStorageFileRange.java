@@ -0,0 +1,36 @@
+package org.simplestorage4j.api;
+
+/**
+ * immutable range [offset, offset+length) of a file, for vectored reads
+ */
+public class BlobStorageFileRange {
+
+	public final long offset;
+	public final int length;
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageFileRange(long offset, int length) {
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("invalid range offset:" + offset + ", length:" + length);
+		}
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public static BlobStorageFileRange of(long offset, int length) {
+		return new BlobStorageFileRange(offset, length);
+	}
+
+	// ------------------------------------------------------------------------
+
+	public long end() {
+		return offset + length;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + offset + ", +" + length + ")";
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.simplestorage4j.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * options for recursive listing, cf <code>BlobStorage.listRecursive()</code>
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class BlobStorageListOptions {
+
+	/** when false, only files are returned (S3 has no dirs: never returned) */
+	private boolean includeDirs = true;
+
+	/** max entries per page (hint for backend requests, at most 1000 for S3) */
+	private int pageSize = 1000;
+
+	/** fetch next page in background, while current page is consumed */
+	private boolean prefetch = true;
+
+	@Override
+	public String toString() {
+		return "{ListOptions includeDirs:" + includeDirs + ", pageSize:" + pageSize + ", prefetch:" + prefetch + "}";
+	}
+
+}
@@ -2,8 +2,11 @@ package org.simplestorage4j.api;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nonnull;
 
@@ -29,6 +32,12 @@ public class BlobStoragePath {
 	public BlobStoragePathDTO toDTO() {
 		return new BlobStoragePathDTO(blobStorage.id.id, path);
 	}
+
+	/** @return path of child, by relative path */
+	public BlobStoragePath child(String relativePath) {
+		String childPath = (path.isEmpty() || path.endsWith("/"))? path + relativePath : path + "/" + relativePath;
+		return new BlobStoragePath(blobStorage, childPath);
+	}
 	
 	public BlobStoreFileInfo pathInfo() {
 		return blobStorage.pathInfo(path);
@@ -101,10 +110,42 @@ public class BlobStoragePath {
 		return blobStorage.readFile(path);
 	}
 
+	public SeekableBlobInputStream openSeekableRead() {
+		return blobStorage.openSeekableRead(path);
+	}
+
+	public long readFileTo(OutputStream output) {
+		return blobStorage.readFileTo(path, output);
+	}
+
 	public byte[] readAt(long position, int len) {
 		return blobStorage.readAt(path, position, len);
 	}
 
+	public void readAt(ByteBuffer dst, long position) {
+		blobStorage.readAt(dst, path, position);
+	}
+
+	public void write(ByteBuffer... srcs) {
+		blobStorage.write(path, srcs);
+	}
+
+	public List<CompletableFuture<byte[]>> readVectored(List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		return blobStorage.readVectored(path, ranges, executor);
+	}
+
+	public CompletableFuture<BlobStoreFileInfo> pathInfoAsync() {
+		return blobStorage.async().pathInfoAsync(path);
+	}
+
+	public CompletableFuture<byte[]> readFileAsync() {
+		return blobStorage.async().readFileAsync(path);
+	}
+
+	public CompletableFuture<Void> writeFileAsync(byte[] data) {
+		return blobStorage.async().writeFileAsync(path, data);
+	}
+
 	// Json helper
 	// ------------------------------------------------------------------------
 	
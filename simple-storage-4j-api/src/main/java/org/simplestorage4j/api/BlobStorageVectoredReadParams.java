@@ -0,0 +1,26 @@
+package org.simplestorage4j.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * parameters for coalescing nearby ranges of vectored reads into fewer backend requests
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class BlobStorageVectoredReadParams {
+
+	/** max gap between 2 ranges to merge them in a single request (gap bytes are read and discarded) */
+	private int maxMergeGap = 256 * 1024;
+
+	/** max size of a merged request */
+	private int maxMergedSize = 8 * 1024 * 1024;
+
+	@Override
+	public String toString() {
+		return "{VectoredReadParams maxMergeGap:" + maxMergeGap + ", maxMergedSize:" + maxMergedSize + "}";
+	}
+
+}
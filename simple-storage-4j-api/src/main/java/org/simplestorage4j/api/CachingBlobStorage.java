@@ -0,0 +1,395 @@
+package org.simplestorage4j.api;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.api.util.LoggingCounter;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * decorator caching metadata: pathInfo() (also exists(), isDirectory(), fileLen(), lastModifiedTime()), and list()
+ *
+ * entries are bounded in count (LRU eviction) and expire after ttl. Not-found results are also cached (negative ttl).
+ * Writes, mkdirs, deletes, renames done through this decorator invalidate the path, its parent dirs listings,
+ * and sub-paths for deletes/renames. Modifications done by other clients are seen after ttl only.
+ */
+@Slf4j
+public class CachingBlobStorage extends ForwardingBlobStorage {
+
+	@Getter @Setter
+	private int maxEntries = 10_000;
+
+	@Getter @Setter
+	private long ttlMillis = 30_000;
+
+	/** ttl for not-found pathInfo results */
+	@Getter @Setter
+	private long negativeTtlMillis = 5_000;
+
+	private static class CachedValue<T> {
+		final T value; // null for not-found
+		final long expireTime;
+
+		CachedValue(T value, long expireTime) {
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+	}
+
+	/** guarded by itself, LRU access-order */
+	private final LinkedHashMap<String, CachedValue<BlobStoreFileInfo>> pathInfoCache = new LinkedHashMap<>(256, 0.75f, true);
+
+	/** guarded by pathInfoCache */
+	private final LinkedHashMap<String, CachedValue<List<BlobStoreFileInfo>>> listCache = new LinkedHashMap<>(64, 0.75f, true);
+
+	/** guarded by pathInfoCache, incremented on each invalidate(): results fetched before are not cached (may be stale) */
+	private long invalidateCount;
+
+	@Getter
+	protected final LoggingCounter counter_pathInfoHit;
+	@Getter
+	protected final LoggingCounter counter_pathInfoMiss;
+	@Getter
+	protected final LoggingCounter counter_listHit;
+	@Getter
+	protected final LoggingCounter counter_listMiss;
+
+	// ------------------------------------------------------------------------
+
+	public CachingBlobStorage(BlobStorage delegate) {
+		super(delegate);
+		this.counter_pathInfoHit = new LoggingCounter("cache " + displayName + " pathInfo Hit");
+		this.counter_pathInfoMiss = new LoggingCounter("cache " + displayName + " pathInfo Miss");
+		this.counter_listHit = new LoggingCounter("cache " + displayName + " list Hit");
+		this.counter_listMiss = new LoggingCounter("cache " + displayName + " list Miss");
+	}
+
+	// ------------------------------------------------------------------------
+
+	public void clearCache() {
+		synchronized(pathInfoCache) {
+			pathInfoCache.clear();
+			listCache.clear();
+		}
+	}
+
+	@Override
+	public BlobStoreFileInfo pathInfo(String filePath) {
+		val key = normalizePath(filePath);
+		val now = System.currentTimeMillis();
+		long fetchInvalidateCount;
+		synchronized(pathInfoCache) {
+			val cached = getValid(pathInfoCache, key, now);
+			if (cached != null) {
+				counter_pathInfoHit.incr(0, logPrefix -> log.info(logPrefix + "('" + filePath + "')"));
+				return cached.value;
+			}
+			fetchInvalidateCount = invalidateCount;
+		}
+		val startTime = System.currentTimeMillis();
+
+		val res = delegate.pathInfo(filePath);
+
+		val millis = System.currentTimeMillis() - startTime;
+		counter_pathInfoMiss.incr(millis, logPrefix -> log.info(logPrefix + "('" + filePath + "')"));
+		synchronized(pathInfoCache) {
+			if (fetchInvalidateCount == invalidateCount) {
+				putPathInfo(key, res, startTime);
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public boolean exists(String filePath) {
+		return pathInfo(filePath) != null;
+	}
+
+	@Override
+	public boolean isDirectory(String filePath) {
+		val info = pathInfo(filePath);
+		return info != null && info.isDir;
+	}
+
+	@Override
+	public long fileLen(String filePath) {
+		val info = pathInfo(filePath);
+		return (info != null)? info.fileLength : 0;
+	}
+
+	@Override
+	public long lastModifiedTime(String filePath) {
+		val info = pathInfo(filePath);
+		return (info != null)? info.lastModifTime : 0;
+	}
+
+	@Override
+	public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> filePaths) {
+		val res = new LinkedHashMap<String, BlobStoreFileInfo>();
+		val missingPaths = new ArrayList<String>();
+		val now = System.currentTimeMillis();
+		long fetchInvalidateCount;
+		synchronized(pathInfoCache) {
+			fetchInvalidateCount = invalidateCount;
+			for(val filePath : filePaths) {
+				val cached = getValid(pathInfoCache, normalizePath(filePath), now);
+				if (cached != null) {
+					counter_pathInfoHit.incr(0, logPrefix -> log.info(logPrefix + "('" + filePath + "')"));
+					res.put(filePath, cached.value);
+				} else {
+					res.put(filePath, null); // placeholder, keep input order
+					missingPaths.add(filePath);
+				}
+			}
+		}
+		if (! missingPaths.isEmpty()) {
+			val startTime = System.currentTimeMillis();
+
+			val fetched = delegate.pathInfos(missingPaths);
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_pathInfoMiss.incr(millis, logPrefix -> log.info(logPrefix + "(" + missingPaths.size() + " paths)"));
+			synchronized(pathInfoCache) {
+				for(val filePath : missingPaths) {
+					val info = fetched.get(filePath);
+					res.put(filePath, info);
+					if (fetchInvalidateCount == invalidateCount) {
+						putPathInfo(normalizePath(filePath), info, startTime);
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public List<BlobStoreFileInfo> list(String filePath) {
+		val key = normalizePath(filePath);
+		val now = System.currentTimeMillis();
+		long fetchInvalidateCount;
+		synchronized(pathInfoCache) {
+			val cached = getValid(listCache, key, now);
+			if (cached != null) {
+				counter_listHit.incr(0, logPrefix -> log.info(logPrefix + "('" + filePath + "')"));
+				return new ArrayList<>(cached.value);
+			}
+			fetchInvalidateCount = invalidateCount;
+		}
+		val startTime = System.currentTimeMillis();
+
+		val res = delegate.list(filePath);
+
+		val millis = System.currentTimeMillis() - startTime;
+		counter_listMiss.incr(millis, logPrefix -> log.info(logPrefix + "('" + filePath + "')"));
+		synchronized(pathInfoCache) {
+			if (fetchInvalidateCount != invalidateCount) {
+				return res;
+			}
+			val expireTime = startTime + ttlMillis;
+			listCache.put(key, new CachedValue<>(new ArrayList<>(res), expireTime));
+			for(val child : res) {
+				pathInfoCache.put(normalizePath(child.path), new CachedValue<>(child, expireTime));
+			}
+			evictIfNeeded();
+		}
+		return res;
+	}
+
+	@Override
+	public List<String> listChildNames(String filePath) {
+		val res = new ArrayList<String>();
+		for(val child : list(filePath)) {
+			res.add(child.childName());
+		}
+		return res;
+	}
+
+	// modifications: forward then invalidate
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void mkdirs(String filePath) {
+		try {
+			delegate.mkdirs(filePath);
+		} finally {
+			invalidate(filePath, false);
+		}
+	}
+
+	@Override
+	public void deleteFile(String filePath) {
+		try {
+			delegate.deleteFile(filePath);
+		} finally {
+			invalidate(filePath, true);
+		}
+	}
+
+	@Override
+	public void renameFile(String filePath, String newFilePath) {
+		try {
+			delegate.renameFile(filePath, newFilePath);
+		} finally {
+			invalidate(filePath, true);
+			invalidate(newFilePath, true);
+		}
+	}
+
+	@Override
+	public OutputStream openWrite(String filePath, boolean append) {
+		invalidate(filePath, false);
+		val delegateOut = delegate.openWrite(filePath, append);
+		return new FilterOutputStream(delegateOut) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				delegateOut.write(b, off, len);
+			}
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					invalidate(filePath, false); // length and lastModified changed while writing
+				}
+			}
+		};
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data) {
+		try {
+			delegate.writeFile(filePath, data);
+		} finally {
+			invalidate(filePath, false);
+		}
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		try {
+			delegate.writeFile(filePath, data, off, len);
+		} finally {
+			invalidate(filePath, false);
+		}
+	}
+
+	@Override
+	public void writeAppendToFile(String filePath, byte[] appendData) {
+		try {
+			delegate.writeAppendToFile(filePath, appendData);
+		} finally {
+			invalidate(filePath, false);
+		}
+	}
+
+	@Override
+	public void write(String filePath, ByteBuffer... srcs) {
+		try {
+			delegate.write(filePath, srcs);
+		} finally {
+			invalidate(filePath, false);
+		}
+	}
+
+	@Override
+	public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+		try {
+			super.copyFrom(src, destFilePath, srcFileLen);
+		} finally {
+			invalidate(destFilePath, false);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * invalidate path, its (negative) parent dirs, and listings of parent dirs
+	 * @param subTree also invalidate all cached sub-paths (deleted or renamed dir)
+	 */
+	public void invalidate(String filePath, boolean subTree) {
+		val key = normalizePath(filePath);
+		synchronized(pathInfoCache) {
+			invalidateCount++;
+			pathInfoCache.remove(key);
+			listCache.remove(key);
+			if (subTree) {
+				val keyPrefix = key + "/";
+				removeKeysStartingWith(pathInfoCache, keyPrefix);
+				removeKeysStartingWith(listCache, keyPrefix);
+			}
+			// parent dirs may be implicitly created, and their listings are modified
+			String parent = key;
+			while(! parent.isEmpty()) {
+				parent = BlobStorageUtils.parentPathOf(parent);
+				listCache.remove(parent);
+				val cachedParent = pathInfoCache.get(parent);
+				if (cachedParent != null && cachedParent.value == null) {
+					pathInfoCache.remove(parent);
+				}
+			}
+		}
+	}
+
+	private static String normalizePath(String path) {
+		String res = path;
+		if (res.startsWith("/")) {
+			res = res.substring(1);
+		}
+		if (res.endsWith("/")) {
+			res = res.substring(0, res.length() - 1);
+		}
+		return res;
+	}
+
+	private static <T> CachedValue<T> getValid(Map<String, CachedValue<T>> cache, String key, long now) {
+		val res = cache.get(key);
+		if (res == null) {
+			return null;
+		}
+		if (res.expireTime < now) {
+			cache.remove(key);
+			return null;
+		}
+		return res;
+	}
+
+	private void putPathInfo(String key, BlobStoreFileInfo info, long fetchTime) {
+		val expireTime = fetchTime + ((info != null)? ttlMillis : negativeTtlMillis);
+		pathInfoCache.put(key, new CachedValue<>(info, expireTime));
+		evictIfNeeded();
+	}
+
+	private void evictIfNeeded() {
+		evictEldest(pathInfoCache);
+		evictEldest(listCache);
+	}
+
+	private <T> void evictEldest(LinkedHashMap<String, CachedValue<T>> cache) {
+		Iterator<?> iter = null;
+		while(cache.size() > maxEntries) {
+			if (iter == null) {
+				iter = cache.values().iterator();
+			}
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	private static <T> void removeKeysStartingWith(Map<String, CachedValue<T>> cache, String keyPrefix) {
+		cache.keySet().removeIf(k -> k.startsWith(keyPrefix));
+	}
+
+}
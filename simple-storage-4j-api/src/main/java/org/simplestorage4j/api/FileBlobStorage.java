@@ -7,12 +7,32 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-import org.simplestorage4j.api.util.BlobStorageIOUtils;
+import org.simplestorage4j.api.util.BlobStorageParallelTreeWalker;
+import org.simplestorage4j.api.util.FileChannelCache;
+import org.simplestorage4j.api.util.FileChannelSeekableBlobInputStream;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,6 +41,26 @@ public class FileBlobStorage extends BlobStorage {
 
 	public final File baseDir;
 	
+	/** for copyFrom(): create a hard link instead of copying content, when both files are on same file system.
+	 * src and dest then share content: writes through this BlobStorage first give the written file its own copy
+	 * (cf breakHardLink()), but files linked by copyFrom() must not be modified in place from outside */
+	@Getter @Setter
+	protected boolean useHardLinkForCopy = false;
+
+	/** for readAt()/readFile()/readVectored(): positional reads on shared cached FileChannels, instead of opening file per call.
+	 * Opt-in: cached channels are checked against file attributes on each read, but a same-size rewrite
+	 * from outside of this BlobStorage within the file system mtime granularity may not be detected */
+	@Getter @Setter
+	protected boolean useReadChannelCache = false;
+
+	/** for read-heavy workloads: read from memory-mapped files (up to 2Go, otherwise fallback to channel read).
+	 * Implies useReadChannelCache. Files modified outside of this BlobStorage must not be truncated while mapped. */
+	@Getter @Setter
+	protected boolean useMemoryMappedRead = false;
+
+	@Getter
+	protected final FileChannelCache readChannelCache = new FileChannelCache(128);
+
 	// ------------------------------------------------------------------------
 	
 	public FileBlobStorage(
@@ -35,15 +75,110 @@ public class FileBlobStorage extends BlobStorage {
 	protected File toFile(String subFilePath) {
 		return new File(baseDir, subFilePath);
 	}
+
+	protected Path toChannelCacheKey(File file) {
+		return file.toPath().toAbsolutePath().normalize();
+	}
+
+	/** to call before any modification of file content, or rename/delete */
+	protected void invalidateReadChannel(File file, boolean tree) {
+		val key = toChannelCacheKey(file);
+		if (tree) {
+			readChannelCache.invalidateTree(key);
+		} else {
+			readChannelCache.invalidate(key);
+		}
+	}
+
+	/**
+	 * when hard links are used for copy, before writing in place: give file its own inode, so that
+	 * other linked files are not modified. When truncating, file is deleted, otherwise content is copied to a temp file
+	 * then renamed.
+	 */
+	protected void breakHardLink(File file, boolean keepContent) {
+		if (! useHardLinkForCopy) {
+			return;
+		}
+		val path = file.toPath();
+		if (! Files.isRegularFile(path) || linkCountOf(path) <= 1) {
+			return;
+		}
+		Path tmpPath = null;
+		try {
+			if (! keepContent) {
+				Files.delete(path);
+				return;
+			}
+			tmpPath = Files.createTempFile(path.getParent(), "." + path.getFileName(), ".tmp");
+			Files.copy(path, tmpPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException ex) {
+			if (tmpPath != null) {
+				try {
+					Files.deleteIfExists(tmpPath);
+				} catch(IOException ex2) {
+					// ignore
+				}
+			}
+			throw new RuntimeException("Failed to break hard link of file '" + file + "'", ex);
+		}
+	}
+
+	/** @return count of hard links to file, 2 when unknown (assumed shared) */
+	private static int linkCountOf(Path path) {
+		try {
+			return ((Number) Files.getAttribute(path, "unix:nlink")).intValue();
+		} catch(IOException | UnsupportedOperationException | IllegalArgumentException ex) {
+			return 2;
+		}
+	}
+
+	protected boolean isReadChannelCacheEnabled() {
+		return useReadChannelCache || useMemoryMappedRead;
+	}
+
+	/**
+	 * positional read until dst is full, using cached channel (or memory-mapped file) when enabled
+	 */
+	protected void readFully(File file, ByteBuffer dst, long position) throws IOException {
+		if (isReadChannelCacheEnabled()) {
+			try (val cachedChannel = readChannelCache.acquire(toChannelCacheKey(file))) {
+				cachedChannel.readFully(dst, position, useMemoryMappedRead);
+			}
+		} else {
+			try (val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				long currPosition = position;
+				while(dst.hasRemaining()) {
+					int count = channel.read(dst, currPosition);
+					if (count < 0) {
+						throw new EOFException(); // should not occur
+					}
+					currPosition += count;
+				}
+			}
+		}
+	}
 	
+	/**
+	 * @return file info (using a single stat call), or null if not exists
+	 */
 	@Override
     public BlobStoreFileInfo pathInfo(String relativePath) {
-	    val file = toFile(relativePath);
-	    return toBlobStoreFileInfo(relativePath, file);
+	    val path = toFile(relativePath).toPath();
+	    BasicFileAttributes attrs;
+	    try {
+	    	attrs = Files.readAttributes(path, BasicFileAttributes.class);
+	    } catch(NoSuchFileException ex) {
+	    	return null;
+	    } catch(IOException ex) {
+	    	throw new RuntimeException("Failed to read attributes of '" + relativePath + "'", ex);
+	    }
+	    return toBlobStoreFileInfo(relativePath, attrs);
 	}
 
-    private BlobStoreFileInfo toBlobStoreFileInfo(String relativePath, File file) {
-        return new BlobStoreFileInfo(relativePath, file.isDirectory(), file.length(), file.lastModified());
+    private static BlobStoreFileInfo toBlobStoreFileInfo(String relativePath, BasicFileAttributes attrs) {
+        return new BlobStoreFileInfo(relativePath, attrs.isDirectory(),
+        		attrs.isDirectory()? 0 : attrs.size(), attrs.lastModifiedTime().toMillis());
     }
 
 	@Override
@@ -55,16 +190,94 @@ public class FileBlobStorage extends BlobStorage {
 	@Override
 	public List<BlobStoreFileInfo> list(String relativePath) {
         log.info("ls " + displayName + " '" + relativePath + "'");
-        val file = toFile(relativePath);
-        val tmpres = file.listFiles();
+        val dirPath = toFile(relativePath).toPath();
         val res = new ArrayList<BlobStoreFileInfo>();
-		for (val e : tmpres) {
-            String childRelativePath = relativePath + "/" + e.getName();
-            res.add(toBlobStoreFileInfo(childRelativePath, e));
+        // DirectoryStream: lazy iteration, no intermediate File[], then 1 stat call per child
+        try (val dirStream = Files.newDirectoryStream(dirPath)) {
+        	for (val childPath : dirStream) {
+        		String childRelativePath = relativePath + "/" + childPath.getFileName().toString();
+        		BasicFileAttributes attrs;
+        		try {
+        			attrs = Files.readAttributes(childPath, BasicFileAttributes.class);
+        		} catch(NoSuchFileException ex) {
+        			continue; // deleted while listing
+        		}
+        		res.add(toBlobStoreFileInfo(childRelativePath, attrs));
+        	}
+        } catch(IOException ex) {
+        	throw new RuntimeException("Failed to list dir '" + relativePath + "'", ex);
         }
         return res;
 	}
 
+	/**
+	 * parallel recursive walk (1 task per dir, cf BlobStorageParallelTreeWalker), entries are streamed
+	 * to batchCallback by dir, with paths relative to relativePath
+	 */
+	public void listRecursiveParallel(String relativePath, int parallelism, Consumer<List<BlobStoreFileInfo>> batchCallback) {
+		val pool = new ForkJoinPool(parallelism);
+		try {
+			val walker = new BlobStorageParallelTreeWalker(pool, null, null);
+			walker.walk(this, relativePath, batchCallback);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * lazy walk using <code>Files.walk()</code>, reading attributes of each path
+	 */
+	@Override
+	public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String relativePath, BlobStorageListOptions options) {
+		val basePath = baseDir.toPath();
+		val startPath = toFile(relativePath).toPath();
+		final Stream<Path> walkStream;
+		final Iterator<Path> walkIter;
+		if (Files.isDirectory(startPath)) {
+			try {
+				walkStream = Files.walk(startPath);
+			} catch (IOException ex) {
+				throw new RuntimeException("Failed to list recursive '" + relativePath + "'", ex);
+			}
+			walkIter = walkStream.filter(p -> ! p.equals(startPath)).iterator();
+		} else {
+			walkStream = null;
+			walkIter = Collections.emptyIterator();
+		}
+		val pageSize = Math.max(1, options.getPageSize());
+		return new PrefetchingPageIterator<BlobStoreFileInfo>(listPrefetchExecutor(options)) {
+			@Override
+			protected List<BlobStoreFileInfo> fetchNextPage() {
+				if (! walkIter.hasNext()) {
+					return null;
+				}
+				val res = new ArrayList<BlobStoreFileInfo>(pageSize);
+				while(res.size() < pageSize && walkIter.hasNext()) {
+					val path = walkIter.next();
+					BasicFileAttributes attrs;
+					try {
+						attrs = Files.readAttributes(path, BasicFileAttributes.class);
+					} catch (IOException ex) {
+						continue; // deleted while walking
+					}
+					if (attrs.isDirectory() && ! options.isIncludeDirs()) {
+						continue;
+					}
+					val childPath = basePath.relativize(path).toString().replace(File.separatorChar, '/');
+					res.add(toBlobStoreFileInfo(childPath, attrs));
+				}
+				return res;
+			}
+
+			@Override
+			protected void doClose() {
+				if (walkStream != null) {
+					walkStream.close();
+				}
+			}
+		};
+	}
+
 	@Override
     public List<String> listChildNames(String filePath) {
         log.info("ls " + displayName + " '" + filePath + "'");
@@ -84,6 +297,7 @@ public class FileBlobStorage extends BlobStorage {
 	public void deleteFile(String filePath) {
 		log.info("delete " + displayName + " file '" + filePath + "'");
 		val file = toFile(filePath);
+		invalidateReadChannel(file, true);
 		file.delete();
 	}
 
@@ -92,6 +306,8 @@ public class FileBlobStorage extends BlobStorage {
 		log.info("rename " + displayName + " file '" + filePath + "' -> '" + newFilePath + "'");
 		val file = toFile(filePath);
 		val newFile = toFile(newFilePath);
+		invalidateReadChannel(file, true);
+		invalidateReadChannel(newFile, true);
 		file.renameTo(newFile);
 	}
 
@@ -118,8 +334,20 @@ public class FileBlobStorage extends BlobStorage {
 	public OutputStream openWrite(String filePath, boolean append) {
 		log.info("open write" + ((append)? "-append" : "") + " to " + displayName + " file '" + filePath + "'");
 		val file = toFile(filePath);
+		invalidateReadChannel(file, false);
+		breakHardLink(file, append);
 		try {
-			return new FileOutputStream(file, append);
+			// also invalidate on close: channels re-opened by reads while writing are stale
+			return new FileOutputStream(file, append) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						invalidateReadChannel(file, false);
+					}
+				}
+			};
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to open write to file '" + filePath + "'", ex);
 		}
@@ -141,9 +369,27 @@ public class FileBlobStorage extends BlobStorage {
 		log.info("open read from " + displayName + " file '" + filePath + "' pos:" + position);
 		val file = toFile(filePath);
 		try {
-			val res = new FileInputStream(file);
-			BlobStorageIOUtils.skipFully(res, position);
-			return res;
+			// FileInputStream (not Channels.newInputStream()): channel-capable, for zero-copy BlobStorageIOUtils.copy()
+			val in = new FileInputStream(file);
+			try {
+				in.getChannel().position(position);
+			} catch(IOException ex) {
+				in.close();
+				throw ex;
+			}
+			return in;
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to open read from file '" + filePath + "' pos:" + position, ex);
+		}
+	}
+
+	@Override
+	public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+		log.info("open seekable read from " + displayName + " file '" + filePath + "' pos:" + position);
+		val file = toFile(filePath);
+		try {
+			val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return new FileChannelSeekableBlobInputStream(channel, position);
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to open read from file '" + filePath + "' pos:" + position, ex);
 		}
@@ -153,10 +399,29 @@ public class FileBlobStorage extends BlobStorage {
 	public void writeFile(String filePath, byte[] data) {
 		log.info("write to " + displayName + " file '" + filePath + "'");
 		val file = toFile(filePath);
+		invalidateReadChannel(file, false);
+		breakHardLink(file, false);
 		try (val out = new FileOutputStream(file)) {
 			out.write(data);
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		} finally {
+			invalidateReadChannel(file, false);
+		}
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		log.info("write to " + displayName + " file '" + filePath + "'");
+		val file = toFile(filePath);
+		invalidateReadChannel(file, false);
+		breakHardLink(file, false);
+		try (val out = new FileOutputStream(file)) {
+			out.write(data, off, len);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		} finally {
+			invalidateReadChannel(file, false);
 		}
 	}
 
@@ -165,10 +430,14 @@ public class FileBlobStorage extends BlobStorage {
 	    // too verbose..
 		// log.info("write append to " + displayName + " file '" + filePath + "'");
 		val file = toFile(filePath);
+		invalidateReadChannel(file, false);
+		breakHardLink(file, true);
 		try (val out = new FileOutputStream(file, true)) {
 			out.write(appendData);
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to write append to file '" + filePath + "'", ex);
+		} finally {
+			invalidateReadChannel(file, false);
 		}
 	}
 
@@ -181,9 +450,9 @@ public class FileBlobStorage extends BlobStorage {
 			throw new UnsupportedOperationException();
 		}
 		int len = (int) lenLong;
-		try (val in = new FileInputStream(file)) {
-			// readFully
-			byte[] res = BlobStorageIOUtils.readFully(in, len);
+		try {
+			byte[] res = new byte[len];
+			readFully(file, ByteBuffer.wrap(res), 0);
 			return res;
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to read file '" + filePath + "'", ex);
@@ -194,26 +463,124 @@ public class FileBlobStorage extends BlobStorage {
 	public void readAt(final byte[] resBuffer, final int resPos, String filePath, long position, int len) {
 		log.info("read " + displayName + " file '" + filePath + "'");
 		val file = toFile(filePath);
-		long lenLong = file.length(); // only 2Go supported here
-		if (lenLong > Integer.MAX_VALUE) {
-			throw new UnsupportedOperationException();
+		try {
+			readFully(file, ByteBuffer.wrap(resBuffer, resPos, len), position);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ", " + len + ")", ex);
 		}
-		try (val in = new FileInputStream(file)) {
-			if (position != 0) {
-				BlobStorageIOUtils.skipFully(in, position);
+	}
+
+	/**
+	 * positional read using (cached) FileChannel, directly into dst (no intermediate copy for direct buffers)
+	 */
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		val file = toFile(filePath);
+		try {
+			readFully(file, dst, position);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ")", ex);
+		}
+	}
+
+	/**
+	 * gathering write using FileChannel
+	 */
+	@Override
+	public void write(String filePath, ByteBuffer... srcs) {
+		log.info("write to " + displayName + " file '" + filePath + "'");
+		val file = toFile(filePath);
+		invalidateReadChannel(file, false);
+		breakHardLink(file, false);
+		try (val channel = FileChannel.open(file.toPath(), 
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long remain = 0;
+			for(val src: srcs) {
+				remain += src.remaining();
+			}
+			while(remain > 0) {
+				remain -= channel.write(srcs);
 			}
-        	int currResPos = resPos;
-        	int remainLen = len;
-            while (remainLen > 0) {
-                int count = in.read(resBuffer, currResPos, remainLen);
-                if (count < 0) {
-                    throw new EOFException(); // should not occur
-                }
-                currResPos += count;
-                remainLen -= count;
-            }
 		} catch(IOException ex) {
-			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ", " + len + ")", ex);
+			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		} finally {
+			invalidateReadChannel(file, false);
+		}
+	}
+
+	/**
+	 * vectored read using concurrent positional reads on a single shared FileChannel, no range merging needed
+	 */
+	@Override
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		val file = toFile(filePath);
+		FileChannelCache.CachedFileChannel cachedChannel;
+		try {
+			// leased once for all ranges, even when cache is disabled (then invalidated on completion)
+			cachedChannel = readChannelCache.acquire(toChannelCacheKey(file));
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to open read file '" + filePath + "'", ex);
+		}
+		val mmap = useMemoryMappedRead;
+		val res = new ArrayList<CompletableFuture<byte[]>>(ranges.size());
+		for(val range: ranges) {
+			res.add(CompletableFuture.supplyAsync(() -> {
+				val data = new byte[range.length];
+				try {
+					cachedChannel.readFully(ByteBuffer.wrap(data), range.offset, mmap);
+				} catch(IOException ex) {
+					throw new RuntimeException("Failed to read file '" + filePath + "' at " + range, ex);
+				}
+				return data;
+			}, executor));
+		}
+		CompletableFuture.allOf(res.toArray(new CompletableFuture<?>[res.size()])).whenComplete((ignored, ex) -> {
+			cachedChannel.close();
+			if (! isReadChannelCacheEnabled()) {
+				readChannelCache.invalidate(cachedChannel.path);
+			}
+		});
+		return res;
+	}
+
+	@Override
+	public boolean supportsCopyFrom(BlobStorage srcStorage) {
+		return srcStorage instanceof FileBlobStorage;
+	}
+
+	/**
+	 * copy using hard link if enabled (and possible), otherwise using FileChannel.transferTo()
+	 * (zero-copy in OS kernel, no buffer in JVM heap)
+	 */
+	@Override
+	public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+		val srcFile = ((FileBlobStorage) src.blobStorage).toFile(src.path).toPath();
+		val destFile = toFile(destFilePath).toPath();
+		invalidateReadChannel(toFile(destFilePath), false);
+		if (useHardLinkForCopy) {
+			log.info("hard link " + displayName + " file '" + destFilePath + "' to " + src);
+			try {
+				Files.deleteIfExists(destFile);
+				Files.createLink(destFile, srcFile);
+				return;
+			} catch(IOException | UnsupportedOperationException ex) {
+				log.warn("Failed to create hard link '" + destFilePath + "' to " + src + " ..fallback to copy, ex:" + ex.getMessage());
+			}
+		}
+		log.info("copy to " + displayName + " file '" + destFilePath + "' from " + src);
+		try (val srcChannel = FileChannel.open(srcFile, StandardOpenOption.READ);
+				val destChannel = FileChannel.open(destFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			val len = srcChannel.size();
+			long position = 0;
+			while(position < len) {
+				long count = srcChannel.transferTo(position, len - position, destChannel);
+				if (count <= 0) {
+					throw new EOFException("src file truncated while copying, at " + position + "/" + len);
+				}
+				position += count;
+			}
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to copy to file '" + destFilePath + "' from " + src, ex);
 		}
 	}
 
@@ -0,0 +1,198 @@
+package org.simplestorage4j.api;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.simplestorage4j.api.util.BlobStorageRetryPolicy;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+
+/**
+ * decorator base class: forward all calls to delegate BlobStorage (with same id, groupId, displayName)
+ *
+ * sub-classes override only the methods they decorate.
+ * Server-side copy is forwarded to unwrapped storages, so decorated FileBlobStorage/S3 still support copyFrom().
+ * async() is not forwarded: the default executor adapter calls back this decorator.
+ */
+public class ForwardingBlobStorage extends BlobStorage {
+
+	protected final BlobStorage delegate;
+
+	// ------------------------------------------------------------------------
+
+	public ForwardingBlobStorage(BlobStorage delegate) {
+		super(delegate.id, delegate.groupId, delegate.displayName);
+		this.delegate = delegate;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorage getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * @return innermost (non forwarding) storage
+	 */
+	public static BlobStorage unwrap(BlobStorage storage) {
+		BlobStorage res = storage;
+		while(res instanceof ForwardingBlobStorage) {
+			res = ((ForwardingBlobStorage) res).delegate;
+		}
+		return res;
+	}
+
+	/**
+	 * forwarded: same retry budget as delegate, and no retry added over storages retrying internally
+	 */
+	@Override
+	public BlobStorageRetryPolicy getRetryPolicy() {
+		return delegate.getRetryPolicy();
+	}
+
+	@Override
+	public void setRetryPolicy(BlobStorageRetryPolicy retryPolicy) {
+		delegate.setRetryPolicy(retryPolicy);
+	}
+
+	@Override
+	public BlobStoreFileInfo pathInfo(String filePath) {
+		return delegate.pathInfo(filePath);
+	}
+
+	@Override
+	public boolean exists(String filePath) {
+		return delegate.exists(filePath);
+	}
+
+	@Override
+	public boolean isDirectory(String filePath) {
+		return delegate.isDirectory(filePath);
+	}
+
+	@Override
+	public long fileLen(String filePath) {
+		return delegate.fileLen(filePath);
+	}
+
+	@Override
+	public long lastModifiedTime(String filePath) {
+		return delegate.lastModifiedTime(filePath);
+	}
+
+	@Override
+	public void mkdirs(String filePath) {
+		delegate.mkdirs(filePath);
+	}
+
+	@Override
+	public List<String> listChildNames(String filePath) {
+		return delegate.listChildNames(filePath);
+	}
+
+	@Override
+	public List<BlobStoreFileInfo> list(String filePath) {
+		return delegate.list(filePath);
+	}
+
+	@Override
+	public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String filePath, BlobStorageListOptions options) {
+		return delegate.listRecursive(filePath, options);
+	}
+
+	@Override
+	public void deleteFile(String filePath) {
+		delegate.deleteFile(filePath);
+	}
+
+	@Override
+	public void renameFile(String filePath, String newFilePath) {
+		delegate.renameFile(filePath, newFilePath);
+	}
+
+	@Override
+	public OutputStream openWrite(String filePath, boolean append) {
+		return delegate.openWrite(filePath, append);
+	}
+
+	@Override
+	public InputStream openRead(String filePath, long position) {
+		return delegate.openRead(filePath, position);
+	}
+
+	@Override
+	public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+		return delegate.openSeekableRead(filePath, position);
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data) {
+		delegate.writeFile(filePath, data);
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		delegate.writeFile(filePath, data, off, len);
+	}
+
+	@Override
+	public void writeAppendToFile(String filePath, byte[] appendData) {
+		delegate.writeAppendToFile(filePath, appendData);
+	}
+
+	@Override
+	public byte[] readFile(String filePath) {
+		return delegate.readFile(filePath);
+	}
+
+	@Override
+	public long readFileTo(String filePath, OutputStream output) {
+		return delegate.readFileTo(filePath, output);
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		delegate.readAt(resBuffer, resPos, filePath, position, len);
+	}
+
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		delegate.readAt(dst, filePath, position);
+	}
+
+	@Override
+	public void write(String filePath, ByteBuffer... srcs) {
+		delegate.write(filePath, srcs);
+	}
+
+	@Override
+	public boolean supportsCopyFrom(BlobStorage srcStorage) {
+		return delegate.supportsCopyFrom(unwrap(srcStorage));
+	}
+
+	@Override
+	public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+		delegate.copyFrom(new BlobStoragePath(unwrap(src.blobStorage), src.path), destFilePath, srcFileLen);
+	}
+
+	@Override
+	public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> filePaths) {
+		return delegate.pathInfos(filePaths);
+	}
+
+	@Override
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		return delegate.readVectored(filePath, ranges, executor);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(" + delegate + ")";
+	}
+
+}
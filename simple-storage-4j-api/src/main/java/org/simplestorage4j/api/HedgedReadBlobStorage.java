@@ -0,0 +1,236 @@
+package org.simplestorage4j.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.simplestorage4j.api.util.BlobStorageNamedThreadFactory;
+import org.simplestorage4j.api.util.LoggingCounter;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * decorator cutting tail latency of range reads on object stores: when a readAt() has not answered after a latency threshold
+ * (percentile of recent reads, default p95), a duplicate read of the same range is issued, and the first successful answer is used
+ *
+ * once hedging is active, each read (primary and hedge) reads in its own buffer on another thread, and the caller waits for
+ * the first success: a slow primary is cut short by a faster hedge, and a failing primary is covered by a running hedge.
+ * Primaries run on a shared unbounded pool, only hedges are submitted to the executor: maxThreads bounds concurrent hedges,
+ * not concurrent reads. The losing read is cancelled when not started yet, otherwise ignored.
+ * Costs at most (1 - percentile) more read requests. Until <code>minSamples</code> reads are observed, reads are not hedged
+ * and run on the caller thread.
+ * readAt() and readVectored() (1 readAt() per range) are hedged, streaming reads (openRead..) are not.
+ * Better stacked over RateLimitedBlobStorage, so that duplicate reads are also rate limited.
+ */
+@Slf4j
+public class HedgedReadBlobStorage extends ForwardingBlobStorage {
+
+	/** shared pool of primary reads, unbounded: callers are already bounded by their own threads */
+	private static final ExecutorService primaryExecutor = Executors.newCachedThreadPool(
+			new BlobStorageNamedThreadFactory("hedged-read-primary-", "", true));
+
+	private final ExecutorService executor;
+
+	@Getter @Setter
+	private double percentile = 0.95;
+
+	/** lower bound of hedge delay, to avoid duplicating reads of very fast backends */
+	@Getter @Setter
+	private long minHedgeDelayMillis = 20;
+
+	@Getter @Setter
+	private int minSamples = 20;
+
+	/** guarded by itself: ring buffer of recent successful read latencies */
+	private final long[] latencySamples;
+	private int latencySampleCount;
+	private int latencySampleIndex;
+	/** cached percentile of latencySamples, -1 when not computed */
+	private long latencyThresholdMillis = -1;
+
+	@Getter
+	protected final LoggingCounter counter_hedged;
+	@Getter
+	protected final LoggingCounter counter_hedgeWin;
+
+	// ------------------------------------------------------------------------
+
+	public HedgedReadBlobStorage(BlobStorage delegate, int maxThreads) {
+		this(delegate, Executors.newFixedThreadPool(maxThreads,
+				new BlobStorageNamedThreadFactory("hedged-read-" + delegate.id.id + "-", "", true)), 1024);
+	}
+
+	public HedgedReadBlobStorage(BlobStorage delegate, ExecutorService executor, int latencySampleSize) {
+		super(delegate);
+		this.executor = executor;
+		this.latencySamples = new long[latencySampleSize];
+		this.counter_hedged = new LoggingCounter("hedged read " + displayName);
+		this.counter_hedgeWin = new LoggingCounter("hedged read " + displayName + " hedge Win");
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return current hedge delay, or -1 when not enough latency samples yet
+	 */
+	public long getHedgeDelayMillis() {
+		synchronized(latencySamples) {
+			if (latencySampleCount < minSamples) {
+				return -1;
+			}
+			if (latencyThresholdMillis < 0) {
+				val sorted = Arrays.copyOf(latencySamples, latencySampleCount);
+				Arrays.sort(sorted);
+				val index = Math.min(sorted.length - 1, (int) (percentile * sorted.length));
+				this.latencyThresholdMillis = sorted[index];
+			}
+			return Math.max(minHedgeDelayMillis, latencyThresholdMillis);
+		}
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		val hedgeDelayMillis = getHedgeDelayMillis();
+		if (hedgeDelayMillis < 0) {
+			val startTime = System.currentTimeMillis();
+
+			delegate.readAt(resBuffer, resPos, filePath, position, len);
+
+			recordLatency(System.currentTimeMillis() - startTime);
+			return;
+		}
+		// each read in its own buffer: the losing one may still be writing after return
+		val primary = submitReadAt(primaryExecutor, filePath, position, len);
+		byte[] data;
+		try {
+			data = primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+		} catch(TimeoutException ex) {
+			CompletableFuture<byte[]> hedge;
+			try {
+				hedge = submitReadAt(executor, filePath, position, len);
+				counter_hedged.incr(hedgeDelayMillis, logPrefix -> log.info(logPrefix + " '" + filePath + "' at(" + position + "," + len + ") after " + hedgeDelayMillis + " ms"));
+			} catch(RejectedExecutionException ex2) {
+				hedge = primary; // executor shutdown: wait for primary only
+			}
+			data = joinFirstSuccess(primary, hedge);
+			if (hedge != primary && isSuccess(hedge) && ! isSuccess(primary)) {
+				counter_hedgeWin.incr(0, logPrefix -> log.info(logPrefix + " '" + filePath + "'"));
+			}
+			primary.cancel(false);
+			hedge.cancel(false);
+		} catch(ExecutionException ex) {
+			val cause = ex.getCause();
+			throw (cause instanceof RuntimeException)? (RuntimeException) cause : new RuntimeException(cause);
+		} catch(InterruptedException ex) {
+			primary.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading " + filePath, ex);
+		}
+		System.arraycopy(data, 0, resBuffer, resPos, len);
+	}
+
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		val len = dst.remaining();
+		if (dst.hasArray()) {
+			readAt(dst.array(), dst.arrayOffset() + dst.position(), filePath, position, len);
+			dst.position(dst.position() + len);
+		} else {
+			dst.put(readAt(filePath, position, len));
+		}
+	}
+
+	/**
+	 * 1 hedged readAt() per range
+	 */
+	@Override
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		val res = new ArrayList<CompletableFuture<byte[]>>(ranges.size());
+		for(val range: ranges) {
+			res.add(CompletableFuture.supplyAsync(() -> readAt(filePath, range.offset, range.length), executor));
+		}
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * read in a new buffer on executor, skipped when cancelled before it starts
+	 */
+	protected CompletableFuture<byte[]> submitReadAt(ExecutorService executor, String filePath, long position, int len) {
+		return CompletableFuture.supplyAsync(() -> {
+			val startTime = System.currentTimeMillis();
+
+			val res = new byte[len];
+			delegate.readAt(res, 0, filePath, position, len);
+
+			recordLatency(System.currentTimeMillis() - startTime);
+			return res;
+		}, executor);
+	}
+
+	protected void recordLatency(long millis) {
+		synchronized(latencySamples) {
+			latencySamples[latencySampleIndex] = millis;
+			this.latencySampleIndex = (latencySampleIndex + 1) % latencySamples.length;
+			if (latencySampleCount < latencySamples.length) {
+				latencySampleCount++;
+			}
+			if (latencySampleIndex % 16 == 0) {
+				this.latencyThresholdMillis = -1; // recompute lazily
+			}
+		}
+	}
+
+	/**
+	 * @return result of first successful future, or rethrow primary failure (with hedge failure suppressed) when both fail
+	 */
+	private static byte[] joinFirstSuccess(CompletableFuture<byte[]> primary, CompletableFuture<byte[]> hedge) {
+		val res = new CompletableFuture<byte[]>();
+		primary.whenComplete((data, ex) -> {
+			if (ex == null) {
+				res.complete(data);
+			} else {
+				hedge.whenComplete((data2, ex2) -> {
+					if (ex2 == null) {
+						res.complete(data2);
+					} else {
+						Throwable primaryEx = unwrapCompletion(ex);
+						if (hedge != primary) {
+							primaryEx.addSuppressed(unwrapCompletion(ex2));
+						}
+						res.completeExceptionally(primaryEx);
+					}
+				});
+			}
+		});
+		hedge.thenAccept(res::complete);
+		try {
+			return res.join();
+		} catch(CompletionException ex) {
+			val cause = ex.getCause();
+			throw (cause instanceof RuntimeException)? (RuntimeException) cause : new RuntimeException(cause);
+		}
+	}
+
+	private static boolean isSuccess(CompletableFuture<?> future) {
+		return future.isDone() && ! future.isCompletedExceptionally();
+	}
+
+	private static Throwable unwrapCompletion(Throwable ex) {
+		return (ex instanceof CompletionException && ex.getCause() != null)? ex.getCause() : ex;
+	}
+
+}
@@ -0,0 +1,351 @@
+package org.simplestorage4j.api;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import org.simplestorage4j.api.util.BlobStorageRateLimiter;
+import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+
+import lombok.val;
+
+/**
+ * decorator limiting request rate and read/write bandwidth, using token buckets (cf BlobStorageRateLimiter)
+ *
+ * each call takes 1 request token, and read/written bytes tokens (streams: per read/write call).
+ * Throttling errors (http 503/429, SlowDown, ServerBusy..) cut the rates of the limiter, successes slowly ramp them up.
+ * The limiter may be shared by several storages of a group, cf <code>BlobStorageRateLimiter.sharedOfGroup()</code>
+ */
+public class RateLimitedBlobStorage extends ForwardingBlobStorage {
+
+	public final BlobStorageRateLimiter rateLimiter;
+
+	// ------------------------------------------------------------------------
+
+	public RateLimitedBlobStorage(BlobStorage delegate, BlobStorageRateLimiter rateLimiter) {
+		super(delegate);
+		this.rateLimiter = rateLimiter;
+	}
+
+	// ------------------------------------------------------------------------
+
+	protected <T> T call(Supplier<T> op) {
+		rateLimiter.acquireRequest();
+		try {
+			val res = op.get();
+			rateLimiter.onSuccess();
+			return res;
+		} catch(RuntimeException ex) {
+			rateLimiter.onError(ex);
+			throw ex;
+		}
+	}
+
+	protected void run(Runnable op) {
+		rateLimiter.acquireRequest();
+		try {
+			op.run();
+			rateLimiter.onSuccess();
+		} catch(RuntimeException ex) {
+			rateLimiter.onError(ex);
+			throw ex;
+		}
+	}
+
+	@Override
+	public BlobStoreFileInfo pathInfo(String filePath) {
+		return call(() -> delegate.pathInfo(filePath));
+	}
+
+	@Override
+	public boolean exists(String filePath) {
+		return call(() -> delegate.exists(filePath));
+	}
+
+	@Override
+	public boolean isDirectory(String filePath) {
+		return call(() -> delegate.isDirectory(filePath));
+	}
+
+	@Override
+	public long fileLen(String filePath) {
+		return call(() -> delegate.fileLen(filePath));
+	}
+
+	@Override
+	public long lastModifiedTime(String filePath) {
+		return call(() -> delegate.lastModifiedTime(filePath));
+	}
+
+	@Override
+	public void mkdirs(String filePath) {
+		run(() -> delegate.mkdirs(filePath));
+	}
+
+	@Override
+	public List<String> listChildNames(String filePath) {
+		return call(() -> delegate.listChildNames(filePath));
+	}
+
+	@Override
+	public List<BlobStoreFileInfo> list(String filePath) {
+		return call(() -> delegate.list(filePath));
+	}
+
+	/**
+	 * 1 request token for the whole listing (pages are not counted)
+	 */
+	@Override
+	public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String filePath, BlobStorageListOptions options) {
+		return call(() -> delegate.listRecursive(filePath, options));
+	}
+
+	@Override
+	public void deleteFile(String filePath) {
+		run(() -> delegate.deleteFile(filePath));
+	}
+
+	@Override
+	public void renameFile(String filePath, String newFilePath) {
+		run(() -> delegate.renameFile(filePath, newFilePath));
+	}
+
+	@Override
+	public OutputStream openWrite(String filePath, boolean append) {
+		val out = call(() -> delegate.openWrite(filePath, append));
+		return new RateLimitedOutputStream(out);
+	}
+
+	@Override
+	public InputStream openRead(String filePath, long position) {
+		val in = call(() -> delegate.openRead(filePath, position));
+		return new RateLimitedInputStream(in);
+	}
+
+	@Override
+	public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+		val in = call(() -> delegate.openSeekableRead(filePath, position));
+		return new RateLimitedSeekableInputStream(in);
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data) {
+		rateLimiter.acquireWrite(data.length);
+		run(() -> delegate.writeFile(filePath, data));
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		rateLimiter.acquireWrite(len);
+		run(() -> delegate.writeFile(filePath, data, off, len));
+	}
+
+	@Override
+	public void writeAppendToFile(String filePath, byte[] appendData) {
+		rateLimiter.acquireWrite(appendData.length);
+		run(() -> delegate.writeAppendToFile(filePath, appendData));
+	}
+
+	@Override
+	public void write(String filePath, ByteBuffer... srcs) {
+		long len = 0;
+		for(val src : srcs) {
+			len += src.remaining();
+		}
+		rateLimiter.acquireWrite(len);
+		run(() -> delegate.write(filePath, srcs));
+	}
+
+	/**
+	 * length unknown before read: bytes tokens taken after read
+	 */
+	@Override
+	public byte[] readFile(String filePath) {
+		val res = call(() -> delegate.readFile(filePath));
+		rateLimiter.acquireRead(res.length);
+		return res;
+	}
+
+	@Override
+	public long readFileTo(String filePath, OutputStream output) {
+		val res = call(() -> delegate.readFileTo(filePath, output));
+		rateLimiter.acquireRead(res);
+		return res;
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		rateLimiter.acquireRead(len);
+		run(() -> delegate.readAt(resBuffer, resPos, filePath, position, len));
+	}
+
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		rateLimiter.acquireRead(dst.remaining());
+		run(() -> delegate.readAt(dst, filePath, position));
+	}
+
+	/**
+	 * server-side copy: 1 request, no data transferred through this JVM
+	 */
+	@Override
+	public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+		run(() -> super.copyFrom(src, destFilePath, srcFileLen));
+	}
+
+	/**
+	 * 1 request token per parent dir (cf pathInfos() listing per parent)
+	 */
+	@Override
+	public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> filePaths) {
+		val parentCount = BlobStorageUtils.groupByParentPath(filePaths).size();
+		if (parentCount > 1) {
+			rateLimiter.requestsBucket.acquire(parentCount - 1);
+		}
+		return call(() -> delegate.pathInfos(filePaths));
+	}
+
+	/**
+	 * all bytes and 1 request token per range taken before submitting
+	 */
+	@Override
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		long len = 0;
+		for(val range : ranges) {
+			len += range.length;
+		}
+		rateLimiter.acquireRead(len);
+		if (ranges.size() > 1) {
+			rateLimiter.requestsBucket.acquire(ranges.size() - 1);
+		}
+		val res = call(() -> delegate.readVectored(filePath, ranges, executor));
+		for(val future : res) {
+			future.whenComplete((data, ex) -> {
+				if (ex != null) {
+					rateLimiter.onError(ex);
+				}
+			});
+		}
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	protected class RateLimitedInputStream extends FilterInputStream {
+
+		protected RateLimitedInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			val res = in.read();
+			if (res != -1) {
+				rateLimiter.acquireRead(1);
+			}
+			return res;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count;
+			try {
+				count = in.read(b, off, len);
+			} catch(IOException | RuntimeException ex) {
+				rateLimiter.onError(ex);
+				throw ex;
+			}
+			if (count > 0) {
+				rateLimiter.acquireRead(count);
+			}
+			return count;
+		}
+	}
+
+	protected class RateLimitedSeekableInputStream extends SeekableBlobInputStream {
+		private final SeekableBlobInputStream in;
+
+		protected RateLimitedSeekableInputStream(SeekableBlobInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public void seek(long position) throws IOException {
+			in.seek(position);
+		}
+
+		@Override
+		public long getPos() throws IOException {
+			return in.getPos();
+		}
+
+		@Override
+		public int read() throws IOException {
+			val res = in.read();
+			if (res != -1) {
+				rateLimiter.acquireRead(1);
+			}
+			return res;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count;
+			try {
+				count = in.read(b, off, len);
+			} catch(IOException | RuntimeException ex) {
+				rateLimiter.onError(ex);
+				throw ex;
+			}
+			if (count > 0) {
+				rateLimiter.acquireRead(count);
+			}
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return in.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	protected class RateLimitedOutputStream extends FilterOutputStream {
+
+		protected RateLimitedOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			rateLimiter.acquireWrite(1);
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			rateLimiter.acquireWrite(len);
+			try {
+				out.write(b, off, len);
+			} catch(IOException | RuntimeException ex) {
+				rateLimiter.onError(ex);
+				throw ex;
+			}
+		}
+	}
+
+}
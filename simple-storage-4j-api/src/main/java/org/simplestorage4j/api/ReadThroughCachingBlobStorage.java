@@ -0,0 +1,307 @@
+package org.simplestorage4j.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.simplestorage4j.api.util.LoggingCounter;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * decorator caching file content by fixed-size blocks, on a local dir (FileBlobStorage), for remote storages
+ *
+ * blocks are keyed by (path, length, lastModified, block index): a modified remote file is never read from stale blocks.
+ * Cached bytes are bounded by <code>maxCacheBytes</code>, least recently used blocks are deleted first.
+ * Concurrent reads of the same missing block wait for a single fetch.
+ * readAt(), readFile(), readVectored() are cached, streaming reads (openRead..) are not.
+ * pathInfo() is called for each read: better stacked over a CachingBlobStorage (metadata cache).
+ */
+@Slf4j
+public class ReadThroughCachingBlobStorage extends ForwardingBlobStorage {
+
+	public final FileBlobStorage cacheStorage;
+
+	@Getter
+	private final int blockSize;
+
+	@Getter @Setter
+	private long maxCacheBytes;
+
+	/** guarded by itself, LRU access-order: block cache path -> block length */
+	private final LinkedHashMap<String, Integer> cachedBlocks = new LinkedHashMap<>(1024, 0.75f, true);
+
+	/** guarded by cachedBlocks */
+	private long cachedBytes;
+
+	/** guarded by cachedBlocks */
+	private final Set<String> createdCacheDirs = new HashSet<>();
+
+	private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlightFetches = new ConcurrentHashMap<>();
+
+	@Getter
+	protected final LoggingCounter counter_blockHit;
+	@Getter
+	protected final LoggingCounter counter_blockMiss;
+
+	// ------------------------------------------------------------------------
+
+	public ReadThroughCachingBlobStorage(BlobStorage delegate, FileBlobStorage cacheStorage, int blockSize, long maxCacheBytes) {
+		super(delegate);
+		this.cacheStorage = cacheStorage;
+		this.blockSize = blockSize;
+		this.maxCacheBytes = maxCacheBytes;
+		this.counter_blockHit = new LoggingCounter("read cache " + displayName + " block Hit");
+		this.counter_blockMiss = new LoggingCounter("read cache " + displayName + " block Miss");
+		reindexCacheDir();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return ratio of blocks read from local cache, in [0, 1]
+	 */
+	public double getHitRatio() {
+		val hits = counter_blockHit.getCount();
+		val total = hits + counter_blockMiss.getCount();
+		return (total != 0)? ((double) hits) / total : 0.0;
+	}
+
+	public long getCachedBytes() {
+		synchronized(cachedBlocks) {
+			return cachedBytes;
+		}
+	}
+
+	@Override
+	public byte[] readFile(String filePath) {
+		val info = requireFileInfo(filePath);
+		if (info.fileLength > Integer.MAX_VALUE) {
+			throw new UnsupportedOperationException();
+		}
+		val res = new byte[(int) info.fileLength];
+		readBlocks(info, filePath, res, 0, 0, res.length);
+		return res;
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		val info = requireFileInfo(filePath);
+		readBlocks(info, filePath, resBuffer, resPos, position, len);
+	}
+
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		val len = dst.remaining();
+		if (dst.hasArray()) {
+			readAt(dst.array(), dst.arrayOffset() + dst.position(), filePath, position, len);
+			dst.position(dst.position() + len);
+		} else {
+			dst.put(readAt(filePath, position, len));
+		}
+	}
+
+	/**
+	 * 1 cached readAt() per range (no range merging needed: blocks are already read once)
+	 */
+	@Override
+	public List<CompletableFuture<byte[]>> readVectored(String filePath, List<BlobStorageFileRange> ranges, ExecutorService executor) {
+		val res = new ArrayList<CompletableFuture<byte[]>>(ranges.size());
+		for(val range: ranges) {
+			res.add(CompletableFuture.supplyAsync(() -> readAt(filePath, range.offset, range.length), executor));
+		}
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	protected BlobStoreFileInfo requireFileInfo(String filePath) {
+		val info = delegate.pathInfo(filePath);
+		if (info == null || info.isDir) {
+			throw new RuntimeException("Failed to read file '" + filePath + "': not found");
+		}
+		return info;
+	}
+
+	protected void readBlocks(BlobStoreFileInfo info, String filePath,
+			byte[] resBuffer, int resPos, long position, int len) {
+		if (position + len > info.fileLength) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ", " + len + "): after EOF " + info.fileLength);
+		}
+		val fileKey = fileKeyOf(filePath, info);
+		long currPosition = position;
+		int currResPos = resPos;
+		int remainLen = len;
+		while(remainLen > 0) {
+			val blockIndex = currPosition / blockSize;
+			val blockStart = blockIndex * blockSize;
+			val blockLen = (int) Math.min(blockSize, info.fileLength - blockStart);
+
+			val blockData = getBlock(fileKey, filePath, blockIndex, blockStart, blockLen);
+
+			val fromBlockPos = (int) (currPosition - blockStart);
+			val count = Math.min(remainLen, blockLen - fromBlockPos);
+			System.arraycopy(blockData, fromBlockPos, resBuffer, currResPos, count);
+			currPosition += count;
+			currResPos += count;
+			remainLen -= count;
+		}
+	}
+
+	protected byte[] getBlock(String fileKey, String filePath, long blockIndex, long blockStart, int blockLen) {
+		val blockPath = fileKey.substring(0, 2) + "/" + fileKey + "-" + blockIndex;
+		boolean cached;
+		synchronized(cachedBlocks) {
+			cached = cachedBlocks.get(blockPath) != null;
+		}
+		if (cached) {
+			byte[] data = null;
+			try {
+				data = cacheStorage.readFile(blockPath);
+			} catch(RuntimeException ex) {
+				log.warn("Failed to read cached block '" + blockPath + "' ..ignore, re-fetch " + ex.getMessage());
+			}
+			if (data != null && data.length == blockLen) {
+				counter_blockHit.incr(0, logPrefix -> log.info(logPrefix + " '" + filePath + "' [" + blockIndex + "] hitRatio:" + (int) (100 * getHitRatio()) + "%"));
+				return data;
+			}
+			removeBlock(blockPath); // corrupted or truncated: re-fetch
+		}
+
+		// fetch, or wait for concurrent fetch of same block
+		val fetchFuture = new CompletableFuture<byte[]>();
+		val prevFuture = inFlightFetches.putIfAbsent(blockPath, fetchFuture);
+		if (prevFuture != null) {
+			try {
+				return prevFuture.join();
+			} catch(CompletionException ex) {
+				val cause = ex.getCause();
+				throw (cause instanceof RuntimeException)? (RuntimeException) cause : new RuntimeException(cause);
+			}
+		}
+		try {
+			val startTime = System.currentTimeMillis();
+
+			val data = delegate.readAt(filePath, blockStart, blockLen);
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_blockMiss.incr(millis, logPrefix -> log.info(logPrefix + " '" + filePath + "' [" + blockIndex + "] hitRatio:" + (int) (100 * getHitRatio()) + "%"));
+			putBlock(blockPath, data);
+			fetchFuture.complete(data);
+			return data;
+		} catch(RuntimeException ex) {
+			fetchFuture.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlightFetches.remove(blockPath);
+		}
+	}
+
+	protected void putBlock(String blockPath, byte[] data) {
+		try {
+			val dirPath = blockPath.substring(0, blockPath.indexOf('/'));
+			boolean needMkdir;
+			synchronized(cachedBlocks) {
+				needMkdir = createdCacheDirs.add(dirPath);
+			}
+			if (needMkdir) {
+				cacheStorage.mkdirs(dirPath);
+			}
+			cacheStorage.writeFile(blockPath, data);
+		} catch(RuntimeException ex) {
+			log.warn("Failed to write cached block '" + blockPath + "' ..ignore " + ex.getMessage());
+			return;
+		}
+		val evictedBlockPaths = new ArrayList<String>();
+		synchronized(cachedBlocks) {
+			val prevLen = cachedBlocks.put(blockPath, data.length);
+			cachedBytes += data.length - ((prevLen != null)? prevLen : 0);
+			val iter = cachedBlocks.entrySet().iterator(); // LRU first
+			while(cachedBytes > maxCacheBytes && iter.hasNext()) {
+				val e = iter.next();
+				if (e.getKey().equals(blockPath)) {
+					continue;
+				}
+				iter.remove();
+				cachedBytes -= e.getValue();
+				evictedBlockPaths.add(e.getKey());
+			}
+		}
+		for(val evictedBlockPath : evictedBlockPaths) {
+			deleteCacheFileQuietly(evictedBlockPath);
+		}
+	}
+
+	protected void removeBlock(String blockPath) {
+		synchronized(cachedBlocks) {
+			val prevLen = cachedBlocks.remove(blockPath);
+			if (prevLen != null) {
+				cachedBytes -= prevLen;
+			}
+		}
+		deleteCacheFileQuietly(blockPath);
+	}
+
+	private void deleteCacheFileQuietly(String blockPath) {
+		try {
+			cacheStorage.deleteFile(blockPath);
+		} catch(RuntimeException ex) {
+			log.warn("Failed to delete cached block '" + blockPath + "' ..ignore " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * re-use blocks from a previous run (LRU order unknown), evict when over budget
+	 */
+	private void reindexCacheDir() {
+		val options = new BlobStorageListOptions(false, 1000, false);
+		val evictedBlockPaths = new ArrayList<String>();
+		try (val iter = cacheStorage.listRecursive("", options)) {
+			synchronized(cachedBlocks) {
+				while(iter.hasNext()) {
+					val e = iter.next();
+					if (cachedBytes + e.fileLength > maxCacheBytes) {
+						evictedBlockPaths.add(e.path);
+						continue;
+					}
+					cachedBlocks.put(e.path, (int) e.fileLength);
+					cachedBytes += e.fileLength;
+				}
+			}
+		} catch(RuntimeException ex) {
+			log.warn("Failed to list read cache dir " + cacheStorage.baseDir + " ..ignore " + ex.getMessage());
+		}
+		for(val evictedBlockPath : evictedBlockPaths) {
+			deleteCacheFileQuietly(evictedBlockPath);
+		}
+		log.info("read cache " + displayName + " dir " + cacheStorage.baseDir + ": " + cachedBlocks.size() + " blocks, " + cachedBytes + " bytes");
+	}
+
+	private static String fileKeyOf(String filePath, BlobStoreFileInfo info) {
+		val text = filePath + "|" + info.fileLength + "|" + info.lastModifTime;
+		try {
+			val digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			val res = new StringBuilder(digest.length * 2);
+			for(val b : digest) {
+				res.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return res.toString();
+		} catch(NoSuchAlgorithmException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+}
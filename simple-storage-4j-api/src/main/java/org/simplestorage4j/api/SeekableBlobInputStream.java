@@ -0,0 +1,35 @@
+package org.simplestorage4j.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream on a blob file, with random access: <code>seek()</code> / <code>getPos()</code>
+ *
+ * seeking is lazy for remote storages: no request is done until the next read
+ */
+public abstract class SeekableBlobInputStream extends InputStream {
+
+	/**
+	 * set position of next read
+	 */
+	public abstract void seek(long position) throws IOException;
+
+	/**
+	 * @return position of next read
+	 */
+	public abstract long getPos() throws IOException;
+
+	/**
+	 * skip by seeking forward, does not read skipped bytes
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0;
+		}
+		seek(getPos() + n);
+		return n;
+	}
+
+}
@@ -5,19 +5,37 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import org.simplestorage4j.api.iocost.immutable.BlobStorageOperationResult;
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+import org.simplestorage4j.api.util.BlobStorageBytesBudget;
 import org.simplestorage4j.api.util.LoggingCounter.LoggingCounterParams;
 import org.simplestorage4j.api.util.LoggingCounter.MsgPrefixLoggingCallback;
 
 import lombok.Getter;
+import lombok.Setter;
 
 public class BlobStorageOperationExecContext {
 
+	public static final int DEFAULT_LARGE_FILE_MAX_IN_FLIGHT_BLOCKS = 4;
+	public static final long DEFAULT_LARGE_FILE_MAX_IN_FLIGHT_BYTES = 512L * 1024 * 1024;
+
 	@Getter
 	private final ExecutorService subTasksExecutor;
 
 	@Getter
 	private final ExecutorService largeFileRangeTasksExecutor;
 
+	/** max read-ahead blocks per large file copy operation */
+	@Getter
+	private final int largeFileMaxInFlightBlocks;
+
+	/** budget of in-memory bytes for large file blocks, shared by all operations */
+	@Getter
+	private final BlobStorageBytesBudget largeFileBytesBudget;
+
+	/** pool of block buffers, for range reads and small file contents */
+	@Getter @Setter
+	private BlobStorageBufferPool bufferPool = BlobStorageBufferPool.defaultHeapPool();
+
 	@Getter
 	private final BlobStorageOperationsIOLoggingCounter loggingCounter_mkdir;
 
@@ -37,15 +55,25 @@ public class BlobStorageOperationExecContext {
 	// ------------------------------------------------------------------------
 
 	public BlobStorageOperationExecContext(ExecutorService subTasksExecutor, ExecutorService largeFileRangeTasksExecutor) {
-		this(subTasksExecutor, largeFileRangeTasksExecutor, "","", new LoggingCounterParams());
+		this(subTasksExecutor, largeFileRangeTasksExecutor, //
+				DEFAULT_LARGE_FILE_MAX_IN_FLIGHT_BLOCKS, new BlobStorageBytesBudget(DEFAULT_LARGE_FILE_MAX_IN_FLIGHT_BYTES));
+	}
+
+	public BlobStorageOperationExecContext(ExecutorService subTasksExecutor, ExecutorService largeFileRangeTasksExecutor,
+			int largeFileMaxInFlightBlocks, BlobStorageBytesBudget largeFileBytesBudget) {
+		this(subTasksExecutor, largeFileRangeTasksExecutor, largeFileMaxInFlightBlocks, largeFileBytesBudget, //
+				"","", new LoggingCounterParams());
 	}
 
 	public BlobStorageOperationExecContext(ExecutorService subTasksExecutor,
 			ExecutorService largeFileRangeTasksExecutor,
+			int largeFileMaxInFlightBlocks, BlobStorageBytesBudget largeFileBytesBudget,
 			String msgPrefix, String msgSuffix,
 			LoggingCounterParams logParams) {
 		this.subTasksExecutor = subTasksExecutor;
 		this.largeFileRangeTasksExecutor = largeFileRangeTasksExecutor;
+		this.largeFileMaxInFlightBlocks = largeFileMaxInFlightBlocks;
+		this.largeFileBytesBudget = largeFileBytesBudget;
 		this.loggingCounter_mkdir = new BlobStorageOperationsIOLoggingCounter(msgPrefix + "mkdir" + msgSuffix, logParams);
 		this.loggingCounter_copyFile = new BlobStorageOperationsIOLoggingCounter(msgPrefix + "copyFile" + msgSuffix, logParams);
 		this.loggingCounter_copyFileContent = new BlobStorageOperationsIOLoggingCounter(msgPrefix + "copyFileContent" + msgSuffix, logParams);
@@ -61,18 +61,25 @@ public class CopyFileStorageOperation extends BlobStorageOperation {
 		val inputIOCounter = new BlobStorageIOTimeCounter();
 		val outputIOCounter = new BlobStorageIOTimeCounter();
 
-		if (this.srcFileLen < defaultReadContentMaxLen) {
-			byte[] data = BlobStorageIOUtils.readFileWithRetry(srcStoragePath, inputIOCounter);
-			// TOADD check data.length == srcFileLen
-			BlobStorageIOUtils.writeFile(destStoragePath, data, outputIOCounter);
+		if (destStoragePath.blobStorage.supportsCopyFrom(srcStoragePath.blobStorage)) {
+			// server-side copy, no data transfer through this JVM
+			BlobStorageIOUtils.copyFromServerSide(srcStoragePath, srcFileLen, inputIOCounter, destStoragePath, outputIOCounter);
+		} else if (this.srcFileLen < defaultReadContentMaxLen) {
+			// read range [0, srcFileLen) into pooled buffer
+			try (val data = BlobStorageIOUtils.readFileWithRetry(srcStoragePath, srcFileLen, inputIOCounter, ctx.getBufferPool())) {
+				BlobStorageIOUtils.writeFile(destStoragePath, data, outputIOCounter);
+			}
 		} else {
 			if (useReadByStreaming) {
 				BlobStorageIOUtils.copyFileUsingStreaming(srcStoragePath, inputIOCounter, destStoragePath, outputIOCounter);
 			} else {
-				// using read by range futures
-				val blockContentFutures = BlobStorageIOUtils.asyncReadFileByBlocksWithRetry(
-						srcStoragePath, srcFileLen, inputIOCounter, ctx.getLargeFileRangeTasksExecutor());
-				BlobStorageIOUtils.writeFileByBlockFutures(destStoragePath, outputIOCounter, blockContentFutures);
+				// using read by range futures, within bounded window of in-flight blocks
+				BlobStorageIOUtils.copyFileByBlocksWithRetry(
+						srcStoragePath, srcFileLen, inputIOCounter, 
+						destStoragePath, outputIOCounter,
+						ctx.getLargeFileRangeTasksExecutor(),
+						ctx.getLargeFileMaxInFlightBlocks(), ctx.getLargeFileBytesBudget(),
+						ctx.getBufferPool());
 			}
 		}
 
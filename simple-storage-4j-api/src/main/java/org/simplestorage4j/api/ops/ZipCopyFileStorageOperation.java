@@ -23,6 +23,7 @@ import org.simplestorage4j.api.ops.dto.BlobStorageOperationDTO;
 import org.simplestorage4j.api.ops.dto.BlobStorageOperationDTO.SrcStorageZipEntryDTO;
 import org.simplestorage4j.api.ops.dto.BlobStorageOperationDTO.ZipCopyFileStorageOperationDTO;
 import org.simplestorage4j.api.util.BlobStorageIOUtils;
+import org.simplestorage4j.api.util.BlobStoragePooledBuffer;
 import org.simplestorage4j.api.util.BlobStorageUtils;
 
 import com.google.common.collect.ImmutableList;
@@ -115,7 +116,7 @@ public class ZipCopyFileStorageOperation extends BlobStorageOperation {
 	@AllArgsConstructor
 	public static class ZipEntryContent {
 		final SrcStorageZipEntry zipEntry;
-		final List<Future<byte[]>> srcContentBlockFutures;
+		final List<Future<BlobStoragePooledBuffer>> srcContentBlockFutures;
 	}
 
 	@Override
@@ -151,20 +152,26 @@ public class ZipCopyFileStorageOperation extends BlobStorageOperation {
 				ZipEntry zipEntry = new ZipEntry(srcZipEntry.destEntryPath);
 				zipOutput.putNextEntry(zipEntry);
 
-				for(val srcContentBlockFuture : srcContentBlockFutures) {
-					byte[] srcContentBlock;
+				for(int blockIndex = 0; blockIndex < srcContentBlockFutures.size(); blockIndex++) {
+					val srcContentBlockFuture = srcContentBlockFutures.get(blockIndex);
+					BlobStoragePooledBuffer srcContentBlock;
 					try {
 						srcContentBlock = srcContentBlockFuture.get();
 					} catch (InterruptedException | ExecutionException ex) {
+						BlobStorageIOUtils.cancelAndReleaseQuietly(srcContentBlockFutures.subList(blockIndex + 1, srcContentBlockFutures.size()));
 						throw new RuntimeException("Failed " + toString() + ": failed to get entry " + srcZipEntry.destEntryPath + " block content ", ex);
 					}
 
-					val startWrite = System.currentTimeMillis();
-
-					zipOutput.write(srcContentBlock);
-
-					val writeMillis = System.currentTimeMillis() - startWrite;
-					outputIOCounter.incr(writeMillis, 0L, srcContentBlock.length, 1, 0, 0);
+					try {
+						val startWrite = System.currentTimeMillis();
+	
+						zipOutput.write(srcContentBlock.array(), 0, srcContentBlock.getLen());
+	
+						val writeMillis = System.currentTimeMillis() - startWrite;
+						outputIOCounter.incr(writeMillis, 0L, srcContentBlock.getLen(), 1, 0, 0);
+					} finally {
+						srcContentBlock.release();
+					}
 				}
 
 				zipOutput.closeEntry();
@@ -194,17 +201,19 @@ public class ZipCopyFileStorageOperation extends BlobStorageOperation {
 
 	private ZipEntryContent readSrcEntry(BlobStorageOperationExecContext ctx, 
 			SrcStorageZipEntry srcEntry, BlobStorageIOTimeCounter inputIOCounter) {
-		List<Future<byte[]>> srcContentBlockFutures;
+		List<Future<BlobStoragePooledBuffer>> srcContentBlockFutures;
+		val bufferPool = ctx.getBufferPool();
 		if (srcEntry.srcFileLen < defaultReadContentMaxLen) {
-			// for small file, download content fully(by streaming) with retry..
-			byte[] content = BlobStorageIOUtils.readFileWithRetry(srcStorage, srcEntry.srcStoragePath, inputIOCounter);
+			// for small file, download content fully(by range [0, len)) with retry.. into pooled buffer
+			val content = BlobStorageIOUtils.readFileWithRetry(new BlobStoragePath(srcStorage, srcEntry.srcStoragePath), 
+					srcEntry.srcFileLen, inputIOCounter, bufferPool);
 			srcContentBlockFutures = new ArrayList<>();
 			srcContentBlockFutures.add(CompletableFuture.completedFuture(content));
 		} else {
 			// for big file, async read by ranges (with retry per range)... return ordered future list 
 			srcContentBlockFutures = BlobStorageIOUtils.asyncReadFileByBlocksWithRetry(
 					srcStorage, srcEntry.srcStoragePath, srcEntry.srcFileLen, inputIOCounter, 
-					ctx.getLargeFileRangeTasksExecutor());
+					ctx.getLargeFileRangeTasksExecutor(), bufferPool);
 		}
 		return new ZipEntryContent(srcEntry, srcContentBlockFutures);
 	}
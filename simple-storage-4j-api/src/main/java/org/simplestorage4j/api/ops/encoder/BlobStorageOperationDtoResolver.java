@@ -94,7 +94,7 @@ public class BlobStorageOperationDtoResolver {
 		return blobStorageRepository.get(new BlobStorageId(storageId));
 	}
 
-	private BlobStoragePath toBlobStoragePath(BlobStoragePathDTO src) {
+	public BlobStoragePath toBlobStoragePath(BlobStoragePathDTO src) {
 		BlobStorage blobStorage = toBlobStorage(src.storageId);
 		String path = Objects.requireNonNull(src.path);
 		return new BlobStoragePath(blobStorage, path);
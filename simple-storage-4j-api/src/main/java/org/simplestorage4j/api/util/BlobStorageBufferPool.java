@@ -0,0 +1,238 @@
+package org.simplestorage4j.api.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * pool of reusable block buffers, shared by all copy paths
+ *
+ * buffers are grouped by size classes (power of 2, from <code>minPooledSize</code> to <code>maxPooledSize</code>),
+ * so that 8Mo range reads and small file reads do not allocate a new (humongous) array each time.
+ * Requests bigger than <code>maxPooledSize</code> are allocated and dropped, not pooled.
+ * Free buffers are retained up to <code>maxRetainedBytes</code>, extra released buffers are left to GC.
+ *
+ * leak detection (debug mode, cf system property "simplestorage4j.bufferPool.leakDetection"):
+ * each borrowed buffer keeps its allocation stack trace, and buffers garbage collected without
+ * being released are logged as errors.
+ */
+@Slf4j
+public class BlobStorageBufferPool {
+
+	public static final int DEFAULT_MIN_POOLED_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_POOLED_SIZE = 16 * 1024 * 1024;
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 256L * 1024 * 1024;
+
+	private static final BlobStorageBufferPool defaultHeapPool = new BlobStorageBufferPool("heap", false, //
+			DEFAULT_MIN_POOLED_SIZE, DEFAULT_MAX_POOLED_SIZE, DEFAULT_MAX_RETAINED_BYTES);
+
+	private static final BlobStorageBufferPool defaultDirectPool = new BlobStorageBufferPool("direct", true, //
+			DEFAULT_MIN_POOLED_SIZE, DEFAULT_MAX_POOLED_SIZE, DEFAULT_MAX_RETAINED_BYTES);
+
+	private final String displayName;
+
+	@Getter
+	private final boolean direct;
+
+	private final int minPooledSizeShift;
+	private final int maxPooledSizeShift;
+
+	@Getter
+	private final long maxRetainedBytes;
+
+	/** free buffers per size class: index 0 for minPooledSize, 1 for 2*minPooledSize ... */
+	private final List<ConcurrentLinkedDeque<ByteBuffer>> freeBuffersPerSizeClass;
+
+	private final AtomicLong retainedBytes = new AtomicLong();
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong allocateCount = new AtomicLong();
+	private final AtomicLong releaseCount = new AtomicLong();
+
+	@Getter @Setter
+	private volatile boolean leakDetection = Boolean.getBoolean("simplestorage4j.bufferPool.leakDetection");
+
+	private final ReferenceQueue<BlobStoragePooledBuffer> leakRefQueue = new ReferenceQueue<>();
+	private final Set<LeakRef> leakRefs = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * weak reference to borrowed buffer, enqueued when GCed, holding allocation stack trace
+	 */
+	static class LeakRef extends WeakReference<BlobStoragePooledBuffer> {
+		final int capacity;
+		final Throwable allocationTrace;
+
+		LeakRef(BlobStoragePooledBuffer referent, ReferenceQueue<BlobStoragePooledBuffer> queue) {
+			super(referent, queue);
+			this.capacity = referent.capacity();
+			this.allocationTrace = new Throwable("buffer borrowed at");
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageBufferPool(String displayName, boolean direct,
+			int minPooledSize, int maxPooledSize, long maxRetainedBytes) {
+		this.displayName = displayName;
+		this.direct = direct;
+		this.minPooledSizeShift = sizeClassShift(minPooledSize);
+		this.maxPooledSizeShift = sizeClassShift(maxPooledSize);
+		if (maxPooledSizeShift < minPooledSizeShift) {
+			throw new IllegalArgumentException("maxPooledSize < minPooledSize");
+		}
+		this.maxRetainedBytes = maxRetainedBytes;
+		val sizeClassCount = maxPooledSizeShift - minPooledSizeShift + 1;
+		this.freeBuffersPerSizeClass = new ArrayList<>(sizeClassCount);
+		for(int i = 0; i < sizeClassCount; i++) {
+			freeBuffersPerSizeClass.add(new ConcurrentLinkedDeque<>());
+		}
+	}
+
+	public static BlobStorageBufferPool defaultHeapPool() {
+		return defaultHeapPool;
+	}
+
+	public static BlobStorageBufferPool defaultDirectPool() {
+		return defaultDirectPool;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * borrow a buffer of capacity &gt;= minCapacity, with <code>len</code> initialized to minCapacity
+	 */
+	public BlobStoragePooledBuffer borrow(int minCapacity) {
+		borrowCount.incrementAndGet();
+		if (leakDetection) {
+			checkLeaks();
+		}
+		ByteBuffer buffer = null;
+		val shift = sizeClassShift(Math.max(minCapacity, 1 << minPooledSizeShift));
+		if (shift <= maxPooledSizeShift) {
+			val freeBuffers = freeBuffersPerSizeClass.get(shift - minPooledSizeShift);
+			buffer = freeBuffers.pollFirst();
+			if (buffer != null) {
+				retainedBytes.addAndGet(-buffer.capacity());
+				buffer.clear();
+			} else {
+				buffer = allocate(1 << shift);
+			}
+		} else {
+			// too big to be pooled
+			buffer = allocate(minCapacity);
+		}
+		val res = new BlobStoragePooledBuffer(this, buffer, minCapacity);
+		if (leakDetection) {
+			val leakRef = new LeakRef(res, leakRefQueue);
+			res.leakRef = leakRef;
+			leakRefs.add(leakRef);
+		}
+		return res;
+	}
+
+	/** called from BlobStoragePooledBuffer.release() */
+	void giveBack(BlobStoragePooledBuffer pooledBuffer) {
+		releaseCount.incrementAndGet();
+		val leakRef = pooledBuffer.leakRef;
+		if (leakRef != null) {
+			pooledBuffer.leakRef = null;
+			leakRefs.remove(leakRef);
+			leakRef.clear();
+		}
+		val buffer = pooledBuffer.buffer();
+		val capacity = buffer.capacity();
+		if (Integer.bitCount(capacity) != 1) {
+			return; // not a size class, was not pooled
+		}
+		val shift = Integer.numberOfTrailingZeros(capacity);
+		if (shift < minPooledSizeShift || shift > maxPooledSizeShift) {
+			return;
+		}
+		if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+			// pool is full, drop buffer => GC
+			retainedBytes.addAndGet(-capacity);
+			return;
+		}
+		buffer.clear();
+		freeBuffersPerSizeClass.get(shift - minPooledSizeShift).addFirst(buffer);
+	}
+
+	/** release all free buffers, to be GCed */
+	public void clear() {
+		for(val freeBuffers: freeBuffersPerSizeClass) {
+			ByteBuffer buffer;
+			while(null != (buffer = freeBuffers.pollFirst())) {
+				retainedBytes.addAndGet(-buffer.capacity());
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	public long getRetainedBytes() {
+		return retainedBytes.get();
+	}
+
+	public long getBorrowCount() {
+		return borrowCount.get();
+	}
+
+	/** count of buffers allocated (pool miss, or too big to be pooled) */
+	public long getAllocateCount() {
+		return allocateCount.get();
+	}
+
+	public long getReleaseCount() {
+		return releaseCount.get();
+	}
+
+	/** count of borrowed buffers not yet released, tracked only when leakDetection is enabled */
+	public int getTrackedBorrowedCount() {
+		return leakRefs.size();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private ByteBuffer allocate(int capacity) {
+		allocateCount.incrementAndGet();
+		return (direct)? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	private static int sizeClassShift(int size) {
+		if (size <= 1) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	private void checkLeaks() {
+		LeakRef leakRef;
+		while(null != (leakRef = (LeakRef) leakRefQueue.poll())) {
+			if (leakRefs.remove(leakRef)) {
+				log.error("buffer pool " + displayName + " leak detected: buffer (capacity:" + leakRef.capacity + ")"
+						+ " garbage collected without being released", leakRef.allocationTrace);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{BlobStorageBufferPool " + displayName
+				+ " retained:" + retainedBytes.get()
+				+ ", borrow:" + borrowCount.get()
+				+ ", allocate:" + allocateCount.get()
+				+ "}";
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.simplestorage4j.api.util;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import lombok.Getter;
+
+/**
+ * budget of in-memory bytes, typically shared by all operations of an executor
+ *
+ * similar to a <code>java.util.concurrent.Semaphore</code>, but counting (long) bytes.
+ * A request bigger than <code>maxBytes</code> is still granted when nothing else is acquired,
+ * so that a single huge block can never block forever.
+ */
+public class BlobStorageBytesBudget {
+
+	@Getter
+	private final long maxBytes;
+
+	@GuardedBy("this")
+	private long usedBytes;
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageBytesBudget(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be > 0");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * wait until <code>bytes</code> are available in budget, then acquire them
+	 */
+	public synchronized void acquire(long bytes) throws InterruptedException {
+		while(! canAcquire(bytes)) {
+			wait();
+		}
+		usedBytes += bytes;
+	}
+
+	/**
+	 * acquire <code>bytes</code> if immediately available in budget, return false otherwise
+	 */
+	public synchronized boolean tryAcquire(long bytes) {
+		if (! canAcquire(bytes)) {
+			return false;
+		}
+		usedBytes += bytes;
+		return true;
+	}
+
+	public synchronized void release(long bytes) {
+		usedBytes -= bytes;
+		if (usedBytes < 0) {
+			usedBytes = 0; // should not occur
+		}
+		notifyAll();
+	}
+
+	private boolean canAcquire(long bytes) {
+		return usedBytes == 0 || usedBytes + bytes <= maxBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "{BlobStorageBytesBudget used:" + getUsedBytes() + "/" + maxBytes + "}";
+	}
+
+}
@@ -0,0 +1,106 @@
+package org.simplestorage4j.api.util;
+
+import java.io.FileNotFoundException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+
+import lombok.val;
+
+/**
+ * classify storage exceptions, without compile dependency on storage sdks:
+ * http status code is found by reflection on <code>getStatusCode()</code> (aws AmazonServiceException,
+ * azure DataLakeStorageException..), in exception or its causes
+ */
+public class BlobStorageErrorClassifier {
+
+	/**
+	 * kind of error, for retry decisions, cf BlobStorageRetryPolicy
+	 */
+	public static enum ErrorKind {
+		/** backend asks to slow down: retry, with longer backoff */
+		THROTTLED,
+		/** network error, timeout, http 5xx..: retry */
+		TRANSIENT,
+		/** not found, forbidden, bad request, range not satisfiable..: retrying would fail again */
+		NOT_RETRYABLE
+	}
+
+	private static final String[] THROTTLING_MESSAGES = new String[] {
+			"SlowDown", "Slow Down", "ServerBusy", "Server Busy", "Throttl", "TooManyRequests", "Too Many Requests",
+			"Rate exceeded", "RequestLimitExceeded"
+	};
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @return true when backend asks to slow down: http 503 or 429, or known throttling error code/message
+	 */
+	public static boolean isThrottling(Throwable ex) {
+		for(Throwable e = ex; e != null; e = (e.getCause() != e)? e.getCause() : null) {
+			val statusCode = statusCodeOf(e);
+			if (statusCode == 503 || statusCode == 429) {
+				return true;
+			}
+			val msg = e.getMessage();
+			if (msg != null) {
+				for(val throttlingMsg : THROTTLING_MESSAGES) {
+					if (msg.contains(throttlingMsg)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return kind of error: throttling first, then not retryable http status code (4xx except 408 and 429)
+	 * or exception class (in exception or its causes), otherwise transient
+	 */
+	public static ErrorKind classify(Throwable ex) {
+		if (isThrottling(ex)) {
+			return ErrorKind.THROTTLED;
+		}
+		val statusCode = statusCodeOf(ex);
+		if (statusCode >= 400 && statusCode < 500 && statusCode != 408) {
+			return ErrorKind.NOT_RETRYABLE;
+		}
+		for(Throwable e = ex; e != null; e = (e.getCause() != e)? e.getCause() : null) {
+			if (e instanceof SocketTimeoutException) {
+				return ErrorKind.TRANSIENT;
+			}
+			if (e instanceof InterruptedException || e instanceof InterruptedIOException
+					|| e instanceof IllegalArgumentException || e instanceof UnsupportedOperationException
+					|| e instanceof FileNotFoundException || e instanceof NoSuchFileException
+					|| e instanceof FileAlreadyExistsException || e instanceof AccessDeniedException) {
+				return ErrorKind.NOT_RETRYABLE;
+			}
+		}
+		return ErrorKind.TRANSIENT;
+	}
+
+	/**
+	 * @return http status code of first exception (or cause) having one, or -1
+	 */
+	public static int statusCodeOf(Throwable ex) {
+		for(Throwable e = ex; e != null; e = (e.getCause() != e)? e.getCause() : null) {
+			try {
+				Method m = e.getClass().getMethod("getStatusCode");
+				val res = m.invoke(e);
+				if (res instanceof Integer && ((Integer) res) > 0) {
+					return (Integer) res;
+				}
+			} catch(NoSuchMethodException ex2) {
+				// no status code for this exception class, check cause
+			} catch(ReflectiveOperationException | RuntimeException ex2) {
+				// ignore
+			}
+		}
+		return -1;
+	}
+
+}
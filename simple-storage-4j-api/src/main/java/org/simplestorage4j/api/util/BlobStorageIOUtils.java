@@ -1,14 +1,24 @@
 package org.simplestorage4j.api.util;
 
 import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 
@@ -17,6 +27,7 @@ import org.simplestorage4j.api.BlobStoragePath;
 import org.simplestorage4j.api.iocost.counter.BlobStorageIOTimeCounter;
 import org.simplestorage4j.api.iocost.immutable.BlobStorageIOTimeResult;
 
+import lombok.AllArgsConstructor;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,15 +38,17 @@ public class BlobStorageIOUtils {
 
 	public static final long defaultReadBlockSize = 8 * 1024 * 1024;
 
-	public static final int maxRetryReadRange = 5;
-	
     // deprecated.. cf common-io IOUtils, prefer use skip(.. BlobStorageOperationCounter)
+    // skip() may return 0 (ex: at EOF for http streams): then read() 1 byte, to progress or detect EOF
     public static void skipFully(InputStream in, final long len) throws IOException {
-        int nSkip = 0;
+        long nSkip = 0;
         while(nSkip < len) {
             long count = in.skip(len - nSkip);
-            if (count < 0) {
-                throw new EOFException();
+            if (count <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("EOF after skipping " + nSkip + " / " + len + " bytes");
+                }
+                count = 1;
             }
             nSkip += count;
         }
@@ -48,6 +61,11 @@ public class BlobStorageIOUtils {
 
     // deprecated.. cf common-io IOUtils, prefer use copy(.. BlobStorageOperationCounter)
     public static long copy(final InputStream input, final OutputStream output, final byte[] buffer) throws IOException {
+        val srcChannel = fileChannelOf(input);
+        val destChannel = (srcChannel != null)? writableChannelOf(output) : null;
+        if (destChannel != null) {
+            return transferTo(srcChannel, destChannel);
+        }
         long count = 0;
         int n;
         while (-1 != (n = input.read(buffer))) {
@@ -71,6 +89,76 @@ public class BlobStorageIOUtils {
         return res;
     }
 
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return FileChannel of input stream (for zero-copy transferTo), or null when not channel-capable
+     */
+    public static FileChannel fileChannelOf(InputStream input) {
+        if (input instanceof FileInputStream) {
+            return ((FileInputStream) input).getChannel();
+        }
+        return null;
+    }
+
+    /**
+     * @return FileChannel of output stream (for zero-copy transferTo), or null when not channel-capable
+     */
+    public static WritableByteChannel writableChannelOf(OutputStream output) {
+        if (output instanceof FileOutputStream) {
+            return ((FileOutputStream) output).getChannel();
+        }
+        return null;
+    }
+
+    /**
+     * copy remaining src content (from its current position to its end) to dest, using FileChannel.transferTo()
+     * (kernel copy_file_range / sendfile on linux, no buffer in JVM heap).
+     * When transferTo() makes no progress, the remaining bytes are copied using a buffer.
+     * src position is advanced, as a stream read would do.
+     * @return length copied
+     */
+    public static long transferTo(FileChannel src, WritableByteChannel dest) throws IOException {
+        val startPosition = src.position();
+        val endPosition = src.size();
+        long position = startPosition;
+        while(position < endPosition) {
+            long count = src.transferTo(position, endPosition - position, dest);
+            if (count <= 0) {
+                position += copyBuffered(src, position, endPosition, dest);
+                break;
+            }
+            position += count;
+        }
+        src.position(position);
+        return position - startPosition;
+    }
+
+    /**
+     * positional read + write using a heap buffer, stops at endPosition or when src is truncated
+     * @return length copied
+     */
+    private static long copyBuffered(FileChannel src, long startPosition, long endPosition, WritableByteChannel dest) throws IOException {
+        val buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        long position = startPosition;
+        while(position < endPosition) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), endPosition - position));
+            int n = src.read(buffer, position);
+            if (n < 0) {
+                break; // src truncated while copying
+            }
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                if (dest.write(buffer) <= 0) {
+                    throw new IOException("dest channel not accepting writes, at " + position + "/" + endPosition);
+                }
+            }
+            position += n;
+        }
+        return position - startPosition;
+    }
+
     // ------------------------------------------------------------------------
 
 	public static void copyFileUsingStreaming(
@@ -103,6 +191,19 @@ public class BlobStorageIOUtils {
             final @Nonnull InputStream input, final @Nonnull BlobStorageIOTimeCounter inputIOCounter,
             final @Nonnull OutputStream output, final @Nonnull BlobStorageIOTimeCounter outputIOCounter,
             final byte[] buffer) throws IOException {
+        val srcChannel = fileChannelOf(input);
+        val destChannel = (srcChannel != null)? writableChannelOf(output) : null;
+        if (destChannel != null) {
+            // zero-copy: no data through this JVM, IO time accounted on output only (as for server-side copy)
+            val startTime = System.currentTimeMillis();
+
+            val len = transferTo(srcChannel, destChannel);
+
+            val millis = System.currentTimeMillis() - startTime;
+            inputIOCounter.incr(0L, len, 0L, 1, 0, 0);
+            outputIOCounter.incr(millis, 0L, len, 1, 0, 0);
+            return len;
+        }
         long count = 0;
         for(;;) {
             val startReadTime = System.currentTimeMillis();
@@ -169,8 +270,6 @@ public class BlobStorageIOUtils {
         outputIOCounter.incr(writeMillis, 0L, len, 1, 0, 0);
     }
 
-    private static int maxRetry = 5;
-
 	public static byte[] readFileWithRetry(BlobStoragePath storagePath, BlobStorageIOTimeCounter inputIOCounter) {
 		return readFileWithRetry(storagePath.blobStorage, storagePath.path, inputIOCounter);
 	}
@@ -198,45 +297,73 @@ public class BlobStorageIOUtils {
 		outputIOCounter.incr(writeMillis, 0L, data.length, 1, 0, 0);
     }
     
+	/**
+	 * server-side copy, cf <code>destStoragePath.blobStorage.supportsCopyFrom(srcStoragePath.blobStorage)</code>
+	 * IO time is accounted on output only, as no data is transferred by this JVM, but read/write length
+	 * are accounted on both sides, consistently with pre-estimated cost of a copy
+	 */
+	public static void copyFromServerSide(
+			final BlobStoragePath srcStoragePath, final long srcFileLen, final BlobStorageIOTimeCounter inputIOCounter,
+			final BlobStoragePath destStoragePath, final BlobStorageIOTimeCounter outputIOCounter) {
+		val startTime = System.currentTimeMillis();
+
+		destStoragePath.blobStorage.copyFrom(srcStoragePath, destStoragePath.path, srcFileLen);
+
+		val millis = System.currentTimeMillis() - startTime;
+		inputIOCounter.incr(0L, srcFileLen, 0L, 1, 0, 0);
+		outputIOCounter.incr(millis, 0L, srcFileLen, 1, 0, 0);
+	}
+
 	public static byte[] readFileWithRetry(BlobStorage storage, String filePath) {
-		byte[] res = null;
-		for(int retry = 0; retry < maxRetry; retry++) {
-			try {
-				res = storage.readFile(filePath);
-				break;
-			} catch(RuntimeException ex) {
-				if (retry + 1 < maxRetry) {
-					log.warn("Failed read file '" + filePath + "' ..retry [" + retry + "/" + maxRetry + "] ex:" + ex.getMessage());
-					try {
-						Thread.sleep(100);
-					} catch(InterruptedException ex2) {
-					}
-					continue;
-				} else {
-					throw ex;
-				}
-			}
+		return storage.getRetryPolicy().execute("read file '" + filePath + "'",
+				() -> storage.readFile(filePath));
+	}
+
+	/**
+	 * read small file content fully (by range [0, fileLen) with retry), into a buffer borrowed from pool
+	 */
+	public static BlobStoragePooledBuffer readFileWithRetry(
+			final BlobStoragePath storagePath, final long fileLen,
+			final BlobStorageIOTimeCounter inputIOCounter,
+			final BlobStorageBufferPool bufferPool) {
+		if (fileLen > Integer.MAX_VALUE) {
+			throw new UnsupportedOperationException("file too big for reading fully " + storagePath + " len:" + fileLen);
 		}
-		return res;
+		val len = (int) fileLen;
+		if (len == 0) {
+			return bufferPool.borrow(0);
+		}
+		return retryReadAt(storagePath.blobStorage, storagePath.path, 0, len, inputIOCounter, bufferPool);
 	}
 
-	public static List<Future<byte[]>> asyncReadFileByBlocksWithRetry(
+	public static void writeFile(BlobStoragePath storagePath, BlobStoragePooledBuffer data, BlobStorageIOTimeCounter outputIOCounter) {
+		val startWrite = System.currentTimeMillis();
+
+		storagePath.blobStorage.writeFile(storagePath.path, data.array(), 0, data.getLen());
+
+		val writeMillis = System.currentTimeMillis() - startWrite;
+		outputIOCounter.incr(writeMillis, 0L, data.getLen(), 1, 0, 0);
+	}
+
+	public static List<Future<BlobStoragePooledBuffer>> asyncReadFileByBlocksWithRetry(
 			final BlobStoragePath storagePath, //
 			final long srcFileLen, //
 			final BlobStorageIOTimeCounter inputIOCounter, //			
-			final ExecutorService executorService //			
+			final ExecutorService executorService, //
+			final BlobStorageBufferPool bufferPool //
 			) {
 		return asyncReadFileByBlocksWithRetry(storagePath.blobStorage, storagePath.path, //
-				srcFileLen, inputIOCounter, executorService);
+				srcFileLen, inputIOCounter, executorService, bufferPool);
 	}
 	
-	public static List<Future<byte[]>> asyncReadFileByBlocksWithRetry(
+	public static List<Future<BlobStoragePooledBuffer>> asyncReadFileByBlocksWithRetry(
 			final BlobStorage storage, final String filePath, //
 			final long srcFileLen, //
 			final BlobStorageIOTimeCounter inputIOCounter, //			
-			final ExecutorService executorService //			
+			final ExecutorService executorService, //
+			final BlobStorageBufferPool bufferPool //
 			) {
-		val res = new ArrayList<Future<byte[]>>(); 
+		val res = new ArrayList<Future<BlobStoragePooledBuffer>>(); 
 		long currPosition = 0;
 		val readBlockSize = defaultReadBlockSize; // preferred per storage?
 		for(; currPosition < srcFileLen;) {
@@ -245,8 +372,8 @@ public class BlobStorageIOUtils {
 			val readPos = currPosition; 
 			val readLen = (int) (nextPos - currPosition);
 			// *** async read ***
-			val blockContentFuture = executorService.submit(
-					() -> retryReadAt(storage, filePath, readPos, readLen, inputIOCounter));
+			val blockContentFuture = submitPooledBlock(executorService,
+					() -> retryReadAt(storage, filePath, readPos, readLen, inputIOCounter, bufferPool));
 			
 			res.add(blockContentFuture);
 			currPosition = nextPos;
@@ -255,58 +382,216 @@ public class BlobStorageIOUtils {
 	}
 
 	public static byte[] retryReadAt(
-			// byte[] resBuffer, int resPos, //
 			BlobStorage storage, String filePath, //
 			long position, int readLen, //
 			BlobStorageIOTimeCounter inputIOCounter) {
-		byte[] res = null;
-		for(int retry = 0; retry < maxRetryReadRange; retry++) {
-			try {
+		val res = new byte[readLen];
+		retryReadAt(res, storage, filePath, position, readLen, inputIOCounter);
+		return res;
+	}
+
+	/**
+	 * same as retryReadAt(), but reading into a buffer borrowed from pool (instead of allocating)
+	 * the caller is responsible for releasing the returned buffer
+	 */
+	public static BlobStoragePooledBuffer retryReadAt(
+			BlobStorage storage, String filePath, //
+			long position, int readLen, //
+			BlobStorageIOTimeCounter inputIOCounter, //
+			BlobStorageBufferPool bufferPool) {
+		val res = bufferPool.borrow(readLen);
+		boolean ok = false;
+		try {
+			retryReadAt(res.array(), storage, filePath, position, readLen, inputIOCounter);
+			ok = true;
+			return res;
+		} finally {
+			if (! ok) {
+				res.release();
+			}
+		}
+	}
+
+	private static void retryReadAt(byte[] resBuffer,
+			BlobStorage storage, String filePath, //
+			long position, int readLen, //
+			BlobStorageIOTimeCounter inputIOCounter) {
+		val opName = "read " + filePath + " at(" + position + "," + readLen + ")";
+		try {
+			storage.getRetryPolicy().execute(opName, () -> {
 				val startTime = System.currentTimeMillis();
-				
-				res = storage.readAt(filePath, position, readLen);
-				
+
+				storage.readAt(resBuffer, 0, filePath, position, readLen);
+
 				val millis = System.currentTimeMillis() - startTime;
 				inputIOCounter.incr(BlobStorageIOTimeResult.ofIoRead1(millis, readLen));
-				break;
-			} catch(Exception ex) {
-				val errorMsg = "Failed read " + filePath + " at(" + position + "," + readLen + ")";
-				if (retry + 1 < maxRetryReadRange) {
-					log.warn(errorMsg + " .. retry [" + retry + "/" + maxRetryReadRange + "] ex:" + ex.getMessage());
-					try {
-						Thread.sleep(100);
-					} catch (InterruptedException e) {
+				return null;
+			});
+		} catch(RuntimeException ex) {
+			throw new RuntimeException("Failed " + opName, ex);
+		}
+	}
+
+	/**
+	 * FutureTask releasing its block when cancelled while running: the result of a cancelled task is dropped by FutureTask,
+	 * so the caller of cancel() would never get it to release
+	 */
+	private static class PooledBlockFutureTask extends FutureTask<BlobStoragePooledBuffer> {
+
+		PooledBlockFutureTask(Callable<BlobStoragePooledBuffer> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void set(BlobStoragePooledBuffer block) {
+			super.set(block);
+			if (isCancelled() && block != null) {
+				block.release(); // not stored: cancelled before completion
+			}
+		}
+	}
+
+	/**
+	 * submit an async read of a pooled block, to be used with cancelAndReleaseQuietly()
+	 */
+	public static Future<BlobStoragePooledBuffer> submitPooledBlock(ExecutorService executorService,
+			Callable<BlobStoragePooledBuffer> readBlockTask) {
+		val res = new PooledBlockFutureTask(readBlockTask);
+		executorService.execute(res);
+		return res;
+	}
+
+	/**
+	 * cancel pending block futures, and give back to pool the already read blocks.
+	 * Blocks of tasks still running are released on completion, for futures created by submitPooledBlock()
+	 */
+	public static void cancelAndReleaseQuietly(Collection<Future<BlobStoragePooledBuffer>> blockFutures) {
+		for(val blockFuture: blockFutures) {
+			if (! blockFuture.cancel(false) && blockFuture.isDone()) {
+				try {
+					val block = blockFuture.get();
+					if (block != null) {
+						block.release();
 					}
-				} else {
-					throw new RuntimeException(errorMsg, ex);
+				} catch(Exception ex) {
+					// ignore, failed read => nothing to release
 				}
 			}
 		}
-		return res;
 	}
 
+	@AllArgsConstructor
+	private static class InFlightBlock {
+		final Future<BlobStoragePooledBuffer> contentFuture;
+		final int len;
+	}
+
+	/**
+	 * copy file by blocks, using a bounded window of async range reads (with retry per range)
+	 *
+	 * at most <code>maxInFlightBlocks</code> blocks are read ahead for this copy,
+	 * and in-flight bytes are accounted in <code>bytesBudget</code> (shared per executor).
+	 * Blocks are written in order to dest, then released from budget, so memory stays flat
+	 * whatever the file size.
+	 */
+	public static void copyFileByBlocksWithRetry(
+			final @Nonnull BlobStoragePath srcStoragePath, //
+			final long srcFileLen, //
+			final @Nonnull BlobStorageIOTimeCounter inputIOCounter, //
+			final @Nonnull BlobStoragePath destStoragePath, //
+			final @Nonnull BlobStorageIOTimeCounter outputIOCounter, //
+			final @Nonnull ExecutorService executorService, //
+			final int maxInFlightBlocks, //
+			final @Nonnull BlobStorageBytesBudget bytesBudget, //
+			final @Nonnull BlobStorageBufferPool bufferPool //
+			) {
+		val srcStorage = srcStoragePath.blobStorage;
+		val srcPath = srcStoragePath.path;
+		val readBlockSize = defaultReadBlockSize; // preferred per storage?
+		val maxInFlight = Math.max(1, maxInFlightBlocks);
+		val inFlightBlocks = new ArrayDeque<InFlightBlock>(maxInFlight);
+		try (val output = destStoragePath.openWrite()) {
+			try {
+				long currPosition = 0;
+				while(currPosition < srcFileLen || ! inFlightBlocks.isEmpty()) {
+					// fill window of async reads
+					while(currPosition < srcFileLen && inFlightBlocks.size() < maxInFlight) {
+						val readPos = currPosition;
+						val readLen = (int) Math.min(srcFileLen - currPosition, readBlockSize);
+						if (inFlightBlocks.isEmpty()) {
+							// nothing held by this copy => safe to wait for budget
+							bytesBudget.acquire(readLen);
+						} else if (! bytesBudget.tryAcquire(readLen)) {
+							break; // budget exhausted: write pending blocks first, never wait while holding
+						}
+						// *** async read ***
+						val blockContentFuture = submitPooledBlock(executorService,
+								() -> retryReadAt(srcStorage, srcPath, readPos, readLen, inputIOCounter, bufferPool));
+						inFlightBlocks.add(new InFlightBlock(blockContentFuture, readLen));
+						currPosition += readLen;
+					}
+
+					// wait first block (in order), append to output
+					val block = inFlightBlocks.poll();
+					try {
+						try (val blockContent = block.contentFuture.get()) {
+							copy(blockContent.array(), 0, blockContent.getLen(), output, outputIOCounter);
+						}
+					} finally {
+						bytesBudget.release(block.len);
+					}
+				}
+			} finally {
+				// on failure: cancel remaining reads, and give back their budget and buffers
+				for(val block: inFlightBlocks) {
+					cancelAndReleaseQuietly(Collections.singletonList(block.contentFuture));
+					bytesBudget.release(block.len);
+				}
+				inFlightBlocks.clear();
+			}
+		} catch (InterruptedException ex) {
+			throw new RuntimeException("Interrupted.. ", ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException("Failed to copy " + srcStoragePath + " to " + destStoragePath + " : fail to read block", ex);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to copy " + srcStoragePath + " to " + destStoragePath, ex);
+		}
+	}
 
 	public static void writeFileByBlockFutures(
 			BlobStoragePath destStoragePath,
 			BlobStorageIOTimeCounter outputIOCounter,
-			List<Future<byte[]>> blockContentFutures) {
+			List<Future<BlobStoragePooledBuffer>> blockContentFutures) {
+		// blocks before firstNotConsumed are released (or being released), others are cancelled and released on failure
+		int firstNotConsumed = 0;
 		try (val output = destStoragePath.openWrite()) {
-			// loop wait futures (in order), append to output 
-			for(val blockContentFuture: blockContentFutures) {
-				byte[] blockContent;
+			// loop wait futures (in order), append to output, then release block buffer to pool
+			for(int blockIndex = 0; blockIndex < blockContentFutures.size(); blockIndex++) {
+				val blockContentFuture = blockContentFutures.get(blockIndex);
+				BlobStoragePooledBuffer blockContent;
 				try {
 					blockContent = blockContentFuture.get();
 				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
 					throw new RuntimeException("Interrupted.. ", ex);
 				} catch (ExecutionException ex) {
 					throw new RuntimeException("Failed to write " + destStoragePath + " : fail to read block", ex);
 				}
+				firstNotConsumed = blockIndex + 1;
 				
-				BlobStorageIOUtils.copy(blockContent, output, outputIOCounter);
+				try {
+					BlobStorageIOUtils.copy(blockContent.array(), 0, blockContent.getLen(), output, outputIOCounter);
+				} finally {
+					blockContent.release();
+				}
 			}
 			
 		} catch(IOException ex) {
 			throw new RuntimeException("Failed to write " + destStoragePath, ex);
+		} finally {
+			if (firstNotConsumed < blockContentFutures.size()) {
+				cancelAndReleaseQuietly(blockContentFutures.subList(firstNotConsumed, blockContentFutures.size()));
+			}
 		}
 	}
 }
@@ -0,0 +1,144 @@
+package org.simplestorage4j.api.util;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * parallel recursive walk of a dir tree, using a ForkJoinPool: 1 task per dir, calling <code>list()</code>
+ *
+ * entries of each listed dir are streamed to callback as soon as discovered (1 batch per dir),
+ * with path relative to the walk root dir. Callback is called serially (synchronized), from pool threads.
+ *
+ * filters use glob patterns (cf java.nio.file.PathMatcher) on relative paths:
+ * excluded dirs are not walked, include patterns apply only to files (when empty, all files are included).
+ */
+@Slf4j
+public class BlobStorageParallelTreeWalker {
+
+	private final ForkJoinPool pool;
+
+	private final List<PathMatcher> includeMatchers = new ArrayList<>();
+	private final List<PathMatcher> excludeMatchers = new ArrayList<>();
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageParallelTreeWalker(ForkJoinPool pool, List<String> includeGlobs, List<String> excludeGlobs) {
+		this.pool = pool;
+		val fs = FileSystems.getDefault();
+		if (includeGlobs != null) {
+			for(val glob : includeGlobs) {
+				includeMatchers.add(fs.getPathMatcher("glob:" + glob));
+			}
+		}
+		if (excludeGlobs != null) {
+			for(val glob : excludeGlobs) {
+				excludeMatchers.add(fs.getPathMatcher("glob:" + glob));
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * walk all dirs under rootDirPath, blocks until done, and rethrow first failure
+	 */
+	public void walk(BlobStorage storage, String rootDirPath, Consumer<List<BlobStoreFileInfo>> batchCallback) {
+		val startTime = System.currentTimeMillis();
+		val walkState = new WalkState(storage, batchCallback);
+		pool.invoke(new ListDirTask(walkState, rootDirPath, ""));
+		val millis = System.currentTimeMillis() - startTime;
+		log.info("parallel walk " + storage.displayName + " '" + rootDirPath + "' done, found " //
+				+ walkState.dirCount + " dirs, " + walkState.fileCount + " files, took " + millis + " ms");
+	}
+
+	public boolean isIncluded(String relativePath, boolean isDir) {
+		val path = Paths.get(relativePath);
+		for(val m : excludeMatchers) {
+			if (m.matches(path)) {
+				return false;
+			}
+		}
+		if (isDir || includeMatchers.isEmpty()) {
+			return true;
+		}
+		for(val m : includeMatchers) {
+			if (m.matches(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class WalkState {
+		final BlobStorage storage;
+		final Consumer<List<BlobStoreFileInfo>> batchCallback;
+		long dirCount; // guarded by this
+		long fileCount;
+
+		WalkState(BlobStorage storage, Consumer<List<BlobStoreFileInfo>> batchCallback) {
+			this.storage = storage;
+			this.batchCallback = batchCallback;
+		}
+
+		synchronized void emit(List<BlobStoreFileInfo> batch) {
+			for(val e : batch) {
+				if (e.isDir) {
+					dirCount++;
+				} else {
+					fileCount++;
+				}
+			}
+			batchCallback.accept(batch);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class ListDirTask extends RecursiveAction {
+		final WalkState walkState;
+		final String dirPath;
+		final String relativeDirPath;
+
+		ListDirTask(WalkState walkState, String dirPath, String relativeDirPath) {
+			this.walkState = walkState;
+			this.dirPath = dirPath;
+			this.relativeDirPath = relativeDirPath;
+		}
+
+		@Override
+		protected void compute() {
+			val children = walkState.storage.list(dirPath);
+			val batch = new ArrayList<BlobStoreFileInfo>(children.size());
+			val subTasks = new ArrayList<ListDirTask>();
+			for(val child : children) {
+				val childName = child.childName();
+				val childRelativePath = (relativeDirPath.isEmpty())? childName : relativeDirPath + "/" + childName;
+				if (! isIncluded(childRelativePath, child.isDir)) {
+					continue;
+				}
+				batch.add(new BlobStoreFileInfo(childRelativePath, child.isDir, child.fileLength, child.lastModifTime));
+				if (child.isDir) {
+					subTasks.add(new ListDirTask(walkState, dirPath + "/" + childName, childRelativePath));
+				}
+			}
+			if (! batch.isEmpty()) {
+				walkState.emit(batch);
+			}
+			invokeAll(subTasks);
+		}
+	}
+
+}
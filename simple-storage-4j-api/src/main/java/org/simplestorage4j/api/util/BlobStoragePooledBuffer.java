@@ -0,0 +1,97 @@
+package org.simplestorage4j.api.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * buffer borrowed from a BlobStorageBufferPool, to be released after use
+ * (typically in a try-with-resource, or after writing its content to output)
+ *
+ * <code>len</code> is the length of valid data in buffer, starting at 0,
+ * while <code>capacity()</code> is the size class of the pooled buffer (power of 2, &gt;= len).
+ */
+public class BlobStoragePooledBuffer implements AutoCloseable {
+
+	private final BlobStorageBufferPool pool; // null when not pooled
+	private final ByteBuffer buffer;
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	@Getter @Setter
+	private int len;
+
+	/** when leak detection is enabled in pool: weak reference to this, with allocation stack trace */
+	BlobStorageBufferPool.LeakRef leakRef;
+
+	// ------------------------------------------------------------------------
+
+	BlobStoragePooledBuffer(BlobStorageBufferPool pool, ByteBuffer buffer, int len) {
+		this.pool = pool;
+		this.buffer = buffer;
+		this.len = len;
+	}
+
+	/** wrap an already allocated array, release() is a no-op */
+	public static BlobStoragePooledBuffer unpooled(byte[] data) {
+		return new BlobStoragePooledBuffer(null, ByteBuffer.wrap(data), data.length);
+	}
+
+	// ------------------------------------------------------------------------
+
+	public boolean isDirect() {
+		return buffer.isDirect();
+	}
+
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	/** underlying array, for heap buffers only */
+	public byte[] array() {
+		if (! buffer.hasArray()) {
+			throw new UnsupportedOperationException("direct buffer has no array");
+		}
+		return buffer.array();
+	}
+
+	/** underlying buffer, cleared (position=0, limit=capacity) when borrowed */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/** duplicate view of valid data: [0, len) */
+	public ByteBuffer dataBuffer() {
+		ByteBuffer res = buffer.duplicate();
+		res.clear();
+		res.limit(len);
+		return res;
+	}
+
+	public boolean isReleased() {
+		return released.get();
+	}
+
+	/** give back buffer to pool. Calling release twice is ignored */
+	public void release() {
+		if (released.compareAndSet(false, true)) {
+			if (pool != null) {
+				pool.giveBack(this);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+
+	@Override
+	public String toString() {
+		return "{PooledBuffer len:" + len + "/" + capacity() + ((isDirect())? " direct" : "")
+				+ ((isReleased())? " released" : "")
+				+ "}";
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.simplestorage4j.api.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.simplestorage4j.api.BlobStorageFileRange;
+
+import lombok.val;
+
+/**
+ * helper to merge nearby (or overlapping) file ranges into fewer combined ranges
+ */
+public final class BlobStorageRangeCoalescer {
+
+	private BlobStorageRangeCoalescer() {
+	}
+
+	/**
+	 * combined range, covering underlying ranges (referenced by index in the original list, sorted by offset)
+	 */
+	public static class CombinedFileRange {
+		public final long offset;
+		public final int length;
+		public final List<Integer> rangeIndexes;
+		public final boolean hasOverlaps;
+
+		public CombinedFileRange(long offset, int length, List<Integer> rangeIndexes, boolean hasOverlaps) {
+			this.offset = offset;
+			this.length = length;
+			this.rangeIndexes = rangeIndexes;
+			this.hasOverlaps = hasOverlaps;
+		}
+
+		public long end() {
+			return offset + length;
+		}
+
+		@Override
+		public String toString() {
+			return "{combined [" + offset + ", +" + length + ") ranges:" + rangeIndexes.size() + "}";
+		}
+	}
+
+	public static List<CombinedFileRange> coalesce(List<BlobStorageFileRange> ranges, int maxMergeGap, int maxMergedSize) {
+		val sortedIndexes = new ArrayList<Integer>(ranges.size());
+		for(int i = 0; i < ranges.size(); i++) {
+			sortedIndexes.add(i);
+		}
+		sortedIndexes.sort(Comparator.comparingLong(i -> ranges.get(i).offset));
+
+		val res = new ArrayList<CombinedFileRange>();
+		long currStart = -1;
+		long currEnd = -1;
+		boolean currHasOverlaps = false;
+		List<Integer> currIndexes = null;
+		for(val idx: sortedIndexes) {
+			val range = ranges.get(idx);
+			if (currIndexes != null) {
+				val gap = range.offset - currEnd;
+				val mergedEnd = Math.max(currEnd, range.end());
+				if (gap <= maxMergeGap && mergedEnd - currStart <= maxMergedSize) {
+					currIndexes.add(idx);
+					currHasOverlaps |= (gap < 0);
+					currEnd = mergedEnd;
+					continue;
+				}
+				res.add(new CombinedFileRange(currStart, (int) (currEnd - currStart), currIndexes, currHasOverlaps));
+			}
+			currIndexes = new ArrayList<>();
+			currIndexes.add(idx);
+			currStart = range.offset;
+			currEnd = range.end();
+			currHasOverlaps = false;
+		}
+		if (currIndexes != null) {
+			res.add(new CombinedFileRange(currStart, (int) (currEnd - currStart), currIndexes, currHasOverlaps));
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.simplestorage4j.api.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.simplestorage4j.api.BlobStorageGroupId;
+
+import lombok.val;
+
+/**
+ * rate limits for a storage (or shared by a storage group): bytes/s read, bytes/s written, requests/s
+ *
+ * all buckets are cut when backend signals throttling, cf BlobStorageTokenBucket
+ */
+public class BlobStorageRateLimiter {
+
+	public final BlobStorageTokenBucket readBytesBucket;
+	public final BlobStorageTokenBucket writeBytesBucket;
+	public final BlobStorageTokenBucket requestsBucket;
+
+	/** lower bound of throttling cuts for bytes buckets: a throttling after an idle period must not block a read of a few MB */
+	public static final double MIN_BYTES_RATE = 1024 * 1024;
+
+	private static final ConcurrentHashMap<BlobStorageGroupId, BlobStorageRateLimiter> sharedByGroup = new ConcurrentHashMap<>();
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @param readBytesPerSecond <= 0 for unlimited (adaptive only)
+	 * @param writeBytesPerSecond <= 0 for unlimited (adaptive only)
+	 * @param requestsPerSecond <= 0 for unlimited (adaptive only)
+	 */
+	public BlobStorageRateLimiter(String displayName, long readBytesPerSecond, long writeBytesPerSecond, double requestsPerSecond) {
+		this.readBytesBucket = new BlobStorageTokenBucket(displayName + " read bytes", readBytesPerSecond, MIN_BYTES_RATE);
+		this.writeBytesBucket = new BlobStorageTokenBucket(displayName + " write bytes", writeBytesPerSecond, MIN_BYTES_RATE);
+		this.requestsBucket = new BlobStorageTokenBucket(displayName + " requests", requestsPerSecond);
+	}
+
+	/**
+	 * @return limiter shared by all storages of group (in this JVM), created on first call
+	 */
+	public static BlobStorageRateLimiter sharedOfGroup(BlobStorageGroupId groupId, Supplier<BlobStorageRateLimiter> factory) {
+		return sharedByGroup.computeIfAbsent(groupId, k -> factory.get());
+	}
+
+	// ------------------------------------------------------------------------
+
+	public void acquireRequest() {
+		requestsBucket.acquire(1);
+	}
+
+	public void acquireRead(long len) {
+		if (len > 0) {
+			readBytesBucket.acquire(len);
+		}
+	}
+
+	public void acquireWrite(long len) {
+		if (len > 0) {
+			writeBytesBucket.acquire(len);
+		}
+	}
+
+	public void onThrottled() {
+		requestsBucket.onThrottled();
+		readBytesBucket.onThrottled();
+		writeBytesBucket.onThrottled();
+	}
+
+	public void onSuccess() {
+		requestsBucket.onSuccess();
+		readBytesBucket.onSuccess();
+		writeBytesBucket.onSuccess();
+	}
+
+	/**
+	 * notify throttling or success to buckets, from an operation outcome
+	 * @return true when throttled
+	 */
+	public boolean onError(Throwable ex) {
+		val throttled = BlobStorageErrorClassifier.isThrottling(ex);
+		if (throttled) {
+			onThrottled();
+		}
+		return throttled;
+	}
+
+	@Override
+	public String toString() {
+		return "{RateLimiter read:" + readBytesBucket + ", write:" + writeBytesBucket + ", requests:" + requestsBucket + "}";
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.simplestorage4j.api.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.simplestorage4j.api.util.BlobStorageErrorClassifier.ErrorKind;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * retry engine for storage calls: exponential backoff with jitter, retry budget, per-error classification
+ *
+ * errors are classified by BlobStorageErrorClassifier: not retryable errors (404, 403, 416, bad argument..) are rethrown at once,
+ * throttled errors are retried with a longer backoff.
+ * Backoff before retry n is random in [d/2, d], with d = min(maxBackoff, initialBackoff * multiplier^n).
+ * The retry budget bounds retries to <code>retryBudgetRatio</code> of calls (plus <code>retryBudgetMinPerSecond</code>),
+ * so that an unavailable backend is not flooded by retry storms: when exhausted, errors are rethrown without retry.
+ */
+@Slf4j
+public class BlobStorageRetryPolicy {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	/**
+	 * a storage call attempt
+	 */
+	@FunctionalInterface
+	public static interface RetryableCall<T> {
+		T call() throws Exception;
+	}
+
+	/**
+	 * callback before each retry, typically for logging or counters (default: log warn)
+	 */
+	@FunctionalInterface
+	public static interface RetryListener {
+		void onRetry(int retry, Exception ex, long attemptMillis, long backoffMillis);
+	}
+
+	@Getter @Setter
+	private int maxAttempts = 5;
+
+	@Getter @Setter
+	private long initialBackoffMillis = 100;
+
+	@Getter @Setter
+	private long maxBackoffMillis = 10_000;
+
+	@Getter @Setter
+	private double backoffMultiplier = 2.0;
+
+	/** backoff multiplier applied for THROTTLED errors */
+	@Getter @Setter
+	private double throttledBackoffFactor = 4.0;
+
+	@Getter
+	private final double retryBudgetRatio;
+
+	@Getter
+	private final double retryBudgetMinPerSecond;
+
+	/** max accumulated retry tokens */
+	private final double retryBudgetCapacity;
+
+	// retry budget, guarded by this
+	private double retryBudgetTokens;
+	private long retryBudgetLastRefillNanos;
+
+	// guarded by this
+	private long retryCount;
+	private long budgetExhaustedCount;
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageRetryPolicy() {
+		this(0.2, 10);
+	}
+
+	/**
+	 * @param retryBudgetRatio retries allowed per call, for example 0.2 for 20%
+	 * @param retryBudgetMinPerSecond retries always allowed per second, even when few calls
+	 */
+	public BlobStorageRetryPolicy(double retryBudgetRatio, double retryBudgetMinPerSecond) {
+		this.retryBudgetRatio = retryBudgetRatio;
+		this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+		this.retryBudgetCapacity = Math.max(10, 10 * retryBudgetMinPerSecond);
+		this.retryBudgetTokens = retryBudgetCapacity;
+		this.retryBudgetLastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return policy with a single attempt, for storages already retrying internally (cf S3Client),
+	 * so that callers wrapping them (cf BlobStorageIOUtils) do not multiply attempts
+	 */
+	public static BlobStorageRetryPolicy noRetry() {
+		val res = new BlobStorageRetryPolicy();
+		res.setMaxAttempts(1);
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public synchronized long getRetryCount() {
+		return retryCount;
+	}
+
+	public synchronized long getBudgetExhaustedCount() {
+		return budgetExhaustedCount;
+	}
+
+	public <T> T execute(String opName, RetryableCall<T> op) {
+		return execute(opName, op, null);
+	}
+
+	/**
+	 * call op, retrying on retryable errors
+	 * @return result of first successful attempt
+	 * @throws RuntimeException last error (checked exceptions are wrapped)
+	 */
+	public <T> T execute(String opName, RetryableCall<T> op, RetryListener listener) {
+		creditRetryBudget();
+		for(int retry = 0; ; retry++) {
+			val startTime = System.currentTimeMillis();
+			try {
+				return op.call();
+			} catch(Exception ex) {
+				val attemptMillis = System.currentTimeMillis() - startTime;
+				val errorKind = BlobStorageErrorClassifier.classify(ex);
+				if (errorKind == ErrorKind.NOT_RETRYABLE || retry + 1 >= maxAttempts) {
+					throw toRuntimeException(opName, ex);
+				}
+				if (! tryAcquireRetry()) {
+					log.warn("Failed " + opName + " .. retry budget exhausted, no retry, ex:" + ex.getMessage());
+					throw toRuntimeException(opName, ex);
+				}
+				val backoffMillis = backoffMillis(retry, errorKind);
+				if (listener != null) {
+					listener.onRetry(retry, ex, attemptMillis, backoffMillis);
+				} else {
+					log.warn("Failed " + opName + " ..retry [" + retry + "/" + maxAttempts + "] in " + backoffMillis + " ms, ex:" + ex.getMessage());
+				}
+				sleep(backoffMillis);
+			}
+		}
+	}
+
+	public void run(String opName, Runnable op) {
+		execute(opName, () -> {
+			op.run();
+			return null;
+		}, null);
+	}
+
+	/**
+	 * @return backoff before retry, random in [d/2, d]
+	 */
+	public long backoffMillis(int retry, ErrorKind errorKind) {
+		double d = initialBackoffMillis * Math.pow(backoffMultiplier, retry);
+		double max = maxBackoffMillis;
+		if (errorKind == ErrorKind.THROTTLED) {
+			d *= throttledBackoffFactor;
+			max *= throttledBackoffFactor;
+		}
+		d = Math.min(d, max);
+		return (long) (d / 2 + ThreadLocalRandom.current().nextDouble() * d / 2);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private synchronized void creditRetryBudget() {
+		refillRetryBudget();
+		this.retryBudgetTokens = Math.min(retryBudgetCapacity, retryBudgetTokens + retryBudgetRatio);
+	}
+
+	private synchronized boolean tryAcquireRetry() {
+		refillRetryBudget();
+		if (retryBudgetTokens < 1.0) {
+			this.budgetExhaustedCount++;
+			return false;
+		}
+		this.retryBudgetTokens -= 1.0;
+		this.retryCount++;
+		return true;
+	}
+
+	private void refillRetryBudget() {
+		val now = System.nanoTime();
+		val elapsedNanos = now - retryBudgetLastRefillNanos;
+		this.retryBudgetLastRefillNanos = now;
+		this.retryBudgetTokens = Math.min(retryBudgetCapacity,
+				retryBudgetTokens + retryBudgetMinPerSecond * elapsedNanos / NANOS_PER_SECOND);
+	}
+
+	private static RuntimeException toRuntimeException(String opName, Exception ex) {
+		if (ex instanceof InterruptedException) {
+			Thread.currentThread().interrupt();
+		}
+		return (ex instanceof RuntimeException)? (RuntimeException) ex : new RuntimeException("Failed " + opName, ex);
+	}
+
+	private static void sleep(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting before retry", ex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{RetryPolicy maxAttempts:" + maxAttempts + ", backoff:" + initialBackoffMillis + ".." + maxBackoffMillis + " ms"
+				+ ", retries:" + getRetryCount() + ", budgetExhausted:" + getBudgetExhaustedCount() + "}";
+	}
+
+}
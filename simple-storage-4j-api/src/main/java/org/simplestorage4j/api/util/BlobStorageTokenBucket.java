@@ -0,0 +1,237 @@
+package org.simplestorage4j.api.util;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * token bucket, with adaptive rate: cut on throttling, then slowly ramped up
+ *
+ * acquire(n) never fails: tokens may go negative (debt), and caller sleeps until its debt is repaid.
+ * Sleeps are done by slices, re-reading the current rate (which may be ramped up, or back to unlimited meanwhile).
+ * Debt is capped to <code>maxDebtSeconds</code> of current rate: a single huge acquire() never sleeps for long.
+ * Burst capacity is 1 second of rate.
+ * When maxRate is not set (unlimited), the bucket is a no-op until a throttling occurs:
+ * then rate is cut from the observed rate (at least minRate), ramped up, and back to unlimited when well above observed rate.
+ */
+@Slf4j
+public class BlobStorageTokenBucket {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	/** max sleep before re-reading rate */
+	private static final long MAX_SLEEP_SLICE_NANOS = 100_000_000L;
+
+	private final String displayName;
+
+	/** configured rate (tokens/s), <= 0 for unlimited */
+	@Getter
+	private final double maxRate;
+
+	/** lower bound of rate cuts (tokens/s) */
+	@Getter
+	private final double minRate;
+
+	/** max debt, in seconds of current rate */
+	@Getter @Setter
+	private double maxDebtSeconds = 2.0;
+
+	/** current rate (tokens/s), <= 0 for unlimited */
+	private double rate;
+
+	private double tokens;
+
+	/** total tokens refilled (or debt forgiven), for waiters to know when their debt is repaid */
+	private double repaidTotal;
+
+	private long lastRefillNanos;
+
+	/** when maxRate unlimited: rate above which bucket becomes unlimited again */
+	private double unlimitedRestoreRate;
+
+	private long lastThrottleCutNanos;
+	private long lastRampUpNanos;
+
+	// observed rate, by 1s windows
+	private long windowStartNanos;
+	private double windowTokens;
+	private double observedRate;
+
+	@Getter
+	private long throttleCutCount;
+
+	private static final double THROTTLE_DECREASE_FACTOR = 0.5;
+	private static final double RAMP_UP_RATIO_PER_SECOND = 0.05;
+	private static final double MIN_RATE_RATIO = 0.02;
+
+	// ------------------------------------------------------------------------
+
+	public BlobStorageTokenBucket(String displayName, double maxRate) {
+		this(displayName, maxRate, 1.0);
+	}
+
+	/**
+	 * @param minRate lower bound of rate cuts (tokens/s), ex: 1MB/s for bytes buckets, so that a throttling
+	 * after an idle period (tiny observed rate) does not block reads of a few MB
+	 */
+	public BlobStorageTokenBucket(String displayName, double maxRate, double minRate) {
+		this.displayName = displayName;
+		this.maxRate = maxRate;
+		this.minRate = (maxRate > 0)? Math.min(minRate, maxRate) : minRate;
+		this.rate = maxRate;
+		this.tokens = Math.max(0, maxRate);
+		val now = System.nanoTime();
+		this.lastRefillNanos = now;
+		this.windowStartNanos = now;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	/**
+	 * take n tokens, sleeping if needed
+	 */
+	public void acquire(long n) {
+		double repaidTarget;
+		synchronized(this) {
+			val now = System.nanoTime();
+			recordObserved(n, now);
+			if (rate <= 0) {
+				return;
+			}
+			refill(now);
+			tokens -= n;
+			capDebt();
+			if (tokens >= 0) {
+				return;
+			}
+			repaidTarget = repaidTotal - tokens;
+		}
+		for(;;) {
+			long waitNanos;
+			synchronized(this) {
+				if (rate <= 0) {
+					return; // back to unlimited
+				}
+				refill(System.nanoTime());
+				capDebt(); // rate may have been cut
+				val remainDebt = repaidTarget - repaidTotal;
+				if (remainDebt <= 0) {
+					return;
+				}
+				waitNanos = (long) (remainDebt / rate * NANOS_PER_SECOND);
+			}
+			sleepNanos(Math.min(Math.max(waitNanos, 1), MAX_SLEEP_SLICE_NANOS));
+		}
+	}
+
+	/**
+	 * backend signaled throttling: cut rate (at most once per second, as concurrent requests fail together)
+	 */
+	public synchronized void onThrottled() {
+		val now = System.nanoTime();
+		if (lastThrottleCutNanos != 0 && now - lastThrottleCutNanos < NANOS_PER_SECOND) {
+			return;
+		}
+		refill(now);
+		val baseRate = (rate > 0)? rate : observedRate;
+		if (baseRate <= 0) {
+			return; // nothing observed yet
+		}
+		if (rate <= 0) {
+			this.unlimitedRestoreRate = 2 * baseRate;
+		}
+		val referenceRate = (maxRate > 0)? maxRate : unlimitedRestoreRate;
+		val cutMinRate = Math.max(minRate, referenceRate * MIN_RATE_RATIO);
+		this.rate = Math.max(cutMinRate, baseRate * THROTTLE_DECREASE_FACTOR);
+		if (maxRate <= 0) {
+			this.unlimitedRestoreRate = Math.max(unlimitedRestoreRate, 2 * rate);
+		}
+		this.tokens = Math.min(tokens, 0);
+		this.lastThrottleCutNanos = now;
+		this.lastRampUpNanos = now;
+		this.throttleCutCount++;
+		log.warn("throttled " + displayName + " .. cut rate to " + (long) rate + "/s");
+	}
+
+	/**
+	 * successful request: slowly ramp up rate, if previously cut
+	 */
+	public synchronized void onSuccess() {
+		if (rate <= 0 || (maxRate > 0 && rate >= maxRate)) {
+			return;
+		}
+		val now = System.nanoTime();
+		val elapsedNanos = now - lastRampUpNanos;
+		if (elapsedNanos < NANOS_PER_SECOND) {
+			return;
+		}
+		refill(now);
+		val elapsedSeconds = ((double) elapsedNanos) / NANOS_PER_SECOND;
+		this.lastRampUpNanos = now;
+		if (maxRate > 0) {
+			this.rate = Math.min(maxRate, rate + maxRate * RAMP_UP_RATIO_PER_SECOND * elapsedSeconds);
+		} else {
+			this.rate = rate * (1.0 + RAMP_UP_RATIO_PER_SECOND * elapsedSeconds);
+			if (rate >= unlimitedRestoreRate) {
+				this.rate = 0; // back to unlimited
+				log.info("throttling " + displayName + " recovered .. back to unlimited rate");
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void refill(long now) {
+		val elapsedNanos = now - lastRefillNanos;
+		this.lastRefillNanos = now;
+		if (rate > 0) {
+			val newTokens = Math.min(rate, tokens + rate * elapsedNanos / NANOS_PER_SECOND);
+			if (newTokens > tokens) {
+				this.repaidTotal += newTokens - tokens;
+				this.tokens = newTokens;
+			}
+		}
+	}
+
+	/** forgive debt above maxDebtSeconds of current rate */
+	private void capDebt() {
+		val minTokens = -rate * maxDebtSeconds;
+		if (tokens < minTokens) {
+			this.repaidTotal += minTokens - tokens;
+			this.tokens = minTokens;
+		}
+	}
+
+	private void recordObserved(long n, long now) {
+		val elapsedNanos = now - windowStartNanos;
+		if (elapsedNanos >= NANOS_PER_SECOND) {
+			this.observedRate = windowTokens * NANOS_PER_SECOND / elapsedNanos;
+			this.windowTokens = 0;
+			this.windowStartNanos = now;
+		}
+		this.windowTokens += n;
+	}
+
+	private static void sleepNanos(long nanos) {
+		if (nanos <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while rate limited", ex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{TokenBucket " + displayName + " rate:" + ((rate > 0)? ((long) rate) + "/s" : "unlimited") + "}";
+	}
+
+}
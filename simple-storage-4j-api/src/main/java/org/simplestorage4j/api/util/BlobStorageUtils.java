@@ -2,7 +2,9 @@ package org.simplestorage4j.api.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -25,4 +27,35 @@ public final class BlobStorageUtils {
 		return res;
 	}
 
+	/** @return parent path, without leading or trailing "/", "" for top-level path */
+	public static String parentPathOf(String path) {
+		String p = path;
+		if (p.endsWith("/")) {
+			p = p.substring(0, p.length() - 1);
+		}
+		if (p.startsWith("/")) {
+			p = p.substring(1);
+		}
+		val idx = p.lastIndexOf('/');
+		return (idx == -1)? "" : p.substring(0, idx);
+	}
+
+	/** @return last name of path, without trailing "/" */
+	public static String childNameOf(String path) {
+		String p = path;
+		if (p.endsWith("/")) {
+			p = p.substring(0, p.length() - 1);
+		}
+		return p.substring(p.lastIndexOf('/') + 1);
+	}
+
+	/** @return paths grouped by parent path, in order of first occurrence */
+	public static Map<String,List<String>> groupByParentPath(Collection<String> paths) {
+		val res = new LinkedHashMap<String,List<String>>();
+		for(val path : paths) {
+			res.computeIfAbsent(parentPathOf(path), k -> new ArrayList<>()).add(path);
+		}
+		return res;
+	}
+
 }
@@ -0,0 +1,35 @@
+package org.simplestorage4j.api.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * OutputStream adapter writing into a ByteBuffer (heap or direct), up to its limit
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+	private final ByteBuffer buffer;
+
+	public ByteBufferOutputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (! buffer.hasRemaining()) {
+			throw new IOException("buffer overflow", new BufferOverflowException());
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len > buffer.remaining()) {
+			throw new IOException("buffer overflow: remaining " + buffer.remaining() + " < " + len, new BufferOverflowException());
+		}
+		buffer.put(b, off, len);
+	}
+
+}
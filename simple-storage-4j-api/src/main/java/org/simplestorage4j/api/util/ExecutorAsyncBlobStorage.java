@@ -0,0 +1,114 @@
+package org.simplestorage4j.api.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.simplestorage4j.api.AsyncBlobStorage;
+import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+
+/**
+ * default AsyncBlobStorage adapter, offloading blocking BlobStorage calls to a bounded executor
+ *
+ * by default, all storages share a single fixed thread pool, cf <code>defaultExecutor()</code>
+ * (size from system property "simplestorage4j.async.threadCount", default 32),
+ * so the count of concurrent blocking calls is bounded, whatever the count of pending futures.
+ */
+public class ExecutorAsyncBlobStorage implements AsyncBlobStorage {
+
+	public static final int DEFAULT_THREAD_COUNT = 32;
+
+	private static ExecutorService defaultExecutor;
+
+	protected final BlobStorage blobStorage;
+
+	protected final Executor executor;
+
+	// ------------------------------------------------------------------------
+
+	public ExecutorAsyncBlobStorage(BlobStorage blobStorage, Executor executor) {
+		this.blobStorage = blobStorage;
+		this.executor = executor;
+	}
+
+	/**
+	 * shared bounded executor (daemon threads), lazily created
+	 */
+	public static synchronized ExecutorService defaultExecutor() {
+		if (defaultExecutor == null) {
+			int threadCount = Integer.getInteger("simplestorage4j.async.threadCount", DEFAULT_THREAD_COUNT);
+			defaultExecutor = Executors.newFixedThreadPool(threadCount,
+					new BlobStorageNamedThreadFactory("blobstorage-async-", "", true));
+		}
+		return defaultExecutor;
+	}
+
+	// implements AsyncBlobStorage
+	// ------------------------------------------------------------------------
+
+	@Override
+	public BlobStorage blobStorage() {
+		return blobStorage;
+	}
+
+	@Override
+	public CompletableFuture<BlobStoreFileInfo> pathInfoAsync(String filePath) {
+		return CompletableFuture.supplyAsync(() -> blobStorage.pathInfo(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> existsAsync(String filePath) {
+		return CompletableFuture.supplyAsync(() -> blobStorage.exists(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<List<BlobStoreFileInfo>> listAsync(String filePath) {
+		return CompletableFuture.supplyAsync(() -> blobStorage.list(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> mkdirsAsync(String filePath) {
+		return CompletableFuture.runAsync(() -> blobStorage.mkdirs(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteFileAsync(String filePath) {
+		return CompletableFuture.runAsync(() -> blobStorage.deleteFile(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> renameFileAsync(String filePath, String newFilePath) {
+		return CompletableFuture.runAsync(() -> blobStorage.renameFile(filePath, newFilePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<byte[]> readFileAsync(String filePath) {
+		return CompletableFuture.supplyAsync(() -> blobStorage.readFile(filePath), executor);
+	}
+
+	@Override
+	public CompletableFuture<byte[]> readAtAsync(String filePath, long position, int len) {
+		return CompletableFuture.supplyAsync(() -> blobStorage.readAt(filePath, position, len), executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeFileAsync(String filePath, byte[] data) {
+		return CompletableFuture.runAsync(() -> blobStorage.writeFile(filePath, data), executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeAppendToFileAsync(String filePath, byte[] appendData) {
+		return CompletableFuture.runAsync(() -> blobStorage.writeAppendToFile(filePath, appendData), executor);
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "{ExecutorAsyncBlobStorage " + blobStorage.displayName + "}";
+	}
+
+}
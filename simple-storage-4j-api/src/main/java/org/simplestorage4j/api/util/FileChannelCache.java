@@ -0,0 +1,232 @@
+package org.simplestorage4j.api.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * cache of opened read-only FileChannels, shared by concurrent positional reads of the same file
+ *
+ * channels are reference-counted: acquire() returns a lease, to be closed after use.
+ * Idle channels (no lease) are kept open up to <code>maxIdleChannels</code>, then closed in LRU order.
+ * invalidate() must be called when a file is modified, renamed or deleted: the cached channel is removed,
+ * and closed when its last lease is released.
+ * For files modified outside of the caller, acquire() also checks the cached channel against the current
+ * file attributes (fileKey, size, lastModifiedTime), using 1 stat call, and re-opens it when changed.
+ *
+ * in mmap mode, files (up to 2Go) are memory-mapped once, then read lock-free with duplicated buffers.
+ * Mapped memory is unmapped by the GC only.
+ */
+@Slf4j
+public class FileChannelCache {
+
+	@Getter @Setter
+	private int maxIdleChannels;
+
+	private final LinkedHashMap<Path, CachedFileChannel> channelByPath = new LinkedHashMap<>(64, 0.75f, true);
+
+	// ------------------------------------------------------------------------
+
+	public FileChannelCache(int maxIdleChannels) {
+		this.maxIdleChannels = maxIdleChannels;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public CachedFileChannel acquire(Path path) throws IOException {
+		// stat before open: when file is replaced in between, next acquire() sees a mismatch and re-opens
+		val attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		synchronized(channelByPath) {
+			CachedFileChannel res = channelByPath.get(path);
+			if (res != null && ! res.matches(attrs)) {
+				log.info("file changed since cached channel opened, re-open '" + path + "'");
+				invalidate(path);
+				res = null;
+			}
+			if (res == null) {
+				val channel = FileChannel.open(path, StandardOpenOption.READ);
+				res = new CachedFileChannel(path, channel, attrs);
+				channelByPath.put(path, res);
+			}
+			res.refCount++;
+			return res;
+		}
+	}
+
+	public void invalidate(Path path) {
+		synchronized(channelByPath) {
+			val entry = channelByPath.remove(path);
+			if (entry != null) {
+				entry.invalidated = true;
+				if (entry.refCount == 0) {
+					entry.closeChannel();
+				}
+			}
+		}
+	}
+
+	/** invalidate path, and all cached sub-paths when path is a dir */
+	public void invalidateTree(Path path) {
+		synchronized(channelByPath) {
+			for(val entryPath : new ArrayList<>(channelByPath.keySet())) {
+				if (entryPath.startsWith(path)) {
+					invalidate(entryPath);
+				}
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized(channelByPath) {
+			for(val entryPath : new ArrayList<>(channelByPath.keySet())) {
+				invalidate(entryPath);
+			}
+		}
+	}
+
+	protected void release(CachedFileChannel entry) {
+		synchronized(channelByPath) {
+			entry.refCount--;
+			if (entry.refCount > 0) {
+				return;
+			}
+			if (entry.invalidated) {
+				entry.closeChannel();
+				return;
+			}
+			evictIdleChannels();
+		}
+	}
+
+	private void evictIdleChannels() {
+		int idleCount = 0;
+		for(val entry : channelByPath.values()) {
+			if (entry.refCount == 0) {
+				idleCount++;
+			}
+		}
+		if (idleCount <= maxIdleChannels) {
+			return;
+		}
+		val iter = channelByPath.values().iterator(); // LRU first
+		while(idleCount > maxIdleChannels && iter.hasNext()) {
+			val entry = iter.next();
+			if (entry.refCount == 0) {
+				iter.remove();
+				entry.closeChannel();
+				idleCount--;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * lease on a cached channel, close() to release
+	 */
+	public class CachedFileChannel implements Closeable {
+		public final Path path;
+		public final FileChannel channel;
+
+		/** file attributes when opened, to detect modifications */
+		private final Object fileKey;
+		private final long size;
+		private final long lastModifiedTime;
+
+		private int refCount; // guarded by channelByPath
+		private boolean invalidated;
+
+		private volatile MappedByteBuffer mapped;
+
+		CachedFileChannel(Path path, FileChannel channel, BasicFileAttributes attrs) {
+			this.path = path;
+			this.channel = channel;
+			this.fileKey = attrs.fileKey();
+			this.size = attrs.size();
+			this.lastModifiedTime = attrs.lastModifiedTime().toMillis();
+		}
+
+		boolean matches(BasicFileAttributes attrs) {
+			return size == attrs.size() //
+					&& lastModifiedTime == attrs.lastModifiedTime().toMillis() //
+					&& Objects.equals(fileKey, attrs.fileKey());
+		}
+
+		@Override
+		public void close() {
+			release(this);
+		}
+
+		/**
+		 * positional read until dst is full
+		 * @param mmap when true, read from memory-mapped file (if size <= 2Go)
+		 */
+		public void readFully(ByteBuffer dst, long position, boolean mmap) throws IOException {
+			if (mmap) {
+				val mappedBuffer = mapped();
+				if (mappedBuffer != null) {
+					val len = dst.remaining();
+					if (position + len > mappedBuffer.capacity()) {
+						throw new EOFException("read at(" + position + ", " + len + ") after EOF:" + mappedBuffer.capacity() + " '" + path + "'");
+					}
+					val src = mappedBuffer.duplicate(); // independent position/limit: lock-free
+					src.position((int) position);
+					src.limit((int) position + len);
+					dst.put(src);
+					return;
+				}
+			}
+			long currPosition = position;
+			while(dst.hasRemaining()) {
+				int count = channel.read(dst, currPosition);
+				if (count < 0) {
+					throw new EOFException("read at " + currPosition + " after EOF '" + path + "'");
+				}
+				currPosition += count;
+			}
+		}
+
+		private MappedByteBuffer mapped() throws IOException {
+			MappedByteBuffer res = mapped;
+			if (res == null) {
+				synchronized(this) {
+					res = mapped;
+					if (res == null) {
+						val size = channel.size();
+						if (size > Integer.MAX_VALUE) {
+							return null;
+						}
+						res = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+						this.mapped = res;
+					}
+				}
+			}
+			return res;
+		}
+
+		void closeChannel() {
+			mapped = null;
+			try {
+				channel.close();
+			} catch(IOException ex) {
+				log.warn("Failed to close channel '" + path + "' ..ignore " + ex.getMessage());
+			}
+		}
+	}
+
+}
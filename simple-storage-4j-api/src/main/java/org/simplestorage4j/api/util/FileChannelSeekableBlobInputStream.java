@@ -0,0 +1,76 @@
+package org.simplestorage4j.api.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.simplestorage4j.api.SeekableBlobInputStream;
+
+import lombok.val;
+
+/**
+ * SeekableBlobInputStream using positional reads on a FileChannel: seek is free, no read-ahead needed
+ */
+public class FileChannelSeekableBlobInputStream extends SeekableBlobInputStream {
+
+	private final FileChannel channel;
+
+	private long pos;
+
+	// ------------------------------------------------------------------------
+
+	public FileChannelSeekableBlobInputStream(FileChannel channel, long position) {
+		this.channel = channel;
+		this.pos = position;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void seek(long position) throws IOException {
+		if (position < 0) {
+			throw new EOFException("Failed seek(" + position + "): negative position");
+		}
+		this.pos = position;
+	}
+
+	@Override
+	public long getPos() {
+		return pos;
+	}
+
+	@Override
+	public int read() throws IOException {
+		val buffer = ByteBuffer.allocate(1);
+		int count = channel.read(buffer, pos);
+		if (count <= 0) {
+			return -1;
+		}
+		pos++;
+		return buffer.get(0) & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int count = channel.read(ByteBuffer.wrap(b, off, len), pos);
+		if (count > 0) {
+			pos += count;
+		}
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, channel.size() - pos));
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.simplestorage4j.api.util;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import lombok.val;
+
+/**
+ * lazy Iterator over pages fetched by <code>fetchNextPage()</code>, holding at most 2 pages in memory
+ *
+ * when an executor is given, the next page is fetched in background while the current page is consumed
+ * (overlapping backend latency). Pages are always fetched sequentially, never concurrently.
+ * close() releases backend resources, cf <code>doClose()</code>.
+ */
+public abstract class PrefetchingPageIterator<T> implements Iterator<T>, Closeable {
+
+	private final Executor prefetchExecutor;
+
+	private Iterator<T> currPage = Collections.emptyIterator();
+
+	private CompletableFuture<List<T>> nextPageFuture;
+
+	private boolean lastPageFetched;
+
+	private boolean closed;
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @param prefetchExecutor executor for background fetch, null for no prefetch
+	 */
+	protected PrefetchingPageIterator(Executor prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
+	/**
+	 * @return next page (possibly empty), or null when no more pages
+	 */
+	protected abstract List<T> fetchNextPage();
+
+	/** release backend resources, default no-op */
+	protected void doClose() {
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean hasNext() {
+		while(! currPage.hasNext()) {
+			if (closed || lastPageFetched) {
+				return false;
+			}
+			List<T> page = awaitNextPage();
+			if (page == null) {
+				lastPageFetched = true;
+				return false;
+			}
+			currPage = page.iterator();
+			startPrefetch();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (! hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return currPage.next();
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		currPage = Collections.emptyIterator();
+		if (nextPageFuture != null) {
+			// wait for background fetch to finish before releasing resources
+			try {
+				nextPageFuture.join();
+			} catch(RuntimeException ex) {
+				// ignore, closing
+			}
+			nextPageFuture = null;
+		}
+		doClose();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private List<T> awaitNextPage() {
+		if (nextPageFuture == null) {
+			return fetchNextPage();
+		}
+		val future = nextPageFuture;
+		nextPageFuture = null;
+		try {
+			return future.join();
+		} catch(CompletionException ex) {
+			val cause = ex.getCause();
+			throw (cause instanceof RuntimeException)? (RuntimeException) cause : new RuntimeException(cause);
+		}
+	}
+
+	private void startPrefetch() {
+		if (prefetchExecutor != null) {
+			nextPageFuture = CompletableFuture.supplyAsync(() -> fetchNextPage(), prefetchExecutor);
+		}
+	}
+
+}
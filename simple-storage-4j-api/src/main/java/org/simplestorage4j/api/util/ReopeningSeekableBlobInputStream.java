@@ -0,0 +1,173 @@
+package org.simplestorage4j.api.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.simplestorage4j.api.SeekableBlobInputStream;
+
+import lombok.val;
+
+/**
+ * SeekableBlobInputStream on top of a non seekable stream, re-opened at the new position when needed
+ *
+ * stream is opened lazily on first read after a seek.
+ * Forward seeks of less than <code>readAhead</code> bytes skip bytes in the currently opened stream,
+ * as reading a few bytes is cheaper than a new (remote) request. Other seeks close the current stream.
+ */
+public abstract class ReopeningSeekableBlobInputStream extends SeekableBlobInputStream {
+
+	protected final String displayPath;
+
+	private final long readAhead;
+
+	/** logical position of next read */
+	private long pos;
+
+	/** currently opened stream, or null (not yet opened, or closed after seek) */
+	private InputStream currStream;
+	private long currStreamPos;
+	private boolean currStreamEof;
+
+	private boolean closed;
+
+	// ------------------------------------------------------------------------
+
+	public ReopeningSeekableBlobInputStream(String displayPath, long position, long readAhead) {
+		this.displayPath = displayPath;
+		this.pos = position;
+		this.readAhead = readAhead;
+	}
+
+	/**
+	 * open underlying stream, starting at position, until end of file
+	 */
+	protected abstract InputStream openAt(long position) throws IOException;
+
+	/**
+	 * close underlying stream, possibly not fully read.
+	 * override to abort remote connection instead of draining remaining bytes
+	 */
+	protected void closeStream(InputStream stream, boolean eof) throws IOException {
+		stream.close();
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void seek(long position) throws IOException {
+		checkNotClosed();
+		if (position < 0) {
+			throw new EOFException("Failed seek(" + position + ") on '" + displayPath + "': negative position");
+		}
+		this.pos = position;
+	}
+
+	@Override
+	public long getPos() {
+		return pos;
+	}
+
+	@Override
+	public int read() throws IOException {
+		ensureStreamAtPos();
+		int res = currStream.read();
+		if (res >= 0) {
+			pos++;
+			currStreamPos++;
+		} else {
+			currStreamEof = true;
+		}
+		return res;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		ensureStreamAtPos();
+		int count = currStream.read(b, off, len);
+		if (count > 0) {
+			pos += count;
+			currStreamPos += count;
+		} else if (count < 0) {
+			currStreamEof = true;
+		}
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (currStream == null || currStreamPos != pos) {
+			return 0;
+		}
+		return currStream.available();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		closeCurrStream();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void checkNotClosed() throws IOException {
+		if (closed) {
+			throw new IOException("stream closed '" + displayPath + "'");
+		}
+	}
+
+	private void ensureStreamAtPos() throws IOException {
+		checkNotClosed();
+		if (currStream != null && currStreamPos != pos) {
+			long forward = pos - currStreamPos;
+			if (forward > 0 && forward <= readAhead && ! currStreamEof) {
+				skipInCurrStream(forward);
+			} else {
+				closeCurrStream();
+			}
+		}
+		if (currStream == null) {
+			currStream = openAt(pos);
+			currStreamPos = pos;
+			currStreamEof = false;
+		}
+	}
+
+	private void skipInCurrStream(long len) throws IOException {
+		long remain = len;
+		while(remain > 0) {
+			long count = currStream.skip(remain);
+			if (count <= 0) {
+				// skip() may return 0 before EOF, check with read()
+				if (currStream.read() < 0) {
+					currStreamEof = true;
+					break;
+				}
+				count = 1;
+			}
+			remain -= count;
+		}
+		// when reaching EOF, stream stays at EOF: next read() returns -1
+		currStreamPos = pos;
+	}
+
+	private void closeCurrStream() throws IOException {
+		if (currStream != null) {
+			val stream = currStream;
+			this.currStream = null;
+			closeStream(stream, currStreamEof);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{SeekableInputStream '" + displayPath + "' pos:" + pos + ((currStream != null)? " opened" : "") + "}";
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlobStoragePathInfosTest {
+
+	private final InMemoryBlobStorage storage = new InMemoryBlobStorage("test");
+
+	@Test
+	public void testPathInfos_groupedByParent() {
+		for(int i = 0; i < 10; i++) {
+			storage.writeFile("dir1/f" + i, new byte[i]);
+		}
+		storage.writeFile("dir2/a", new byte[1]);
+		storage.mkdirs("dir1/sub");
+		val paths = Arrays.asList("dir1/f3", "dir2/a", "dir1/f1", "dir1/sub", "dir1/missing", "dir1/f9", "dir2/missing");
+		val res = storage.pathInfos(paths);
+		assertEquals(paths, new ArrayList<>(res.keySet()));
+		assertEquals(3, res.get("dir1/f3").fileLength);
+		assertEquals(9, res.get("dir1/f9").fileLength);
+		assertTrue(res.get("dir1/sub").isDir);
+		assertNull(res.get("dir1/missing"));
+		assertEquals(1, res.get("dir2/a").fileLength);
+		assertNull(res.get("dir2/missing"));
+		// 1 listing for dir1 (5 paths), 1 pathInfo() per path for dir2 (2 paths)
+		assertEquals(1, storage.listCount.get());
+		assertEquals(2, storage.pathInfoCount.get());
+	}
+
+	@Test
+	public void testPathsAfterListedName() {
+		val paths = Arrays.asList("dir/a", "dir/c", "dir/e");
+		assertEquals(Collections.emptyList(), BlobStorage.pathsAfterListedName(paths, null));
+		assertEquals(Arrays.asList("dir/e"), BlobStorage.pathsAfterListedName(paths, "c"));
+		assertEquals(Arrays.asList("dir/c", "dir/e"), BlobStorage.pathsAfterListedName(paths, "b"));
+		assertEquals(paths, BlobStorage.pathsAfterListedName(paths, ""));
+	}
+
+	@Test
+	public void testMaxChildNameOf() {
+		assertEquals("f9", BlobStorage.maxChildNameOf(Arrays.asList("dir/f1", "dir/f9", "dir/f10")));
+	}
+
+	@Test
+	public void testMatchChildInfos_truncatedListing() {
+		for(int i = 0; i < 5; i++) {
+			storage.writeFile("dir/f" + i, new byte[i]);
+		}
+		val listed = storage.list("dir").subList(0, 2); // f0, f1
+		val res = storage.matchChildInfos(Arrays.asList("dir/f1", "dir/f3", "dir/f05"), listed, "f1");
+		assertEquals(1, res.get("dir/f1").fileLength);
+		assertEquals(3, res.get("dir/f3").fileLength);
+		assertNull(res.get("dir/f05")); // covered by listing (before "f1"), not found
+		assertEquals(1, storage.pathInfoCount.get());
+	}
+
+}
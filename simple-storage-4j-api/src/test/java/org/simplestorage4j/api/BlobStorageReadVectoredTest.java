@@ -0,0 +1,64 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlobStorageReadVectoredTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static byte[] sequence(int len) {
+		val res = new byte[len];
+		for(int i = 0; i < len; i++) {
+			res[i] = (byte) i;
+		}
+		return res;
+	}
+
+	@Test
+	public void testReadVectored_mergedRanges() throws Exception {
+		val storage = new InMemoryBlobStorage("test");
+		storage.writeFile("a", sequence(1000));
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(500, 10),
+				BlobStorageFileRange.of(0, 10),
+				BlobStorageFileRange.of(20, 5));
+
+		val res = storage.readVectored("a", ranges, executor);
+
+		assertArrayEquals(Arrays.copyOfRange(sequence(1000), 500, 510), res.get(0).get());
+		assertArrayEquals(Arrays.copyOfRange(sequence(1000), 0, 10), res.get(1).get());
+		assertArrayEquals(Arrays.copyOfRange(sequence(1000), 20, 25), res.get(2).get());
+		assertEquals(1, storage.readAtCount.get()); // all merged, default maxMergeGap
+	}
+
+	@Test
+	public void testReadVectored_emptyRanges_noBackendRequest() throws Exception {
+		val storage = new InMemoryBlobStorage("test");
+		storage.writeFile("a", sequence(100));
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(100, 0),
+				BlobStorageFileRange.of(100, 0));
+
+		val res = storage.readVectored("a", ranges, executor);
+
+		assertEquals(0, res.get(0).get().length);
+		assertEquals(0, res.get(1).get().length);
+		assertEquals(0, storage.readAtCount.get());
+	}
+
+}
@@ -0,0 +1,236 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingBlobStorageTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private CountingFileBlobStorage delegate;
+	private CachingBlobStorage storage;
+
+	/**
+	 * FileBlobStorage counting metadata calls
+	 */
+	private static class CountingFileBlobStorage extends FileBlobStorage {
+		final AtomicInteger pathInfoCount = new AtomicInteger();
+		final AtomicInteger listCount = new AtomicInteger();
+		final List<String> pathInfosRequested = new ArrayList<>();
+
+		CountingFileBlobStorage(File baseDir) {
+			super(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", baseDir);
+		}
+
+		@Override
+		public BlobStoreFileInfo pathInfo(String relativePath) {
+			pathInfoCount.incrementAndGet();
+			return super.pathInfo(relativePath);
+		}
+
+		@Override
+		public List<BlobStoreFileInfo> list(String relativePath) {
+			listCount.incrementAndGet();
+			return super.list(relativePath);
+		}
+
+		@Override
+		public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> filePaths) {
+			pathInfosRequested.addAll(filePaths);
+			return super.pathInfos(filePaths);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		delegate = new CountingFileBlobStorage(tempFolder.newFolder("storage"));
+		storage = new CachingBlobStorage(delegate);
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	// pathInfo
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testPathInfo_cached() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("abc"));
+		assertEquals(3, storage.pathInfo("dir/a.txt").fileLength);
+		assertEquals(1, delegate.pathInfoCount.get());
+
+		assertEquals(3, storage.pathInfo("/dir/a.txt").fileLength);
+		assertTrue(storage.exists("dir/a.txt"));
+		assertFalse(storage.isDirectory("dir/a.txt"));
+		assertEquals(3, storage.fileLen("dir/a.txt"));
+		assertTrue(storage.lastModifiedTime("dir/a.txt") > 0);
+		assertEquals(1, delegate.pathInfoCount.get());
+		assertEquals(5, storage.getCounter_pathInfoHit().getCount());
+	}
+
+	@Test
+	public void testPathInfo_notFoundCached_invalidatedByWrite() {
+		storage.mkdirs("dir");
+		assertNull(storage.pathInfo("dir/a.txt"));
+		assertFalse(storage.exists("dir/a.txt"));
+		assertEquals(1, delegate.pathInfoCount.get());
+
+		storage.writeFile("dir/a.txt", bytes("abc"));
+		assertTrue(storage.exists("dir/a.txt"));
+		assertEquals(2, delegate.pathInfoCount.get());
+	}
+
+	@Test
+	public void testPathInfo_modifiedOutside_seenAfterTtl() throws Exception {
+		storage.setTtlMillis(20);
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("abc"));
+		assertEquals(3, storage.fileLen("dir/a.txt"));
+
+		delegate.writeFile("dir/a.txt", bytes("abcdef")); // not through cache
+		assertEquals(3, storage.fileLen("dir/a.txt"));
+		Thread.sleep(50);
+		assertEquals(6, storage.fileLen("dir/a.txt"));
+	}
+
+	@Test
+	public void testPathInfo_lruEviction() {
+		storage.setMaxEntries(2);
+		storage.mkdirs("dir");
+		storage.pathInfo("dir/a");
+		storage.pathInfo("dir/b");
+		storage.pathInfo("dir/a"); // access: "dir/b" becomes eldest
+		storage.pathInfo("dir/c");
+		assertEquals(3, delegate.pathInfoCount.get());
+		storage.pathInfo("dir/a");
+		assertEquals(3, delegate.pathInfoCount.get());
+		storage.pathInfo("dir/b");
+		assertEquals(4, delegate.pathInfoCount.get());
+	}
+
+	@Test
+	public void testPathInfos_fetchesMissingOnly() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		storage.writeFile("dir/b.txt", bytes("bb"));
+		storage.pathInfo("dir/a.txt");
+
+		List<String> paths = Arrays.asList("dir/b.txt", "dir/a.txt", "dir/missing");
+		Map<String, BlobStoreFileInfo> res = storage.pathInfos(paths);
+		assertEquals(paths, new ArrayList<>(res.keySet()));
+		assertEquals(2, res.get("dir/b.txt").fileLength);
+		assertEquals(1, res.get("dir/a.txt").fileLength);
+		assertNull(res.get("dir/missing"));
+		assertEquals(Arrays.asList("dir/b.txt", "dir/missing"), delegate.pathInfosRequested);
+
+		delegate.pathInfosRequested.clear();
+		storage.pathInfos(paths);
+		assertTrue(delegate.pathInfosRequested.isEmpty());
+	}
+
+	// list
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testList_cached_fillsPathInfos() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		assertEquals(1, storage.list("dir").size());
+		assertEquals(1, storage.list("dir/").size());
+		assertEquals(1, delegate.listCount.get());
+
+		assertEquals(1, storage.fileLen("dir/a.txt"));
+		assertEquals(0, delegate.pathInfoCount.get());
+		assertEquals(Arrays.asList("a.txt"), storage.listChildNames("dir"));
+		assertEquals(1, delegate.listCount.get());
+	}
+
+	@Test
+	public void testList_invalidatedByChildWrite() {
+		storage.mkdirs("dir/sub");
+		assertEquals(1, storage.list("dir").size());
+		assertEquals(0, storage.list("dir/sub").size());
+
+		storage.writeFile("dir/sub/a.txt", bytes("a"));
+		assertEquals(1, storage.list("dir/sub").size());
+		storage.list("dir");
+		assertEquals(4, delegate.listCount.get());
+	}
+
+	// modifications
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testDeleteFile_invalidatesSubTree() {
+		storage.mkdirs("dir/sub");
+		storage.writeFile("dir/sub/a.txt", bytes("a"));
+		assertTrue(storage.exists("dir/sub/a.txt"));
+		storage.deleteFile("dir/sub/a.txt");
+		assertFalse(storage.exists("dir/sub/a.txt"));
+
+		assertTrue(storage.exists("dir/sub"));
+		storage.list("dir/sub");
+		storage.invalidate("dir", true);
+		int listCountBefore = delegate.listCount.get();
+		storage.list("dir/sub");
+		assertEquals(listCountBefore + 1, delegate.listCount.get());
+	}
+
+	@Test
+	public void testRenameFile_invalidatesBoth() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		assertTrue(storage.exists("dir/a.txt"));
+		assertFalse(storage.exists("dir/b.txt"));
+
+		storage.renameFile("dir/a.txt", "dir/b.txt");
+		assertFalse(storage.exists("dir/a.txt"));
+		assertTrue(storage.exists("dir/b.txt"));
+	}
+
+	@Test
+	public void testOpenWrite_invalidatesOnClose() throws Exception {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		assertEquals(1, storage.fileLen("dir/a.txt"));
+		try (OutputStream out = storage.openWrite("dir/a.txt", true)) {
+			out.write(bytes("bcd"));
+			out.flush();
+			assertEquals(4, storage.fileLen("dir/a.txt")); // cached while writing
+			out.write(bytes("e"));
+		}
+		assertEquals(5, storage.fileLen("dir/a.txt"));
+		assertArrayEquals(bytes("abcde"), storage.readFile("dir/a.txt"));
+	}
+
+	@Test
+	public void testMkdirs_invalidatesNegativeParents() {
+		assertFalse(storage.exists("dir"));
+		assertFalse(storage.exists("dir/sub"));
+		storage.mkdirs("dir/sub");
+		assertTrue(storage.isDirectory("dir"));
+		assertTrue(storage.isDirectory("dir/sub"));
+	}
+
+}
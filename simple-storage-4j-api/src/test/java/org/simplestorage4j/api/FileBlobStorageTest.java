@@ -0,0 +1,317 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+
+import lombok.val;
+
+public class FileBlobStorageTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private FileBlobStorage storage;
+
+	@Before
+	public void setUp() throws Exception {
+		storage = new FileBlobStorage(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", tempFolder.newFolder("storage"));
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	// ByteBuffer api
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testWrite_gatheringByteBuffers() {
+		val heap = ByteBuffer.wrap(bytes("hello "));
+		val direct = ByteBuffer.allocateDirect(5);
+		direct.put(bytes("world")).flip();
+
+		storage.write("a.txt", heap, direct);
+
+		assertArrayEquals(bytes("hello world"), storage.readFile("a.txt"));
+		assertEquals(0, heap.remaining());
+		assertEquals(0, direct.remaining());
+	}
+
+	@Test
+	public void testReadAt_heapByteBuffer() {
+		storage.writeFile("a.txt", bytes("0123456789"));
+		val dst = ByteBuffer.allocate(8);
+		dst.position(2);
+		dst.limit(6);
+
+		storage.readAt(dst, "a.txt", 3);
+
+		assertEquals(6, dst.position());
+		assertArrayEquals(bytes("3456"), new byte[] { dst.get(2), dst.get(3), dst.get(4), dst.get(5) });
+	}
+
+	@Test
+	public void testReadAt_directByteBuffer() {
+		storage.writeFile("a.txt", bytes("0123456789"));
+		val dst = ByteBuffer.allocateDirect(4);
+
+		storage.readAt(dst, "a.txt", 6);
+
+		dst.flip();
+		val res = new byte[4];
+		dst.get(res);
+		assertArrayEquals(bytes("6789"), res);
+	}
+
+	@Test
+	public void testBlobStoragePath_byteBuffer() {
+		val path = new BlobStoragePath(storage, "b.txt");
+		path.write(ByteBuffer.wrap(bytes("abcdef")));
+		val dst = ByteBuffer.allocate(3);
+		path.readAt(dst, 2);
+		assertArrayEquals(bytes("cde"), dst.array());
+	}
+
+	// read channel cache
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testReadChannelCache_disabledByDefault() {
+		assertFalse(storage.isUseReadChannelCache());
+		storage.writeFile("a.txt", bytes("0123456789"));
+		storage.readAt(ByteBuffer.allocate(4), "a.txt", 0);
+		storage.writeFile("a.txt", bytes("abcdefghij"));
+		assertArrayEquals(bytes("abcdefghij"), storage.readFile("a.txt"));
+	}
+
+	@Test
+	public void testReadChannelCache_invalidatedOnWriteStreamClose() throws Exception {
+		storage.setUseReadChannelCache(true);
+		storage.writeFile("a.txt", bytes("0123456789"));
+		assertArrayEquals(bytes("0123456789"), storage.readFile("a.txt"));
+		try (val out = storage.openWrite("a.txt", false)) {
+			out.write(bytes("abcd"));
+			out.flush();
+			// read while writing: re-opens cached channel
+			assertArrayEquals(bytes("abcd"), storage.readFile("a.txt"));
+			out.write(bytes("efghij"));
+		}
+		assertArrayEquals(bytes("abcdefghij"), storage.readFile("a.txt"));
+	}
+
+	@Test
+	public void testReadChannelCache_modifiedOutside() throws Exception {
+		storage.setUseReadChannelCache(true);
+		storage.writeFile("a.txt", bytes("0123456789"));
+		assertArrayEquals(bytes("0123456789"), storage.readFile("a.txt"));
+		Files.write(new File(storage.baseDir, "a.txt").toPath(), bytes("abcdefghijkl"));
+		assertArrayEquals(bytes("abcdefghijkl"), storage.readFile("a.txt"));
+	}
+
+	// list, pathInfo
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testList_filesAndDirs() {
+		storage.mkdirs("dir/sub");
+		storage.writeFile("dir/a.txt", bytes("abc"));
+		List<BlobStoreFileInfo> res = new ArrayList<>(storage.list("dir"));
+		res.sort((x, y) -> x.path.compareTo(y.path));
+		assertEquals(2, res.size());
+		BlobStoreFileInfo file = res.get(0);
+		assertEquals("dir/a.txt", file.path);
+		assertFalse(file.isDir);
+		assertEquals(3, file.fileLength);
+		assertEquals(new File(tempFolder.getRoot(), "storage/dir/a.txt").lastModified(), file.lastModifTime);
+		BlobStoreFileInfo dir = res.get(1);
+		assertEquals("dir/sub", dir.path);
+		assertTrue(dir.isDir);
+		assertEquals(0, dir.fileLength);
+	}
+
+	@Test
+	public void testList_emptyDir() {
+		storage.mkdirs("empty");
+		assertTrue(storage.list("empty").isEmpty());
+	}
+
+	@Test
+	public void testList_missingDir_throws() {
+		try {
+			storage.list("missing");
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+	}
+
+	@Test
+	public void testPathInfo() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("abcde"));
+		val fileInfo = storage.pathInfo("dir/a.txt");
+		assertEquals("dir/a.txt", fileInfo.path);
+		assertFalse(fileInfo.isDir);
+		assertEquals(5, fileInfo.fileLength);
+		assertTrue(fileInfo.lastModifTime > 0);
+
+		val dirInfo = storage.pathInfo("dir");
+		assertTrue(dirInfo.isDir);
+		assertEquals(0, dirInfo.fileLength);
+
+		assertNull(storage.pathInfo("missing"));
+		assertNull(storage.pathInfo("missing/a.txt"));
+	}
+
+	@Test
+	public void testListRecursiveParallel() {
+		writeTree();
+		List<String> res = Collections.synchronizedList(new ArrayList<String>());
+		storage.listRecursiveParallel("dir", 4, batch -> {
+			for(BlobStoreFileInfo info : batch) {
+				res.add(info.path + ((info.isDir)? "/" : ""));
+			}
+		});
+		Collections.sort(res);
+		assertEquals(Arrays.asList("a.txt", "empty/", "sub1/", "sub1/b.txt", "sub1/sub2/", "sub1/sub2/c.txt"), res);
+	}
+
+	// copyFrom with hard links
+	// ------------------------------------------------------------------------
+
+	private void hardLinkCopy(String destPath) throws Exception {
+		storage.setUseHardLinkForCopy(true);
+		storage.writeFile("src.txt", bytes("abc"));
+		storage.copyFrom(new BlobStoragePath(storage, "src.txt"), destPath, 3);
+		assertArrayEquals(bytes("abc"), storage.readFile(destPath));
+		assertEquals(2, Files.getAttribute(new File(storage.baseDir, destPath).toPath(), "unix:nlink"));
+	}
+
+	@Test
+	public void testHardLinkCopy_writeFile_srcUnchanged() throws Exception {
+		hardLinkCopy("dest.txt");
+		storage.writeFile("dest.txt", bytes("xyz"));
+		assertArrayEquals(bytes("xyz"), storage.readFile("dest.txt"));
+		assertArrayEquals(bytes("abc"), storage.readFile("src.txt"));
+
+		storage.write("dest.txt", ByteBuffer.wrap(bytes("uvw")));
+		assertArrayEquals(bytes("abc"), storage.readFile("src.txt"));
+	}
+
+	@Test
+	public void testHardLinkCopy_append_srcUnchanged() throws Exception {
+		hardLinkCopy("dest.txt");
+		storage.writeAppendToFile("dest.txt", bytes("def"));
+		assertArrayEquals(bytes("abcdef"), storage.readFile("dest.txt"));
+		assertArrayEquals(bytes("abc"), storage.readFile("src.txt"));
+
+		storage.writeAppendToFile("src.txt", bytes("123")); // both have their own inode now
+		assertArrayEquals(bytes("abcdef"), storage.readFile("dest.txt"));
+	}
+
+	@Test
+	public void testHardLinkCopy_openWrite_srcUnchanged() throws Exception {
+		hardLinkCopy("dest.txt");
+		try (OutputStream out = storage.openWrite("dest.txt", true)) {
+			out.write(bytes("def"));
+		}
+		assertArrayEquals(bytes("abcdef"), storage.readFile("dest.txt"));
+		assertArrayEquals(bytes("abc"), storage.readFile("src.txt"));
+
+		try (OutputStream out = storage.openWrite("src.txt", false)) {
+			out.write(bytes("x"));
+		}
+		assertArrayEquals(bytes("x"), storage.readFile("src.txt"));
+		assertArrayEquals(bytes("abcdef"), storage.readFile("dest.txt"));
+	}
+
+	// listRecursive
+	// ------------------------------------------------------------------------
+
+	private List<String> listRecursivePaths(String path, BlobStorageListOptions options) throws Exception {
+		val res = new ArrayList<String>();
+		try (PrefetchingPageIterator<BlobStoreFileInfo> iter = storage.listRecursive(path, options)) {
+			while(iter.hasNext()) {
+				val info = iter.next();
+				res.add(info.path + ((info.isDir)? "/" : ""));
+			}
+		}
+		Collections.sort(res);
+		return res;
+	}
+
+	private void writeTree() {
+		storage.mkdirs("dir/sub1/sub2");
+		storage.mkdirs("dir/empty");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		storage.writeFile("dir/sub1/b.txt", bytes("b"));
+		storage.writeFile("dir/sub1/sub2/c.txt", bytes("c"));
+		storage.writeFile("other.txt", bytes("o"));
+	}
+
+	@Test
+	public void testListRecursive_includeDirs() throws Exception {
+		writeTree();
+		val res = listRecursivePaths("dir", new BlobStorageListOptions(true, 2, true));
+		assertEquals(Arrays.asList("dir/a.txt", "dir/empty/", "dir/sub1/", "dir/sub1/b.txt", "dir/sub1/sub2/", "dir/sub1/sub2/c.txt"), res);
+	}
+
+	@Test
+	public void testListRecursive_filesOnly_noPrefetch() throws Exception {
+		writeTree();
+		val res = listRecursivePaths("dir", new BlobStorageListOptions(false, 1, false));
+		assertEquals(Arrays.asList("dir/a.txt", "dir/sub1/b.txt", "dir/sub1/sub2/c.txt"), res);
+	}
+
+	@Test
+	public void testListRecursive_fileInfos() throws Exception {
+		writeTree();
+		try (PrefetchingPageIterator<BlobStoreFileInfo> iter = storage.listRecursive("dir/sub1/sub2", new BlobStorageListOptions())) {
+			assertTrue(iter.hasNext());
+			val info = iter.next();
+			assertEquals("dir/sub1/sub2/c.txt", info.path);
+			assertEquals(1, info.fileLength);
+			assertTrue(info.lastModifTime > 0);
+			assertFalse(iter.hasNext());
+		}
+	}
+
+	@Test
+	public void testListRecursive_missingDir_empty() throws Exception {
+		assertEquals(Collections.emptyList(), listRecursivePaths("missing", new BlobStorageListOptions()));
+	}
+
+	@Test
+	public void testListRecursive_closeBeforeEnd() throws Exception {
+		storage.mkdirs("dir");
+		for(int i = 0; i < 20; i++) {
+			storage.writeFile("dir/f" + i, bytes("x"));
+		}
+		PrefetchingPageIterator<BlobStoreFileInfo> iter = storage.listRecursive("dir", new BlobStorageListOptions(true, 5, true));
+		assertTrue(iter.hasNext());
+		iter.next();
+		iter.close();
+		assertFalse(iter.hasNext());
+	}
+
+}
@@ -0,0 +1,177 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HedgedReadBlobStorageTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final ExecutorService hedgeExecutor = Executors.newFixedThreadPool(2);
+	private SlowFileBlobStorage delegate;
+	private HedgedReadBlobStorage storage;
+
+	/**
+	 * FileBlobStorage recording reading threads, optionally with a slow first read (the primary), failing or not
+	 */
+	private static class SlowFileBlobStorage extends FileBlobStorage {
+		final List<Thread> readAtThreads = new CopyOnWriteArrayList<>();
+		final AtomicBoolean slowReadTaken = new AtomicBoolean();
+		volatile boolean slowFirstRead;
+		volatile boolean slowReadFails;
+		volatile boolean failOtherReads;
+
+		SlowFileBlobStorage(File baseDir) {
+			super(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", baseDir);
+		}
+
+		@Override
+		public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+			readAtThreads.add(Thread.currentThread());
+			if (slowFirstRead && slowReadTaken.compareAndSet(false, true)) {
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				if (slowReadFails) {
+					throw new RuntimeException("read timeout");
+				}
+			} else if (slowFirstRead && failOtherReads) {
+				throw new RuntimeException("hedge failed");
+			}
+			super.readAt(resBuffer, resPos, filePath, position, len);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		delegate = new SlowFileBlobStorage(tempFolder.newFolder("storage"));
+		delegate.writeFile("a.txt", bytes("0123456789"));
+		storage = new HedgedReadBlobStorage(delegate, hedgeExecutor, 16);
+		storage.setMinSamples(2);
+		storage.setMinHedgeDelayMillis(50);
+	}
+
+	@After
+	public void tearDown() {
+		hedgeExecutor.shutdownNow();
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void warmUp() {
+		storage.readAt("a.txt", 0, 1);
+		storage.readAt("a.txt", 0, 1);
+		assertEquals(50, storage.getHedgeDelayMillis());
+		delegate.readAtThreads.clear();
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testReadAt_notEnoughSamples_notHedged() {
+		assertEquals(-1, storage.getHedgeDelayMillis());
+		assertArrayEquals(bytes("234"), storage.readAt("a.txt", 2, 3));
+		assertEquals(Arrays.asList(Thread.currentThread()), delegate.readAtThreads);
+	}
+
+	@Test
+	public void testReadAt_fastPrimary_notHedged() throws Exception {
+		warmUp();
+		assertArrayEquals(bytes("234"), storage.readAt("a.txt", 2, 3));
+		Thread.sleep(100);
+		assertEquals(1, delegate.readAtThreads.size());
+		assertNotEquals(Thread.currentThread(), delegate.readAtThreads.get(0));
+		assertEquals(0, storage.getCounter_hedged().getCount());
+	}
+
+	@Test
+	public void testReadAt_slowPrimary_fastHedgeWins() {
+		warmUp();
+		delegate.slowFirstRead = true;
+		long startTime = System.currentTimeMillis();
+		assertArrayEquals(bytes("234"), storage.readAt("a.txt", 2, 3));
+		long millis = System.currentTimeMillis() - startTime;
+		assertTrue("waited " + millis, millis < 400); // primary still sleeping
+		assertEquals(2, delegate.readAtThreads.size());
+		assertEquals(1, storage.getCounter_hedged().getCount());
+		assertEquals(1, storage.getCounter_hedgeWin().getCount());
+	}
+
+	@Test
+	public void testReadAt_slowPrimaryFails_hedgeUsed() {
+		warmUp();
+		delegate.slowFirstRead = true;
+		delegate.slowReadFails = true;
+		assertArrayEquals(bytes("234"), storage.readAt("a.txt", 2, 3));
+		assertEquals(2, delegate.readAtThreads.size());
+		assertEquals(1, storage.getCounter_hedgeWin().getCount());
+	}
+
+	@Test
+	public void testReadAt_slowPrimaryAndHedgeFail_primaryErrorThrown() {
+		warmUp();
+		delegate.slowFirstRead = true;
+		delegate.slowReadFails = true;
+		delegate.failOtherReads = true;
+		try {
+			storage.readAt("a.txt", 2, 3);
+			fail();
+		} catch(RuntimeException ex) {
+			assertEquals("read timeout", ex.getMessage());
+			assertEquals("hedge failed", ex.getSuppressed()[0].getMessage());
+		}
+		assertEquals(0, storage.getCounter_hedgeWin().getCount());
+	}
+
+	@Test
+	public void testReadAt_primaryFailsFast_notHedged() throws Exception {
+		warmUp();
+		try {
+			storage.readAt("missing.txt", 0, 3);
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		Thread.sleep(100);
+		assertEquals(1, delegate.readAtThreads.size());
+		assertEquals(0, storage.getCounter_hedged().getCount());
+	}
+
+	@Test
+	public void testReadVectored() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<BlobStorageFileRange> ranges = Arrays.asList(new BlobStorageFileRange(0, 2), new BlobStorageFileRange(6, 4));
+			List<CompletableFuture<byte[]>> res = storage.readVectored("a.txt", ranges, executor);
+			assertArrayEquals(bytes("01"), res.get(0).get());
+			assertArrayEquals(bytes("6789"), res.get(1).get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
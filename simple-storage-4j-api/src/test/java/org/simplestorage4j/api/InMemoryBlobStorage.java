@@ -0,0 +1,211 @@
+package org.simplestorage4j.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.val;
+
+/**
+ * in-memory BlobStorage for tests, counting backend calls
+ *
+ * paths are relative, "/" separated, without leading "/". Dirs are implicit (parents of files) or created by mkdirs().
+ */
+public class InMemoryBlobStorage extends BlobStorage {
+
+	/** guarded by itself */
+	private final TreeMap<String, byte[]> files = new TreeMap<>();
+	private final TreeMap<String, Long> lastModifTimes = new TreeMap<>();
+	private final Set<String> dirs = ConcurrentHashMap.newKeySet();
+
+	public final AtomicInteger pathInfoCount = new AtomicInteger();
+	public final AtomicInteger listCount = new AtomicInteger();
+	public final AtomicInteger readAtCount = new AtomicInteger();
+	public final AtomicInteger readFileCount = new AtomicInteger();
+	public final AtomicInteger writeCount = new AtomicInteger();
+
+	// ------------------------------------------------------------------------
+
+	public InMemoryBlobStorage(String id) {
+		super(BlobStorageId.of(id), BlobStorageGroupId.of(id), id);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static String parentOf(String path) {
+		val idx = path.lastIndexOf('/');
+		return (idx == -1)? "" : path.substring(0, idx);
+	}
+
+	private boolean isDir(String path) {
+		if (path.isEmpty() || dirs.contains(path)) {
+			return true;
+		}
+		synchronized(files) {
+			val next = files.ceilingKey(path + "/");
+			return next != null && next.startsWith(path + "/");
+		}
+	}
+
+	@Override
+	public BlobStoreFileInfo pathInfo(String filePath) {
+		pathInfoCount.incrementAndGet();
+		synchronized(files) {
+			val data = files.get(filePath);
+			if (data != null) {
+				return new BlobStoreFileInfo(filePath, false, data.length, lastModifTimes.get(filePath));
+			}
+		}
+		return (isDir(filePath))? new BlobStoreFileInfo(filePath, true, 0, 0) : null;
+	}
+
+	@Override
+	public boolean exists(String filePath) {
+		synchronized(files) {
+			if (files.containsKey(filePath)) {
+				return true;
+			}
+		}
+		return isDir(filePath);
+	}
+
+	@Override
+	public void mkdirs(String filePath) {
+		for(String p = filePath; ! p.isEmpty(); p = parentOf(p)) {
+			dirs.add(p);
+		}
+	}
+
+	@Override
+	public List<BlobStoreFileInfo> list(String filePath) {
+		listCount.incrementAndGet();
+		String prefix = (filePath.isEmpty())? "" : filePath + "/";
+		List<BlobStoreFileInfo> res = new ArrayList<>();
+		TreeMap<String, Boolean> childDirs = new TreeMap<>();
+		synchronized(files) {
+			for(Map.Entry<String, byte[]> e : files.tailMap(prefix).entrySet()) {
+				String path = e.getKey();
+				if (! path.startsWith(prefix)) {
+					break;
+				}
+				int sep = path.indexOf('/', prefix.length());
+				if (sep == -1) {
+					res.add(new BlobStoreFileInfo(path, false, e.getValue().length, lastModifTimes.get(path)));
+				} else {
+					childDirs.put(path.substring(0, sep), true);
+				}
+			}
+		}
+		for(String dir : dirs) {
+			if (dir.startsWith(prefix) && dir.indexOf('/', prefix.length()) == -1) {
+				childDirs.put(dir, true);
+			}
+		}
+		for(String dir : childDirs.keySet()) {
+			res.add(new BlobStoreFileInfo(dir, true, 0, 0));
+		}
+		return res;
+	}
+
+	@Override
+	public void deleteFile(String filePath) {
+		synchronized(files) {
+			files.remove(filePath);
+			lastModifTimes.remove(filePath);
+		}
+	}
+
+	@Override
+	public void renameFile(String filePath, String newFilePath) {
+		synchronized(files) {
+			val data = files.remove(filePath);
+			if (data == null) {
+				throw new RuntimeException("Failed to rename, file not found '" + filePath + "'");
+			}
+			files.put(newFilePath, data);
+			lastModifTimes.put(newFilePath, lastModifTimes.remove(filePath));
+		}
+	}
+
+	@Override
+	public OutputStream openWrite(String filePath, boolean append) {
+		return new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				if (append) {
+					writeAppendToFile(filePath, toByteArray());
+				} else {
+					writeFile(filePath, toByteArray());
+				}
+			}
+		};
+	}
+
+	@Override
+	public InputStream openRead(String filePath, long position) {
+		val data = readFile(filePath);
+		val pos = (int) Math.min(position, data.length);
+		return new ByteArrayInputStream(data, pos, data.length - pos);
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data) {
+		writeCount.incrementAndGet();
+		synchronized(files) {
+			files.put(filePath, data.clone());
+			val prevTime = lastModifTimes.get(filePath);
+			val time = Math.max(System.currentTimeMillis(), (prevTime != null)? prevTime + 1 : 0);
+			lastModifTimes.put(filePath, time);
+		}
+	}
+
+	@Override
+	public void writeAppendToFile(String filePath, byte[] appendData) {
+		byte[] prev;
+		synchronized(files) {
+			prev = files.get(filePath);
+		}
+		if (prev == null) {
+			prev = new byte[0];
+		}
+		val data = Arrays.copyOf(prev, prev.length + appendData.length);
+		System.arraycopy(appendData, 0, data, prev.length, appendData.length);
+		writeFile(filePath, data);
+	}
+
+	@Override
+	public byte[] readFile(String filePath) {
+		readFileCount.incrementAndGet();
+		return getFileData(filePath).clone();
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		readAtCount.incrementAndGet();
+		val data = getFileData(filePath);
+		if (position + len > data.length) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ", " + len + "): after EOF " + data.length);
+		}
+		System.arraycopy(data, (int) position, resBuffer, resPos, len);
+	}
+
+	private byte[] getFileData(String filePath) {
+		synchronized(files) {
+			val data = files.get(filePath);
+			if (data == null) {
+				throw new RuntimeException("Failed to read file '" + filePath + "': not found");
+			}
+			return data;
+		}
+	}
+
+}
@@ -0,0 +1,226 @@
+package org.simplestorage4j.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReadThroughCachingBlobStorageTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	private CountingFileBlobStorage delegate;
+	private FileBlobStorage cacheStorage;
+
+	/**
+	 * FileBlobStorage counting positional reads, optionally blocked until readLatch is released
+	 */
+	private static class CountingFileBlobStorage extends FileBlobStorage {
+		final AtomicInteger readAtCount = new AtomicInteger();
+		volatile CountDownLatch readLatch;
+
+		CountingFileBlobStorage(File baseDir) {
+			super(BlobStorageId.of("remote"), BlobStorageGroupId.of("test"), "remote", baseDir);
+		}
+
+		@Override
+		public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+			readAtCount.incrementAndGet();
+			CountDownLatch latch = readLatch;
+			if (latch != null) {
+				try {
+					latch.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(ex);
+				}
+			}
+			super.readAt(resBuffer, resPos, filePath, position, len);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		delegate = new CountingFileBlobStorage(tempFolder.newFolder("remote"));
+		cacheStorage = new FileBlobStorage(BlobStorageId.of("cache"), BlobStorageGroupId.of("test"), "cache", tempFolder.newFolder("cache"));
+		delegate.writeFile("a.txt", bytes("0123456789"));
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private ReadThroughCachingBlobStorage newStorage(int blockSize, long maxCacheBytes) {
+		return new ReadThroughCachingBlobStorage(delegate, cacheStorage, blockSize, maxCacheBytes);
+	}
+
+	private int cachedBlockFileCount() {
+		int res = 0;
+		for(BlobStoreFileInfo dir : cacheStorage.list("")) {
+			res += cacheStorage.list(dir.path).size();
+		}
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testReadFile_coldThenCached() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		assertArrayEquals(bytes("0123456789"), storage.readFile("a.txt"));
+		assertEquals(3, delegate.readAtCount.get()); // blocks [0-3], [4-7], [8-9]
+		assertEquals(10, storage.getCachedBytes());
+		assertEquals(3, cachedBlockFileCount());
+
+		assertArrayEquals(bytes("0123456789"), storage.readFile("a.txt"));
+		assertEquals(3, delegate.readAtCount.get());
+		assertEquals(0.5, storage.getHitRatio(), 0.001);
+	}
+
+	@Test
+	public void testReadAt_spanningBlocks() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		assertArrayEquals(bytes("345678"), storage.readAt("a.txt", 3, 6));
+		assertEquals(3, delegate.readAtCount.get());
+		assertArrayEquals(bytes("45"), storage.readAt("a.txt", 4, 2));
+		assertEquals(3, delegate.readAtCount.get());
+
+		ByteBuffer dst = ByteBuffer.allocateDirect(3);
+		storage.readAt(dst, "a.txt", 7);
+		dst.flip();
+		byte[] res = new byte[3];
+		dst.get(res);
+		assertArrayEquals(bytes("789"), res);
+		assertEquals(3, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testReadAt_afterEOF_orMissing_throws() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		try {
+			storage.readAt("a.txt", 8, 4);
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		try {
+			storage.readFile("missing.txt");
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		assertEquals(0, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testModifiedRemoteFile_notReadFromStaleBlocks() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		assertArrayEquals(bytes("0123456789"), storage.readFile("a.txt"));
+		delegate.writeFile("a.txt", bytes("abcdefghijkl"));
+		assertArrayEquals(bytes("abcdefghijkl"), storage.readFile("a.txt"));
+		assertEquals(3 + 3, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testMaxCacheBytes_lruEviction() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 8);
+		storage.readAt("a.txt", 0, 4);
+		storage.readAt("a.txt", 4, 4);
+		storage.readAt("a.txt", 0, 4); // access: block [4-7] becomes eldest
+		storage.readAt("a.txt", 8, 2);
+		assertEquals(6, storage.getCachedBytes());
+		assertEquals(2, cachedBlockFileCount());
+		assertEquals(3, delegate.readAtCount.get());
+
+		storage.readAt("a.txt", 0, 4);
+		assertEquals(3, delegate.readAtCount.get());
+		storage.readAt("a.txt", 4, 4);
+		assertEquals(4, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testReindexCacheDir_reusesBlocks() {
+		newStorage(4, 1024).readFile("a.txt");
+		assertEquals(3, delegate.readAtCount.get());
+
+		ReadThroughCachingBlobStorage storage2 = newStorage(4, 1024);
+		assertEquals(10, storage2.getCachedBytes());
+		assertArrayEquals(bytes("0123456789"), storage2.readFile("a.txt"));
+		assertEquals(3, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testReindexCacheDir_overBudget_deletesBlocks() {
+		newStorage(4, 1024).readFile("a.txt");
+
+		ReadThroughCachingBlobStorage storage2 = newStorage(4, 5);
+		assertTrue(storage2.getCachedBytes() <= 5);
+		assertEquals(1, cachedBlockFileCount());
+	}
+
+	@Test
+	public void testCorruptedCachedBlock_refetched() {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		storage.readAt("a.txt", 0, 4);
+		for(BlobStoreFileInfo dir : cacheStorage.list("")) {
+			for(BlobStoreFileInfo block : cacheStorage.list(dir.path)) {
+				cacheStorage.writeFile(block.path, bytes("01")); // truncated
+			}
+		}
+		assertArrayEquals(bytes("0123"), storage.readAt("a.txt", 0, 4));
+		assertEquals(2, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testConcurrentReadsSameBlock_singleFetch() throws Exception {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		delegate.readLatch = new CountDownLatch(1);
+		Future<byte[]> read1 = executor.submit(() -> storage.readAt("a.txt", 0, 4));
+		for(int i = 0; i < 500 && delegate.readAtCount.get() == 0; i++) {
+			Thread.sleep(5);
+		}
+		Future<byte[]> read2 = executor.submit(() -> storage.readAt("a.txt", 1, 2));
+		Thread.sleep(50); // read2 waits for in-flight fetch
+		delegate.readLatch.countDown();
+
+		assertArrayEquals(bytes("0123"), read1.get(5, TimeUnit.SECONDS));
+		assertArrayEquals(bytes("12"), read2.get(5, TimeUnit.SECONDS));
+		assertEquals(1, delegate.readAtCount.get());
+	}
+
+	@Test
+	public void testReadVectored() throws Exception {
+		ReadThroughCachingBlobStorage storage = newStorage(4, 1024);
+		List<BlobStorageFileRange> ranges = Arrays.asList(new BlobStorageFileRange(0, 2), new BlobStorageFileRange(6, 4));
+		List<CompletableFuture<byte[]>> res = storage.readVectored("a.txt", ranges, executor);
+		assertArrayEquals(bytes("01"), res.get(0).get());
+		assertArrayEquals(bytes("6789"), res.get(1).get());
+	}
+
+}
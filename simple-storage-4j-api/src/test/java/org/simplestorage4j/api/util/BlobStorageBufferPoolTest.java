@@ -0,0 +1,90 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlobStorageBufferPoolTest {
+
+	private static final int KB = 1024;
+
+	private static BlobStorageBufferPool newPool(long maxRetainedBytes) {
+		return new BlobStorageBufferPool("test", false, 4 * KB, 64 * KB, maxRetainedBytes);
+	}
+
+	@Test
+	public void testBorrow_sizeClass() {
+		val pool = newPool(1024 * KB);
+		try (val buffer = pool.borrow(5 * KB)) {
+			assertEquals(8 * KB, buffer.capacity());
+			assertEquals(5 * KB, buffer.getLen());
+			assertEquals(5 * KB, buffer.dataBuffer().remaining());
+		}
+		try (val buffer = pool.borrow(10)) {
+			assertEquals(4 * KB, buffer.capacity()); // min pooled size
+		}
+	}
+
+	@Test
+	public void testRelease_reused() {
+		val pool = newPool(1024 * KB);
+		val buffer1 = pool.borrow(8 * KB);
+		val array1 = buffer1.array();
+		buffer1.release();
+		buffer1.release(); // ignored
+		assertEquals(8 * KB, pool.getRetainedBytes());
+
+		val buffer2 = pool.borrow(7 * KB);
+		assertSame(array1, buffer2.array());
+		assertEquals(0, pool.getRetainedBytes());
+		assertEquals(1, pool.getAllocateCount());
+		buffer2.release();
+		assertEquals(2, pool.getReleaseCount());
+	}
+
+	@Test
+	public void testBorrow_tooBig_notPooled() {
+		val pool = newPool(1024 * KB);
+		val buffer = pool.borrow(100 * KB);
+		assertEquals(100 * KB, buffer.capacity());
+		buffer.release();
+		assertEquals(0, pool.getRetainedBytes());
+	}
+
+	@Test
+	public void testRelease_maxRetainedBytes() {
+		val pool = newPool(16 * KB);
+		val buffer1 = pool.borrow(16 * KB);
+		val buffer2 = pool.borrow(16 * KB);
+		buffer1.release();
+		buffer2.release(); // pool full: dropped
+		assertEquals(16 * KB, pool.getRetainedBytes());
+
+		pool.clear();
+		assertEquals(0, pool.getRetainedBytes());
+	}
+
+	@Test
+	public void testLeakDetection_trackedBorrowed() {
+		val pool = newPool(1024 * KB);
+		pool.setLeakDetection(true);
+		val buffer = pool.borrow(4 * KB);
+		assertEquals(1, pool.getTrackedBorrowedCount());
+		buffer.release();
+		assertEquals(0, pool.getTrackedBorrowedCount());
+		assertTrue(buffer.isReleased());
+	}
+
+	@Test
+	public void testDirectPool() {
+		val pool = new BlobStorageBufferPool("test-direct", true, 4 * KB, 64 * KB, 1024 * KB);
+		try (val buffer = pool.borrow(4 * KB)) {
+			assertTrue(buffer.isDirect());
+		}
+	}
+
+}
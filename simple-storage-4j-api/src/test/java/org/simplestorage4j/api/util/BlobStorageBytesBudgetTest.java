@@ -0,0 +1,65 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlobStorageBytesBudgetTest {
+
+	@Test
+	public void testTryAcquire_release() {
+		val budget = new BlobStorageBytesBudget(100);
+		assertTrue(budget.tryAcquire(60));
+		assertTrue(budget.tryAcquire(40));
+		assertFalse(budget.tryAcquire(1));
+		assertEquals(100, budget.getUsedBytes());
+
+		budget.release(40);
+		assertEquals(60, budget.getUsedBytes());
+		assertTrue(budget.tryAcquire(30));
+	}
+
+	@Test
+	public void testTryAcquire_biggerThanMax_grantedWhenEmpty() {
+		val budget = new BlobStorageBytesBudget(100);
+		assertTrue(budget.tryAcquire(500));
+		assertFalse(budget.tryAcquire(1));
+		budget.release(500);
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testAcquire_waitsForRelease() throws Exception {
+		val budget = new BlobStorageBytesBudget(100);
+		budget.acquire(80);
+		val acquired = new CountDownLatch(1);
+		val thread = new Thread(() -> {
+			try {
+				budget.acquire(50);
+				acquired.countDown();
+			} catch (InterruptedException ex) {
+				// ignore
+			}
+		});
+		thread.start();
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+		budget.release(80);
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		assertEquals(50, budget.getUsedBytes());
+		thread.join();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCtor_invalidMaxBytes() {
+		new BlobStorageBytesBudget(0);
+	}
+
+}
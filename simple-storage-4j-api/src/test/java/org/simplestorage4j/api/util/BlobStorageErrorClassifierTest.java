@@ -0,0 +1,67 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Test;
+import org.simplestorage4j.api.util.BlobStorageErrorClassifier.ErrorKind;
+
+public class BlobStorageErrorClassifierTest {
+
+	/**
+	 * exception with http status code, as aws AmazonServiceException or azure DataLakeStorageException
+	 */
+	public static class StatusCodeException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final int statusCode;
+
+		public StatusCodeException(int statusCode, String message) {
+			super(message);
+			this.statusCode = statusCode;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+	}
+
+	@Test
+	public void testStatusCodeOf() {
+		assertEquals(404, BlobStorageErrorClassifier.statusCodeOf(new StatusCodeException(404, "Not Found")));
+		assertEquals(503, BlobStorageErrorClassifier.statusCodeOf(new RuntimeException("wrapped", new StatusCodeException(503, "x"))));
+		assertEquals(-1, BlobStorageErrorClassifier.statusCodeOf(new IOException("no status")));
+	}
+
+	@Test
+	public void testClassify_byStatusCode() {
+		assertEquals(ErrorKind.THROTTLED, BlobStorageErrorClassifier.classify(new StatusCodeException(503, "x")));
+		assertEquals(ErrorKind.THROTTLED, BlobStorageErrorClassifier.classify(new StatusCodeException(429, "x")));
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new StatusCodeException(404, "x")));
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new StatusCodeException(403, "x")));
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new StatusCodeException(416, "x")));
+		assertEquals(ErrorKind.TRANSIENT, BlobStorageErrorClassifier.classify(new StatusCodeException(408, "x")));
+		assertEquals(ErrorKind.TRANSIENT, BlobStorageErrorClassifier.classify(new StatusCodeException(500, "x")));
+	}
+
+	@Test
+	public void testClassify_throttlingMessage() {
+		assertTrue(BlobStorageErrorClassifier.isThrottling(new RuntimeException("wrapped", new IOException("Please reduce your request rate: SlowDown"))));
+		assertEquals(ErrorKind.THROTTLED, BlobStorageErrorClassifier.classify(new RuntimeException("ServerBusy")));
+		assertFalse(BlobStorageErrorClassifier.isThrottling(new IOException("connection reset")));
+	}
+
+	@Test
+	public void testClassify_byExceptionClass() {
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new RuntimeException("wrapped", new FileNotFoundException("a.txt"))));
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new IllegalArgumentException("bad range")));
+		assertEquals(ErrorKind.NOT_RETRYABLE, BlobStorageErrorClassifier.classify(new InterruptedException()));
+		assertEquals(ErrorKind.TRANSIENT, BlobStorageErrorClassifier.classify(new SocketTimeoutException("read timed out")));
+		assertEquals(ErrorKind.TRANSIENT, BlobStorageErrorClassifier.classify(new IOException("connection reset")));
+	}
+
+}
@@ -0,0 +1,301 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStoragePath;
+import org.simplestorage4j.api.FileBlobStorage;
+import org.simplestorage4j.api.iocost.counter.BlobStorageIOTimeCounter;
+
+import lombok.val;
+
+public class BlobStorageIOUtilsTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private FileBlobStorage storage;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		storage = new FileBlobStorage(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", tempFolder.newFolder("storage"));
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static byte[] randomBytes(int len) {
+		val res = new byte[len];
+		new Random(len).nextBytes(res);
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testCopyFileByBlocksWithRetry_multiBlocks() {
+		val data = randomBytes((int) (2 * BlobStorageIOUtils.defaultReadBlockSize + 12345));
+		storage.writeFile("src.bin", data);
+		val budget = new BlobStorageBytesBudget(10 * 1024 * 1024); // less than 2 blocks
+		val bufferPool = new BlobStorageBufferPool("test", false, 64 * 1024, 16 * 1024 * 1024, 64L * 1024 * 1024);
+
+		BlobStorageIOUtils.copyFileByBlocksWithRetry(
+				new BlobStoragePath(storage, "src.bin"), data.length, new BlobStorageIOTimeCounter(),
+				new BlobStoragePath(storage, "dest.bin"), new BlobStorageIOTimeCounter(),
+				executor, 4, budget, bufferPool);
+
+		assertArrayEquals(data, storage.readFile("dest.bin"));
+		assertEquals(0, budget.getUsedBytes());
+		assertEquals(bufferPool.getBorrowCount(), bufferPool.getReleaseCount());
+	}
+
+	@Test
+	public void testCopyFileByBlocksWithRetry_empty() {
+		storage.writeFile("src.bin", new byte[0]);
+		val budget = new BlobStorageBytesBudget(1024);
+
+		BlobStorageIOUtils.copyFileByBlocksWithRetry(
+				new BlobStoragePath(storage, "src.bin"), 0, new BlobStorageIOTimeCounter(),
+				new BlobStoragePath(storage, "dest.bin"), new BlobStorageIOTimeCounter(),
+				executor, 4, budget, BlobStorageBufferPool.defaultHeapPool());
+
+		assertEquals(0, storage.fileLen("dest.bin"));
+	}
+
+	@Test
+	public void testCancelAndReleaseQuietly_releasesRunningTaskBlock() throws Exception {
+		val bufferPool = new BlobStorageBufferPool("test", false, 1024, 1024 * 1024, 1024 * 1024);
+		bufferPool.setLeakDetection(true);
+		val started = new CountDownLatch(1);
+		val proceed = new CountDownLatch(1);
+		val completed = new CountDownLatch(1);
+		val future = BlobStorageIOUtils.submitPooledBlock(executor, () -> {
+			val block = bufferPool.borrow(1024);
+			started.countDown();
+			proceed.await();
+			completed.countDown();
+			return block;
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		BlobStorageIOUtils.cancelAndReleaseQuietly(Collections.singletonList(future));
+		proceed.countDown();
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertTrue(future.isCancelled());
+		assertEquals(0, bufferPool.getTrackedBorrowedCount());
+	}
+
+	@Test
+	public void testCancelAndReleaseQuietly_releasesCompletedBlock() throws Exception {
+		val bufferPool = new BlobStorageBufferPool("test", false, 1024, 1024 * 1024, 1024 * 1024);
+		bufferPool.setLeakDetection(true);
+		val future = BlobStorageIOUtils.submitPooledBlock(executor, () -> bufferPool.borrow(1024));
+		future.get();
+
+		BlobStorageIOUtils.cancelAndReleaseQuietly(Collections.singletonList(future));
+
+		assertEquals(0, bufferPool.getTrackedBorrowedCount());
+	}
+
+	@Test
+	public void testWriteFileByBlockFutures_interrupted_releasesAllBlocks() throws Exception {
+		val bufferPool = new BlobStorageBufferPool("test", false, 1024, 1024 * 1024, 1024 * 1024);
+		bufferPool.setLeakDetection(true);
+		val started = new CountDownLatch(1);
+		val proceed = new CountDownLatch(1);
+		val inFlightBlock = BlobStorageIOUtils.submitPooledBlock(executor, () -> {
+			BlobStoragePooledBuffer block = bufferPool.borrow(1024);
+			started.countDown();
+			proceed.await();
+			return block;
+		});
+		val readBlock = BlobStorageIOUtils.submitPooledBlock(executor, () -> bufferPool.borrow(1024));
+		readBlock.get();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		Thread.currentThread().interrupt();
+		try {
+			BlobStorageIOUtils.writeFileByBlockFutures(new BlobStoragePath(storage, "dest.bin"), new BlobStorageIOTimeCounter(),
+					Arrays.asList(inFlightBlock, readBlock));
+			fail();
+		} catch(RuntimeException ex) {
+			assertTrue(Thread.interrupted()); // interrupt flag kept
+		}
+		proceed.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertTrue(inFlightBlock.isCancelled());
+		assertEquals(0, bufferPool.getTrackedBorrowedCount());
+	}
+
+	// transferTo
+	// ------------------------------------------------------------------------
+
+	/**
+	 * in-memory channel, accepting no bytes for the first <code>zeroWriteCount</code> calls
+	 */
+	private static class TestWritableChannel implements WritableByteChannel {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int zeroWriteCount;
+
+		TestWritableChannel(int zeroWriteCount) {
+			this.zeroWriteCount = zeroWriteCount;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			if (zeroWriteCount > 0) {
+				zeroWriteCount--;
+				return 0;
+			}
+			int len = src.remaining();
+			byte[] tmp = new byte[len];
+			src.get(tmp);
+			out.write(tmp, 0, len);
+			return len;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@Test
+	public void testWritableChannelOf() throws Exception {
+		try (FileOutputStream out = new FileOutputStream(tempFolder.newFile("out.bin"))) {
+			assertNotNull(BlobStorageIOUtils.writableChannelOf(out));
+		}
+		assertNull(BlobStorageIOUtils.writableChannelOf(new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void testTransferTo_fromCurrentPosition() throws Exception {
+		val data = randomBytes(100_000);
+		storage.writeFile("src.bin", data);
+		try (FileInputStream in = new FileInputStream(new File(storage.baseDir, "src.bin"));
+				FileOutputStream out = new FileOutputStream(new File(storage.baseDir, "dest.bin"))) {
+			in.getChannel().position(1000);
+			val len = BlobStorageIOUtils.transferTo(in.getChannel(), out.getChannel());
+			assertEquals(99_000, len);
+			assertEquals(100_000, in.getChannel().position());
+		}
+		assertArrayEquals(Arrays.copyOfRange(data, 1000, 100_000), storage.readFile("dest.bin"));
+	}
+
+	@Test(timeout = 10_000)
+	public void testTransferTo_noProgress_bufferedFallback() throws Exception {
+		val data = randomBytes(3 * BlobStorageIOUtils.DEFAULT_BUFFER_SIZE + 10);
+		storage.writeFile("src.bin", data);
+		val dest = new TestWritableChannel(1);
+		try (FileInputStream in = new FileInputStream(new File(storage.baseDir, "src.bin"))) {
+			val len = BlobStorageIOUtils.transferTo(in.getChannel(), dest);
+			assertEquals(data.length, len);
+		}
+		assertArrayEquals(data, dest.out.toByteArray());
+	}
+
+	@Test(timeout = 10_000)
+	public void testTransferTo_destNeverAccepts_failsWithoutSpinning() throws Exception {
+		storage.writeFile("src.bin", randomBytes(1000));
+		val dest = new TestWritableChannel(Integer.MAX_VALUE);
+		try (FileInputStream in = new FileInputStream(new File(storage.baseDir, "src.bin"))) {
+			BlobStorageIOUtils.transferTo(in.getChannel(), dest);
+			fail();
+		} catch(IOException ex) {
+			// ok
+		}
+	}
+
+	// skipFully
+	// ------------------------------------------------------------------------
+
+	/**
+	 * stream never skipping (as allowed for http streams), only readable
+	 */
+	private static class NoSkipInputStream extends ByteArrayInputStream {
+		NoSkipInputStream(byte[] data) {
+			super(data);
+		}
+
+		@Override
+		public synchronized long skip(long n) {
+			return 0;
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testSkipFully_noSkipProgress_readsThenEOF() throws Exception {
+		val in = new NoSkipInputStream(new byte[] { 0, 1, 2, 3, 4 });
+		BlobStorageIOUtils.skipFully(in, 3);
+		assertEquals(3, in.read());
+		try {
+			BlobStorageIOUtils.skipFully(in, 5);
+			fail();
+		} catch(EOFException ex) {
+			// ok
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testSkipFully_longLength() throws Exception {
+		val skipped = new long[1];
+		InputStream in = new InputStream() {
+			@Override
+			public int read() {
+				return 0;
+			}
+
+			@Override
+			public long skip(long n) {
+				long count = Math.min(n, Integer.MAX_VALUE);
+				skipped[0] += count;
+				return count;
+			}
+		};
+		BlobStorageIOUtils.skipFully(in, 5L * Integer.MAX_VALUE);
+		assertEquals(5L * Integer.MAX_VALUE, skipped[0]);
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.simplestorage4j.api.BlobStorageFileRange;
+
+import lombok.val;
+
+public class BlobStorageRangeCoalescerTest {
+
+	@Test
+	public void testCoalesce_mergeNearby_unsorted() {
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(1000, 100),
+				BlobStorageFileRange.of(0, 100),
+				BlobStorageFileRange.of(150, 50));
+
+		val res = BlobStorageRangeCoalescer.coalesce(ranges, 100, 1_000_000);
+
+		assertEquals(2, res.size());
+		val first = res.get(0);
+		assertEquals(0, first.offset);
+		assertEquals(200, first.length);
+		assertEquals(Arrays.asList(1, 2), first.rangeIndexes);
+		assertFalse(first.hasOverlaps);
+		val second = res.get(1);
+		assertEquals(1000, second.offset);
+		assertEquals(1100, second.end());
+		assertEquals(Collections.singletonList(0), second.rangeIndexes);
+	}
+
+	@Test
+	public void testCoalesce_overlaps() {
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(0, 100),
+				BlobStorageFileRange.of(50, 100),
+				BlobStorageFileRange.of(60, 10)); // contained
+
+		val res = BlobStorageRangeCoalescer.coalesce(ranges, 0, 1_000_000);
+
+		assertEquals(1, res.size());
+		assertEquals(0, res.get(0).offset);
+		assertEquals(150, res.get(0).length);
+		assertTrue(res.get(0).hasOverlaps);
+	}
+
+	@Test
+	public void testCoalesce_maxMergedSize() {
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(0, 100),
+				BlobStorageFileRange.of(100, 100),
+				BlobStorageFileRange.of(200, 100));
+
+		val res = BlobStorageRangeCoalescer.coalesce(ranges, 10, 200);
+
+		assertEquals(2, res.size());
+		assertEquals(200, res.get(0).length);
+		assertEquals(200, res.get(1).offset);
+	}
+
+	@Test
+	public void testCoalesce_gapTooBig() {
+		val ranges = Arrays.asList(
+				BlobStorageFileRange.of(0, 10),
+				BlobStorageFileRange.of(21, 10));
+		assertEquals(2, BlobStorageRangeCoalescer.coalesce(ranges, 10, 1000).size());
+		assertEquals(1, BlobStorageRangeCoalescer.coalesce(ranges, 11, 1000).size());
+	}
+
+	@Test
+	public void testCoalesce_empty() {
+		assertEquals(0, BlobStorageRangeCoalescer.coalesce(Collections.emptyList(), 10, 1000).size());
+	}
+
+}
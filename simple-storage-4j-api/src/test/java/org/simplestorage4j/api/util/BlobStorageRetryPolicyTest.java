@@ -0,0 +1,146 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.FileBlobStorage;
+import org.simplestorage4j.api.ForwardingBlobStorage;
+import org.simplestorage4j.api.util.BlobStorageErrorClassifier.ErrorKind;
+
+import lombok.val;
+
+public class BlobStorageRetryPolicyTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private static BlobStorageRetryPolicy fastPolicy(int maxAttempts) {
+		val res = new BlobStorageRetryPolicy();
+		res.setMaxAttempts(maxAttempts);
+		res.setInitialBackoffMillis(1);
+		res.setMaxBackoffMillis(2);
+		return res;
+	}
+
+	@Test
+	public void testExecute_retryTransientThenSuccess() {
+		val policy = fastPolicy(5);
+		AtomicInteger attempts = new AtomicInteger();
+		String res = policy.execute("test", () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new IOException("connection reset");
+			}
+			return "ok";
+		});
+		assertEquals("ok", res);
+		assertEquals(3, attempts.get());
+		assertEquals(2, policy.getRetryCount());
+	}
+
+	@Test
+	public void testExecute_notRetryable_thrownAtOnce() {
+		val policy = fastPolicy(5);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.execute("test", () -> {
+				attempts.incrementAndGet();
+				throw new IllegalArgumentException("bad range");
+			});
+			fail();
+		} catch(IllegalArgumentException ex) {
+			// ok
+		}
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	public void testExecute_maxAttempts_checkedExceptionWrapped() {
+		val policy = fastPolicy(3);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.execute("test", () -> {
+				attempts.incrementAndGet();
+				throw new IOException("connection reset");
+			});
+			fail();
+		} catch(RuntimeException ex) {
+			assertTrue(ex.getCause() instanceof IOException);
+		}
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	public void testExecute_retryBudgetExhausted() {
+		val policy = new BlobStorageRetryPolicy(0.0, 0.0); // only initial capacity: 10 retries
+		policy.setMaxAttempts(100);
+		policy.setInitialBackoffMillis(0);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.execute("test", () -> {
+				attempts.incrementAndGet();
+				throw new IOException("connection reset");
+			});
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		assertEquals(11, attempts.get());
+		assertEquals(10, policy.getRetryCount());
+		assertEquals(1, policy.getBudgetExhaustedCount());
+	}
+
+	@Test
+	public void testNoRetry_singleAttempt() {
+		val policy = BlobStorageRetryPolicy.noRetry();
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.run("test", () -> {
+				attempts.incrementAndGet();
+				throw new RuntimeException("connection reset");
+			});
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	public void testBackoffMillis_jitterRange_throttledLonger_capped() {
+		val policy = new BlobStorageRetryPolicy();
+		for(int i = 0; i < 20; i++) {
+			val backoff = policy.backoffMillis(2, ErrorKind.TRANSIENT); // d = 100 * 2^2
+			assertTrue(backoff >= 200 && backoff <= 400);
+			val throttledBackoff = policy.backoffMillis(2, ErrorKind.THROTTLED);
+			assertTrue(throttledBackoff >= 800 && throttledBackoff <= 1600);
+			val cappedBackoff = policy.backoffMillis(20, ErrorKind.TRANSIENT);
+			assertTrue(cappedBackoff >= 5_000 && cappedBackoff <= 10_000);
+		}
+	}
+
+	@Test
+	public void testRetryPolicy_perStorage_forwarded() throws Exception {
+		val baseDir = tempFolder.newFolder("storage");
+		val storage1 = new FileBlobStorage(BlobStorageId.of("s1"), BlobStorageGroupId.of("test"), "s1", baseDir);
+		val storage2 = new FileBlobStorage(BlobStorageId.of("s2"), BlobStorageGroupId.of("test"), "s2", baseDir);
+		assertNotSame(storage1.getRetryPolicy(), storage2.getRetryPolicy());
+
+		val forwarding = new ForwardingBlobStorage(storage1);
+		assertSame(storage1.getRetryPolicy(), forwarding.getRetryPolicy());
+		val noRetry = BlobStorageRetryPolicy.noRetry();
+		forwarding.setRetryPolicy(noRetry);
+		assertSame(noRetry, storage1.getRetryPolicy());
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class BlobStorageTokenBucketTest {
+
+	private static final double MB = 1024 * 1024;
+
+	private static long acquireMillis(BlobStorageTokenBucket bucket, long n) {
+		val startNanos = System.nanoTime();
+		bucket.acquire(n);
+		return (System.nanoTime() - startNanos) / 1_000_000;
+	}
+
+	@Test
+	public void testUnlimited_noWait() {
+		val bucket = new BlobStorageTokenBucket("test", 0);
+		assertTrue(acquireMillis(bucket, 1_000_000_000L) < 100);
+		assertEquals(0.0, bucket.getRate(), 0.0);
+	}
+
+	@Test
+	public void testLimited_burstThenWaitForDebt() {
+		val bucket = new BlobStorageTokenBucket("test", 1000);
+		assertTrue(acquireMillis(bucket, 1000) < 100); // burst
+		val millis = acquireMillis(bucket, 200);
+		assertTrue("waited " + millis, millis >= 150 && millis < 1000);
+	}
+
+	@Test
+	public void testDebtCapped() {
+		val bucket = new BlobStorageTokenBucket("test", 100);
+		bucket.setMaxDebtSeconds(0.2);
+		bucket.acquire(100);
+		val millis = acquireMillis(bucket, 1_000_000); // 10000s when not capped
+		assertTrue("waited " + millis, millis >= 150 && millis < 1000);
+	}
+
+	@Test
+	public void testThrottled_cutOncePerSecond_atLeastMinRate() {
+		val bucket = new BlobStorageTokenBucket("test", 1000, 400);
+		bucket.onThrottled();
+		assertEquals(500, bucket.getRate(), 0.001);
+		bucket.onThrottled(); // same burst of failures
+		assertEquals(500, bucket.getRate(), 0.001);
+		assertEquals(1, bucket.getThrottleCutCount());
+		bucket.onSuccess(); // ramp up only after 1s
+		assertEquals(500, bucket.getRate(), 0.001);
+
+		val bucket2 = new BlobStorageTokenBucket("test", 1000, 600);
+		bucket2.onThrottled();
+		assertEquals(600, bucket2.getRate(), 0.001);
+	}
+
+	@Test
+	public void testThrottledAfterIdle_bytesMinRate() throws Exception {
+		val bucket = new BlobStorageTokenBucket("test bytes", 0, MB);
+		bucket.setMaxDebtSeconds(0.2);
+		bucket.acquire(10);
+		Thread.sleep(1050);
+		bucket.acquire(1); // observed rate: ~10 bytes/s
+		bucket.onThrottled();
+		assertEquals(MB, bucket.getRate(), 0.001);
+
+		val millis = acquireMillis(bucket, 8 * 1024 * 1024); // 8MB readAt, hours at 5 bytes/s
+		assertTrue("waited " + millis, millis >= 150 && millis < 1000);
+	}
+
+}
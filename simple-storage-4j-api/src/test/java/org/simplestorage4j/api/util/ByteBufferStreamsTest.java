@@ -0,0 +1,58 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class ByteBufferStreamsTest {
+
+	@Test
+	public void testInputStream_read() {
+		val in = new ByteBufferInputStream(ByteBuffer.wrap(new byte[] { 1, 2, 3, (byte) 0xFF }));
+		assertEquals(4, in.available());
+		assertEquals(1, in.read());
+		val buf = new byte[10];
+		assertEquals(0, in.read(buf, 0, 0));
+		assertEquals(3, in.read(buf, 0, 10));
+		assertEquals(255, buf[2] & 0xFF);
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(buf, 0, 10));
+	}
+
+	@Test
+	public void testInputStream_skip_direct() {
+		val buffer = ByteBuffer.allocateDirect(10);
+		for(int i = 0; i < 10; i++) {
+			buffer.put((byte) i);
+		}
+		buffer.flip();
+		val in = new ByteBufferInputStream(buffer);
+		assertEquals(7, in.skip(7));
+		assertEquals(7, in.read());
+		assertEquals(2, in.skip(100));
+		assertEquals(0, in.skip(-1));
+	}
+
+	@Test
+	public void testOutputStream_write() throws IOException {
+		val buffer = ByteBuffer.allocate(4);
+		try (val out = new ByteBufferOutputStream(buffer)) {
+			out.write(1);
+			out.write(new byte[] { 2, 3, 4 }, 0, 3);
+		}
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, buffer.array());
+	}
+
+	@Test(expected = IOException.class)
+	public void testOutputStream_overflow() throws IOException {
+		val out = new ByteBufferOutputStream(ByteBuffer.allocate(2));
+		out.write(new byte[3], 0, 3);
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.simplestorage4j.api.InMemoryBlobStorage;
+
+import lombok.val;
+
+public class ExecutorAsyncBlobStorageTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testDelegatesToBlobStorage() throws Exception {
+		val storage = new InMemoryBlobStorage("test");
+		val async = new ExecutorAsyncBlobStorage(storage, executor);
+		assertSame(storage, async.blobStorage());
+
+		async.mkdirsAsync("dir1").get();
+		async.writeFileAsync("dir1/file1", new byte[] { 1, 2, 3 }).get();
+		async.writeAppendToFileAsync("dir1/file1", new byte[] { 4 }).get();
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, async.readFileAsync("dir1/file1").get());
+		assertArrayEquals(new byte[] { 2, 3 }, async.readAtAsync("dir1/file1", 1, 2).get());
+		assertTrue(async.existsAsync("dir1/file1").get());
+		assertEquals(4, async.pathInfoAsync("dir1/file1").get().fileLength);
+		assertEquals(1, async.listAsync("dir1").get().size());
+
+		async.renameFileAsync("dir1/file1", "dir1/file2").get();
+		assertNull(async.pathInfoAsync("dir1/file1").get());
+		async.deleteFileAsync("dir1/file2").get();
+		assertFalse(async.existsAsync("dir1/file2").get());
+		assertEquals(2, storage.readFileCount.get() + storage.readAtCount.get());
+	}
+
+	@Test
+	public void testFailure_completesExceptionally() throws Exception {
+		val storage = new InMemoryBlobStorage("test");
+		val async = new ExecutorAsyncBlobStorage(storage, executor);
+		val future = async.readFileAsync("missing");
+		try {
+			future.get();
+			fail();
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof RuntimeException);
+		}
+		assertTrue(future.isCompletedExceptionally());
+	}
+
+	@Test
+	public void testBoundedConcurrency() throws Exception {
+		val running = new AtomicInteger();
+		val maxRunning = new AtomicInteger();
+		InMemoryBlobStorage storage = new InMemoryBlobStorage("test") {
+			@Override
+			public byte[] readFile(String filePath) {
+				int curr = running.incrementAndGet();
+				maxRunning.accumulateAndGet(curr, Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+				return new byte[0];
+			}
+		};
+		val async = new ExecutorAsyncBlobStorage(storage, executor);
+		val futures = new ArrayList<CompletableFuture<byte[]>>();
+		for(int i = 0; i < 20; i++) {
+			futures.add(async.readFileAsync("file" + i));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	public void testBlobStorageAsync_usesAsyncExecutor() throws Exception {
+		val storage = new InMemoryBlobStorage("test");
+		val submitCount = new AtomicInteger();
+		storage.setAsyncExecutor(task -> {
+			submitCount.incrementAndGet();
+			executor.execute(task);
+		});
+		storage.async().existsAsync("file1").get();
+		assertEquals(1, submitCount.get());
+
+		storage.setAsyncExecutor(null);
+		assertFalse(storage.async().existsAsync("file1").get());
+		assertEquals(1, submitCount.get());
+	}
+
+}
@@ -0,0 +1,115 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class FileChannelCacheTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final FileChannelCache cache = new FileChannelCache(2);
+	private Path path;
+
+	@Before
+	public void setUp() throws Exception {
+		path = tempFolder.newFile("a.txt").toPath();
+		Files.write(path, bytes("0123456789"));
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private byte[] read(int len) throws Exception {
+		val res = new byte[len];
+		try (val lease = cache.acquire(path)) {
+			lease.readFully(ByteBuffer.wrap(res), 0, false);
+		}
+		return res;
+	}
+
+	@Test
+	public void testAcquire_unchanged_sameChannel() throws Exception {
+		val lease1 = cache.acquire(path);
+		lease1.close();
+		val lease2 = cache.acquire(path);
+		lease2.close();
+		assertSame(lease1, lease2);
+		assertTrue(lease2.channel.isOpen());
+	}
+
+	@Test
+	public void testAcquire_modifiedSize_reopened() throws Exception {
+		assertArrayEquals(bytes("0123"), read(4));
+		Files.write(path, bytes("abcdefghijklmnop"));
+		assertArrayEquals(bytes("abcdefghijklmnop"), read(16));
+	}
+
+	@Test
+	public void testAcquire_sameSizeModifiedTime_reopened() throws Exception {
+		val lease1 = cache.acquire(path);
+		lease1.close();
+		val mtime = Files.getLastModifiedTime(path);
+		Files.write(path, bytes("abcdefghij"), StandardOpenOption.TRUNCATE_EXISTING);
+		Files.setLastModifiedTime(path, FileTime.fromMillis(mtime.toMillis() + 2000));
+
+		val lease2 = cache.acquire(path);
+		lease2.close();
+		assertNotSame(lease1, lease2);
+		assertFalse(lease1.channel.isOpen());
+		assertArrayEquals(bytes("abcdefghij"), read(10));
+	}
+
+	@Test
+	public void testAcquire_replacedFile_reopened() throws Exception {
+		val lease1 = cache.acquire(path);
+		lease1.close();
+		val mtime = Files.getLastModifiedTime(path);
+		val tmpPath = tempFolder.newFile("tmp.txt").toPath();
+		Files.write(tmpPath, bytes("abcdefghij"));
+		Files.setLastModifiedTime(tmpPath, mtime);
+		Files.delete(path);
+		Files.move(tmpPath, path);
+
+		assertArrayEquals(bytes("abcdefghij"), read(10)); // same size and mtime, other fileKey
+	}
+
+	@Test
+	public void testInvalidate_whileLeased_closedOnRelease() throws Exception {
+		val lease = cache.acquire(path);
+		cache.invalidate(path);
+		assertTrue(lease.channel.isOpen());
+		lease.close();
+		assertFalse(lease.channel.isOpen());
+	}
+
+	@Test
+	public void testEvictIdleChannels_lru() throws Exception {
+		val path2 = tempFolder.newFile("b.txt").toPath();
+		val path3 = tempFolder.newFile("c.txt").toPath();
+		val lease1 = cache.acquire(path);
+		lease1.close();
+		cache.acquire(path2).close();
+		cache.acquire(path3).close();
+		assertFalse(lease1.channel.isOpen());
+	}
+
+}
@@ -0,0 +1,166 @@
+package org.simplestorage4j.api.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class PrefetchingPageIteratorTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * iterator over given pages, counting fetches and checking fetches are never concurrent
+	 */
+	private static class TestPageIterator extends PrefetchingPageIterator<Integer> {
+		final List<List<Integer>> pages;
+		final AtomicInteger fetchCount = new AtomicInteger();
+		final AtomicInteger runningFetches = new AtomicInteger();
+		final AtomicInteger closeCount = new AtomicInteger();
+		volatile boolean concurrentFetch;
+		volatile RuntimeException failAtLastPage;
+		volatile long fetchSleepMillis;
+
+		TestPageIterator(ExecutorService executor, List<List<Integer>> pages) {
+			super(executor);
+			this.pages = pages;
+		}
+
+		@Override
+		protected List<Integer> fetchNextPage() {
+			if (runningFetches.incrementAndGet() > 1) {
+				concurrentFetch = true;
+			}
+			try {
+				if (fetchSleepMillis > 0) {
+					Thread.sleep(fetchSleepMillis);
+				}
+				val pageIndex = fetchCount.getAndIncrement();
+				if (pageIndex == pages.size() - 1 && failAtLastPage != null) {
+					throw failAtLastPage;
+				}
+				return (pageIndex < pages.size())? pages.get(pageIndex) : null;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ex);
+			} finally {
+				runningFetches.decrementAndGet();
+			}
+		}
+
+		@Override
+		protected void doClose() {
+			closeCount.incrementAndGet();
+		}
+	}
+
+	private static List<Integer> toList(TestPageIterator iter) {
+		val res = new ArrayList<Integer>();
+		while(iter.hasNext()) {
+			res.add(iter.next());
+		}
+		return res;
+	}
+
+	@Test
+	public void testIterate_noPrefetch_lazyFetch() {
+		val pages = Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3), Arrays.asList(4, 5));
+		val iter = new TestPageIterator(null, pages);
+		assertEquals(0, iter.fetchCount.get());
+		assertEquals(1, (int) iter.next());
+		assertEquals(1, iter.fetchCount.get());
+		assertEquals(2, (int) iter.next());
+		assertEquals(1, iter.fetchCount.get());
+		assertEquals(3, (int) iter.next());
+		assertEquals(2, iter.fetchCount.get());
+		assertEquals(Arrays.asList(4, 5), toList(iter));
+		assertFalse(iter.hasNext());
+		try {
+			iter.next();
+			fail();
+		} catch(NoSuchElementException ex) {
+			// ok
+		}
+	}
+
+	@Test
+	public void testIterate_emptyPagesSkipped() {
+		List<Integer> empty = Collections.emptyList();
+		val pages = Arrays.asList(empty, Arrays.asList(1), empty, empty, Arrays.asList(2));
+		val iter = new TestPageIterator(executor, pages);
+		assertEquals(Arrays.asList(1, 2), toList(iter));
+	}
+
+	@Test
+	public void testIterate_prefetch_sequentialFetches() throws Exception {
+		val pages = new ArrayList<List<Integer>>();
+		for(int i = 0; i < 10; i++) {
+			pages.add(Arrays.asList(2 * i, 2 * i + 1));
+		}
+		val iter = new TestPageIterator(executor, pages);
+		iter.fetchSleepMillis = 2;
+		assertTrue(iter.hasNext());
+		// next page fetched in background while first page is consumed
+		for(int i = 0; i < 100 && iter.fetchCount.get() < 2; i++) {
+			Thread.sleep(5);
+		}
+		assertEquals(2, iter.fetchCount.get());
+
+		val res = toList(iter);
+		assertEquals(20, res.size());
+		for(int i = 0; i < 20; i++) {
+			assertEquals(i, (int) res.get(i));
+		}
+		assertFalse(iter.concurrentFetch);
+	}
+
+	@Test
+	public void testIterate_prefetchFailure_rethrown() {
+		val pages = Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3));
+		val iter = new TestPageIterator(executor, pages);
+		val failure = new IllegalStateException("listing failed");
+		iter.failAtLastPage = failure;
+		assertEquals(1, (int) iter.next());
+		assertEquals(2, (int) iter.next());
+		try {
+			iter.hasNext();
+			fail();
+		} catch(IllegalStateException ex) {
+			assertSame(failure, ex);
+		}
+	}
+
+	@Test
+	public void testClose_waitsPrefetch_doCloseOnce() {
+		val pages = Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3));
+		val iter = new TestPageIterator(executor, pages);
+		iter.fetchSleepMillis = 20;
+		assertEquals(1, (int) iter.next()); // starts prefetch of page 2
+		iter.close();
+		assertEquals(0, iter.runningFetches.get());
+		assertFalse(iter.hasNext());
+		iter.close();
+		assertEquals(1, iter.closeCount.get());
+	}
+
+}
@@ -0,0 +1,323 @@
+package org.simplestorage4j.azure.datalake;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.simplestorage4j.api.AsyncBlobStorage;
+import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+import org.simplestorage4j.api.util.BlobStorageUtils;
+
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.core.util.FluxUtil;
+import com.azure.storage.file.datalake.DataLakeDirectoryAsyncClient;
+import com.azure.storage.file.datalake.DataLakeDirectoryClient;
+import com.azure.storage.file.datalake.DataLakeFileAsyncClient;
+import com.azure.storage.file.datalake.models.DataLakeStorageException;
+import com.azure.storage.file.datalake.models.FileRange;
+import com.azure.storage.file.datalake.models.PathItem;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * AdlsGen2BlobStorage with a native AsyncBlobStorage api, implemented on the reactive
+ * async clients (DataLakeDirectoryAsyncClient..): no thread is blocked while requests are in flight,
+ * so a few threads can drive thousands of concurrent requests. async() returns this.
+ *
+ * Blocking api (streams, ..) is inherited, using the blocking clients.
+ * Multi-path methods use Reactor <code>flatMap</code> with bounded <code>maxConcurrency</code> (backpressure).
+ */
+@Slf4j
+public class AdlsGen2AsyncBlobStorage extends AdlsGen2BlobStorage implements AsyncBlobStorage {
+
+    private final DataLakeDirectoryAsyncClient baseDirAsyncClient;
+
+    /** max concurrent requests per multi-path call, cf pathInfosAsync() */
+    @Getter
+    @Setter
+    protected int maxConcurrency = 64;
+
+    /** block size of async uploads: data is appended by blocks, cf writeFileAsync() */
+    @Getter
+    @Setter
+    protected int uploadBlockSize = 8 * 1024 * 1024;
+
+    /** max concurrent block appends per async upload, cf writeFileAsync() */
+    @Getter
+    @Setter
+    protected int uploadConcurrency = 4;
+
+    // --------------------------------------------------------------------------------------------
+
+    /** create using
+     * DataLakeFileSystemAsyncClient fsAsyncClient = datalakeServiceAsyncClient.getFileSystemAsyncClient(filesystem);
+     * .. = fsAsyncClient.getDirectoryAsyncClient(subDirPath)
+     */
+    public AdlsGen2AsyncBlobStorage(
+            BlobStorageId id, BlobStorageGroupId groupId, String displayName, //
+            DataLakeDirectoryClient baseDirClient,
+            DataLakeDirectoryAsyncClient baseDirAsyncClient) {
+        super(id, groupId, displayName, baseDirClient);
+        this.baseDirAsyncClient = baseDirAsyncClient;
+    }
+
+    // implements AsyncBlobStorage
+    // --------------------------------------------------------------------------------------------
+
+    @Override
+    public AsyncBlobStorage async() {
+        return this;
+    }
+
+    @Override
+    public BlobStorage blobStorage() {
+        return this;
+    }
+
+    /**
+     * @return future of file info, completed with null when path does not exist
+     */
+    @Override
+    public CompletableFuture<BlobStoreFileInfo> pathInfoAsync(String relativePath) {
+        return pathInfoMono(relativePath).toFuture();
+    }
+
+    /**
+     * @return future of file infos by path (in order of paths, null value for not existing path).
+     * paths are grouped by parent dir, groups of at least <code>pathInfosListMinCount</code> paths
+     * are answered by a bounded listPaths() (cf pathInfosOfSameParentMono()), with at most <code>maxConcurrency</code> requests in flight
+     */
+    public CompletableFuture<Map<String, BlobStoreFileInfo>> pathInfosAsync(Collection<String> relativePaths) {
+        val groups = BlobStorageUtils.groupByParentPath(relativePaths);
+        return Flux.fromIterable(groups.entrySet())
+                .flatMap(group -> {
+                    val paths = group.getValue();
+                    if (paths.size() >= pathInfosListMinCount) {
+                        return pathInfosOfSameParentMono(group.getKey(), paths)
+                                .onErrorResume(ex -> pathInfosMono(paths)) // not existing parent dir..
+                                .flux();
+                    }
+                    return pathInfosMono(paths).flux();
+                }, maxConcurrency)
+                .collect(() -> new HashMap<String, BlobStoreFileInfo>(), (acc, x) -> acc.putAll(x))
+                .map(found -> {
+                    Map<String, BlobStoreFileInfo> res = new LinkedHashMap<>();
+                    for(val path : relativePaths) {
+                        res.put(path, found.get(path));
+                    }
+                    return res;
+                })
+                .toFuture();
+    }
+
+    /**
+     * blocking pathInfos() using reactive pathInfosAsync()
+     */
+    @Override
+    public Map<String, BlobStoreFileInfo> pathInfos(Collection<String> relativePaths) {
+        try {
+            return pathInfosAsync(relativePaths).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while querying pathInfos in " + displayName, ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Failed to query pathInfos in " + displayName, ex.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsAsync(String relativePath) {
+        return dirAsyncClientOf(relativePath).exists().toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<BlobStoreFileInfo>> listAsync(String relativePath) {
+        return listFlux(relativePath).collectList().toFuture();
+    }
+
+    /**
+     * streaming listing, pages are fetched on demand (backpressure)
+     */
+    public Flux<BlobStoreFileInfo> listFlux(String relativePath) {
+        return dirAsyncClientOf(relativePath).listPaths().map(item -> toBlobStoreFileInfo(item));
+    }
+
+    @Override
+    public CompletableFuture<Void> mkdirsAsync(String relativePath) {
+        // ADLS Gen2 (hierarchical namespace) implicitly creates intermediate dirs
+        return dirAsyncClientOf(relativePath).createIfNotExists()
+                .doOnSuccess(x -> markExistingDir(normalizePath(relativePath)))
+                .then().toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFileAsync(String relativePath) {
+        return fileAsyncClientOf(relativePath).deleteIfExists().then().toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> renameFileAsync(String relativeFilePath, String newFilePath) {
+        val azDestPath = toAzPath(newFilePath);
+        invalidateExistingDirs(relativeFilePath); // in case of renaming a dir
+        return fileAsyncClientOf(relativeFilePath).rename(azFileSystem, azDestPath).then().toFuture();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readFileAsync(String relativeFilePath) {
+        return FluxUtil.collectBytesInByteBufferStream(fileAsyncClientOf(relativeFilePath).read()).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readAtAsync(String relativeFilePath, long position, int len) {
+        return fileAsyncClientOf(relativeFilePath)
+                .readWithResponse(new FileRange(position, (long) len), null, null, false)
+                .flatMap(response -> FluxUtil.collectBytesInByteBufferStream(response.getValue(), len))
+                .toFuture();
+    }
+
+    /**
+     * upload (overwrite): create, then append blocks concurrently, then commit (flush), cf <code>uploadBlockSize</code>.
+     * (not sdk upload(): binary incompatible with the azure-storage-common version of the datalake sdk used here)
+     */
+    @Override
+    public CompletableFuture<Void> writeFileAsync(String relativeFilePath, byte[] data) {
+        return toFuture(() -> {
+            DataLakeFileAsyncClient fileClient = fileAsyncClientOf(relativeFilePath);
+            int blockSize = Math.max(1, uploadBlockSize);
+            int blockCount = (data.length + blockSize - 1) / blockSize;
+            Flux<Void> appends = Flux.range(0, blockCount).flatMap(blockIndex -> {
+                int position = blockIndex * blockSize;
+                int len = Math.min(blockSize, data.length - position);
+                return fileClient.append(Flux.just(ByteBuffer.wrap(data, position, len)), position, len);
+            }, Math.max(1, uploadConcurrency));
+            return fileClient.create(true)
+                    .thenMany(appends)
+                    .then(fileClient.flush(data.length, true))
+                    .doOnSuccess(x -> markExistingParentDir(relativeFilePath))
+                    .then();
+        });
+    }
+
+    /**
+     * create file if not exists, append at current file size, then commit (flush)
+     */
+    @Override
+    public CompletableFuture<Void> writeAppendToFileAsync(String relativeFilePath, byte[] appendData) {
+        val fileClient = fileAsyncClientOf(relativeFilePath);
+        return fileClient.createIfNotExists()
+                .then(fileClient.getProperties())
+                .flatMap(props -> {
+                    val position = props.getFileSize();
+                    return fileClient.append(Flux.just(ByteBuffer.wrap(appendData)), position, appendData.length)
+                            .then(fileClient.flush(position + appendData.length, true));
+                })
+                .doOnSuccess(x -> markExistingParentDir(relativeFilePath))
+                .then()
+                .toFuture();
+    }
+
+    // internal
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * @return future of mono, also failed when building the mono throws (instead of throwing to caller)
+     */
+    protected static <T> CompletableFuture<T> toFuture(Supplier<Mono<T>> monoSupplier) {
+        try {
+            return monoSupplier.get().toFuture();
+        } catch (Throwable ex) {
+            CompletableFuture<T> res = new CompletableFuture<>();
+            res.completeExceptionally(ex);
+            return res;
+        }
+    }
+
+    protected Mono<BlobStoreFileInfo> pathInfoMono(String relativePath) {
+        val child = dirAsyncClientOf(relativePath); // DirClient or FileClient both works
+        return child.getProperties()
+                .map(props -> toBlobStoreFileInfo(child.getDirectoryName(), props))
+                .onErrorResume(DataLakeStorageException.class, ex ->
+                        (ex.getStatusCode() == 404)? Mono.empty() : Mono.error(ex));
+    }
+
+    /**
+     * reactive pathInfosOfSameParent(): at most <code>pathInfosListMaxPages</code> pages of listPaths(), stopping once past
+     * the max requested name, then pathInfo for paths after the last listed name of a truncated listing
+     */
+    private Mono<Map<String, BlobStoreFileInfo>> pathInfosOfSameParentMono(String parentPath, List<String> relativePaths) {
+        val maxChildName = maxChildNameOf(relativePaths);
+        Predicate<PagedResponse<PathItem>> isLastPage = page -> page.getContinuationToken() == null
+                || lastChildNameOf(page.getValue()).compareTo(maxChildName) >= 0;
+        return dirAsyncClientOf(parentPath).listPaths().byPage()
+                .take(Math.max(1, pathInfosListMaxPages))
+                .takeUntil(isLastPage)
+                .collectList()
+                .flatMap(pages -> {
+                    val children = new ArrayList<BlobStoreFileInfo>();
+                    for(val page : pages) {
+                        for(val item : page.getValue()) {
+                            children.add(toBlobStoreFileInfo(item));
+                        }
+                    }
+                    val res = matchChildInfos(relativePaths, children);
+                    val lastPage = (pages.isEmpty())? null : pages.get(pages.size() - 1);
+                    if (lastPage == null || isLastPage.test(lastPage)) {
+                        return Mono.just(res);
+                    }
+                    val remainingPaths = pathsAfterListedName(relativePaths, lastChildNameOf(lastPage.getValue()));
+                    return pathInfosMono(remainingPaths).map(found -> {
+                        res.putAll(found);
+                        return res;
+                    });
+                });
+    }
+
+    private Mono<Map<String, BlobStoreFileInfo>> pathInfosMono(List<String> relativePaths) {
+        return Flux.fromIterable(relativePaths)
+                .flatMap(path -> pathInfoMono(path)
+                        .map(info -> new BlobStoreFileInfo(path, info.isDir, info.fileLength, info.lastModifTime))
+                        .map(info -> Collections.singletonMap(path, info))
+                        .defaultIfEmpty(Collections.singletonMap(path, null)), maxConcurrency)
+                .collect(() -> new HashMap<String, BlobStoreFileInfo>(), (acc, x) -> acc.putAll(x));
+    }
+
+    protected DataLakeDirectoryAsyncClient dirAsyncClientOf(String relativePath) {
+        if (relativePath.isEmpty() || relativePath.equals("/")) {
+            return baseDirAsyncClient;
+        }
+        String[] pathElts = relativePath.split("/");
+        return childDirAsyncClientUpTo(pathElts, pathElts.length);
+    }
+
+    protected DataLakeFileAsyncClient fileAsyncClientOf(String relativePath) {
+        String[] pathElts = relativePath.split("/");
+        val parentDir = childDirAsyncClientUpTo(pathElts, pathElts.length - 1);
+        return parentDir.getFileAsyncClient(pathElts[pathElts.length - 1]);
+    }
+
+    private DataLakeDirectoryAsyncClient childDirAsyncClientUpTo(String[] pathElts, int len) {
+        DataLakeDirectoryAsyncClient dirClient = baseDirAsyncClient;
+        for(int i = 0; i < len; i++) {
+            dirClient = dirClient.getSubdirectoryAsyncClient(pathElts[i]);
+        }
+        return dirClient;
+    }
+
+}
@@ -1,22 +1,48 @@
 package org.simplestorage4j.azure.datalake;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStorageFileRange;
 import org.simplestorage4j.api.BlobStorageGroupId;
 import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStorageListOptions;
+import org.simplestorage4j.api.BlobStoragePath;
 import org.simplestorage4j.api.BlobStoreFileInfo;
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+import org.simplestorage4j.api.util.BlobStorageIOUtils;
+import org.simplestorage4j.api.util.BlobStorageNamedThreadFactory;
+import org.simplestorage4j.api.util.BlobStoragePooledBuffer;
+import org.simplestorage4j.api.util.BlobStorageRangeCoalescer.CombinedFileRange;
+import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.api.util.ByteBufferOutputStream;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
 
 import com.azure.core.http.rest.PagedIterable;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClientBuilder;
+import com.azure.storage.blob.models.CopyStatusType;
 import com.azure.storage.file.datalake.DataLakeDirectoryClient;
 import com.azure.storage.file.datalake.DataLakeFileClient;
 import com.azure.storage.file.datalake.models.DataLakeFileOpenInputStreamResult;
+import com.azure.storage.file.datalake.models.DataLakeStorageException;
 import com.azure.storage.file.datalake.models.FileRange;
 import com.azure.storage.file.datalake.models.PathItem;
 import com.azure.storage.file.datalake.models.PathProperties;
@@ -27,12 +53,13 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 
 @Slf4j
 public class AdlsGen2BlobStorage extends BlobStorage {
 
     private final DataLakeDirectoryClient baseDirClient;
-    private final String azFileSystem;
+    protected final String azFileSystem;
     private final String azBaseDirPath; // = baseDirClient.getDirectoryPath();
 
     @Getter
@@ -42,6 +69,55 @@ public class AdlsGen2BlobStorage extends BlobStorage {
     @Setter
     protected int verboseWriteLogMaxMillis = 1000;
 
+    /** chunk size of openWrite() streams, cf AzFileExclusiveOutputStream */
+    @Getter
+    @Setter
+    protected int writeChunkSize = AzFileExclusiveOutputStream.DEFAULT_CHUNK_SIZE;
+
+    /** max in-flight appends per openWrite() stream, memory used per stream is about (maxInFlight+1)*chunkSize */
+    @Getter
+    @Setter
+    protected int writeMaxInFlightChunks = AzFileExclusiveOutputStream.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+
+    /** block size of parallel ranged reads, cf readFile() */
+    @Getter
+    @Setter
+    protected int readBlockSize = 8 * 1024 * 1024;
+
+    /** size of the first ranged read of readFile(), small to avoid over-allocating for small files */
+    @Getter
+    @Setter
+    protected int firstReadRangeSize = 1024 * 1024;
+
+    /** max ranged reads in flight per readFile() */
+    @Getter
+    @Setter
+    protected int readConcurrency = 8;
+
+    /** thread pool size shared by all concurrent transfers, cf getTransferExecutor() */
+    @Getter
+    @Setter
+    protected int transferThreadPoolSize = 16;
+
+    private ExecutorService transferExecutor;
+
+    /** poll interval for waiting server-side copy completion, cf copyFrom() */
+    @Getter
+    @Setter
+    protected Duration copyPollInterval = Duration.ofSeconds(1);
+
+    /** max entries of each client cache (dir clients, file clients, known existing dirs) */
+    @Getter
+    @Setter
+    protected int clientCacheMaxSize = 10_000;
+
+    /** LRU cache of resolved clients, by normalized relative path. Clients are plain path references, never stale */
+    private final LruMap<String, DataLakeDirectoryClient> dirClientCache = new LruMap<>();
+    private final LruMap<String, DataLakeFileClient> fileClientCache = new LruMap<>();
+
+    /** LRU set of dirs known to exist: filled by mkdirs() and file creations, invalidated on delete/rename/errors */
+    private final LruMap<String, Boolean> knownExistingDirs = new LruMap<>();
+
     // --------------------------------------------------------------------------------------------
 
     /** create using
@@ -57,6 +133,24 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         this.azBaseDirPath = baseDirClient.getDirectoryPath();
     }
 
+    /**
+     * thread pool shared by concurrent chunk transfers (pipelined appends, parallel ranged reads)
+     */
+    public synchronized ExecutorService getTransferExecutor() {
+        if (transferExecutor == null) {
+            val threadFactory = new BlobStorageNamedThreadFactory("adls-transfer-" + displayName + "-", "", true);
+            this.transferExecutor = Executors.newFixedThreadPool(transferThreadPoolSize, threadFactory);
+        }
+        return transferExecutor;
+    }
+
+    public synchronized void close() {
+        if (transferExecutor != null) {
+            transferExecutor.shutdownNow();
+            transferExecutor = null;
+        }
+    }
+
     // implements api BlobStorage
     // --------------------------------------------------------------------------------------------
 
@@ -98,27 +192,100 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         return res;
     }
 
+    /**
+     * lazy paging over <code>listPaths(recursive=true)</code>, 1 request per page
+     */
     @Override
-    public void mkdirs(String relativePath) {
-        String[] pathElts = relativePath.split("/");
-        val len = pathElts.length;
-        DataLakeDirectoryClient[] dirClients = new DataLakeDirectoryClient[len];
-        {
-            DataLakeDirectoryClient dirClient = baseDirClient;
-            for(int i = 0; i < len; i++) {
-                dirClient = dirClient.getSubdirectoryClient(pathElts[i]);
-                dirClients[i] = dirClient;
+    public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String relativePath, BlobStorageListOptions options) {
+        val dirClient = dirClientOf(relativePath);
+        val pagedIterable = dirClient.listPaths(true, false, Math.max(1, options.getPageSize()), null);
+        val pageIter = pagedIterable.iterableByPage().iterator();
+        val baseDirPrefix = (azBaseDirPath.isEmpty())? "" : azBaseDirPath + "/";
+        return new PrefetchingPageIterator<BlobStoreFileInfo>(listPrefetchExecutor(options)) {
+            @Override
+            protected List<BlobStoreFileInfo> fetchNextPage() {
+                if (! pageIter.hasNext()) {
+                    return null;
+                }
+                val page = pageIter.next();
+                val res = new ArrayList<BlobStoreFileInfo>(page.getValue().size());
+                for(val item: page.getValue()) {
+                    if (item.isDirectory() && ! options.isIncludeDirs()) {
+                        continue;
+                    }
+                    String name = item.getName();
+                    if (name.startsWith(baseDirPrefix)) {
+                        name = name.substring(baseDirPrefix.length());
+                    }
+                    long lastModified = item.getLastModified().toEpochSecond() * 1000;
+                    res.add(new BlobStoreFileInfo(name, item.isDirectory(), item.getContentLength(), lastModified));
+                }
+                return res;
+            }
+        };
+    }
+
+    /**
+     * paged listPaths() of parent dir instead of 1 getProperties() per path, bounded to
+     * <code>pathInfosListMaxPages</code> pages: listing stops once past the max requested name, and paths after
+     * the last listed name of a truncated listing fall back to pathInfo() (a few paths in a huge dir)
+     */
+    @Override
+    protected Map<String, BlobStoreFileInfo> pathInfosOfSameParent(String parentPath, List<String> filePaths) {
+        val maxChildName = maxChildNameOf(filePaths);
+        val children = new ArrayList<BlobStoreFileInfo>();
+        String lastListedName = null;
+        try {
+            val pageIter = dirClientOf(parentPath).listPaths().iterableByPage().iterator();
+            for(int page = 0; page < Math.max(1, pathInfosListMaxPages) && pageIter.hasNext(); page++) {
+                val pageResponse = pageIter.next();
+                for(val item: pageResponse.getValue()) {
+                    children.add(toBlobStoreFileInfo(item));
+                }
+                lastListedName = lastChildNameOf(pageResponse.getValue());
+                if (pageResponse.getContinuationToken() == null || lastListedName.compareTo(maxChildName) >= 0) {
+                    lastListedName = null; // all requested paths covered
+                    break;
+                }
             }
+        } catch(DataLakeStorageException ex) {
+            if (ex.getStatusCode() != 404) {
+                throw ex;
+            }
+            // not existing parent dir
+            children.clear();
+            lastListedName = null;
+        }
+        return matchChildInfos(filePaths, children, lastListedName);
+    }
+
+    /** @return child name of last listed item (listings are sorted by name), "" for empty page */
+    protected static String lastChildNameOf(List<PathItem> items) {
+        return (items.isEmpty())? "" : BlobStorageUtils.childNameOf(items.get(items.size() - 1).getName());
+    }
+
+    @Override
+    public void mkdirs(String relativePath) {
+        val dirPath = normalizePath(relativePath);
+        if (dirPath.isEmpty() || isKnownExistingDir(dirPath)) {
+            return;
         }
-        val lastDir = dirClients[len-1];
+        val lastDir = dirClientOf(dirPath);
         if (! lastDir.exists()) {
             try {
                 // heuristic: try to create last dir, hoping intermediate dirs already exist
                 log.info("az dir.create " + lastDir.getDirectoryUrl());
                 lastDir.create();
             } catch(Exception ex) {
-                // Failed... slow path: check+create all intermediate dirs
-                for(val dirClient: dirClients) {
+                // Failed... slow path: check+create all intermediate dirs, skipping known existing ones
+                String[] pathElts = dirPath.split("/");
+                String currPath = "";
+                for(val pathElt: pathElts) {
+                    currPath = (currPath.isEmpty())? pathElt : currPath + "/" + pathElt;
+                    if (isKnownExistingDir(currPath)) {
+                        continue;
+                    }
+                    val dirClient = dirClientOf(currPath);
                     if (! dirClient.exists()) {
                         log.info("az dir.create " + dirClient.getDirectoryUrl());
                         dirClient.create();
@@ -126,6 +293,7 @@ public class AdlsGen2BlobStorage extends BlobStorage {
                 }
             }
         }
+        markExistingDir(dirPath);
     }
 
     @Override
@@ -141,6 +309,7 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         } else {
             val dirClient = dirClientOf(relativePath);
             log.info("az DataLakeDirectoryClient.delete() " + dirClient.getDirectoryUrl());
+            invalidateExistingDirs(relativePath);
             dirClient.delete();
         }
     }
@@ -149,34 +318,44 @@ public class AdlsGen2BlobStorage extends BlobStorage {
     public void renameFile(String relativeFilePath, String newFilePath) {
         val fileClient = fileClientOf(relativeFilePath);
         val azDestPath = toAzPath(newFilePath);
+        invalidateExistingDirs(relativeFilePath); // in case of renaming a dir
         fileClient.rename(azFileSystem, azDestPath);
     }
 
     @Override
     public OutputStream openWrite(String relativeFilePath, boolean append) {
         val fileClient = fileClientOf(relativeFilePath);
-        boolean existed = fileClient.exists();
-        if (! append) {
-            if (! existed) {
-                fileClient.create();
-            } else {
+        try {
+            if (! append) {
+                // create or overwrite, no need to query exists()
                 fileClient.create(true);
-            }
-            return new AzFileExclusiveOutputStream(fileClient, 0);
-        } else {
-            // TOCHECK
-            if (! existed) {
-                fileClient.create();
+                markExistingParentDir(relativeFilePath);
+                return newOutputStream(fileClient, 0);
             } else {
-                // fileClient.create(false); // append ???
+                // TOCHECK
+                boolean existed = fileClient.exists();
+                if (! existed) {
+                    fileClient.create();
+                } else {
+                    // fileClient.create(false); // append ???
+                }
+                // fileClient.create(false);
+                markExistingParentDir(relativeFilePath);
+                val props = fileClient.getProperties();
+                val len = props.getFileSize();
+                return newOutputStream(fileClient, len);
             }
-            // fileClient.create(false);
-            val props = fileClient.getProperties();
-            val len = props.getFileSize();
-            return new AzFileExclusiveOutputStream(fileClient, len);
+        } catch(RuntimeException ex) {
+            invalidateExistingParentDir(relativeFilePath);
+            throw ex;
         }
     }
 
+    protected AzFileExclusiveOutputStream newOutputStream(DataLakeFileClient fileClient, long position) {
+        return new AzFileExclusiveOutputStream(fileClient, position,
+                writeChunkSize, writeMaxInFlightChunks, getTransferExecutor(), BlobStorageBufferPool.defaultHeapPool());
+    }
+
     @Override
     public InputStream openRead(String relativeFilePath, long position) {
         val fileClient = fileClientOf(relativeFilePath);
@@ -201,7 +380,9 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         val input = new ByteArrayInputStream(data);
         try {
             resolved.fileClient.upload(input, data.length, true);
+            markExistingParentDir(relativeFilePath);
         } catch (Exception ex) {
+            invalidateExistingParentDir(relativeFilePath);
             throw new RuntimeException("Failed to write StorageFile '" + relativeFilePath + "'", ex);
         }
         long millis = System.currentTimeMillis() - startTime;
@@ -210,12 +391,34 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         }
     }
 
+    @Override
+    public void writeFile(String relativeFilePath, byte[] data, int off, int len) {
+        long startTime = System.currentTimeMillis();
+        val resolved = fileAndParentDirOf(relativeFilePath);
+        val input = new ByteArrayInputStream(data, off, len);
+        try {
+            resolved.fileClient.upload(input, len, true);
+            markExistingParentDir(relativeFilePath);
+        } catch (Exception ex) {
+            invalidateExistingParentDir(relativeFilePath);
+            throw new RuntimeException("Failed to write StorageFile '" + relativeFilePath + "'", ex);
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        if (millis > 10000) {
+            logWrite("write to '" + relativeFilePath + "' length:" + len, millis);
+        }
+    }
+
     @Override
     public void writeAppendToFile(String relativeFilePath, byte[] appendData) {
         long startTime = System.currentTimeMillis();
         val resolved = fileAndParentDirOf(relativeFilePath);
-        if (!resolved.parentDirClient.exists()) {
-            resolved.parentDirClient.create();
+        val parentPath = parentPathOf(normalizePath(relativeFilePath));
+        if (! parentPath.isEmpty() && ! isKnownExistingDir(parentPath)) {
+            if (!resolved.parentDirClient.exists()) {
+                resolved.parentDirClient.create();
+            }
+            markExistingDir(parentPath);
         }
         val input = new ByteArrayInputStream(appendData);
         long fileLenRes;
@@ -229,6 +432,7 @@ public class AdlsGen2BlobStorage extends BlobStorage {
                 fileLenRes = resolved.fileClient.getProperties().getFileSize();
             }
         } catch (Exception ex) {
+            invalidateExistingParentDir(relativeFilePath);
             throw new RuntimeException("Failed to append to StorageFile '" + relativeFilePath + "'", ex);
         }
         long millis = System.currentTimeMillis() - startTime;
@@ -236,22 +440,151 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         // return fileLenRes;
     }
 
+    /**
+     * chunked download: the first small ranged read [0, firstReadRangeSize), into a pooled buffer, also returns
+     * total file size (in Content-Range, no extra getProperties() call), then the result is presized and remaining
+     * bytes are read with a single ranged read, or concurrently by blocks of readBlockSize
+     */
     @Override
     public byte[] readFile(String relativeFilePath) {
         long startTime = System.currentTimeMillis();
         val fileClient = fileClientOf(relativeFilePath);
-        val buffer = new ByteArrayOutputStream();
-        try {
-            fileClient.read(buffer);
+        byte[] data;
+        try (val firstBlock = BlobStorageBufferPool.defaultHeapPool().borrow(firstReadRangeSize)) {
+            val firstBuffer = ByteBuffer.wrap(firstBlock.array(), 0, firstReadRangeSize);
+            long fileSize;
+            try {
+                val response = fileClient.readWithResponse(new ByteBufferOutputStream(firstBuffer),
+                        new FileRange(0, (long) firstReadRangeSize), null, null, false, null, Context.NONE);
+                fileSize = contentRangeTotalLength(response.getDeserializedHeaders().getContentRange(), firstBuffer.position());
+            } catch(DataLakeStorageException ex) {
+                if (ex.getStatusCode() == 416) {
+                    // range not satisfiable: empty file
+                    fileSize = 0;
+                } else {
+                    throw ex;
+                }
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new UnsupportedOperationException("file too big for reading fully, len:" + fileSize + ", use readFileTo()");
+            }
+            data = new byte[(int) fileSize];
+            val firstLen = (int) Math.min(fileSize, firstBuffer.position());
+            System.arraycopy(firstBlock.array(), 0, data, 0, firstLen);
+            val remainLen = data.length - firstLen;
+            if (remainLen > readBlockSize) {
+                readRangeParallel(fileClient, data, firstLen, firstLen, remainLen);
+            } else if (remainLen > 0) {
+                readRangeInto(fileClient, data, firstLen, firstLen, remainLen);
+            }
         } catch (Exception ex) {
             throw new RuntimeException("Failed to read StorageFile '" + relativeFilePath + "'", ex);
         }
-        val data = relativeFilePath.getBytes();
         long millis = System.currentTimeMillis() - startTime;
         log.info("read '" + relativeFilePath + "' => length:" + data.length + " .. took " + millis + " ms");
         return data;
     }
 
+    /**
+     * streaming variant of readFile(), for files bigger than 2Go:
+     * blocks are read concurrently into pooled buffers (at most readConcurrency in flight), then written in order
+     */
+    @Override
+    public long readFileTo(String relativeFilePath, OutputStream output) {
+        long startTime = System.currentTimeMillis();
+        val fileClient = fileClientOf(relativeFilePath);
+        val fileSize = fileClient.getProperties().getFileSize();
+        val executor = getTransferExecutor();
+        val bufferPool = BlobStorageBufferPool.defaultHeapPool();
+        val inFlightBlocks = new ArrayDeque<Future<BlobStoragePooledBuffer>>();
+        long nextReadPosition = 0;
+        try {
+            while(nextReadPosition < fileSize || ! inFlightBlocks.isEmpty()) {
+                while(nextReadPosition < fileSize && inFlightBlocks.size() < readConcurrency) {
+                    val blockPosition = nextReadPosition;
+                    val blockLen = (int) Math.min(readBlockSize, fileSize - blockPosition);
+                    inFlightBlocks.addLast(BlobStorageIOUtils.submitPooledBlock(executor, () -> {
+                        val block = bufferPool.borrow(blockLen);
+                        try {
+                            readRangeInto(fileClient, block.array(), 0, blockPosition, blockLen);
+                            return block;
+                        } catch(RuntimeException ex) {
+                            block.release();
+                            throw ex;
+                        }
+                    }));
+                    nextReadPosition += blockLen;
+                }
+                try (val block = inFlightBlocks.peekFirst().get()) {
+                    inFlightBlocks.pollFirst();
+                    output.write(block.array(), 0, block.getLen());
+                }
+            }
+        } catch (Exception ex) {
+            BlobStorageIOUtils.cancelAndReleaseQuietly(inFlightBlocks);
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("Failed to read StorageFile '" + relativeFilePath + "'", ex);
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        log.info("read '" + relativeFilePath + "' to stream => length:" + fileSize + " .. took " + millis + " ms");
+        return fileSize;
+    }
+
+    /**
+     * ranged reads of blocks of readBlockSize, at most readConcurrency in flight
+     */
+    protected void readRangeParallel(DataLakeFileClient fileClient, byte[] resBuffer, int resPos, long position, int len)
+            throws InterruptedException, ExecutionException {
+        val executor = getTransferExecutor();
+        val inFlightBlocks = new ArrayDeque<Future<?>>();
+        try {
+            for(int blockOffset = 0; blockOffset < len; blockOffset += readBlockSize) {
+                if (inFlightBlocks.size() >= readConcurrency) {
+                    inFlightBlocks.pollFirst().get();
+                }
+                val blockResPos = resPos + blockOffset;
+                val blockPosition = position + blockOffset;
+                val blockLen = Math.min(readBlockSize, len - blockOffset);
+                inFlightBlocks.addLast(executor.submit(() -> readRangeInto(fileClient, resBuffer, blockResPos, blockPosition, blockLen)));
+            }
+            while(! inFlightBlocks.isEmpty()) {
+                inFlightBlocks.pollFirst().get();
+            }
+        } finally {
+            for(val block: inFlightBlocks) {
+                block.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * single ranged read, streamed by the http client directly into resBuffer
+     */
+    protected void readRangeInto(DataLakeFileClient fileClient, byte[] resBuffer, int resPos, long position, int len) {
+        val dst = ByteBuffer.wrap(resBuffer, resPos, len);
+        fileClient.readWithResponse(new ByteBufferOutputStream(dst), new FileRange(position, (long) len), null, null, false, null, Context.NONE);
+        if (dst.hasRemaining()) {
+            throw new RuntimeException("Failed to read " + fileClient.getFilePath() + " at(" + position + ", " + len + ")"
+                    + " remain:" + dst.remaining());
+        }
+    }
+
+    /**
+     * @return total length from Content-Range header "bytes start-end/total", or defaultValue
+     */
+    private static long contentRangeTotalLength(String contentRange, long defaultValue) {
+        if (contentRange == null) {
+            return defaultValue;
+        }
+        val sep = contentRange.lastIndexOf('/');
+        if (sep == -1 || contentRange.endsWith("*")) {
+            return defaultValue;
+        }
+        return Long.parseLong(contentRange.substring(sep + 1).trim());
+    }
+
     @Override
     public void readAt(final byte[] resBuffer, final int resPos, 
     		String relativeFilePath, long position, int len) {
@@ -278,10 +611,129 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         log.info("readAt '" + relativeFilePath + "', " + position + ", len:" + len + " .. took " + millis + " ms");
     }
 
+    /**
+     * ranged read, streamed by the http client directly into dst (no intermediate full-size array)
+     */
+    @Override
+    public void readAt(ByteBuffer dst, String relativeFilePath, long position) {
+        long startTime = System.currentTimeMillis();
+        val fileClient = fileClientOf(relativeFilePath);
+        val len = dst.remaining();
+        try {
+            val out = new ByteBufferOutputStream(dst);
+            fileClient.readWithResponse(out, new FileRange(position, (long) len), null, null, false, null, Context.NONE);
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to read StorageFile '" + relativeFilePath + "'", ex);
+        }
+        if (dst.hasRemaining()) {
+            throw new RuntimeException("Failed to read StorageFile '" + relativeFilePath + "' at(" + position + ", " + len + ")"
+                    + " remain:" + dst.remaining());
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        log.info("readAt '" + relativeFilePath + "', " + position + ", len:" + len + " .. took " + millis + " ms");
+    }
+
+    /**
+     * create file, append each buffer as-is (no copy to heap array), then flush once
+     */
+    @Override
+    public void write(String relativeFilePath, ByteBuffer... srcs) {
+        long startTime = System.currentTimeMillis();
+        val fileClient = fileClientOf(relativeFilePath);
+        long position = 0;
+        try {
+            fileClient.create(true);
+            for(val src: srcs) {
+                val len = src.remaining();
+                if (len == 0) {
+                    continue;
+                }
+                val data = BinaryData.fromFlux(Flux.just(src.duplicate()), (long) len, false).block();
+                fileClient.append(data, position);
+                src.position(src.position() + len);
+                position += len;
+            }
+            fileClient.flush(position, true);
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to write StorageFile '" + relativeFilePath + "'", ex);
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        logWrite("write to '" + relativeFilePath + "' length:" + position, millis);
+    }
+
+    /**
+     * override to stream a single ranged read for the combined range, skipping gaps.
+     * overlapping ranges need random access: fallback to buffering the whole combined range
+     */
+    @Override
+    protected void readCombinedRange(String relativeFilePath, CombinedFileRange combinedRange,
+            List<BlobStorageFileRange> ranges, List<CompletableFuture<byte[]>> results) {
+        if (combinedRange.hasOverlaps) {
+            super.readCombinedRange(relativeFilePath, combinedRange, ranges, results);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        val fileClient = fileClientOf(relativeFilePath);
+        DataLakeFileInputStreamOptions inOptions = new DataLakeFileInputStreamOptions();
+        inOptions.setRange(new FileRange(combinedRange.offset, (long) combinedRange.length));
+        DataLakeFileOpenInputStreamResult inputStreamResult = fileClient.openInputStream(inOptions);
+        try (val in = inputStreamResult.getInputStream()) {
+            readCombinedRangeFromStream(in, combinedRange, ranges, results);
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to read StorageFile '" + relativeFilePath + "' ranges " + combinedRange, ex);
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        log.info("readVectored '" + relativeFilePath + "', " + combinedRange + " .. took " + millis + " ms");
+    }
+
+    // Server-side copy
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * ADLS to ADLS copy is done server-side (using Blob api "copy from url") within same storage account
+     */
+    @Override
+    public boolean supportsCopyFrom(BlobStorage srcStorage) {
+        if (! (srcStorage instanceof AdlsGen2BlobStorage)) {
+            return false;
+        }
+        val srcBaseDirClient = ((AdlsGen2BlobStorage) srcStorage).baseDirClient;
+        return srcBaseDirClient.getAccountName().equals(baseDirClient.getAccountName());
+    }
+
+    @Override
+    public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+        long startTime = System.currentTimeMillis();
+        val srcFileClient = ((AdlsGen2BlobStorage) src.blobStorage).fileClientOf(src.path);
+        val destFileClient = fileClientOf(destFilePath);
+        // same http pipeline (same credentials), but using Blob endpoint instead of DFS endpoint
+        val destBlobClient = new BlobClientBuilder()
+                .pipeline(destFileClient.getHttpPipeline())
+                .endpoint(toBlobEndpointUrl(destFileClient.getFileUrl()))
+                .buildClient();
+        val srcBlobUrl = toBlobEndpointUrl(srcFileClient.getFileUrl());
+        try {
+            val poller = destBlobClient.beginCopy(srcBlobUrl, copyPollInterval);
+            val copyResponse = poller.waitForCompletion();
+            val copyStatus = copyResponse.getValue().getCopyStatus();
+            if (copyStatus != CopyStatusType.SUCCESS) {
+                throw new RuntimeException("copy status " + copyStatus + " " + copyResponse.getValue().getError());
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to copy StorageFile '" + destFilePath + "' from " + src, ex);
+        }
+        long millis = System.currentTimeMillis() - startTime;
+        logWrite("server-side copy to '" + destFilePath + "' from " + src, millis);
+    }
+
+    private static String toBlobEndpointUrl(String dfsUrl) {
+        return dfsUrl.replaceFirst("\\.dfs\\.", ".blob.");
+    }
+
     // internal
     // --------------------------------------------------------------------------------------------
 
-    private String toAzPath(String relativePath) {
+    protected String toAzPath(String relativePath) {
         if (relativePath.isEmpty() || relativePath.equals("/")) {
             return azBaseDirPath;
         }
@@ -291,13 +743,20 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         return azBaseDirPath + "/" + relativePath;
     }
 
+    /**
+     * resolve (cached) dir client, recursively from cached parent dir client
+     */
     private DataLakeDirectoryClient dirClientOf(String relativePath) {
-        if (relativePath.isEmpty() || relativePath.equals("/")) {
+        val path = normalizePath(relativePath);
+        if (path.isEmpty()) {
             return baseDirClient;
         }
-        // TOCHECK use directly dirClient.getSubdirectoryClient(relativePath) ??
-        String[] pathElts = relativePath.split("/");
-        val res = chilDirClientUpTo(baseDirClient, pathElts, pathElts.length);
+        DataLakeDirectoryClient res = dirClientCache.getSync(path);
+        if (res == null) {
+            val parentDirClient = dirClientOf(parentPathOf(path));
+            res = parentDirClient.getSubdirectoryClient(path.substring(path.lastIndexOf('/') + 1));
+            dirClientCache.putSync(path, res, clientCacheMaxSize);
+        }
         return res;
     }
 
@@ -310,33 +769,122 @@ public class AdlsGen2BlobStorage extends BlobStorage {
         return res;
     }
 
-    private DataLakeDirectoryClient chilDirClientUpTo(DataLakeDirectoryClient base, String[] pathElts, int len) {
-        DataLakeDirectoryClient dirClient = base;
-        for(int i = 0; i < len; i++) {
-            dirClient = dirClient.getSubdirectoryClient(pathElts[i]);
-        }
-        return dirClient;
-    }
-
     private DataLakeFileClient fileClientOf(String relativePath) {
-        String[] pathElts = relativePath.split("/");
-        val parentDir = chilDirClientUpTo(baseDirClient, pathElts, pathElts.length - 1);
-        return parentDir.getFileClient(pathElts[pathElts.length - 1]);
+        val path = normalizePath(relativePath);
+        DataLakeFileClient res = fileClientCache.getSync(path);
+        if (res == null) {
+            val parentDir = dirClientOf(parentPathOf(path));
+            res = parentDir.getFileClient(path.substring(path.lastIndexOf('/') + 1));
+            fileClientCache.putSync(path, res, clientCacheMaxSize);
+        }
+        return res;
     }
 
     @AllArgsConstructor
-    private static class FileAndParentDirClient {
+    static class FileAndParentDirClient {
         public final DataLakeDirectoryClient parentDirClient;
         public final DataLakeFileClient fileClient;
     }
 
     FileAndParentDirClient fileAndParentDirOf(String relativePath) {
-        String[] pathElts = relativePath.split("/");
-        val parentDirClient = chilDirClientUpTo(baseDirClient, pathElts, pathElts.length - 1);
-        val fileClient = parentDirClient.getFileClient(pathElts[pathElts.length - 1]);
+        val path = normalizePath(relativePath);
+        val parentDirClient = dirClientOf(parentPathOf(path));
+        val fileClient = fileClientOf(path);
         return new FileAndParentDirClient(parentDirClient, fileClient);
     }
 
+    // client cache, known existing dirs
+    // --------------------------------------------------------------------------------------------
+
+    /** clear all cached clients and known existing dirs, for example after external modifications */
+    public void clearClientCaches() {
+        dirClientCache.clearSync();
+        fileClientCache.clearSync();
+        knownExistingDirs.clearSync();
+    }
+
+    protected boolean isKnownExistingDir(String dirPath) {
+        return knownExistingDirs.getSync(dirPath) != null;
+    }
+
+    /** mark dir and all its ancestors as existing */
+    protected void markExistingDir(String dirPath) {
+        for(String path = dirPath; ! path.isEmpty(); path = parentPathOf(path)) {
+            knownExistingDirs.putSync(path, Boolean.TRUE, clientCacheMaxSize);
+        }
+    }
+
+    protected void markExistingParentDir(String relativeFilePath) {
+        val parentPath = parentPathOf(normalizePath(relativeFilePath));
+        if (! parentPath.isEmpty()) {
+            markExistingDir(parentPath);
+        }
+    }
+
+    /** forget dir and all its descendants */
+    protected void invalidateExistingDirs(String relativePath) {
+        val path = normalizePath(relativePath);
+        val childPrefix = path + "/";
+        synchronized(knownExistingDirs) {
+            knownExistingDirs.keySet().removeIf(x -> x.equals(path) || x.startsWith(childPrefix));
+        }
+    }
+
+    protected void invalidateExistingParentDir(String relativeFilePath) {
+        val parentPath = parentPathOf(normalizePath(relativeFilePath));
+        if (! parentPath.isEmpty()) {
+            invalidateExistingDirs(parentPath);
+        }
+    }
+
+    /** @return path without leading and trailing "/" */
+    protected static String normalizePath(String relativePath) {
+        String res = relativePath;
+        if (res.startsWith("/")) {
+            res = res.substring(1);
+        }
+        if (res.endsWith("/")) {
+            res = res.substring(0, res.length() - 1);
+        }
+        return res;
+    }
+
+    /** @return parent of normalized path, "" for top-level path */
+    protected static String parentPathOf(String path) {
+        val idx = path.lastIndexOf('/');
+        return (idx == -1)? "" : path.substring(0, idx);
+    }
+
+    /**
+     * access-ordered LinkedHashMap, evicting least recently used entries above maxSize
+     */
+    @SuppressWarnings("serial")
+    private static class LruMap<K,V> extends LinkedHashMap<K,V> {
+        private int maxSize = Integer.MAX_VALUE;
+
+        LruMap() {
+            super(64, 0.75f, true);
+        }
+
+        synchronized V getSync(K key) {
+            return get(key);
+        }
+
+        synchronized void putSync(K key, V value, int maxSize) {
+            this.maxSize = maxSize;
+            put(key, value);
+        }
+
+        synchronized void clearSync() {
+            clear();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+            return size() > maxSize;
+        }
+    }
+
     protected BlobStoreFileInfo toBlobStoreFileInfo(PathItem item) {
         String name = item.getName();
         boolean isDir = item.isDirectory();
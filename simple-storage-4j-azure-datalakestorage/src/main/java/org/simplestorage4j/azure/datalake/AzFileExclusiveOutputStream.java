@@ -5,45 +5,89 @@ import com.azure.storage.file.datalake.DataLakeFileClient;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+import org.simplestorage4j.api.util.BlobStoragePooledBuffer;
 
 import lombok.Getter;
 import lombok.Setter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * OutputStream appending to an azure file, opened exclusively (no concurrent writer)
+ *
+ * data is accumulated into chunks of <code>chunkSize</code>, and full chunks are appended asynchronously
+ * at increasing offsets, with at most <code>maxInFlightChunks</code> appends in flight (then write() blocks).
+ * Appended data is committed by a single <code>fileClient.flush(position)</code>, on flush() or close().
+ * When executor is null, chunks are appended synchronously.
+ */
 @Slf4j
 public class AzFileExclusiveOutputStream extends OutputStream implements Closeable {
 
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_IN_FLIGHT_CHUNKS = 4;
+
+    private static final int maxRetryAppend = 3;
+
     private final DataLakeFileClient fileClient;
+
+    private final int chunkSize;
+    private final int maxInFlightChunks;
+    private final ExecutorService executor;
+    private final BlobStorageBufferPool bufferPool;
+
+    /** position after last byte written (buffered or appended) */
     private long currFilePosition;
 
+    /** position of last commit: fileClient.flush() */
+    private long committedFilePosition;
+
+    private BlobStoragePooledBuffer currChunk;
+    private int currChunkLen;
+
+    private final ArrayDeque<ChunkAppendTask> inFlightAppends = new ArrayDeque<>();
+
+    private boolean closed;
+
     @Getter @Setter
     private boolean logEnable;
 
+    // ------------------------------------------------------------------------
+
     public AzFileExclusiveOutputStream(DataLakeFileClient fileClient, long currFilePosition) {
+        this(fileClient, currFilePosition, DEFAULT_CHUNK_SIZE, 1, null, BlobStorageBufferPool.defaultHeapPool());
+    }
+
+    public AzFileExclusiveOutputStream(DataLakeFileClient fileClient, long currFilePosition,
+            int chunkSize, int maxInFlightChunks, ExecutorService executor, BlobStorageBufferPool bufferPool) {
         this.fileClient = fileClient;
         this.currFilePosition = currFilePosition;
+        this.committedFilePosition = currFilePosition;
+        this.chunkSize = chunkSize;
+        this.maxInFlightChunks = Math.max(1, maxInFlightChunks);
+        this.executor = executor;
+        this.bufferPool = bufferPool;
     }
 
-    @Override
-    public void close() {
-        if (logEnable) {
-            log.info("az output close " + fileClient.getFileUrl());
-        }
-        flush();
-    }
+    // ------------------------------------------------------------------------
 
     @Override
     public void write(int b) throws IOException {
-        if (logEnable) {
-            log.info("az output write 1 " + fileClient.getFileUrl());
-        }
-        // should not be called! appending byte 1 by 1 to remote azure file..
-        byte[] data = new byte[] { (byte) b };
-        val in = new ByteArrayInputStream(data);
-        fileClient.append(in, currFilePosition, 1);
+        checkNotClosed();
+        ensureCurrChunk();
+        currChunk.array()[currChunkLen++] = (byte) b;
         currFilePosition++;
+        if (currChunkLen == chunkSize) {
+            appendCurrChunk();
+        }
     }
 
     @Override
@@ -53,20 +97,177 @@ public class AzFileExclusiveOutputStream extends OutputStream implements Closeab
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        if (logEnable) {
-            log.info("az output write " + len + " " + fileClient.getFileUrl() + " pos:" + currFilePosition);
+        checkNotClosed();
+        while(len > 0) {
+            ensureCurrChunk();
+            val count = Math.min(len, chunkSize - currChunkLen);
+            System.arraycopy(b, off, currChunk.array(), currChunkLen, count);
+            currChunkLen += count;
+            currFilePosition += count;
+            off += count;
+            len -= count;
+            if (currChunkLen == chunkSize) {
+                appendCurrChunk();
+            }
         }
-        val in = new ByteArrayInputStream(b, off, len);
-        fileClient.append(in, currFilePosition, len);
-        currFilePosition += len;
+    }
+
+    /**
+     * append buffered data, wait for in-flight appends, then commit if position advanced since last commit
+     */
+    @Override
+    public void flush() throws IOException {
+        checkNotClosed();
+        doFlush();
     }
 
     @Override
-    public void flush() {
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (logEnable) {
+            log.info("az output close " + fileClient.getFileUrl());
+        }
+        try {
+            doFlush();
+        } finally {
+            closed = true;
+            for(val append: inFlightAppends) {
+                append.cancel(false);
+                append.releaseIfNotStarted();
+            }
+            inFlightAppends.clear();
+            releaseCurrChunk();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed " + fileClient.getFileUrl());
+        }
+    }
+
+    private void doFlush() throws IOException {
+        if (currChunkLen > 0) {
+            appendCurrChunk();
+        }
+        while(! inFlightAppends.isEmpty()) {
+            waitOldestAppend();
+        }
+        if (currFilePosition != committedFilePosition) {
+            if (logEnable) {
+                log.info("az output flush " + currFilePosition + " " + fileClient.getFileUrl());
+            }
+            fileClient.flush(currFilePosition, true);
+            committedFilePosition = currFilePosition;
+        }
+    }
+
+    private void ensureCurrChunk() {
+        if (currChunk == null) {
+            currChunk = bufferPool.borrow(chunkSize);
+            currChunkLen = 0;
+        }
+    }
+
+    private void releaseCurrChunk() {
+        if (currChunk != null) {
+            currChunk.release();
+            currChunk = null;
+            currChunkLen = 0;
+        }
+    }
+
+    private void appendCurrChunk() throws IOException {
+        if (executor != null) {
+            // bounded memory: wait for oldest append before submitting a new one
+            // (before detaching currChunk, so that it is released by close() on failure)
+            while(inFlightAppends.size() >= maxInFlightChunks) {
+                waitOldestAppend();
+            }
+        }
+        val chunk = currChunk;
+        val chunkLen = currChunkLen;
+        val chunkPosition = currFilePosition - chunkLen;
+        currChunk = null;
+        currChunkLen = 0;
+        if (executor == null) {
+            try {
+                appendWithRetry(chunk, chunkLen, chunkPosition);
+            } catch(RuntimeException ex) {
+                throw new IOException("Failed to append " + fileClient.getFileUrl() + " pos:" + chunkPosition, ex);
+            } finally {
+                chunk.release();
+            }
+            return;
+        }
+        val appendTask = new ChunkAppendTask(chunk, () -> appendWithRetry(chunk, chunkLen, chunkPosition));
+        executor.execute(appendTask);
+        inFlightAppends.addLast(appendTask);
+    }
+
+    private void appendWithRetry(BlobStoragePooledBuffer chunk, int chunkLen, long chunkPosition) {
         if (logEnable) {
-            log.info("az output flush " + currFilePosition + " " + fileClient.getFileUrl());
+            log.info("az output append " + chunkLen + " " + fileClient.getFileUrl() + " pos:" + chunkPosition);
+        }
+        for(int retry = 0; ; retry++) {
+            try {
+                val in = new ByteArrayInputStream(chunk.array(), 0, chunkLen);
+                fileClient.append(in, chunkPosition, chunkLen);
+                return;
+            } catch(RuntimeException ex) {
+                if (retry + 1 >= maxRetryAppend) {
+                    throw ex;
+                }
+                log.warn("Failed append " + fileClient.getFileUrl() + " pos:" + chunkPosition + " ..retry [" + retry + "/" + maxRetryAppend + "] ex:" + ex.getMessage());
+            }
+        }
+    }
+
+    private void waitOldestAppend() throws IOException {
+        val appendFuture = inFlightAppends.pollFirst();
+        try {
+            appendFuture.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while appending " + fileClient.getFileUrl());
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to append " + fileClient.getFileUrl(), ex.getCause());
+        }
+    }
+
+    /**
+     * chunk append task, releasing its pooled buffer exactly once: when run, or by close() when cancelled before starting
+     */
+    private static class ChunkAppendTask extends FutureTask<Void> {
+        private final BlobStoragePooledBuffer chunk;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        ChunkAppendTask(BlobStoragePooledBuffer chunk, Runnable append) {
+            super(append, null);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void run() {
+            if (! started.compareAndSet(false, true)) {
+                return; // cancelled, buffer already released
+            }
+            try {
+                super.run();
+            } finally {
+                chunk.release();
+            }
+        }
+
+        void releaseIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                chunk.release();
+            }
         }
-        fileClient.flush(currFilePosition, true);
     }
 
-}
\ No newline at end of file
+}
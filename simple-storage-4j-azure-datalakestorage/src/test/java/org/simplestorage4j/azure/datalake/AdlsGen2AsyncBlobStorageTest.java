@@ -0,0 +1,240 @@
+package org.simplestorage4j.azure.datalake;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class AdlsGen2AsyncBlobStorageTest {
+
+    private final InMemoryAdlsHttpClient adls = new InMemoryAdlsHttpClient();
+    private final AdlsGen2AsyncBlobStorage storage = InMemoryAdlsHttpClient.newAsyncBlobStorage(adls, "base");
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    public void testAsync_isSelf() {
+        assertTrue(storage.async() == storage);
+        assertTrue(storage.blobStorage() == storage);
+    }
+
+    @Test
+    public void testPathInfoAsync() throws Exception {
+        adls.putFile("base/dir1/file1", new byte[123]);
+        val fileInfo = storage.pathInfoAsync("dir1/file1").get();
+        assertNotNull(fileInfo);
+        assertFalse(fileInfo.isDir);
+        assertEquals(123, fileInfo.fileLength);
+
+        val dirInfo = storage.pathInfoAsync("dir1").get();
+        assertNotNull(dirInfo);
+        assertTrue(dirInfo.isDir);
+
+        assertNull(storage.pathInfoAsync("dir1/missing").get());
+    }
+
+    @Test
+    public void testExistsAsync() throws Exception {
+        adls.putFile("base/file1", new byte[1]);
+        assertTrue(storage.existsAsync("file1").get());
+        assertFalse(storage.existsAsync("missing").get());
+    }
+
+    @Test
+    public void testListAsync() throws Exception {
+        adls.putFile("base/dir1/a", new byte[1]);
+        adls.putFile("base/dir1/b", new byte[2]);
+        adls.putFile("base/dir1/sub/c", new byte[3]);
+        val res = storage.listAsync("dir1").get();
+        val names = new TreeSet<String>();
+        for(val info : res) {
+            names.add(info.childName() + (info.isDir? "/" : ""));
+        }
+        assertEquals(new TreeSet<>(Arrays.asList("a", "b", "sub/")), names);
+    }
+
+    @Test
+    public void testMkdirsAsync() throws Exception {
+        storage.mkdirsAsync("dir1/dir2").get();
+        assertTrue(adls.existsPath("base/dir1/dir2"));
+        // idempotent
+        storage.mkdirsAsync("dir1/dir2").get();
+    }
+
+    @Test
+    public void testWriteFileAsync_readFileAsync() throws Exception {
+        val data = AdlsGen2BlobStorageTest.testData(10_000);
+        storage.writeFileAsync("dir1/file1", data).get();
+        assertArrayEquals(data, adls.getFileData("base/dir1/file1"));
+        assertArrayEquals(data, storage.readFileAsync("dir1/file1").get());
+
+        // overwrite
+        val data2 = AdlsGen2BlobStorageTest.testData(10);
+        storage.writeFileAsync("dir1/file1", data2).get();
+        assertArrayEquals(data2, storage.readFileAsync("dir1/file1").get());
+    }
+
+    @Test
+    public void testWriteFileAsync_multiBlocks() throws Exception {
+        storage.setUploadBlockSize(1000);
+        val data = AdlsGen2BlobStorageTest.testData(10_500);
+        storage.writeFileAsync("dir1/file1", data).get();
+        assertArrayEquals(data, adls.getFileData("base/dir1/file1"));
+        assertEquals(11, adls.getRequestCount("append"));
+        assertEquals(1, adls.getRequestCount("flush"));
+    }
+
+    @Test
+    public void testWriteFileAsync_empty() throws Exception {
+        storage.writeFileAsync("dir1/empty", new byte[0]).get();
+        assertEquals(0, adls.getFileData("base/dir1/empty").length);
+    }
+
+    @Test
+    public void testWriteFileAsync_appendFailure_failsFuture() throws Exception {
+        adls.appendFailCount.set(100);
+        val future = storage.writeFileAsync("dir1/file1", AdlsGen2BlobStorageTest.testData(100));
+        try {
+            future.get();
+            fail();
+        } catch(ExecutionException ex) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testReadAtAsync() throws Exception {
+        val data = AdlsGen2BlobStorageTest.testData(1000);
+        adls.putFile("base/file1", data);
+        val res = storage.readAtAsync("file1", 100, 50).get();
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 150), res);
+    }
+
+    @Test
+    public void testWriteAppendToFileAsync() throws Exception {
+        val data1 = AdlsGen2BlobStorageTest.testData(100);
+        val data2 = AdlsGen2BlobStorageTest.testData(50);
+        storage.writeAppendToFileAsync("dir1/log", data1).get();
+        storage.writeAppendToFileAsync("dir1/log", data2).get();
+        val expected = new byte[150];
+        System.arraycopy(data1, 0, expected, 0, 100);
+        System.arraycopy(data2, 0, expected, 100, 50);
+        assertArrayEquals(expected, adls.getFileData("base/dir1/log"));
+    }
+
+    @Test
+    public void testRenameFileAsync_deleteFileAsync() throws Exception {
+        val data = AdlsGen2BlobStorageTest.testData(10);
+        adls.putFile("base/file1", data);
+        storage.renameFileAsync("file1", "dir2/file2").get();
+        assertFalse(adls.existsPath("base/file1"));
+        assertArrayEquals(data, adls.getFileData("base/dir2/file2"));
+
+        storage.deleteFileAsync("dir2/file2").get();
+        assertFalse(adls.existsPath("base/dir2/file2"));
+        // deleteIfExists
+        storage.deleteFileAsync("dir2/file2").get();
+    }
+
+    @Test
+    public void testPathInfosAsync_smallGroups() throws Exception {
+        adls.putFile("base/dir1/a", new byte[1]);
+        adls.putFile("base/dir2/b", new byte[2]);
+        val paths = Arrays.asList("dir2/b", "dir1/a", "dir1/missing");
+        val res = storage.pathInfosAsync(paths).get();
+        assertEquals(paths, new ArrayList<>(res.keySet()));
+        assertEquals(2, res.get("dir2/b").fileLength);
+        assertEquals(1, res.get("dir1/a").fileLength);
+        assertNull(res.get("dir1/missing"));
+        assertEquals(0, adls.getRequestCount("list"));
+    }
+
+    @Test
+    public void testPathInfosAsync_listedGroup() throws Exception {
+        val paths = new ArrayList<String>();
+        for(int i = 0; i < 10; i++) {
+            adls.putFile("base/dir1/f" + i, new byte[i]);
+            paths.add("dir1/f" + i);
+        }
+        paths.add("dir1/missing");
+        adls.resetRequestCounts();
+        val res = storage.pathInfos(paths);
+        assertEquals(paths, new ArrayList<>(res.keySet()));
+        for(int i = 0; i < 10; i++) {
+            assertEquals(i, res.get("dir1/f" + i).fileLength);
+        }
+        assertNull(res.get("dir1/missing"));
+        assertEquals(1, adls.getRequestCount("list"));
+        assertEquals(0, adls.getRequestCount("getProperties"));
+    }
+
+    @Test
+    public void testPathInfosAsync_boundedListing_fallbackPathInfo() throws Exception {
+        adls.listMaxResults = 10;
+        storage.setPathInfosListMaxPages(2);
+        AdlsGen2BlobStorageTest.putDirFiles(adls, 100);
+        val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f015", "dir/f090", "dir/f095", "dir/f999");
+        val res = storage.pathInfosAsync(paths).get();
+        assertEquals(paths, new ArrayList<>(res.keySet()));
+        assertEquals(15, res.get("dir/f015").fileLength);
+        assertEquals(90, res.get("dir/f090").fileLength);
+        assertEquals(95, res.get("dir/f095").fileLength);
+        assertNull(res.get("dir/f999"));
+        assertEquals(2, adls.getRequestCount("list"));
+        assertEquals(3, adls.getRequestCount("getProperties"));
+    }
+
+    @Test
+    public void testPathInfosAsync_stopsListingAfterMaxRequestedName() throws Exception {
+        adls.listMaxResults = 10;
+        AdlsGen2BlobStorageTest.putDirFiles(adls, 100);
+        val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f003", "dir/f004");
+        val res = storage.pathInfosAsync(paths).get();
+        assertEquals(4, res.get("dir/f004").fileLength);
+        assertEquals(1, adls.getRequestCount("list"));
+    }
+
+    @Test
+    public void testPathInfosAsync_missingParentDir() throws Exception {
+        val paths = Arrays.asList("missingDir/a", "missingDir/b", "missingDir/c", "missingDir/d");
+        val res = storage.pathInfosAsync(paths).get();
+        assertEquals(4, res.size());
+        for(val path : paths) {
+            assertTrue(res.containsKey(path));
+            assertNull(res.get(path));
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        val futures = new ArrayList<CompletableFuture<byte[]>>();
+        for(int i = 0; i < 100; i++) {
+            adls.putFile("base/dir1/f" + i, new byte[i]);
+        }
+        for(int i = 0; i < 100; i++) {
+            futures.add(storage.readFileAsync("dir1/f" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        for(int i = 0; i < 100; i++) {
+            assertEquals(i, futures.get(i).get().length);
+        }
+    }
+
+}
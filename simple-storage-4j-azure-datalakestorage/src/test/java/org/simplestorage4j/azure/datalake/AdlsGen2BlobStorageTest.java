@@ -0,0 +1,240 @@
+package org.simplestorage4j.azure.datalake;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class AdlsGen2BlobStorageTest {
+
+    private final InMemoryAdlsHttpClient adls = new InMemoryAdlsHttpClient();
+    private final AdlsGen2BlobStorage storage = InMemoryAdlsHttpClient.newBlobStorage(adls, "base");
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    static byte[] testData(int len) {
+        val res = new byte[len];
+        for(int i = 0; i < len; i++) {
+            res[i] = (byte) (i % 251);
+        }
+        return res;
+    }
+
+    // readFile
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testReadFile_small_singleRequest() {
+        val data = testData(1000);
+        adls.putFile("base/small", data);
+        assertArrayEquals(data, storage.readFile("small"));
+        assertEquals(1, adls.getRequestCount("read"));
+        assertEquals(0, adls.getRequestCount("getProperties"));
+        assertEquals(storage.getFirstReadRangeSize() - 1, adls.readRanges.get(0)[1]);
+    }
+
+    @Test
+    public void testReadFile_empty() {
+        adls.putFile("base/empty", new byte[0]);
+        assertEquals(0, storage.readFile("empty").length);
+        assertEquals(1, adls.getRequestCount("read"));
+    }
+
+    @Test
+    public void testReadFile_exactlyFirstRange() {
+        storage.setFirstReadRangeSize(1000);
+        val data = testData(1000);
+        adls.putFile("base/exact", data);
+        assertArrayEquals(data, storage.readFile("exact"));
+        assertEquals(1, adls.getRequestCount("read"));
+    }
+
+    @Test
+    public void testReadFile_remainderSingleRange() {
+        storage.setFirstReadRangeSize(1000);
+        storage.setReadBlockSize(10_000);
+        val data = testData(5000);
+        adls.putFile("base/medium", data);
+        assertArrayEquals(data, storage.readFile("medium"));
+        assertEquals(2, adls.getRequestCount("read"));
+        val secondRange = adls.readRanges.get(1);
+        assertEquals(1000, secondRange[0]);
+        assertEquals(4999, secondRange[1]);
+    }
+
+    @Test
+    public void testReadFile_remainderParallelBlocks() {
+        storage.setFirstReadRangeSize(1000);
+        storage.setReadBlockSize(2000);
+        val data = testData(10_500);
+        adls.putFile("base/big", data);
+        assertArrayEquals(data, storage.readFile("big"));
+        // first range + ceil(9500 / 2000) blocks
+        assertEquals(1 + 5, adls.getRequestCount("read"));
+    }
+
+    @Test
+    public void testReadFile_notFound() {
+        try {
+            storage.readFile("missing");
+            fail();
+        } catch(RuntimeException ex) {
+            // ok
+        }
+    }
+
+    // client cache, known existing dirs
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testClientCache_sameClients() {
+        val resolved1 = storage.fileAndParentDirOf("dir1/dir2/file1");
+        val resolved2 = storage.fileAndParentDirOf("/dir1/dir2/file1");
+        assertSame(resolved1.fileClient, resolved2.fileClient);
+        assertSame(resolved1.parentDirClient, resolved2.parentDirClient);
+        assertEquals("base/dir1/dir2/file1", resolved1.fileClient.getFilePath());
+        assertEquals(0, adls.getTotalRequestCount());
+
+        storage.clearClientCaches();
+        val resolved3 = storage.fileAndParentDirOf("dir1/dir2/file1");
+        assertNotSame(resolved1.fileClient, resolved3.fileClient);
+    }
+
+    @Test
+    public void testClientCache_lruEviction() {
+        storage.setClientCacheMaxSize(2);
+        val file1 = storage.fileAndParentDirOf("file1").fileClient;
+        storage.fileAndParentDirOf("file2");
+        storage.fileAndParentDirOf("file3");
+        assertNotSame(file1, storage.fileAndParentDirOf("file1").fileClient);
+
+        storage.markExistingDir("a");
+        storage.markExistingDir("b");
+        assertTrue(storage.isKnownExistingDir("a")); // access: "b" becomes eldest
+        storage.markExistingDir("c");
+        assertTrue(storage.isKnownExistingDir("a"));
+        assertFalse(storage.isKnownExistingDir("b"));
+        assertTrue(storage.isKnownExistingDir("c"));
+    }
+
+    @Test
+    public void testMkdirs_knownExistingDirs_noRequest() {
+        storage.mkdirs("dir1/dir2/dir3");
+        assertTrue(adls.existsPath("base/dir1/dir2/dir3"));
+        assertTrue(storage.isKnownExistingDir("dir1/dir2"));
+        adls.resetRequestCounts();
+
+        storage.mkdirs("dir1/dir2/dir3");
+        storage.mkdirs("dir1/dir2");
+        storage.mkdirs("/dir1/");
+        assertEquals(0, adls.getTotalRequestCount());
+    }
+
+    @Test
+    public void testOpenWrite_marksParentDir() throws Exception {
+        try (val out = storage.openWrite("dir1/dir2/file1", false)) {
+            out.write(testData(10));
+        }
+        assertArrayEquals(testData(10), adls.getFileData("base/dir1/dir2/file1"));
+        adls.resetRequestCounts();
+        storage.mkdirs("dir1/dir2");
+        assertEquals(0, adls.getTotalRequestCount());
+    }
+
+    @Test
+    public void testDelete_invalidatesKnownDirs() {
+        storage.mkdirs("dir1/dir2");
+        storage.deleteFile("dir1");
+        assertFalse(adls.existsPath("base/dir1"));
+        assertFalse(storage.isKnownExistingDir("dir1"));
+        assertFalse(storage.isKnownExistingDir("dir1/dir2"));
+
+        storage.mkdirs("dir1/dir2");
+        assertTrue(adls.existsPath("base/dir1/dir2"));
+    }
+
+    @Test
+    public void testRename_invalidatesKnownDirs() {
+        storage.mkdirs("dir1/dir2");
+        storage.renameFile("dir1", "dir3");
+        assertFalse(storage.isKnownExistingDir("dir1/dir2"));
+        assertTrue(adls.existsPath("base/dir3/dir2"));
+
+        storage.mkdirs("dir1/dir2");
+        assertTrue(adls.existsPath("base/dir1/dir2"));
+    }
+
+    // pathInfos
+    // ------------------------------------------------------------------------
+
+    static void putDirFiles(InMemoryAdlsHttpClient adls, int count) {
+        for(int i = 0; i < count; i++) {
+            adls.putFile(String.format("base/dir/f%03d", i), new byte[i]);
+        }
+        adls.resetRequestCounts();
+    }
+
+    @Test
+    public void testPathInfos_singleListing() {
+        putDirFiles(adls, 10);
+        val paths = Arrays.asList("dir/f001", "dir/f005", "dir/f003", "dir/f009", "dir/missing");
+        val res = storage.pathInfos(paths);
+        assertEquals(paths, new ArrayList<>(res.keySet()));
+        assertEquals(5, res.get("dir/f005").fileLength);
+        assertNull(res.get("dir/missing"));
+        assertEquals(1, adls.getRequestCount("list"));
+        assertEquals(0, adls.getRequestCount("getProperties"));
+    }
+
+    @Test
+    public void testPathInfos_boundedListing_fallbackPathInfo() {
+        adls.listMaxResults = 10;
+        storage.setPathInfosListMaxPages(2);
+        putDirFiles(adls, 100);
+        val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f015", "dir/f090", "dir/f095", "dir/f999");
+        val res = storage.pathInfos(paths);
+        assertEquals(paths, new ArrayList<>(res.keySet()));
+        assertEquals(15, res.get("dir/f015").fileLength);
+        assertEquals(90, res.get("dir/f090").fileLength);
+        assertEquals(95, res.get("dir/f095").fileLength);
+        assertNull(res.get("dir/f999"));
+        assertEquals(2, adls.getRequestCount("list"));
+    }
+
+    @Test
+    public void testPathInfos_stopsListingAfterMaxRequestedName() {
+        adls.listMaxResults = 10;
+        putDirFiles(adls, 100);
+        val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f003", "dir/f004");
+        val res = storage.pathInfos(paths);
+        assertEquals(4, res.get("dir/f004").fileLength);
+        assertEquals(1, adls.getRequestCount("list"));
+        assertEquals(0, adls.getRequestCount("getProperties"));
+    }
+
+    @Test
+    public void testPathInfos_missingParentDir() {
+        val paths = Arrays.asList("missingDir/a", "missingDir/b", "missingDir/c", "missingDir/d");
+        val res = storage.pathInfos(paths);
+        assertEquals(4, res.size());
+        for(val path : paths) {
+            assertNull(res.get(path));
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.simplestorage4j.azure.datalake;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+
+import com.azure.storage.file.datalake.DataLakeFileClient;
+
+import lombok.val;
+
+public class AzFileExclusiveOutputStreamTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final InMemoryAdlsHttpClient adls = new InMemoryAdlsHttpClient();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final BlobStorageBufferPool bufferPool = new BlobStorageBufferPool("test", false,
+            1024, 1024 * 1024, 8L * 1024 * 1024);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private DataLakeFileClient fileClient(String path) {
+        return InMemoryAdlsHttpClient.serviceClientBuilder(adls).buildClient()
+                .getFileSystemClient(InMemoryAdlsHttpClient.FILE_SYSTEM).getFileClient(path);
+    }
+
+    private void assertAllBuffersReleased() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        assertEquals(bufferPool.getBorrowCount(), bufferPool.getReleaseCount());
+    }
+
+    private static byte[] testData(int len) {
+        val res = new byte[len];
+        for(int i = 0; i < len; i++) {
+            res[i] = (byte) (i % 251);
+        }
+        return res;
+    }
+
+    @Test
+    public void testWrite_chunkedAppends_singleFlush() throws Exception {
+        adls.putFile("base/file1", new byte[0]);
+        val data = testData(3 * CHUNK_SIZE + 123);
+        try (val out = new AzFileExclusiveOutputStream(fileClient("base/file1"), 0, CHUNK_SIZE, 2, executor, bufferPool)) {
+            out.write(data, 0, 10);
+            out.write(data[10]);
+            out.write(data, 11, data.length - 11);
+        }
+        assertArrayEquals(data, adls.getFileData("base/file1"));
+        assertEquals(4, adls.getRequestCount("append"));
+        assertEquals(1, adls.getRequestCount("flush"));
+        assertAllBuffersReleased();
+    }
+
+    @Test
+    public void testWrite_sync_appendToExisting() throws Exception {
+        val prev = testData(100);
+        adls.putFile("base/file2", prev);
+        val data = testData(2 * CHUNK_SIZE);
+        try (val out = new AzFileExclusiveOutputStream(fileClient("base/file2"), prev.length, CHUNK_SIZE, 1, null, bufferPool)) {
+            out.write(data);
+        }
+        val expected = new byte[prev.length + data.length];
+        System.arraycopy(prev, 0, expected, 0, prev.length);
+        System.arraycopy(data, 0, expected, prev.length, data.length);
+        assertArrayEquals(expected, adls.getFileData("base/file2"));
+        assertEquals(2, adls.getRequestCount("append"));
+        assertEquals(1, adls.getRequestCount("flush"));
+        assertAllBuffersReleased();
+    }
+
+    @Test
+    public void testFlush_commitsOnlyWhenPositionAdvanced() throws Exception {
+        adls.putFile("base/file3", new byte[0]);
+        val data = testData(CHUNK_SIZE / 2);
+        try (val out = new AzFileExclusiveOutputStream(fileClient("base/file3"), 0, CHUNK_SIZE, 2, executor, bufferPool)) {
+            out.write(data);
+            out.flush();
+            assertArrayEquals(data, adls.getFileData("base/file3"));
+            out.flush();
+        }
+        assertEquals(1, adls.getRequestCount("append"));
+        assertEquals(1, adls.getRequestCount("flush"));
+        assertAllBuffersReleased();
+    }
+
+    @Test
+    public void testWrite_appendFailure_notCommitted() throws Exception {
+        adls.putFile("base/file4", new byte[0]);
+        adls.appendFailCount.set(100);
+        val data = testData(5 * CHUNK_SIZE);
+        val out = new AzFileExclusiveOutputStream(fileClient("base/file4"), 0, CHUNK_SIZE, 2, executor, bufferPool);
+        try {
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            fail();
+        } catch(IOException ex) {
+            // ok
+        }
+        out.close(); // no-op
+        assertEquals(0, adls.getRequestCount("flush"));
+        assertEquals(0, adls.getFileData("base/file4").length);
+        assertAllBuffersReleased();
+    }
+
+}
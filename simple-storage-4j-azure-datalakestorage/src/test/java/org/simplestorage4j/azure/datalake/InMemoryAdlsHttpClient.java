@@ -0,0 +1,527 @@
+package org.simplestorage4j.azure.datalake;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.FluxUtil;
+import com.azure.storage.common.StorageSharedKeyCredential;
+import com.azure.storage.common.policy.RequestRetryOptions;
+import com.azure.storage.common.policy.RetryPolicyType;
+import com.azure.storage.file.datalake.DataLakeServiceClientBuilder;
+
+import lombok.val;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * in-memory stand-in of an ADLS Gen2 account (hierarchical namespace) for tests, at http level: emulates the subset of
+ * DFS and Blob rest apis used by the DataLake sdk clients (create, append/flush, ranged read, properties, list, rename, delete).
+ * Requests are counted per operation, and failures can be injected
+ */
+public class InMemoryAdlsHttpClient implements HttpClient {
+
+    public static final String ACCOUNT = "testaccount";
+    public static final String ENDPOINT = "https://" + ACCOUNT + ".dfs.core.windows.net";
+    public static final String FILE_SYSTEM = "fs";
+
+    private static final DateTimeFormatter RFC1123 = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private static class Node {
+        final boolean isDir;
+        byte[] data = new byte[0];
+        /** uncommitted appended data, by position */
+        final TreeMap<Long, byte[]> appends = new TreeMap<>();
+        OffsetDateTime lastModified = OffsetDateTime.now(ZoneOffset.UTC);
+        long etag;
+
+        Node(boolean isDir) {
+            this.isDir = isDir;
+        }
+    }
+
+    /** nodes by path "fs/dir/file", guarded by this */
+    private final TreeMap<String, Node> nodes = new TreeMap<>();
+    private final AtomicLong etagGenerator = new AtomicLong();
+
+    /** request counts, by operation: "create", "append", "flush", "read", "getProperties", "list", "rename", "delete" */
+    private final Map<String, AtomicInteger> requestCounts = Collections.synchronizedMap(new HashMap<>());
+
+    /** ranges of read requests, as [start, end] (end inclusive, -1 when open-ended or no range) */
+    public final List<long[]> readRanges = Collections.synchronizedList(new ArrayList<>());
+
+    /** max paths per listPaths page (5000 for ADLS), lowered in tests to paginate small listings */
+    public volatile int listMaxResults = 5000;
+
+    /** when > 0, next append requests fail with http 500 */
+    public final AtomicInteger appendFailCount = new AtomicInteger();
+
+    // ------------------------------------------------------------------------
+
+    public static DataLakeServiceClientBuilder serviceClientBuilder(InMemoryAdlsHttpClient httpClient) {
+        val accountKey = java.util.Base64.getEncoder().encodeToString("test-account-key".getBytes(StandardCharsets.UTF_8));
+        return new DataLakeServiceClientBuilder()
+                .endpoint(ENDPOINT)
+                .credential(new StorageSharedKeyCredential(ACCOUNT, accountKey))
+                .retryOptions(new RequestRetryOptions(RetryPolicyType.FIXED, 1, (Integer) null, null, null, null))
+                .httpClient(httpClient);
+    }
+
+    public static AdlsGen2BlobStorage newBlobStorage(InMemoryAdlsHttpClient httpClient, String baseDir) {
+        val fsClient = serviceClientBuilder(httpClient).buildClient().getFileSystemClient(FILE_SYSTEM);
+        return new AdlsGen2BlobStorage(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test",
+                fsClient.getDirectoryClient(baseDir));
+    }
+
+    public static AdlsGen2AsyncBlobStorage newAsyncBlobStorage(InMemoryAdlsHttpClient httpClient, String baseDir) {
+        val builder = serviceClientBuilder(httpClient);
+        val fsClient = builder.buildClient().getFileSystemClient(FILE_SYSTEM);
+        val fsAsyncClient = builder.buildAsyncClient().getFileSystemAsyncClient(FILE_SYSTEM);
+        return new AdlsGen2AsyncBlobStorage(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test",
+                fsClient.getDirectoryClient(baseDir), fsAsyncClient.getDirectoryAsyncClient(baseDir));
+    }
+
+    // test helpers
+    // ------------------------------------------------------------------------
+
+    /** @param path path in filesystem, for example "base/dir/file" */
+    public synchronized void putFile(String path, byte[] data) {
+        val node = createNode(FILE_SYSTEM + "/" + path, false);
+        node.data = data.clone();
+    }
+
+    public synchronized void putDir(String path) {
+        createNode(FILE_SYSTEM + "/" + path, true);
+    }
+
+    /** @return committed data of file, or null */
+    public synchronized byte[] getFileData(String path) {
+        val node = nodes.get(FILE_SYSTEM + "/" + path);
+        return (node != null && ! node.isDir)? node.data.clone() : null;
+    }
+
+    public synchronized boolean existsPath(String path) {
+        return nodes.containsKey(FILE_SYSTEM + "/" + path);
+    }
+
+    public int getRequestCount(String operation) {
+        val res = requestCounts.get(operation);
+        return (res != null)? res.get() : 0;
+    }
+
+    public int getTotalRequestCount() {
+        synchronized(requestCounts) {
+            return requestCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+
+    public void resetRequestCounts() {
+        requestCounts.clear();
+        readRanges.clear();
+    }
+
+    // implements HttpClient
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Mono<HttpResponse> send(HttpRequest request) {
+        val bodyMono = (request.getBody() != null)
+                ? FluxUtil.collectBytesInByteBufferStream(request.getBody()).defaultIfEmpty(new byte[0])
+                : Mono.just(new byte[0]);
+        return bodyMono.map(body -> {
+            try {
+                return handle(request, body);
+            } catch(RuntimeException ex) {
+                return error(request, 500, "InternalError", ex.toString());
+            }
+        });
+    }
+
+    private HttpResponse handle(HttpRequest request, byte[] body) {
+        val url = request.getUrl();
+        val isDfs = url.getHost().contains(".dfs.");
+        val query = parseQuery(url.getQuery());
+        val path = decode(url.getPath().substring(1));
+        val method = request.getHttpMethod();
+        val headers = request.getHeaders();
+
+        if (method == HttpMethod.GET && "filesystem".equals(query.get("resource"))) {
+            return list(request, path, query);
+        }
+        if (method == HttpMethod.HEAD) {
+            incr("getProperties");
+            return getProperties(request, path);
+        }
+        if (method == HttpMethod.GET) {
+            incr("read");
+            val range = (headers.getValue("x-ms-range") != null)? headers.getValue("x-ms-range") : headers.getValue("Range");
+            return read(request, path, range);
+        }
+        if (method == HttpMethod.PUT && isDfs && headers.getValue("x-ms-rename-source") != null) {
+            incr("rename");
+            return rename(request, headers.getValue("x-ms-rename-source"), path);
+        }
+        if (method == HttpMethod.PUT && isDfs && query.get("resource") != null) {
+            incr("create");
+            val ifNoneMatch = headers.getValue("If-None-Match");
+            return create(request, path, "directory".equals(query.get("resource")), "*".equals(ifNoneMatch));
+        }
+        if (method == HttpMethod.PATCH && "append".equals(query.get("action"))) {
+            incr("append");
+            return append(request, path, Long.parseLong(query.get("position")), body);
+        }
+        if (method == HttpMethod.PATCH && "flush".equals(query.get("action"))) {
+            incr("flush");
+            return flush(request, path, Long.parseLong(query.get("position")));
+        }
+        if (method == HttpMethod.DELETE) {
+            incr("delete");
+            return delete(request, path);
+        }
+        return error(request, 400, "UnsupportedOperation", "not emulated: " + method + " " + url);
+    }
+
+    // operations
+    // ------------------------------------------------------------------------
+
+    private synchronized HttpResponse create(HttpRequest request, String path, boolean isDir, boolean ifNotExists) {
+        val existing = nodes.get(path);
+        if (existing != null) {
+            if (ifNotExists) {
+                return error(request, 409, "PathAlreadyExists", "The specified path already exists.");
+            }
+            if (existing.isDir != isDir) {
+                return error(request, 409, "ResourceTypeMismatch", "resource type mismatch");
+            }
+        }
+        val node = createNode(path, isDir);
+        val res = newHeaders(node);
+        return response(request, 201, res, null);
+    }
+
+    private Node createNode(String path, boolean isDir) {
+        // hierarchical namespace: implicitly create parent dirs
+        for(int idx = path.indexOf('/', FILE_SYSTEM.length() + 1); idx != -1; idx = path.indexOf('/', idx + 1)) {
+            val parentPath = path.substring(0, idx);
+            if (! nodes.containsKey(parentPath)) {
+                nodes.put(parentPath, new Node(true));
+            }
+        }
+        val node = new Node(isDir);
+        node.etag = etagGenerator.incrementAndGet();
+        nodes.put(path, node);
+        return node;
+    }
+
+    private HttpResponse append(HttpRequest request, String path, long position, byte[] body) {
+        if (appendFailCount.getAndUpdate(x -> Math.max(0, x - 1)) > 0) {
+            return error(request, 500, "InternalError", "injected append failure");
+        }
+        synchronized(this) {
+            val node = nodes.get(path);
+            if (node == null || node.isDir) {
+                return error(request, 404, "PathNotFound", "The specified path does not exist.");
+            }
+            node.appends.put(position, body);
+        }
+        return response(request, 202, new HttpHeaders(), null);
+    }
+
+    private synchronized HttpResponse flush(HttpRequest request, String path, long position) {
+        val node = nodes.get(path);
+        if (node == null || node.isDir) {
+            return error(request, 404, "PathNotFound", "The specified path does not exist.");
+        }
+        val out = new ByteArrayOutputStream();
+        out.write(node.data, 0, node.data.length);
+        long currPos = node.data.length;
+        while(currPos < position) {
+            val chunk = node.appends.remove(currPos);
+            if (chunk == null) {
+                return error(request, 400, "InvalidFlushPosition", "missing data at position " + currPos);
+            }
+            out.write(chunk, 0, chunk.length);
+            currPos += chunk.length;
+        }
+        if (currPos != position) {
+            return error(request, 400, "InvalidFlushPosition", "flush position " + position + " inside appended chunk");
+        }
+        node.appends.clear();
+        node.data = out.toByteArray();
+        node.lastModified = OffsetDateTime.now(ZoneOffset.UTC);
+        node.etag = etagGenerator.incrementAndGet();
+        return response(request, 200, newHeaders(node), null);
+    }
+
+    private synchronized HttpResponse getProperties(HttpRequest request, String path) {
+        val node = nodes.get(path);
+        if (node == null) {
+            return error(request, 404, "BlobNotFound", null);
+        }
+        val headers = newHeaders(node);
+        headers.set("Content-Length", Integer.toString(node.data.length));
+        headers.set("x-ms-blob-type", "BlockBlob");
+        headers.set("x-ms-resource-type", (node.isDir)? "directory" : "file");
+        if (node.isDir) {
+            headers.set("x-ms-meta-hdi_isfolder", "true");
+        }
+        return response(request, 200, headers, null);
+    }
+
+    private HttpResponse read(HttpRequest request, String path, String range) {
+        byte[] data;
+        HttpHeaders headers;
+        synchronized(this) {
+            val node = nodes.get(path);
+            if (node == null || node.isDir) {
+                return error(request, 404, "BlobNotFound", "The specified blob does not exist.");
+            }
+            data = node.data;
+            headers = newHeaders(node);
+        }
+        headers.set("x-ms-blob-type", "BlockBlob");
+        if (range == null) {
+            readRanges.add(new long[] { 0, -1 });
+            headers.set("Content-Length", Integer.toString(data.length));
+            return response(request, 200, headers, data);
+        }
+        // "bytes=start-end" or "bytes=start-"
+        val rangeSpec = range.substring(range.indexOf('=') + 1);
+        val sep = rangeSpec.indexOf('-');
+        val start = Long.parseLong(rangeSpec.substring(0, sep));
+        val endSpec = rangeSpec.substring(sep + 1);
+        val requestedEnd = (endSpec.isEmpty())? -1 : Long.parseLong(endSpec);
+        readRanges.add(new long[] { start, requestedEnd });
+        if (start >= data.length) {
+            return error(request, 416, "InvalidRange", "The range specified is invalid for the current size of the resource.");
+        }
+        val end = (requestedEnd == -1)? data.length - 1 : Math.min(requestedEnd, data.length - 1);
+        val res = new byte[(int) (end - start + 1)];
+        System.arraycopy(data, (int) start, res, 0, res.length);
+        headers.set("Content-Length", Integer.toString(res.length));
+        headers.set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+        return response(request, 206, headers, res);
+    }
+
+    private synchronized HttpResponse rename(HttpRequest request, String renameSource, String destPath) {
+        val qIdx = renameSource.indexOf('?');
+        val srcPath = decode(renameSource.substring((renameSource.startsWith("/"))? 1 : 0,
+                (qIdx != -1)? qIdx : renameSource.length()));
+        val node = nodes.get(srcPath);
+        if (node == null) {
+            return error(request, 404, "SourcePathNotFound", "The source path for a rename operation does not exist.");
+        }
+        val moved = new TreeMap<String, Node>();
+        for(val e : nodes.tailMap(srcPath, true).entrySet()) {
+            if (! e.getKey().equals(srcPath) && ! e.getKey().startsWith(srcPath + "/")) {
+                break;
+            }
+            moved.put(destPath + e.getKey().substring(srcPath.length()), e.getValue());
+        }
+        nodes.keySet().removeIf(p -> p.equals(srcPath) || p.startsWith(srcPath + "/"));
+        createNode(destPath, node.isDir); // parents
+        nodes.putAll(moved);
+        return response(request, 201, new HttpHeaders(), null);
+    }
+
+    private synchronized HttpResponse delete(HttpRequest request, String path) {
+        if (! nodes.containsKey(path)) {
+            return error(request, 404, "PathNotFound", "The specified path does not exist.");
+        }
+        nodes.keySet().removeIf(p -> p.equals(path) || p.startsWith(path + "/"));
+        return response(request, 200, new HttpHeaders(), null);
+    }
+
+    /**
+     * listPaths: paths are relative to filesystem, paginated by maxResults, continuation is last returned path
+     */
+    private HttpResponse list(HttpRequest request, String fileSystem, Map<String, String> query) {
+        incr("list");
+        val directory = query.get("directory");
+        val recursive = "true".equals(query.get("recursive"));
+        val maxResults = Math.min(listMaxResults, (query.get("maxResults") != null)? Integer.parseInt(query.get("maxResults")) : 5000);
+        val continuation = query.get("continuation");
+        val prefix = fileSystem + "/" + ((directory != null && ! directory.isEmpty())? directory + "/" : "");
+        val json = new StringBuilder("{\"paths\":[");
+        String nextContinuation = null;
+        synchronized(this) {
+            if (directory != null && ! directory.isEmpty() && ! nodes.containsKey(fileSystem + "/" + directory)) {
+                return error(request, 404, "PathNotFound", "The specified path does not exist.");
+            }
+            int count = 0;
+            String lastReturned = null;
+            for(val e : nodes.tailMap(prefix, false).entrySet()) {
+                val nodePath = e.getKey();
+                if (! nodePath.startsWith(prefix)) {
+                    break;
+                }
+                val relPath = nodePath.substring(fileSystem.length() + 1);
+                if (! recursive && nodePath.indexOf('/', prefix.length()) != -1) {
+                    continue;
+                }
+                if (continuation != null && relPath.compareTo(continuation) <= 0) {
+                    continue;
+                }
+                if (count == maxResults) {
+                    nextContinuation = lastReturned;
+                    break;
+                }
+                val node = e.getValue();
+                if (count > 0) {
+                    json.append(",");
+                }
+                json.append("{\"name\":\"").append(relPath).append("\"")
+                    .append(",\"isDirectory\":\"").append(node.isDir).append("\"")
+                    .append(",\"contentLength\":\"").append(node.data.length).append("\"")
+                    .append(",\"lastModified\":\"").append(RFC1123.format(node.lastModified)).append("\"")
+                    .append(",\"etag\":\"0x").append(node.etag).append("\"}");
+                count++;
+                lastReturned = relPath;
+            }
+        }
+        json.append("]}");
+        val headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json;charset=utf-8");
+        if (nextContinuation != null) {
+            headers.set("x-ms-continuation", nextContinuation);
+        }
+        return response(request, 200, headers, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ------------------------------------------------------------------------
+
+    private void incr(String operation) {
+        requestCounts.computeIfAbsent(operation, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private HttpHeaders newHeaders(Node node) {
+        val res = new HttpHeaders();
+        res.set("ETag", "\"0x" + node.etag + "\"");
+        res.set("Last-Modified", RFC1123.format(node.lastModified));
+        return res;
+    }
+
+    private static HttpResponse error(HttpRequest request, int statusCode, String errorCode, String message) {
+        val headers = new HttpHeaders();
+        headers.set("x-ms-error-code", errorCode);
+        byte[] body = null;
+        if (message != null && request.getHttpMethod() != HttpMethod.HEAD) {
+            if (request.getUrl().getHost().contains(".dfs.")) {
+                headers.set("Content-Type", "application/json;charset=utf-8");
+                body = ("{\"error\":{\"code\":\"" + errorCode + "\",\"message\":\"" + message + "\"}}").getBytes(StandardCharsets.UTF_8);
+            } else {
+                headers.set("Content-Type", "application/xml");
+                body = ("<?xml version=\"1.0\" encoding=\"utf-8\"?><Error><Code>" + errorCode + "</Code><Message>" + message
+                        + "</Message></Error>").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return response(request, statusCode, headers, body);
+    }
+
+    private static HttpResponse response(HttpRequest request, int statusCode, HttpHeaders headers, byte[] body) {
+        headers.set("x-ms-request-id", "test");
+        headers.set("x-ms-version", "2021-06-08");
+        if (headers.getValue("Content-Length") == null) {
+            headers.set("Content-Length", Integer.toString((body != null)? body.length : 0));
+        }
+        return new InMemoryHttpResponse(request, statusCode, headers, (body != null)? body : new byte[0]);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        val res = new HashMap<String, String>();
+        if (query == null || query.isEmpty()) {
+            return res;
+        }
+        for(val param : query.split("&")) {
+            val idx = param.indexOf('=');
+            if (idx == -1) {
+                res.put(decode(param), "");
+            } else {
+                res.put(decode(param.substring(0, idx)), decode(param.substring(idx + 1)));
+            }
+        }
+        return res;
+    }
+
+    private static String decode(String text) {
+        try {
+            return URLDecoder.decode(text.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * fully buffered http response
+     */
+    private static class InMemoryHttpResponse extends HttpResponse {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        InMemoryHttpResponse(HttpRequest request, int statusCode, HttpHeaders headers, byte[] body) {
+            super(request);
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeaderValue(String name) {
+            return headers.getValue(name);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Flux<ByteBuffer> getBody() {
+            return (body.length == 0)? Flux.empty() : Flux.just(ByteBuffer.wrap(body));
+        }
+
+        @Override
+        public Mono<byte[]> getBodyAsByteArray() {
+            return (body.length == 0)? Mono.empty() : Mono.just(body);
+        }
+
+        @Override
+        public Mono<String> getBodyAsString() {
+            return getBodyAsString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Mono<String> getBodyAsString(Charset charset) {
+            return (body.length == 0)? Mono.empty() : Mono.just(new String(body, charset));
+        }
+    }
+
+}
@@ -0,0 +1,411 @@
+package org.simplestorage4j.hadoop3;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.ByteBufferReadable;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.fs.StreamCapabilities;
+import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStorageListOptions;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+import org.simplestorage4j.api.SeekableBlobInputStream;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * BlobStorage on a Hadoop FileSystem (hdfs://, file://, or any connector), under a base dir
+ *
+ * reads use PositionedReadable.readFully() (pread, no seek on shared stream),
+ * and ByteBuffer positional reads when supported by the stream.
+ */
+@Slf4j
+public class HadoopFsBlobStorage extends BlobStorage {
+
+	/** stream capability name, same as deprecated StreamCapabilities.HFLUSH */
+	private static final String CAPABILITY_HFLUSH = "hflush";
+
+	public final FileSystem fs;
+
+	public final Path baseDir;
+
+	/** path of baseDir in fs (qualified, without scheme/authority), for converting listed paths to relative */
+	private final String baseDirUriPath;
+
+	// ------------------------------------------------------------------------
+
+	public HadoopFsBlobStorage(
+			BlobStorageId id, BlobStorageGroupId groupId, String displayName, //
+			FileSystem fs, Path baseDir) {
+		super(id, groupId, displayName);
+		this.fs = fs;
+		this.baseDir = fs.makeQualified(baseDir);
+		this.baseDirUriPath = this.baseDir.toUri().getPath();
+	}
+
+	// ------------------------------------------------------------------------
+
+	protected Path toFsPath(String filePath) {
+		String subPath = filePath;
+		while(subPath.startsWith("/")) {
+			subPath = subPath.substring(1);
+		}
+		return (subPath.isEmpty())? baseDir : new Path(baseDir, subPath);
+	}
+
+	/**
+	 * @return path relative to baseDir, without leading "/" (same as paths given to list())
+	 */
+	protected String toRelativePath(Path fsPath) {
+		val uriPath = fsPath.toUri().getPath();
+		val baseLen = baseDirUriPath.length();
+		if (! uriPath.startsWith(baseDirUriPath)
+				|| (uriPath.length() > baseLen && ! baseDirUriPath.endsWith("/") && uriPath.charAt(baseLen) != '/')) {
+			throw new IllegalStateException("path '" + fsPath + "' not under base dir '" + baseDir + "'");
+		}
+		String res = uriPath.substring(baseLen);
+		while(res.startsWith("/")) {
+			res = res.substring(1);
+		}
+		return res;
+	}
+
+	protected BlobStoreFileInfo toBlobStoreFileInfo(String relativePath, FileStatus status) {
+		val isDir = status.isDirectory();
+		return new BlobStoreFileInfo(relativePath, isDir, (isDir)? 0 : status.getLen(), status.getModificationTime());
+	}
+
+	@Override
+	public BlobStoreFileInfo pathInfo(String filePath) {
+		val path = toFsPath(filePath);
+		try {
+			val status = fs.getFileStatus(path);
+			return toBlobStoreFileInfo(filePath, status);
+		} catch(FileNotFoundException ex) {
+			return null;
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to get file status '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public boolean exists(String filePath) {
+		val path = toFsPath(filePath);
+		try {
+			return fs.exists(path);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed exists '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public void mkdirs(String filePath) {
+		log.info("mkdirs " + displayName + " '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try {
+			fs.mkdirs(path);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to mkdirs '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public List<BlobStoreFileInfo> list(String filePath) {
+		val path = toFsPath(filePath);
+		FileStatus[] statuses;
+		try {
+			statuses = fs.listStatus(path);
+		} catch(FileNotFoundException ex) {
+			return new ArrayList<>();
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to list '" + filePath + "'", ex);
+		}
+		val parentPath = (filePath.isEmpty() || filePath.endsWith("/"))? filePath : filePath + "/";
+		val res = new ArrayList<BlobStoreFileInfo>(statuses.length);
+		for(val status : statuses) {
+			res.add(toBlobStoreFileInfo(parentPath + status.getPath().getName(), status));
+		}
+		return res;
+	}
+
+	/**
+	 * when dirs are not needed: using <code>FileSystem.listFiles(path, true)</code> (single paged remote iterator on hdfs),
+	 * otherwise default walk of dirs
+	 */
+	@Override
+	public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String filePath, BlobStorageListOptions options) {
+		if (options.isIncludeDirs()) {
+			return super.listRecursive(filePath, options);
+		}
+		val path = toFsPath(filePath);
+		val pageSize = Math.max(1, options.getPageSize());
+		return new PrefetchingPageIterator<BlobStoreFileInfo>(listPrefetchExecutor(options)) {
+			RemoteIterator<LocatedFileStatus> remoteIter;
+			boolean done;
+
+			@Override
+			protected List<BlobStoreFileInfo> fetchNextPage() {
+				if (done) {
+					return null;
+				}
+				try {
+					if (remoteIter == null) {
+						remoteIter = fs.listFiles(path, true);
+					}
+					val res = new ArrayList<BlobStoreFileInfo>();
+					while(res.size() < pageSize && remoteIter.hasNext()) {
+						val status = remoteIter.next();
+						res.add(toBlobStoreFileInfo(toRelativePath(status.getPath()), status));
+					}
+					if (! remoteIter.hasNext()) {
+						done = true;
+					}
+					return res;
+				} catch(FileNotFoundException ex) {
+					done = true;
+					return null;
+				} catch(IOException ex) {
+					throw new RuntimeException("Failed to list recursive '" + filePath + "'", ex);
+				}
+			}
+		};
+	}
+
+	@Override
+	public void deleteFile(String filePath) {
+		log.info("delete " + displayName + " file '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try {
+			fs.delete(path, false);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to delete '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public void renameFile(String filePath, String newFilePath) {
+		log.info("rename " + displayName + " file '" + filePath + "' -> '" + newFilePath + "'");
+		val path = toFsPath(filePath);
+		val newPath = toFsPath(newFilePath);
+		boolean renamed;
+		try {
+			renamed = fs.rename(path, newPath);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to rename '" + filePath + "' -> '" + newFilePath + "'", ex);
+		}
+		if (! renamed) {
+			throw new RuntimeException("Failed to rename '" + filePath + "' -> '" + newFilePath + "'");
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * when append: open for append (or create if not exists).
+	 * When the fs stream supports hflush, returned stream flush() does hflush(): flushed data is visible to new readers
+	 */
+	@Override
+	public OutputStream openWrite(String filePath, boolean append) {
+		log.info("open write" + ((append)? "-append" : "") + " to " + displayName + " file '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try {
+			val fsOut = fsOpenWrite(path, append);
+			if (! fsOut.hasCapability(CAPABILITY_HFLUSH)) {
+				return fsOut;
+			}
+			return new FilterOutputStream(fsOut) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					fsOut.write(b, off, len);
+				}
+				@Override
+				public void flush() throws IOException {
+					fsOut.hflush();
+				}
+			};
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to open write to file '" + filePath + "'", ex);
+		}
+	}
+
+	/**
+	 * @throws UnsupportedOperationException when append is not supported by fs (ex: LocalFileSystem with checksums)
+	 */
+	protected FSDataOutputStream fsOpenWrite(Path path, boolean append) throws IOException {
+		if (append && fs.exists(path)) {
+			return fs.append(path);
+		}
+		return fs.create(path, true);
+	}
+
+	@Override
+	public InputStream openRead(String filePath, long position) {
+		log.info("open read from " + displayName + " file '" + filePath + "' pos:" + position);
+		val path = toFsPath(filePath);
+		try {
+			val in = fs.open(path);
+			if (position != 0) {
+				try {
+					in.seek(position);
+				} catch(IOException ex) {
+					in.close();
+					throw ex;
+				}
+			}
+			return in;
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to open read from file '" + filePath + "' pos:" + position, ex);
+		}
+	}
+
+	/**
+	 * using FSDataInputStream.seek(): no re-open needed
+	 */
+	@Override
+	public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+		val in = (FSDataInputStream) openRead(filePath, position);
+		return new SeekableBlobInputStream() {
+			@Override
+			public void seek(long pos) throws IOException {
+				in.seek(pos);
+			}
+			@Override
+			public long getPos() throws IOException {
+				return in.getPos();
+			}
+			@Override
+			public int read() throws IOException {
+				return in.read();
+			}
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return in.read(b, off, len);
+			}
+			@Override
+			public int available() throws IOException {
+				return in.available();
+			}
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		};
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data) {
+		writeFile(filePath, data, 0, data.length);
+	}
+
+	@Override
+	public void writeFile(String filePath, byte[] data, int off, int len) {
+		log.info("write to " + displayName + " file '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try (val out = fs.create(path, true)) {
+			out.write(data, off, len);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to write to file '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public void writeAppendToFile(String filePath, byte[] appendData) {
+		// too verbose..
+		// log.info("write append to " + displayName + " file '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try (val out = fsOpenWrite(path, true)) {
+			out.write(appendData);
+		} catch(UnsupportedOperationException ex) {
+			// fallback for fs without append: rewrite whole file (small files only, ex: logs)
+			val prevData = readFile(filePath);
+			try (val out = fs.create(path, true)) {
+				out.write(prevData);
+				out.write(appendData);
+			} catch(IOException ex2) {
+				throw new RuntimeException("Failed to write append to file '" + filePath + "'", ex2);
+			}
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to write append to file '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public byte[] readFile(String filePath) {
+		log.info("read " + displayName + " file '" + filePath + "'");
+		val path = toFsPath(filePath);
+		try (val in = fs.open(path)) {
+			long lenLong = fs.getFileStatus(path).getLen(); // only 2Go supported here
+			if (lenLong > Integer.MAX_VALUE) {
+				throw new UnsupportedOperationException();
+			}
+			val res = new byte[(int) lenLong];
+			in.readFully(0, res);
+			return res;
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "'", ex);
+		}
+	}
+
+	@Override
+	public void readAt(byte[] resBuffer, int resPos, String filePath, long position, int len) {
+		val path = toFsPath(filePath);
+		try (val in = fs.open(path)) {
+			in.readFully(position, resBuffer, resPos, len);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ", " + len + ")", ex);
+		}
+	}
+
+	/**
+	 * positional read directly into dst when the fs stream supports ByteBuffer reads
+	 * (hdfs: no intermediate copy for direct buffers), otherwise default adapter
+	 */
+	@Override
+	public void readAt(ByteBuffer dst, String filePath, long position) {
+		val path = toFsPath(filePath);
+		try (val in = fs.open(path)) {
+			if (in.hasCapability(StreamCapabilities.PREADBYTEBUFFER)) {
+				in.readFully(position, dst);
+				return;
+			}
+			if (in.getWrappedStream() instanceof ByteBufferReadable) {
+				in.seek(position);
+				while(dst.hasRemaining()) {
+					int count = in.read(dst);
+					if (count < 0) {
+						throw new EOFException("read at " + position + " after EOF '" + filePath + "'");
+					}
+				}
+				return;
+			}
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to read file '" + filePath + "' at(" + position + ")", ex);
+		}
+		super.readAt(dst, filePath, position);
+	}
+
+	@Override
+	public String toString() {
+		return "{HadoopFsBlobStorage " + id //
+				+ " dir=" + baseDir //
+				+ "}";
+	}
+
+}
@@ -0,0 +1,190 @@
+package org.simplestorage4j.hadoop3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStorageListOptions;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+
+import lombok.val;
+
+public class HadoopFsBlobStorageTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private FileSystem localFs;
+	private HadoopFsBlobStorage storage;
+
+	@Before
+	public void setUp() throws Exception {
+		localFs = FileSystem.getLocal(new Configuration());
+		storage = newStorage(localFs, "base");
+	}
+
+	private HadoopFsBlobStorage newStorage(FileSystem fs, String baseDirName) {
+		val baseDir = new Path(tempFolder.getRoot().getAbsolutePath(), baseDirName);
+		return new HadoopFsBlobStorage(BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", fs, baseDir);
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void writeTree() {
+		storage.mkdirs("dir/sub");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		storage.writeFile("dir/sub/b.txt", bytes("bb"));
+	}
+
+	private List<String> listRecursivePaths(String path, BlobStorageListOptions options) throws Exception {
+		List<String> res = new ArrayList<>();
+		try (PrefetchingPageIterator<BlobStoreFileInfo> iter = storage.listRecursive(path, options)) {
+			while(iter.hasNext()) {
+				BlobStoreFileInfo info = iter.next();
+				res.add(info.path + ((info.isDir)? "/" : ""));
+			}
+		}
+		Collections.sort(res);
+		return res;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testWriteReadFile_pathInfo() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("hello"));
+		assertArrayEquals(bytes("hello"), storage.readFile("dir/a.txt"));
+		assertArrayEquals(bytes("hello"), storage.readFile("/dir/a.txt"));
+
+		val info = storage.pathInfo("dir/a.txt");
+		assertEquals("dir/a.txt", info.path);
+		assertFalse(info.isDir);
+		assertEquals(5, info.fileLength);
+		assertTrue(storage.pathInfo("dir").isDir);
+		assertNull(storage.pathInfo("missing"));
+		assertTrue(storage.exists("dir/a.txt"));
+		assertFalse(storage.exists("missing"));
+	}
+
+	@Test
+	public void testList() {
+		writeTree();
+		List<String> res = new ArrayList<>();
+		for(BlobStoreFileInfo info : storage.list("dir")) {
+			res.add(info.path + ((info.isDir)? "/" : ""));
+		}
+		Collections.sort(res);
+		assertEquals(Arrays.asList("dir/a.txt", "dir/sub/"), res);
+		assertTrue(storage.list("missing").isEmpty());
+	}
+
+	@Test
+	public void testListRecursive_filesOnly_relativePaths() throws Exception {
+		writeTree();
+		val res = listRecursivePaths("dir", new BlobStorageListOptions(false, 1, true));
+		assertEquals(Arrays.asList("dir/a.txt", "dir/sub/b.txt"), res);
+		assertEquals(Collections.emptyList(), listRecursivePaths("missing", new BlobStorageListOptions(false, 10, false)));
+	}
+
+	@Test
+	public void testListRecursive_includeDirs() throws Exception {
+		writeTree();
+		val res = listRecursivePaths("dir", new BlobStorageListOptions());
+		assertEquals(Arrays.asList("dir/a.txt", "dir/sub/", "dir/sub/b.txt"), res);
+	}
+
+	@Test
+	public void testToRelativePath() {
+		assertEquals("dir/a.txt", storage.toRelativePath(storage.toFsPath("dir/a.txt")));
+		assertEquals("", storage.toRelativePath(storage.baseDir));
+		val siblingPath = new Path(tempFolder.getRoot().getAbsolutePath(), "base2/a.txt");
+		try {
+			storage.toRelativePath(localFs.makeQualified(siblingPath));
+			fail();
+		} catch(IllegalStateException ex) {
+			// ok
+		}
+	}
+
+	@Test
+	public void testWriteAppendToFile() {
+		storage.mkdirs("dir");
+		storage.writeAppendToFile("dir/log.txt", bytes("abc"));
+		storage.writeAppendToFile("dir/log.txt", bytes("def"));
+		assertArrayEquals(bytes("abcdef"), storage.readFile("dir/log.txt"));
+	}
+
+	@Test
+	public void testReadAt() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("0123456789"));
+		val buffer = new byte[4];
+		storage.readAt(buffer, 0, "dir/a.txt", 3, 4);
+		assertArrayEquals(bytes("3456"), buffer);
+
+		val dst = ByteBuffer.allocateDirect(3);
+		storage.readAt(dst, "dir/a.txt", 7);
+		dst.flip();
+		val res = new byte[3];
+		dst.get(res);
+		assertArrayEquals(bytes("789"), res);
+	}
+
+	@Test
+	public void testOpenWrite_flushVisible() throws Exception {
+		val rawFs = new RawLocalFileSystem();
+		rawFs.initialize(rawFs.getUri(), new Configuration());
+		val rawStorage = newStorage(rawFs, "raw");
+		rawStorage.mkdirs("dir");
+		try (OutputStream out = rawStorage.openWrite("dir/a.txt", false)) {
+			out.write(bytes("abc"));
+			out.flush();
+			assertArrayEquals(bytes("abc"), rawStorage.readFile("dir/a.txt"));
+			out.write(bytes("def"));
+		}
+		assertArrayEquals(bytes("abcdef"), rawStorage.readFile("dir/a.txt"));
+	}
+
+	@Test
+	public void testRenameDelete() {
+		storage.mkdirs("dir");
+		storage.writeFile("dir/a.txt", bytes("a"));
+		storage.renameFile("dir/a.txt", "dir/b.txt");
+		assertFalse(storage.exists("dir/a.txt"));
+		assertArrayEquals(bytes("a"), storage.readFile("dir/b.txt"));
+		storage.deleteFile("dir/b.txt");
+		assertFalse(storage.exists("dir/b.txt"));
+		try {
+			storage.renameFile("dir/missing", "dir/c.txt");
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+	}
+
+}
@@ -1,25 +1,36 @@
 package org.simplestorage4j.opscommon.configuration;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.simplestorage4j.api.BlobStorage;
 import org.simplestorage4j.api.BlobStorageGroupId;
 import org.simplestorage4j.api.BlobStorageId;
 import org.simplestorage4j.api.BlobStorageRepository;
+import org.simplestorage4j.api.CachingBlobStorage;
 import org.simplestorage4j.api.FileBlobStorage;
+import org.simplestorage4j.api.HedgedReadBlobStorage;
+import org.simplestorage4j.api.RateLimitedBlobStorage;
+import org.simplestorage4j.api.ReadThroughCachingBlobStorage;
 import org.simplestorage4j.api.ops.encoder.BlobStorageOperationDtoResolver;
+import org.simplestorage4j.api.util.BlobStorageRateLimiter;
 import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.azure.datalake.AdlsGen2AsyncBlobStorage;
 import org.simplestorage4j.azure.datalake.AdlsGen2BlobStorage;
 import org.simplestorage4j.azure.datalake.configuration.AzureStorageFactoryUtils;
+import org.simplestorage4j.hadoop3.HadoopFsBlobStorage;
 import org.simplestorage4j.opscommon.configuration.CommonStorageOpsAppParams.BlobStorageParams;
 import org.simplestorage4j.s3.BucketAsFirstDirS3BlobStorage;
 import org.simplestorage4j.s3.FixedBucketS3BlobStorage;
 import org.simplestorage4j.s3.S3Client;
 import org.simplestorage4j.s3.S3ClientParams;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -54,6 +65,49 @@ public class CommonStorageOpsAppConfiguration {
 	}
 	
 	public static BlobStorage createBlobStorage(BlobStorageParams params) {
+		BlobStorage res = createUndecoratedBlobStorage(params);
+		val rateLimitParams = params.getRateLimit();
+		if (rateLimitParams != null && rateLimitParams.isEnabled()) {
+			val limiterDisplayName = (rateLimitParams.isSharedByGroup())? res.groupId.toString() : res.displayName;
+			Supplier<BlobStorageRateLimiter> limiterFactory = () -> new BlobStorageRateLimiter(limiterDisplayName, 
+					rateLimitParams.getReadBytesPerSecond(), rateLimitParams.getWriteBytesPerSecond(), 
+					rateLimitParams.getRequestsPerSecond());
+			val rateLimiter = (rateLimitParams.isSharedByGroup())? 
+					BlobStorageRateLimiter.sharedOfGroup(res.groupId, limiterFactory) : limiterFactory.get();
+			res = new RateLimitedBlobStorage(res, rateLimiter);
+		}
+		val hedgedReadParams = params.getHedgedRead();
+		if (hedgedReadParams != null && hedgedReadParams.isEnabled()) {
+			val hedgedRes = new HedgedReadBlobStorage(res, hedgedReadParams.getMaxThreads());
+			hedgedRes.setPercentile(hedgedReadParams.getPercentile());
+			hedgedRes.setMinHedgeDelayMillis(hedgedReadParams.getMinHedgeDelayMillis());
+			hedgedRes.setMinSamples(hedgedReadParams.getMinSamples());
+			res = hedgedRes;
+		}
+		val metadataCacheParams = params.getMetadataCache();
+		if (metadataCacheParams != null && metadataCacheParams.isEnabled()) {
+			val cachingRes = new CachingBlobStorage(res);
+			cachingRes.setMaxEntries(metadataCacheParams.getMaxEntries());
+			cachingRes.setTtlMillis(metadataCacheParams.getTtlMillis());
+			cachingRes.setNegativeTtlMillis(metadataCacheParams.getNegativeTtlMillis());
+			res = cachingRes;
+		}
+		val readCacheParams = params.getReadCache();
+		if (readCacheParams != null && readCacheParams.isEnabled()) {
+			val cacheDir = new File(Objects.requireNonNull(readCacheParams.getDir()));
+			if (! cacheDir.exists()) {
+				log.info("creating read cache dir " + cacheDir + " for BlobStorage id:" + res.id);
+				cacheDir.mkdirs();
+			}
+			val cacheStorage = new FileBlobStorage(BlobStorageId.of(res.id.id + "-readcache"), res.groupId, //
+					res.displayName + "-readcache", cacheDir);
+			res = new ReadThroughCachingBlobStorage(res, cacheStorage, 
+					readCacheParams.getBlockSize(), readCacheParams.getMaxBytes());
+		}
+		return res;
+	}
+
+	private static BlobStorage createUndecoratedBlobStorage(BlobStorageParams params) {
 		val className = params.getClassname();
 		val idText = Objects.requireNonNull(params.getId());
 		val id = BlobStorageId.of(idText);
@@ -67,7 +121,11 @@ public class CommonStorageOpsAppConfiguration {
 		case "FixedBucketS3BlobStorage":
 			return createFixedBucketS3BlobStorage(id, groupId, displayName, params);
 		case "AdlsGen2BlobStorage":
-			return createAdlsGen2BlobStorage(id, groupId, displayName, params);
+			return createAdlsGen2BlobStorage(id, groupId, displayName, params, false);
+		case "AdlsGen2AsyncBlobStorage":
+			return createAdlsGen2BlobStorage(id, groupId, displayName, params, true);
+		case "HadoopFsBlobStorage":
+			return createHadoopFsBlobStorage(id, groupId, displayName, params);
 		default:
 			throw new IllegalArgumentException("unsupported BlobStorage classname '" + className + "'");
 		}
@@ -128,12 +186,44 @@ public class CommonStorageOpsAppConfiguration {
 				props.get("region"),
 				params.getClientId(), params.getClientSecret() //  // accessKey, secretKey
 				);
+		val multipartPartSize = props.get("multipartPartSize");
+		if (multipartPartSize != null) {
+			s3Params.setMultipartPartSize(Integer.parseInt(multipartPartSize));
+		}
+		val multipartUploadConcurrency = props.get("multipartUploadConcurrency");
+		if (multipartUploadConcurrency != null) {
+			s3Params.setMultipartUploadConcurrency(Integer.parseInt(multipartUploadConcurrency));
+		}
+		val parallelReadThreshold = props.get("parallelReadThreshold");
+		if (parallelReadThreshold != null) {
+			s3Params.setParallelReadThreshold(Integer.parseInt(parallelReadThreshold));
+		}
+		val firstReadRangeSize = props.get("firstReadRangeSize");
+		if (firstReadRangeSize != null) {
+			s3Params.setFirstReadRangeSize(Integer.parseInt(firstReadRangeSize));
+		}
+		val parallelReadPartSize = props.get("parallelReadPartSize");
+		if (parallelReadPartSize != null) {
+			s3Params.setParallelReadPartSize(Integer.parseInt(parallelReadPartSize));
+		}
+		val parallelReadConcurrency = props.get("parallelReadConcurrency");
+		if (parallelReadConcurrency != null) {
+			s3Params.setParallelReadConcurrency(Integer.parseInt(parallelReadConcurrency));
+		}
+		val transferThreadPoolSize = props.get("transferThreadPoolSize");
+		if (transferThreadPoolSize != null) {
+			s3Params.setTransferThreadPoolSize(Integer.parseInt(transferThreadPoolSize));
+		}
+		val maxConnections = props.get("maxConnections");
+		if (maxConnections != null) {
+			s3Params.setMaxConnections(Integer.parseInt(maxConnections));
+		}
 		return new S3Client(displayName, s3Params);
 	}	
 
 	private static BlobStorage createAdlsGen2BlobStorage( //
 			BlobStorageId id, BlobStorageGroupId groupId, String displayName, //
-			BlobStorageParams params) {
+			BlobStorageParams params, boolean async) {
 		val props = Objects.requireNonNull(params.getProps()); 
 		boolean useOkHttp = true; // TOADD params..
 		boolean wrapVerboseHttpCli = false; // TOADD params..
@@ -166,7 +256,59 @@ public class CommonStorageOpsAppConfiguration {
 				storageAccountEndpoint, credential, verboseAdlsGen2, logLevel);
 		val azDatalakeFileSystemClient = azDatalakeServiceClient.getFileSystemClient(fileSystem);
 		DataLakeDirectoryClient baseDirClient = azDatalakeFileSystemClient.getDirectoryClient(directoryName);
-		return new AdlsGen2BlobStorage(id, groupId, displayName, baseDirClient);
+		AdlsGen2BlobStorage res;
+		if (async) {
+			val azDatalakeServiceAsyncClient = AzureStorageFactoryUtils.createDataLakeServiceAsyncClient(azureHttpClient, 
+					storageAccountEndpoint, credential, verboseAdlsGen2, logLevel);
+			val baseDirAsyncClient = azDatalakeServiceAsyncClient.getFileSystemAsyncClient(fileSystem).getDirectoryAsyncClient(directoryName);
+			val asyncRes = new AdlsGen2AsyncBlobStorage(id, groupId, displayName, baseDirClient, baseDirAsyncClient);
+			val maxConcurrency = props.get("maxConcurrency");
+			if (maxConcurrency != null) {
+				asyncRes.setMaxConcurrency(Integer.parseInt(maxConcurrency));
+			}
+			res = asyncRes;
+		} else {
+			res = new AdlsGen2BlobStorage(id, groupId, displayName, baseDirClient);
+		}
+		val writeChunkSize = props.get("writeChunkSize");
+		if (writeChunkSize != null) {
+			res.setWriteChunkSize(Integer.parseInt(writeChunkSize));
+		}
+		val writeMaxInFlightChunks = props.get("writeMaxInFlightChunks");
+		if (writeMaxInFlightChunks != null) {
+			res.setWriteMaxInFlightChunks(Integer.parseInt(writeMaxInFlightChunks));
+		}
+		val transferThreadPoolSize = props.get("transferThreadPoolSize");
+		if (transferThreadPoolSize != null) {
+			res.setTransferThreadPoolSize(Integer.parseInt(transferThreadPoolSize));
+		}
+		return res;
+	}
+
+	/**
+	 * url: base dir, with fs scheme (hdfs://namenode:8020/dir, file:///dir, ..)
+	 * props: "hadoop.*" props are set in hadoop Configuration (without prefix), ex: "hadoop.dfs.client.use.datanode.hostname"
+	 */
+	private static BlobStorage createHadoopFsBlobStorage( //
+			BlobStorageId id, BlobStorageGroupId groupId, String displayName, //
+			BlobStorageParams params) {
+		// (fully qualified: conflicts with spring @Configuration)
+		org.apache.hadoop.conf.Configuration hadoopConf = new org.apache.hadoop.conf.Configuration();
+		val props = params.getProps();
+		if (props != null) {
+			for(val e : props.entrySet()) {
+				if (e.getKey().startsWith("hadoop.")) {
+					hadoopConf.set(e.getKey().substring("hadoop.".length()), e.getValue());
+				}
+			}
+		}
+		Path baseDir = new Path(Objects.requireNonNull(params.getUrl()));
+		try {
+			FileSystem fs = baseDir.getFileSystem(hadoopConf);
+			return new HadoopFsBlobStorage(id, groupId, displayName, fs, baseDir);
+		} catch(IOException ex) {
+			throw new RuntimeException("Failed to create hadoop FileSystem for '" + baseDir + "'", ex);
+		}
 	}
 
 }
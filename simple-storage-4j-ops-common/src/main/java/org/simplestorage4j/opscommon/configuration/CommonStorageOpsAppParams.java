@@ -21,11 +21,61 @@ public class CommonStorageOpsAppParams {
 		private String id;
 		private String groupId;
 		private String displayName;
-		private String classname; // "FileBlobStorage", "AdlsGen2BlobStorage", .. 
+		private String classname; // "FileBlobStorage", "AdlsGen2BlobStorage", "AdlsGen2AsyncBlobStorage", "HadoopFsBlobStorage", .. 
 		private String url;
 		private String clientId;
 		private String clientSecret;
 		private Map<String,String> props;
+
+		/** optional, when set: storage is wrapped in a RateLimitedBlobStorage (innermost, before caches) */
+		private RateLimitParams rateLimit;
+
+		/** optional, when set: storage is wrapped in a HedgedReadBlobStorage (after rateLimit, before caches) */
+		private HedgedReadParams hedgedRead;
+
+		/** optional, when set: storage is wrapped in a CachingBlobStorage */
+		private MetadataCacheParams metadataCache;
+
+		/** optional, when set: storage is wrapped in a ReadThroughCachingBlobStorage (after metadataCache) */
+		private ReadCacheParams readCache;
+	}
+
+	@Getter @Setter
+	public static class RateLimitParams {
+		private boolean enabled = true;
+		/** limits, 0 for unlimited (still cut on throttling) */
+		private long readBytesPerSecond;
+		private long writeBytesPerSecond;
+		private double requestsPerSecond;
+		/** when true: limits shared by all storages of same groupId, otherwise per storage id */
+		private boolean sharedByGroup;
+	}
+
+	@Getter @Setter
+	public static class HedgedReadParams {
+		private boolean enabled = true;
+		/** latency percentile of recent reads after which a duplicate read is issued */
+		private double percentile = 0.95;
+		private long minHedgeDelayMillis = 20;
+		private int minSamples = 20;
+		private int maxThreads = 64;
+	}
+
+	@Getter @Setter
+	public static class MetadataCacheParams {
+		private boolean enabled = true;
+		private int maxEntries = 10_000;
+		private long ttlMillis = 30_000;
+		private long negativeTtlMillis = 5_000;
+	}
+
+	@Getter @Setter
+	public static class ReadCacheParams {
+		private boolean enabled = true;
+		/** local dir for cached blocks */
+		private String dir;
+		private int blockSize = 4 * 1024 * 1024;
+		private long maxBytes = 10L * 1024 * 1024 * 1024;
 	}
 
 }
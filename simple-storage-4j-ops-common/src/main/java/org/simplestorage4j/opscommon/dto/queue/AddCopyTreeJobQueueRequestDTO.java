@@ -0,0 +1,34 @@
+package org.simplestorage4j.opscommon.dto.queue;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.simplestorage4j.api.ops.dto.BlobStoragePathDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+/**
+ * request to create a job queue, filled server-side by walking srcDir tree:
+ * 1 mkdir op per dir, 1 copy-file op per file, to the same relative path under destDir
+ */
+@NoArgsConstructor @AllArgsConstructor
+public class AddCopyTreeJobQueueRequestDTO implements Serializable {
+
+	/** */
+	private static final long serialVersionUID = 1L;
+
+	public String displayMessage;
+	public Map<String,String> props;
+
+	public BlobStoragePathDTO srcDir;
+	public BlobStoragePathDTO destDir;
+
+	/** glob patterns on paths relative to srcDir, for files to include (all files when empty) */
+	public List<String> includes;
+
+	/** glob patterns on paths relative to srcDir, for files or dirs to exclude */
+	public List<String> excludes;
+
+}
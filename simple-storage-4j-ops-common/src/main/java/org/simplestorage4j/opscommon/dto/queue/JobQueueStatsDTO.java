@@ -22,6 +22,11 @@ public class JobQueueStatsDTO implements Serializable {
 	public long lastPollingActiveChangedTime;
 	public long totalElapsedPollingActiveTime;
 	public long totalElapsedPollingSuspendedTime;
+
+	/** for copy-tree jobs: true while src tree is still walked (more ops may be added) */
+	public boolean treeWalkRunning;
+	/** for copy-tree jobs: error message when src tree walk failed (job queue is incomplete) */
+	public String treeWalkError;
 	
 	public QueueStatsDTO queueStats;
 
@@ -24,6 +24,8 @@ public class OpsExecutorAppParams {
 	private int opsPollAheadCount = 5;
 	private int opSubTasksThreadCount = 20;
 	private int opLargeFileRangeThreadCount = 10;
+	private int opLargeFileMaxInFlightBlocks = 4; // per large file copy
+	private int opLargeFileMaxInFlightMBytes = 512; // shared by all ops of executor
 	
 	private int maxPingAliveSeconds = 30;
 	
@@ -12,6 +12,7 @@ import org.simplestorage4j.api.iocost.immutable.BlobStorageOperationResult;
 import org.simplestorage4j.api.ops.BlobStorageOperation;
 import org.simplestorage4j.api.ops.BlobStorageOperationExecContext;
 import org.simplestorage4j.api.ops.encoder.BlobStorageOperationDtoResolver;
+import org.simplestorage4j.api.util.BlobStorageBytesBudget;
 import org.simplestorage4j.executor.configuration.OpsExecutorAppParams;
 import org.simplestorage4j.opscommon.dto.executor.ExecutorSessionPollOpsResponseDTO;
 import org.simplestorage4j.opscommon.dto.executor.ExecutorSessionUpdatePollingDTO;
@@ -80,9 +81,12 @@ public class StorageJobOpsExecutorPingAndPoller {
 		callbackClient.onExecutorStart();
 
 		
+		val largeFileBytesBudget = new BlobStorageBytesBudget(
+				opExecutorAppParams.getOpLargeFileMaxInFlightMBytes() * 1024L * 1024L);
 		this.opExecCtx = new BlobStorageOperationExecContext(
 				storageJobOpsExecutorsService.getOpsSubTasksExecutorService(),
-				storageJobOpsExecutorsService.getOpsLargeFileRangeExecutorService());
+				storageJobOpsExecutorsService.getOpsLargeFileRangeExecutorService(),
+				opExecutorAppParams.getOpLargeFileMaxInFlightBlocks(), largeFileBytesBudget);
 		
 		val startPollingTime = System.currentTimeMillis();
 
@@ -8,6 +8,7 @@ import org.simplestorage4j.api.ops.dto.BlobStorageOperationErrorDTO;
 import org.simplestorage4j.api.ops.dto.BlobStorageOperationWarningDTO;
 import org.simplestorage4j.api.ops.executor.BlobStorageOperationError;
 import org.simplestorage4j.api.ops.executor.BlobStorageOperationWarning;
+import org.simplestorage4j.opscommon.dto.queue.AddCopyTreeJobQueueRequestDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddJobOpsQueueRequestDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddJobOpsQueueResponseDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddMockOpsToJobQueueRequestDTO;
@@ -49,6 +50,13 @@ public class StorageJobOpsQueueRestController {
 		return res;
 	}
 	
+	@PutMapping("/copy-tree")
+	@Operation(description = "create Job Queue for copying a dir tree, ops generated server-side by parallel listing")
+	public AddJobOpsQueueResponseDTO createCopyTreeJobQueue(@RequestBody AddCopyTreeJobQueueRequestDTO req) {
+		val res = jobOpsQueueService.createCopyTreeJobQueue(req);
+		return res;
+	}
+
 	@DeleteMapping("/{jobId}")
 	@Operation(description = "delete Job Queue")
 	public void deleteJobQueue(@PathVariable("jobId") long jobId) {
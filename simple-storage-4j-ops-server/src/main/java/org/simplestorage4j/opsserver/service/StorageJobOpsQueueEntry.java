@@ -10,6 +10,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,6 +34,13 @@ public class StorageJobOpsQueueEntry {
 	@Getter
 	private long totalElapsedPollingSuspendedTime;
 
+	/** for copy-tree jobs: true while src tree is walked in background, more ops may still be added */
+	@Getter @Setter
+	private boolean treeWalkRunning;
+	/** for copy-tree jobs: error message when src tree walk failed, queue is then incomplete */
+	@Getter @Setter
+	private String treeWalkError;
+
 	// ------------------------------------------------------------------------
 	
 	public void setPollingActive(boolean p) {
@@ -64,6 +72,7 @@ public class StorageJobOpsQueueEntry {
 				lastPollingActiveChangedTime,
 				totalElapsedPollingActiveTime + ((pollingActive)? elapsedSinceChanged : 0),
 				totalElapsedPollingSuspendedTime + ((! pollingActive)? elapsedSinceChanged : 0),
+				treeWalkRunning, treeWalkError,
 				queueStats);
 	}
 
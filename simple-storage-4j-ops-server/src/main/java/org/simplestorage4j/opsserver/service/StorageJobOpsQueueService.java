@@ -5,19 +5,30 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.GuardedBy;
 
 import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStoragePath;
+import org.simplestorage4j.api.BlobStoreFileInfo;
 import org.simplestorage4j.api.iocost.immutable.BlobStorageOperationResult;
 import org.simplestorage4j.api.ops.BlobStorageOperation;
+import org.simplestorage4j.api.ops.CopyFileStorageOperation;
 import org.simplestorage4j.api.ops.MockSleepStorageOperation;
 import org.simplestorage4j.api.ops.encoder.BlobStorageOperationDtoResolver;
 import org.simplestorage4j.api.ops.executor.BlobStorageJobOperationsPersistedQueue;
 import org.simplestorage4j.api.ops.executor.BlobStorageOperationError;
 import org.simplestorage4j.api.ops.executor.BlobStorageOperationWarning;
+import org.simplestorage4j.api.util.BlobStorageNamedThreadFactory;
+import org.simplestorage4j.api.util.BlobStorageParallelTreeWalker;
 import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.opscommon.dto.queue.AddCopyTreeJobQueueRequestDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddJobOpsQueueRequestDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddJobOpsQueueResponseDTO;
 import org.simplestorage4j.opscommon.dto.queue.AddMockOpsToJobQueueRequestDTO;
@@ -60,13 +71,43 @@ public class StorageJobOpsQueueService {
 	@GuardedBy("lock")
 	private int jobQueueRoundRobinIndex = 0;
 
+	/** max concurrent list() calls of copy-tree jobs, cf createCopyTreeJobQueue() */
+	private int copyTreeListParallelism = 16;
+
+	private final ForkJoinPool copyTreeListPool = new ForkJoinPool(copyTreeListParallelism);
+
+	private final ExecutorService copyTreeWalkExecutor = Executors.newCachedThreadPool(
+			new BlobStorageNamedThreadFactory("copy-tree-walk-", "", true));
+
 	// ------------------------------------------------------------------------
 
+	public StorageJobOpsQueueService() {
+	}
+
+	/*pp*/ StorageJobOpsQueueService(BlobStorageOperationDtoResolver dtoMapper, StorageJobOpsQueueDao storageJobOpsQueueDao) {
+		this.dtoMapper = dtoMapper;
+		this.storageJobOpsQueueDao = storageJobOpsQueueDao;
+	}
+
 	@PostConstruct
 	public void init() {
 		reloadAllData();
 	}
 
+	/**
+	 * stop running copy-tree walks: their job queues stay incomplete (walks are not resumed on restart)
+	 */
+	@PreDestroy
+	public void close() {
+		copyTreeWalkExecutor.shutdownNow();
+		copyTreeListPool.shutdownNow();
+		try {
+			copyTreeWalkExecutor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	// ------------------------------------------------------------------------
 
 	public long newJobId() {
@@ -98,6 +139,77 @@ public class StorageJobOpsQueueService {
 		return new AddJobOpsQueueResponseDTO(jobId);
 	}
 
+	/**
+	 * create job queue, then walk src tree in background (parallel listing), adding copy-file ops
+	 * as soon as discovered, so executors can start copying before the listing finishes.
+	 * Dest dirs are created by the walk itself, before adding copy-file ops of their files: the queue has no
+	 * ordering between ops, so queued mkdir ops could run after copies of their files in parallel executors.
+	 * Walk is not resumed after server restart: already added ops are persisted, but not remaining dirs
+	 */
+	public AddJobOpsQueueResponseDTO createCopyTreeJobQueue(AddCopyTreeJobQueueRequestDTO req) {
+		val srcDir = dtoMapper.toBlobStoragePath(req.srcDir);
+		val destDir = dtoMapper.toBlobStoragePath(req.destDir);
+		val walker = new BlobStorageParallelTreeWalker(copyTreeListPool, req.includes, req.excludes);
+		val jobId = newJobId();
+		val storage = storageJobOpsQueueDao.getStorage();
+		val queueBaseDirPath = storageJobOpsQueueDao.toDirPath(jobId);
+		val persistedQueue = new BlobStorageJobOperationsPersistedQueue(jobId, 
+				storage, queueBaseDirPath);
+		val entry = doAddJobQueue(jobId, req.displayMessage, req.props, persistedQueue);
+		synchronized(lock) {
+			entry.setTreeWalkRunning(true);
+		}
+
+		copyTreeWalkExecutor.execute(() -> {
+			String walkError = null;
+			try {
+				destDir.mkdirs();
+				walker.walk(srcDir.blobStorage, srcDir.path, batch -> addCopyTreeOps(jobId, srcDir, destDir, batch));
+			} catch(Exception ex) {
+				log.error("Failed to walk copy-tree src " + srcDir + " for jobId: " + jobId + " ..job queue is incomplete!", ex);
+				walkError = "Failed to walk copy-tree src " + srcDir + ": " + ex.getMessage();
+			}
+			synchronized(lock) {
+				entry.setTreeWalkError(walkError);
+				entry.setTreeWalkRunning(false);
+			}
+		});
+		return new AddJobOpsQueueResponseDTO(jobId);
+	}
+
+	private void addCopyTreeOps(long jobId, BlobStoragePath srcDir, BlobStoragePath destDir, List<BlobStoreFileInfo> batch) {
+		// create dest sub dirs now, outside lock: walker emits a dir entry before listing its files
+		int fileCount = 0;
+		for(val info : batch) {
+			if (info.isDir) {
+				destDir.child(info.path).mkdirs();
+			} else {
+				fileCount++;
+			}
+		}
+		if (fileCount == 0) {
+			return;
+		}
+		val ops = new ArrayList<BlobStorageOperation>(fileCount);
+		synchronized(lock) {
+			val entry = jobQueueById.get(jobId);
+			if (entry == null) {
+				throw new IllegalStateException("jobId: " + jobId + " deleted, abort copy-tree walk");
+			}
+			long taskId = entry.queue.newTaskIdsRange(fileCount);
+			for(val info : batch) {
+				if (! info.isDir) {
+					ops.add(new CopyFileStorageOperation(jobId, taskId++, destDir.child(info.path), srcDir.child(info.path), info.fileLength));
+				}
+			}
+			boolean hasRemainOpsBefore = entry.hasRemainOps(); 
+			entry.queue.addOps(ops);
+			if (entry.isPollingActive() && ! hasRemainOpsBefore) {
+				activeJobQueues.add(entry);
+			}
+		}
+	}
+
 	public void deleteJobQueue(long jobId) {
 		synchronized(lock) {
 			val entry = jobQueueById.remove(jobId);
@@ -386,7 +498,7 @@ public class StorageJobOpsQueueService {
 	// internal
 	// ------------------------------------------------------------------------
 
-	protected void doAddJobQueue(
+	protected StorageJobOpsQueueEntry doAddJobQueue(
 			long jobId,
 			String displayMessage,
 			Map<String,String> props,
@@ -400,6 +512,7 @@ public class StorageJobOpsQueueService {
 			}
 			jobQueueById.put(jobId, entry);
 			updateJobQueueData(entry, 1);
+			return entry;
 		}
 	}
 
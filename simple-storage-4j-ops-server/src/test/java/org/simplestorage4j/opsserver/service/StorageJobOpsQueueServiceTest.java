@@ -0,0 +1,188 @@
+package org.simplestorage4j.opsserver.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStorageRepository;
+import org.simplestorage4j.api.BlobStoreFileInfo;
+import org.simplestorage4j.api.FileBlobStorage;
+import org.simplestorage4j.api.ops.BlobStorageOperation;
+import org.simplestorage4j.api.ops.BlobStorageOperationExecContext;
+import org.simplestorage4j.api.ops.CopyFileStorageOperation;
+import org.simplestorage4j.api.ops.dto.BlobStoragePathDTO;
+import org.simplestorage4j.api.ops.encoder.BlobStorageOperationDtoResolver;
+import org.simplestorage4j.opscommon.dto.queue.AddCopyTreeJobQueueRequestDTO;
+import org.simplestorage4j.opscommon.dto.queue.JobQueueStatsDTO;
+
+import lombok.val;
+
+public class StorageJobOpsQueueServiceTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final CountDownLatch listLatch = new CountDownLatch(1);
+	private FileBlobStorage srcStorage;
+	private FileBlobStorage blockingSrcStorage;
+	private FileBlobStorage destStorage;
+	private StorageJobOpsQueueService service;
+
+	@Before
+	public void setUp() throws Exception {
+		val srcDir = tempFolder.newFolder("src");
+		srcStorage = new FileBlobStorage(BlobStorageId.of("src"), BlobStorageGroupId.of("test"), "src", srcDir);
+		blockingSrcStorage = new FileBlobStorage(BlobStorageId.of("blocking-src"), BlobStorageGroupId.of("test"), "blocking-src", srcDir) {
+			@Override
+			public List<BlobStoreFileInfo> list(String relativePath) {
+				try {
+					listLatch.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("interrupted", ex);
+				}
+				return super.list(relativePath);
+			}
+		};
+		destStorage = new FileBlobStorage(BlobStorageId.of("dest"), BlobStorageGroupId.of("test"), "dest", tempFolder.newFolder("dest"));
+		val stateStorage = new FileBlobStorage(BlobStorageId.of("state"), BlobStorageGroupId.of("test"), "state", tempFolder.newFolder("state"));
+		stateStorage.mkdirs("jobs");
+		val repository = new BlobStorageRepository(Arrays.asList(srcStorage, blockingSrcStorage, destStorage));
+		service = new StorageJobOpsQueueService(new BlobStorageOperationDtoResolver(repository),
+				new StorageJobOpsQueueDao(stateStorage, "jobs"));
+		service.init();
+	}
+
+	@After
+	public void tearDown() {
+		listLatch.countDown();
+		service.close();
+	}
+
+	private static AddCopyTreeJobQueueRequestDTO copyTreeRequest(String srcStorageId, String srcDir) {
+		val req = new AddCopyTreeJobQueueRequestDTO();
+		req.displayMessage = "copy-tree test";
+		req.props = Collections.emptyMap();
+		req.srcDir = new BlobStoragePathDTO(srcStorageId, srcDir);
+		req.destDir = new BlobStoragePathDTO("dest", "copy");
+		return req;
+	}
+
+	private JobQueueStatsDTO awaitTreeWalkDone(long jobId) throws Exception {
+		for(int i = 0; i < 1000; i++) {
+			val stats = service.getJobQueueStats(jobId);
+			if (! stats.treeWalkRunning) {
+				return stats;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("tree walk of jobId " + jobId + " not finished");
+	}
+
+	private void writeSrcFile(String path) {
+		srcStorage.writeFile(path, "data".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testCopyTree_walkDone() throws Exception {
+		srcStorage.mkdirs("dir/sub");
+		writeSrcFile("dir/a.txt");
+		writeSrcFile("dir/sub/b.txt");
+
+		val jobId = service.createCopyTreeJobQueue(copyTreeRequest("src", "dir")).jobId;
+		val stats = awaitTreeWalkDone(jobId);
+		assertNull(stats.treeWalkError);
+
+		val copyPaths = new TreeSet<String>();
+		for(val op : service.listJobQueueRemainOps(jobId)) {
+			val copyOp = (CopyFileStorageOperation) op; // dest dirs created by walk, no queued mkdir op
+			copyPaths.add(copyOp.srcStoragePath.path + " -> " + copyOp.destStoragePath.path);
+		}
+		assertEquals(new TreeSet<>(Arrays.asList("dir/a.txt -> copy/a.txt", "dir/sub/b.txt -> copy/sub/b.txt")), copyPaths);
+		assertTrue(new File(tempFolder.getRoot(), "dest/copy/sub").isDirectory());
+	}
+
+	@Test
+	public void testCopyTree_nestedTree_opsExecutedInAnyOrder() throws Exception {
+		srcStorage.mkdirs("dir/sub1/sub2/sub3");
+		srcStorage.mkdirs("dir/empty");
+		writeSrcFile("dir/a.txt");
+		writeSrcFile("dir/sub1/b.txt");
+		writeSrcFile("dir/sub1/sub2/c.txt");
+		writeSrcFile("dir/sub1/sub2/sub3/d.txt");
+
+		val jobId = service.createCopyTreeJobQueue(copyTreeRequest("src", "dir")).jobId;
+		assertNull(awaitTreeWalkDone(jobId).treeWalkError);
+
+		// deepest files first: no dependency between queued ops, executors may run them in any order
+		val ops = new ArrayList<BlobStorageOperation>(service.listJobQueueRemainOps(jobId));
+		Collections.reverse(ops);
+		assertEquals(4, ops.size());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			val ctx = new BlobStorageOperationExecContext(executor, executor);
+			for(val op : ops) {
+				op.execute(ctx);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		for(val path : Arrays.asList("copy/a.txt", "copy/sub1/b.txt", "copy/sub1/sub2/c.txt", "copy/sub1/sub2/sub3/d.txt")) {
+			assertEquals("data", new String(destStorage.readFile(path), StandardCharsets.UTF_8));
+		}
+		assertTrue(new File(tempFolder.getRoot(), "dest/copy/empty").isDirectory());
+	}
+
+	@Test
+	public void testCopyTree_walkRunning() throws Exception {
+		srcStorage.mkdirs("dir");
+		writeSrcFile("dir/a.txt");
+		val jobId = service.createCopyTreeJobQueue(copyTreeRequest("blocking-src", "dir")).jobId;
+		assertTrue(service.getJobQueueStats(jobId).treeWalkRunning);
+		assertEquals(0, service.listJobQueueRemainOps(jobId).size());
+
+		listLatch.countDown();
+		val stats = awaitTreeWalkDone(jobId);
+		assertNull(stats.treeWalkError);
+		assertEquals(1, service.listJobQueueRemainOps(jobId).size());
+	}
+
+	@Test
+	public void testCopyTree_walkFailed() throws Exception {
+		val jobId = service.createCopyTreeJobQueue(copyTreeRequest("src", "missing-dir")).jobId;
+		val stats = awaitTreeWalkDone(jobId);
+		assertNotNull(stats.treeWalkError);
+		assertEquals(0, service.listJobQueueRemainOps(jobId).size());
+	}
+
+	@Test
+	public void testClose_stopsRunningWalk() throws Exception {
+		srcStorage.mkdirs("dir");
+		val jobId = service.createCopyTreeJobQueue(copyTreeRequest("blocking-src", "dir")).jobId;
+		assertTrue(service.getJobQueueStats(jobId).treeWalkRunning);
+
+		service.close();
+		val stats = awaitTreeWalkDone(jobId);
+		assertNotNull(stats.treeWalkError);
+	}
+
+}
@@ -6,15 +6,31 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
+import org.simplestorage4j.api.AsyncBlobStorage;
 import org.simplestorage4j.api.BlobStorage;
+import org.simplestorage4j.api.BlobStorageFileRange;
 import org.simplestorage4j.api.BlobStorageGroupId;
 import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStorageListOptions;
+import org.simplestorage4j.api.BlobStoragePath;
 import org.simplestorage4j.api.BlobStoreFileInfo;
-import org.simplestorage4j.api.util.BlobStorageIOUtils;
+import org.simplestorage4j.api.SeekableBlobInputStream;
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
 import org.simplestorage4j.api.util.BlobStorageNotImpl;
+import org.simplestorage4j.api.util.BlobStorageRangeCoalescer.CombinedFileRange;
+import org.simplestorage4j.api.util.BlobStorageRetryPolicy;
+import org.simplestorage4j.api.util.BlobStorageUtils;
+import org.simplestorage4j.api.util.ExecutorAsyncBlobStorage;
+import org.simplestorage4j.api.util.PrefetchingPageIterator;
+import org.simplestorage4j.api.util.ReopeningSeekableBlobInputStream;
 
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 
 import lombok.val;
@@ -33,6 +49,7 @@ public abstract class AbstractS3BlobStorage extends BlobStorage {
             S3Client s3Client) {
         super(id, groupId, displayName);
         this.s3Client = s3Client;
+        this.retryPolicy = BlobStorageRetryPolicy.noRetry(); // S3Client calls are already retried
     }
 
     // --------------------------------------------------------------------------------------------
@@ -41,6 +58,16 @@ public abstract class AbstractS3BlobStorage extends BlobStorage {
 
     protected abstract String s3ToPath(String bucketName, String key);
 
+    /**
+     * AWS SDK v1 client is blocking: async adapter on S3Client async pool (sized by http maxConnections),
+     * unless an explicit <code>asyncExecutor</code> is set
+     */
+    @Override
+    public AsyncBlobStorage async() {
+        val executor = (asyncExecutor != null)? asyncExecutor : s3Client.getAsyncExecutor();
+        return new ExecutorAsyncBlobStorage(this, executor);
+    }
+
     // --------------------------------------------------------------------------------------------
 
     @Override
@@ -56,6 +83,55 @@ public abstract class AbstractS3BlobStorage extends BlobStorage {
         return new BlobStoreFileInfo(filePath, false, fileLen, lastModifiedMillis);
     }
 
+    /**
+     * listing of the common key prefix (1 request per 1000 keys) instead of 1 HEAD per path, bounded to
+     * <code>pathInfosListMaxPages</code> pages: listing stops once past the max requested key, and paths after
+     * the last listed key of a truncated listing fall back to pathInfo() (a few paths in a huge dir).
+     * Only objects are matched, consistent with pathInfo() returning null for emulated dirs
+     */
+    @Override
+    protected Map<String, BlobStoreFileInfo> pathInfosOfSameParent(String parentPath, List<String> filePaths) {
+        val firstS3 = pathToS3(filePaths.get(0));
+        val keyPrefix = firstS3.key.substring(0, firstS3.key.lastIndexOf('/') + 1);
+        val maxChildName = maxChildNameOf(filePaths);
+        val req = new ListObjectsV2Request()
+                .withBucketName(firstS3.bucketName)
+                .withDelimiter("/")
+                .withPrefix(keyPrefix);
+        val children = new ArrayList<BlobStoreFileInfo>();
+        String lastListedName = null;
+        for(int page = 0; page < Math.max(1, pathInfosListMaxPages); page++) {
+            val result = s3Client.listObjectsV2(req);
+            for(S3ObjectSummary s3ObjSummary: result.getObjectSummaries()) {
+                val path = s3ToPath(firstS3.bucketName, s3ObjSummary.getKey());
+                Date lastModified = s3ObjSummary.getLastModified();
+                long lastModifiedMillis = (lastModified != null)? lastModified.getTime() : 0;
+                children.add(new BlobStoreFileInfo(path, false, s3ObjSummary.getSize(), lastModifiedMillis));
+            }
+            // objects and common prefixes are returned together in key order
+            lastListedName = "";
+            if (! result.getObjectSummaries().isEmpty()) {
+                lastListedName = BlobStorageUtils.childNameOf(last(result.getObjectSummaries()).getKey());
+            }
+            if (! result.getCommonPrefixes().isEmpty()) {
+                val prefixName = BlobStorageUtils.childNameOf(last(result.getCommonPrefixes()));
+                if (prefixName.compareTo(lastListedName) > 0) {
+                    lastListedName = prefixName;
+                }
+            }
+            if (! result.isTruncated() || lastListedName.compareTo(maxChildName) >= 0) {
+                lastListedName = null; // all requested paths covered
+                break;
+            }
+            req.setContinuationToken(result.getNextContinuationToken());
+        }
+        return matchChildInfos(filePaths, children, lastListedName);
+    }
+
+    private static <T> T last(List<T> ls) {
+        return ls.get(ls.size() - 1);
+    }
+
     protected ObjectMetadata s3ObjectMetadata(String filePath) {
         val s3 = pathToS3(filePath);
         return s3Client.getObjectMetadata(s3.bucketName, s3.key);
@@ -97,32 +173,139 @@ public abstract class AbstractS3BlobStorage extends BlobStorage {
         return res;
     }
 
+    /**
+     * flat listing of all keys under prefix (no delimiter), 1 ListObjectsV2 request per page.
+     * S3 has no dirs: only objects are returned
+     */
     @Override
-    public InputStream openRead(String filePath, long position) {
+    public PrefetchingPageIterator<BlobStoreFileInfo> listRecursive(String filePath, BlobStorageListOptions options) {
         val s3 = pathToS3(filePath);
-        val in = s3Client.openObject(s3.bucketName, s3.key);
-        if (position != 0) {
-            try {
-        		BlobStorageIOUtils.skipFully(in, position);
-            } catch (IOException ex) {
-                throw new WrappedS3ClientException("Failed skip(" + position + ") on S3 object " + s3, ex,
-                        displayName, s3.bucketName, s3.key);
+        val prefix = (s3.key.isEmpty() || s3.key.endsWith("/"))? s3.key : s3.key + "/";
+        val req = new ListObjectsV2Request()
+                .withBucketName(s3.bucketName)
+                .withPrefix(prefix)
+                .withMaxKeys(Math.min(1000, Math.max(1, options.getPageSize())));
+        return new PrefetchingPageIterator<BlobStoreFileInfo>(listPrefetchExecutor(options)) {
+            boolean truncated = true;
+
+            @Override
+            protected List<BlobStoreFileInfo> fetchNextPage() {
+                if (! truncated) {
+                    return null;
+                }
+                val result = s3Client.listObjectsV2(req);
+                truncated = result.isTruncated();
+                req.setContinuationToken(result.getNextContinuationToken());
+                val res = new ArrayList<BlobStoreFileInfo>(result.getObjectSummaries().size());
+                for(S3ObjectSummary s3ObjSummary: result.getObjectSummaries()) {
+                    val path = s3ToPath(s3.bucketName, s3ObjSummary.getKey());
+                    Date lastModified = s3ObjSummary.getLastModified();
+                    long lastModifiedMillis = (lastModified != null)? lastModified.getTime() : 0;
+                    res.add(new BlobStoreFileInfo(path, false, s3ObjSummary.getSize(), lastModifiedMillis));
+                }
+                return res;
             }
+        };
+    }
+
+    @Override
+    public InputStream openRead(String filePath, long position) {
+        val s3 = pathToS3(filePath);
+        if (position == 0) {
+            return s3Client.openObject(s3.bucketName, s3.key);
         }
-        return in;
+        // ranged GET until end of object, instead of downloading skipped bytes
+        return s3Client.openObjectRange(s3.bucketName, s3.key, position, -1);
+    }
+
+    @Override
+    public SeekableBlobInputStream openSeekableRead(String filePath, long position) {
+        val s3 = pathToS3(filePath);
+        return new ReopeningSeekableBlobInputStream(filePath, position, seekableReadAhead) {
+            @Override
+            protected InputStream openAt(long pos) {
+                return s3Client.openObjectRange(s3.bucketName, s3.key, pos, -1);
+            }
+
+            @Override
+            protected void closeStream(InputStream stream, boolean eof) throws IOException {
+                if (! eof && stream instanceof S3ObjectInputStream) {
+                    // abort http connection, instead of draining remaining bytes of object
+                    ((S3ObjectInputStream) stream).abort();
+                } else {
+                    stream.close();
+                }
+            }
+        };
     }
 
     @Override
     public byte[] readFile(String filePath) {
         val s3 = pathToS3(filePath);
-        val res = s3Client.getObjectContent_readAllBytes(s3.bucketName, s3.key);
+        // single GET for small objects, parallel ranged GETs above parallelReadThreshold
+        val res = s3Client.getObjectContent_readAllBytesParallel(s3.bucketName, s3.key);
         return res;
     }
 
     @Override
     public void readAt(byte[] resBuffer, int resPos, String filePath, final long position, final int len) {
         val s3 = pathToS3(filePath);
-        s3Client.getObjectContent_range(resBuffer, resPos, s3.bucketName, s3.key, position, len);
+        if (len > s3Client.getS3Properties().getParallelReadThreshold()) {
+            s3Client.getObjectContent_parallelRange(resBuffer, resPos, s3.bucketName, s3.key, position, len);
+        } else {
+            s3Client.getObjectContent_range(resBuffer, resPos, s3.bucketName, s3.key, position, len);
+        }
+    }
+
+    /**
+     * override to stream a single ranged GET for the combined range, skipping gaps.
+     * overlapping ranges need random access: fallback to buffering the whole combined range
+     */
+    @Override
+    protected void readCombinedRange(String filePath, CombinedFileRange combinedRange,
+            List<BlobStorageFileRange> ranges, List<CompletableFuture<byte[]>> results) {
+        if (combinedRange.hasOverlaps) {
+            super.readCombinedRange(filePath, combinedRange, ranges, results);
+            return;
+        }
+        val s3 = pathToS3(filePath);
+        try (val in = s3Client.openObjectRange(s3.bucketName, s3.key, combinedRange.offset, combinedRange.length)) {
+            readCombinedRangeFromStream(in, combinedRange, ranges, results);
+        } catch (IOException ex) {
+            throw new WrappedS3ClientException("Failed read ranges " + combinedRange + " on S3 object " + s3, ex,
+                    displayName, s3.bucketName, s3.key);
+        }
+    }
+
+    // Server-side copy
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * S3 to S3 copy is done server-side when using same client (or same non-null endpoint and access key)
+     */
+    @Override
+    public boolean supportsCopyFrom(BlobStorage srcStorage) {
+        if (! (srcStorage instanceof AbstractS3BlobStorage)) {
+            return false;
+        }
+        val srcS3Client = ((AbstractS3BlobStorage) srcStorage).s3Client;
+        if (srcS3Client == s3Client) {
+            return true;
+        }
+        // distinct clients: only when explicitly configured with same endpoint and access key
+        // (null values may mean default credentials chain / region, not necessarily same account)
+        val srcParams = srcS3Client.getS3Properties();
+        val params = s3Client.getS3Properties();
+        return params.getEndpoint() != null && params.getAccessKey() != null
+                && Objects.equals(srcParams.getEndpoint(), params.getEndpoint())
+                && Objects.equals(srcParams.getAccessKey(), params.getAccessKey());
+    }
+
+    @Override
+    public void copyFrom(BlobStoragePath src, String destFilePath, long srcFileLen) {
+        val srcS3 = ((AbstractS3BlobStorage) src.blobStorage).pathToS3(src.path);
+        val destS3 = pathToS3(destFilePath);
+        s3Client.copyObject(srcS3.bucketName, srcS3.key, destS3.bucketName, destS3.key, srcFileLen);
     }
 
     // Write operations
@@ -143,14 +326,38 @@ public abstract class AbstractS3BlobStorage extends BlobStorage {
         throw BlobStorageNotImpl.notImpl();
     }
 
+    /**
+     * write using multipart upload, cf S3MultipartUploadOutputStream.
+     * append is not supported: S3 objects are immutable
+     */
     @Override
     public OutputStream openWrite(String filePath, boolean append) {
-        throw BlobStorageNotImpl.notImpl();
+        if (append) {
+            throw new UnsupportedOperationException("append not supported on S3 object '" + filePath + "'");
+        }
+        val s3 = pathToS3(filePath);
+        val params = s3Client.getS3Properties();
+        return new S3MultipartUploadOutputStream(s3Client, s3.bucketName, s3.key,
+                params.getMultipartPartSize(), params.getMultipartUploadConcurrency(),
+                s3Client.getTransferExecutor(), BlobStorageBufferPool.defaultHeapPool());
     }
 
     @Override
     public void writeFile(String filePath, byte[] data) {
-        throw BlobStorageNotImpl.notImpl();
+        writeFile(filePath, data, 0, data.length);
+    }
+
+    /**
+     * write using single putObject for small data, multipart upload otherwise
+     */
+    @Override
+    public void writeFile(String filePath, byte[] data, int off, int len) {
+        if (len <= s3Client.getS3Properties().getMultipartPartSize()) {
+            val s3 = pathToS3(filePath);
+            s3Client.putObject(s3.bucketName, s3.key, data, off, len);
+        } else {
+            super.writeFile(filePath, data, off, len);
+        }
     }
 
     @Override
@@ -1,12 +1,24 @@
 package org.simplestorage4j.s3;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+import org.simplestorage4j.api.util.BlobStorageNamedThreadFactory;
+import org.simplestorage4j.api.util.BlobStoragePooledBuffer;
+import org.simplestorage4j.api.util.BlobStorageRetryPolicy;
+import org.simplestorage4j.api.util.BlobStorageRetryPolicy.RetryListener;
 import org.simplestorage4j.api.util.LoggingCounter;
 
 import com.amazonaws.ClientConfiguration;
@@ -15,19 +27,29 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
 import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListBucketsRequest;
 import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 
 import lombok.Getter;
+import lombok.Setter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,7 +69,9 @@ public class S3Client {
 	@Getter
 	private S3ClientParams s3Properties;
 
-	private int maxRetry = 5;
+	/** retries of S3 calls: backoff, budget, and no retry on errors such as 404/403/416 */
+	@Getter @Setter
+	private BlobStorageRetryPolicy retryPolicy;
 
 	protected final LoggingCounter counter_listBuckets = new LoggingCounter("s3 listBuckets");
 	protected final LoggingCounter counter_listBuckets_Failed = new LoggingCounter("s3 listBuckets Failed");
@@ -74,37 +98,129 @@ public class S3Client {
 	protected final LoggingCounter counter_getObjectContent_range = new LoggingCounter("s3 getObjectContent_range");
 	protected final LoggingCounter counter_getObjectContent_range_Failed = new LoggingCounter("s3 getObjectContent_range Failed");
 
+	protected final LoggingCounter counter_copyObject = new LoggingCounter("s3 copyObject");
+	protected final LoggingCounter counter_copyObject_FailedRetry = new LoggingCounter("s3 copyObject Failed Retry");
+	protected final LoggingCounter counter_copyObject_Failed = new LoggingCounter("s3 copyObject Failed");
+
+	protected final LoggingCounter counter_copyPart = new LoggingCounter("s3 copyPart");
+	protected final LoggingCounter counter_copyPart_FailedRetry = new LoggingCounter("s3 copyPart Failed Retry");
+	protected final LoggingCounter counter_copyPart_Failed = new LoggingCounter("s3 copyPart Failed");
+
+	protected final LoggingCounter counter_initiateMultipartUpload = new LoggingCounter("s3 initiateMultipartUpload");
+	protected final LoggingCounter counter_initiateMultipartUpload_Failed = new LoggingCounter("s3 initiateMultipartUpload Failed");
+
+	protected final LoggingCounter counter_completeMultipartUpload = new LoggingCounter("s3 completeMultipartUpload");
+	protected final LoggingCounter counter_completeMultipartUpload_Failed = new LoggingCounter("s3 completeMultipartUpload Failed");
+
+	protected final LoggingCounter counter_abortMultipartUpload = new LoggingCounter("s3 abortMultipartUpload");
+	protected final LoggingCounter counter_abortMultipartUpload_Failed = new LoggingCounter("s3 abortMultipartUpload Failed");
+
+	protected final LoggingCounter counter_uploadPart = new LoggingCounter("s3 uploadPart");
+	protected final LoggingCounter counter_uploadPart_FailedRetry = new LoggingCounter("s3 uploadPart Failed Retry");
+	protected final LoggingCounter counter_uploadPart_Failed = new LoggingCounter("s3 uploadPart Failed");
+
+	protected final LoggingCounter counter_putObject = new LoggingCounter("s3 putObject");
+	protected final LoggingCounter counter_putObject_FailedRetry = new LoggingCounter("s3 putObject Failed Retry");
+	protected final LoggingCounter counter_putObject_Failed = new LoggingCounter("s3 putObject Failed");
+
+	protected final LoggingCounter counter_getObjectContent_parallel = new LoggingCounter("s3 getObjectContent_parallel");
+	protected final LoggingCounter counter_getObjectContent_parallel_Failed = new LoggingCounter("s3 getObjectContent_parallel Failed");
+
+	/** thread pool for concurrent parts transfers, lazily created, cf getTransferExecutor() */
+	private ExecutorService transferExecutor;
+
+	/** thread pool for async api, lazily created, cf getAsyncExecutor() */
+	private ExecutorService asyncExecutor;
+
+	/** max object size for a single CopyObject request, above use multipart UploadPartCopy */
+	public static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
+	/** max part count in a multipart upload */
+	public static final int MAX_PART_COUNT = 10_000;
+
+	@Getter
+	private long copyPartSize = 512L * 1024 * 1024;
+
 	private int requestTimeoutMillis = 10 * 60 * 1000; // 10mn
 
 	// --------------------------------------------------------------------------------------------
 
 	public S3Client(String displayName, S3ClientParams s3Params) {
+		this(displayName, s3Params, createAmazonS3(s3Params));
+	}
+
+	/**
+	 * constructor with an already created AWS client, for example configured with other credentials providers
+	 */
+	public S3Client(String displayName, S3ClientParams s3Params, AmazonS3 s3Client) {
 		this.displayName = displayName;
 		this.s3Properties = Objects.requireNonNull(s3Params);
+		this.retryPolicy = new BlobStorageRetryPolicy();
+		retryPolicy.setMaxAttempts(s3Params.getMaxRetryAttempts());
+		retryPolicy.setInitialBackoffMillis(s3Params.getRetryInitialBackoffMillis());
+		retryPolicy.setMaxBackoffMillis(s3Params.getRetryMaxBackoffMillis());
+		this.s3Client = Objects.requireNonNull(s3Client);
+
+		setLoggingCountersFreq(100_000);
+	}
+
+	protected static AmazonS3 createAmazonS3(S3ClientParams s3Params) {
 		val credentials = new BasicAWSCredentials(s3Params.getAccessKey(), s3Params.getSecretKey());
 
 		val clientConfig = new ClientConfiguration();
+		clientConfig.setMaxConnections(s3Params.getMaxConnections());
 
 		String endpoint = s3Params.getEndpoint();
 		String region = s3Params.getRegion();
 		log.info("init S3 client with " + s3Params);
-		this.s3Client = AmazonS3ClientBuilder
+		return AmazonS3ClientBuilder
 				.standard()
 				.withClientConfiguration(clientConfig)
 				.withCredentials(new AWSStaticCredentialsProvider(credentials))
 				.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region))
 				.build();
-
-		setLoggingCountersFreq(100_000);
 	}
 
 	public void close() {
+		synchronized (this) {
+			if (this.transferExecutor != null) {
+				this.transferExecutor.shutdownNow();
+				this.transferExecutor = null;
+			}
+			if (this.asyncExecutor != null) {
+				this.asyncExecutor.shutdownNow();
+				this.asyncExecutor = null;
+			}
+		}
 		if (this.s3Client != null) {
 			this.s3Client.shutdown();
 			this.s3Client = null;
 		}
 	}
 
+	/**
+	 * thread pool shared by concurrent parts transfers (multipart uploads, parallel ranged reads)
+	 */
+	public synchronized ExecutorService getTransferExecutor() {
+		if (transferExecutor == null) {
+			val threadFactory = new BlobStorageNamedThreadFactory("s3-transfer-" + displayName + "-", "", true);
+			this.transferExecutor = Executors.newFixedThreadPool(s3Properties.getTransferThreadPoolSize(), threadFactory);
+		}
+		return transferExecutor;
+	}
+
+	/**
+	 * thread pool for async api calls, sized by maxConnections.
+	 * Distinct from transferExecutor, as async calls (multipart uploads, parallel reads) submit sub-tasks to it
+	 */
+	public synchronized ExecutorService getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			val threadFactory = new BlobStorageNamedThreadFactory("s3-async-" + displayName + "-", "", true);
+			this.asyncExecutor = Executors.newFixedThreadPool(s3Properties.getMaxConnections(), threadFactory);
+		}
+		return asyncExecutor;
+	}
+
 	// --------------------------------------------------------------------------------------------
 
 	public void setLoggingCountersFreq(int freq) {
@@ -159,30 +275,20 @@ public class S3Client {
 	 */
 	public ListObjectsV2Result listObjectsV2(ListObjectsV2Request req) {
 		val bucketName = req.getBucketName();
-		ListObjectsV2Result res = null;
-		for(int retry = 0; retry < maxRetry; retry++) {
-			long startTime = System.currentTimeMillis();
-			try {
-				res = this.s3Client.listObjectsV2(req);
-
-				val millis = System.currentTimeMillis() - startTime;
-				counter_listObjectsV2.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ")"));
-				break;
-			} catch(RuntimeException ex) {
-				val millis = System.currentTimeMillis() - startTime;
-				if (retry + 1 < maxRetry) {
-					counter_listObjectsV2_FailedRetry.incr(millis, logPrefix -> log.error(logPrefix + "(" + bucketName + ") retry.. ex:" + ex.getMessage()));
-					try {
-						Thread.sleep(100 + 500*retry);
-					} catch (InterruptedException e) {
-					}
-				} else {
-					counter_listObjectsV2_Failed.incr(millis, logPrefix -> log.error(logPrefix + "(" + bucketName + ") rethrow after " + maxRetry + " retries .. ex:" + ex.getMessage()));
-					throw ex;
-				}
-			}
+		val msgParam = "(" + bucketName + ")";
+		long startTime = System.currentTimeMillis();
+		try {
+			val res = retryPolicy.execute("s3 listObjectsV2" + msgParam, () -> this.s3Client.listObjectsV2(req),
+					retryListener(counter_listObjectsV2_FailedRetry, msgParam));
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_listObjectsV2.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return res;
+		} catch(RuntimeException ex) {
+			val millis = System.currentTimeMillis() - startTime;
+			counter_listObjectsV2_Failed.incr(millis, logPrefix -> log.error(logPrefix + msgParam + " rethrow .. ex:" + ex.getMessage()));
+			throw ex;
 		}
-		return res;
 	}
 
 
@@ -298,6 +404,26 @@ public class S3Client {
 		}
 	}
 
+	/**
+	 * parallel listing of all objects under prefix, streamed by batches to callback, cf S3ParallelLister
+	 * using transferExecutor
+	 */
+	public void listObjectsV2_parallel(String bucketName, String prefix, Consumer<List<S3ObjectSummary>> batchCallback) {
+		long startTime = System.currentTimeMillis();
+		val msgParam = "(" + bucketName + ((prefix != null)? ", prefix:" + prefix : "") + ")";
+		try {
+			val lister = new S3ParallelLister(this, getTransferExecutor());
+			lister.listAll(bucketName, prefix, batchCallback);
+
+			long millis = System.currentTimeMillis() - startTime;
+			counter_listObjectsV2_fetchAll.incr(millis, logPrefix -> log.info(logPrefix + " parallel" + msgParam));
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_listObjectsV2_fetchAll_Failed.incr(millis, logPrefix -> log.error(logPrefix + " parallel" + msgParam + " Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed listObjectsV2_parallel" + msgParam, ex, displayName, bucketName, null);
+		}
+	}
+
 	/**
 	 * facade for <code>s3Client.getObjectMetadata(bucketName, key)</code>
 	 * returned null instead of throwing AmazonS3Exception 404
@@ -384,20 +510,8 @@ public class S3Client {
 		try {
 			GetObjectRequest req = new GetObjectRequest(bucketName, key);
 			req.setSdkRequestTimeout(requestTimeoutMillis);
-			InputStream res = null;
-			for(int retry = 0; retry < maxRetry; retry++) {
-				try {
-					S3Object object = s3Client.getObject(req);
-					res = object.getObjectContent();
-					break;
-				} catch(Exception ex) {
-					if (retry + 1 < maxRetry) {
-						continue; // retry..
-					} else {
-						throw ex;
-					}
-				}
-			}
+			InputStream res = retryPolicy.execute("s3 getObject(" + bucketName + ", " + key + ")",
+					() -> s3Client.getObject(req).getObjectContent());
 			long millis = System.currentTimeMillis() - startTime;
 			counter_getObjectContent_stream.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ")"));
 			return res;
@@ -408,6 +522,45 @@ public class S3Client {
 		}
 	}
 
+	/**
+	 * facade for <code>s3Client.getObject(bucketName, key, start, start+len-1).getObjectContent()</code>
+	 * with <code>len &lt; 0</code> to read until end of object (empty stream when start is at or after end of object)
+	 */
+	public InputStream openObjectRange(String bucketName, String key, long start, long len) {
+		if (len == 0) {
+			return new ByteArrayInputStream(new byte[0]); // empty http range "bytes=start-(start-1)" would be invalid
+		}
+		long startTime = System.currentTimeMillis();
+		val msgParam = "(" + bucketName + ", " + key + ", start:" + start + ((len >= 0)? ", len:" + len : "") + ")";
+		try {
+			GetObjectRequest req = new GetObjectRequest(bucketName, key);
+			if (len >= 0) {
+				req.setRange(start, start+len-1);
+			} else {
+				req.setRange(start);
+			}
+			req.setSdkRequestTimeout(requestTimeoutMillis);
+			InputStream res = retryPolicy.execute("s3 getObject" + msgParam,
+					() -> s3Client.getObject(req).getObjectContent());
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_stream.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return res;
+		} catch (AmazonS3Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			if (ex.getStatusCode() == 416 && len < 0) {
+				// OK, "bytes=start-" with start >= object length: read at EOF, return empty stream
+				counter_getObjectContent_stream.incr(millis, logPrefix -> log.info(logPrefix + msgParam + " at EOF"));
+				return new ByteArrayInputStream(new byte[0]);
+			}
+			counter_getObjectContent_stream_Failed.incr(millis, logPrefix -> log.info(logPrefix + msgParam + " Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed getObjectContent_stream" + msgParam, ex, displayName, bucketName, key);
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_stream_Failed.incr(millis, logPrefix -> log.info(logPrefix + msgParam + " Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed getObjectContent_stream" + msgParam, ex, displayName, bucketName, key);
+		}
+	}
+
 	public byte[] getObjectContent_range(String bucketName, String key, long start, int len) {
 		byte[] res = new byte[len];
 		getObjectContent_range(res, 0, bucketName, key, start, len);
@@ -424,41 +577,419 @@ public class S3Client {
 			GetObjectRequest req = new GetObjectRequest(bucketName, key);
 			req.setRange(start, start+len-1);
 			req.setSdkRequestTimeout(requestTimeoutMillis);
-			int remainLen = 0;
-			for(int retry = 0; retry < maxRetry; retry++) {
-				try {
-					S3Object s3Object = s3Client.getObject(req);
-					try (S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
-						int currPos = resPos;
-						remainLen = len;
-						int readLen;
-						while ((readLen = s3ObjectInputStream.read(resBuffer, currPos, remainLen)) != -1) {
-							currPos += readLen;
-							remainLen -= readLen;
+			retryPolicy.execute("s3 getObject(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")", () -> {
+				S3Object s3Object = s3Client.getObject(req);
+				try (S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+					int currPos = resPos;
+					int remainLen = len;
+					while (remainLen > 0) {
+						int readLen = s3ObjectInputStream.read(resBuffer, currPos, remainLen);
+						if (readLen == -1) {
+							throw new EOFException("remainLen:" + remainLen);
 						}
-					} catch (IOException ex) {
-						throw new WrappedS3ClientException("Failed S3 getObjectContent_range(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")", ex, displayName, bucketName, key);
+						currPos += readLen;
+						remainLen -= readLen;
 					}
+				}
+				return null;
+			});
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_range.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")"));
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_range_Failed.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ") Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed getObjectContent_range(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")", ex, displayName, bucketName, key);
+		}
+	}
+
+	// Parallel ranged GET
+	// --------------------------------------------------------------------------------------------
 
-					break;
-				} catch(Exception ex) {
-					if (retry + 1 < maxRetry) {
-						continue; // retry..
-					} else {
-						throw ex;
+	/**
+	 * read all bytes using parallel ranged GETs for big objects.
+	 * The first GET on small range [0, firstReadRangeSize) also returns total object length (in Content-Range),
+	 * so small objects still need only 1 request (no extra HEAD). Result is then allocated with the exact length,
+	 * and the remaining range is fetched by 1 GET, or by concurrent ranged GETs above parallelReadThreshold,
+	 * cf <code>getObjectContent_parallelRange()</code>
+	 */
+	public byte[] getObjectContent_readAllBytesParallel(String bucketName, String key) {
+		val firstRangeLen = Math.max(1, Math.min(s3Properties.getFirstReadRangeSize(), s3Properties.getParallelReadThreshold()));
+		byte[] res;
+		try (val firstBuffer = BlobStorageBufferPool.defaultHeapPool().borrow(firstRangeLen)) {
+			long objectLength;
+			try {
+				objectLength = getObjectContent_rangeAndLength(firstBuffer.array(), bucketName, key, firstRangeLen);
+			} catch(WrappedS3ClientException ex) {
+				if (ex.getCause() instanceof AmazonS3Exception && ((AmazonS3Exception) ex.getCause()).getStatusCode() == 416) {
+					// range not satisfiable: empty object
+					return getObjectContent_readAllBytes(bucketName, key);
+				}
+				throw ex;
+			}
+			if (objectLength > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("contentLength: " + objectLength + " > max int value");
+			}
+			res = new byte[(int) objectLength];
+			System.arraycopy(firstBuffer.array(), 0, res, 0, (int) Math.min(firstRangeLen, objectLength));
+		}
+		val remainLen = res.length - firstRangeLen;
+		if (remainLen <= 0) {
+			return res;
+		}
+		if (res.length <= s3Properties.getParallelReadThreshold()) {
+			getObjectContent_range(res, firstRangeLen, bucketName, key, firstRangeLen, remainLen);
+		} else {
+			getObjectContent_parallelRange(res, firstRangeLen, bucketName, key, firstRangeLen, remainLen);
+		}
+		return res;
+	}
+
+	/**
+	 * ranged GET of [0, len) into resBuffer
+	 * @return total object length (may be less than len)
+	 */
+	protected long getObjectContent_rangeAndLength(final byte[] resBuffer, final String bucketName, final String key, final int len) {
+		long startTime = System.currentTimeMillis();
+		val msgParam = "(" + bucketName + ", " + key + ", start:0, len:" + len + ")";
+		try {
+			GetObjectRequest req = new GetObjectRequest(bucketName, key);
+			req.setRange(0, len-1);
+			req.setSdkRequestTimeout(requestTimeoutMillis);
+			// no retry on 416 (range not satisfiable: empty object), cf BlobStorageErrorClassifier
+			long objectLength = retryPolicy.execute("s3 getObject" + msgParam, () -> {
+				S3Object s3Object = s3Client.getObject(req);
+				val resObjectLength = s3Object.getObjectMetadata().getInstanceLength();
+				val expectedLen = (int) Math.min(len, resObjectLength);
+				try (S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+					int currPos = 0;
+					while (currPos < expectedLen) {
+						int readLen = s3ObjectInputStream.read(resBuffer, currPos, expectedLen - currPos);
+						if (readLen == -1) {
+							throw new EOFException("remainLen:" + (expectedLen - currPos));
+						}
+						currPos += readLen;
 					}
 				}
+				return resObjectLength;
+			});
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_range.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return objectLength;
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_range_Failed.incr(millis, logPrefix -> log.info(logPrefix + msgParam + " Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed getObjectContent_range" + msgParam, ex, displayName, bucketName, key);
+		}
+	}
+
+	/**
+	 * parallel ranged GETs of [start, start+len) into resBuffer, split by parallelReadPartSize,
+	 * with at most parallelReadConcurrency ranges in flight
+	 */
+	public void getObjectContent_parallelRange(final byte[] resBuffer, final int resPos,
+			final String bucketName, final String key, final long start, final int len) {
+		val partSize = s3Properties.getParallelReadPartSize();
+		val tasks = new ArrayList<Callable<Void>>();
+		for(int partOffset = 0; partOffset < len; partOffset += partSize) {
+			val partResPos = resPos + partOffset;
+			val partStart = start + partOffset;
+			val partLen = Math.min(partSize, len - partOffset);
+			tasks.add(() -> {
+				getObjectContent_range(resBuffer, partResPos, bucketName, key, partStart, partLen);
+				return null;
+			});
+		}
+		val msgParam = "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ", parts:" + tasks.size() + ")";
+		executeParallel(tasks, msgParam, bucketName, key);
+	}
+
+	/**
+	 * parallel ranged GETs of [start, start+len) into pooled buffers (one per part of parallelReadPartSize),
+	 * with at most parallelReadConcurrency ranges in flight
+	 * @return buffers, to be released by caller
+	 */
+	public List<BlobStoragePooledBuffer> getObjectContent_parallelRange(
+			final String bucketName, final String key, final long start, final long len,
+			final BlobStorageBufferPool bufferPool) {
+		val partSize = s3Properties.getParallelReadPartSize();
+		val tasks = new ArrayList<Callable<BlobStoragePooledBuffer>>();
+		for(long partOffset = 0; partOffset < len; partOffset += partSize) {
+			val partStart = start + partOffset;
+			val partLen = (int) Math.min(partSize, len - partOffset);
+			tasks.add(() -> {
+				val buffer = bufferPool.borrow(partLen);
+				try {
+					getObjectContent_range(buffer.array(), 0, bucketName, key, partStart, partLen);
+					return buffer;
+				} catch(RuntimeException ex) {
+					buffer.release();
+					throw ex;
+				}
+			});
+		}
+		val msgParam = "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ", parts:" + tasks.size() + ")";
+		return executeParallel(tasks, msgParam, bucketName, key);
+	}
+
+	/**
+	 * execute tasks on transferExecutor, at most parallelReadConcurrency in flight.
+	 * On failure, cancel remaining tasks, release already read pooled buffers, and rethrow
+	 */
+	private <T> List<T> executeParallel(List<Callable<T>> tasks, String msgParam, String bucketName, String key) {
+		long startTime = System.currentTimeMillis();
+		val executor = getTransferExecutor();
+		val concurrency = Math.max(1, s3Properties.getParallelReadConcurrency());
+		val futures = new ArrayList<Future<T>>(tasks.size());
+		val res = new ArrayList<T>(tasks.size());
+		try {
+			int submitIndex = 0;
+			for(int i = 0; i < tasks.size(); i++) {
+				while(submitIndex < tasks.size() && submitIndex < i + concurrency) {
+					futures.add(executor.submit(tasks.get(submitIndex++)));
+				}
+				res.add(futures.get(i).get());
 			}
-			if (remainLen != 0) {
-				throw new IllegalStateException("Failed getObjectContent_range(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")"
-						+ " remainLen:" + remainLen);
+			long millis = System.currentTimeMillis() - startTime;
+			counter_getObjectContent_parallel.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return res;
+		} catch(InterruptedException | ExecutionException ex) {
+			// cancel remaining tasks, and release pooled buffers of already read parts
+			for(int i = 0; i < futures.size(); i++) {
+				val future = futures.get(i);
+				T resElt = (i < res.size())? res.get(i) : null;
+				if (resElt == null && ! future.cancel(false) && future.isDone()) {
+					try {
+						resElt = future.get();
+					} catch(Exception ex2) {
+						// ignore, failed part => nothing to release
+					}
+				}
+				if (resElt instanceof BlobStoragePooledBuffer) {
+					((BlobStoragePooledBuffer) resElt).release();
+				}
+			}
+			if (ex instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
 			}
+			val cause = (ex instanceof ExecutionException)? ex.getCause() : ex;
 			long millis = System.currentTimeMillis() - startTime;
-			counter_getObjectContent_range.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")"));
+			counter_getObjectContent_parallel_Failed.incr(millis, logPrefix -> log.info(logPrefix + msgParam + " Failed " + cause.getMessage()));
+			throw new WrappedS3ClientException("Failed getObjectContent_parallel" + msgParam, cause, displayName, bucketName, key);
+		}
+	}
+
+	// Server-side copy
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * server-side copy: <code>s3Client.copyObject()</code>, or multipart UploadPartCopy for objects bigger than 5Go
+	 * @param srcLen length of source object if already known, -1 otherwise
+	 */
+	public void copyObject(String srcBucketName, String srcKey, String destBucketName, String destKey, long srcLen) {
+		if (srcLen < 0) {
+			val srcMetadata = getObjectMetadata(srcBucketName, srcKey);
+			if (srcMetadata == null) {
+				throw new WrappedS3ClientException("Failed copyObject, src object not found (" + srcBucketName + ", " + srcKey + ")",
+						null, displayName, srcBucketName, srcKey);
+			}
+			srcLen = srcMetadata.getContentLength();
+		}
+		if (srcLen <= MAX_COPY_OBJECT_SIZE) {
+			copyObject_single(srcBucketName, srcKey, destBucketName, destKey);
+		} else {
+			copyObject_multipart(srcBucketName, srcKey, destBucketName, destKey, srcLen);
+		}
+	}
+
+	protected void copyObject_single(String srcBucketName, String srcKey, String destBucketName, String destKey) {
+		val msgParam = "(" + srcBucketName + ", " + srcKey + " -> " + destBucketName + ", " + destKey + ")";
+		val req = new CopyObjectRequest(srcBucketName, srcKey, destBucketName, destKey);
+		req.setSdkRequestTimeout(requestTimeoutMillis);
+		long startTime = System.currentTimeMillis();
+		try {
+			retryPolicy.execute("s3 copyObject" + msgParam, () -> this.s3Client.copyObject(req),
+					retryListener(counter_copyObject_FailedRetry, msgParam));
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_copyObject.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+		} catch(RuntimeException ex) {
+			val millis = System.currentTimeMillis() - startTime;
+			counter_copyObject_Failed.incr(millis, logPrefix -> log.error(logPrefix + msgParam + " rethrow .. ex:" + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed copyObject" + msgParam, ex, displayName, destBucketName, destKey);
+		}
+	}
+
+	protected void copyObject_multipart(String srcBucketName, String srcKey, String destBucketName, String destKey, long srcLen) {
+		// part size: at least copyPartSize, and at most MAX_PART_COUNT parts
+		val partSize = Math.max(copyPartSize, (srcLen + MAX_PART_COUNT - 1) / MAX_PART_COUNT);
+		val uploadId = initiateMultipartUpload(destBucketName, destKey);
+		try {
+			val partETags = new ArrayList<PartETag>();
+			int partNumber = 1;
+			for(long firstByte = 0; firstByte < srcLen; firstByte += partSize, partNumber++) {
+				val lastByte = Math.min(firstByte + partSize, srcLen) - 1;
+				val req = new CopyPartRequest()
+						.withSourceBucketName(srcBucketName).withSourceKey(srcKey)
+						.withDestinationBucketName(destBucketName).withDestinationKey(destKey)
+						.withUploadId(uploadId)
+						.withPartNumber(partNumber)
+						.withFirstByte(firstByte).withLastByte(lastByte);
+				req.setSdkRequestTimeout(requestTimeoutMillis);
+				val partRes = copyPart(req);
+				partETags.add(partRes.getPartETag());
+			}
+			completeMultipartUpload(destBucketName, destKey, uploadId, partETags);
+		} catch(RuntimeException ex) {
+			abortMultipartUpload(destBucketName, destKey, uploadId);
+			throw ex;
+		}
+	}
+
+	/**
+	 * facade for <code>s3Client.copyPart(req)</code>, with retries
+	 */
+	public CopyPartResult copyPart(CopyPartRequest req) {
+		val msgParam = "(" + req.getDestinationBucketName() + ", " + req.getDestinationKey() + ", part:" + req.getPartNumber() + ")";
+		long startTime = System.currentTimeMillis();
+		try {
+			val res = retryPolicy.execute("s3 copyPart" + msgParam, () -> this.s3Client.copyPart(req),
+					retryListener(counter_copyPart_FailedRetry, msgParam));
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_copyPart.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return res;
+		} catch(RuntimeException ex) {
+			val millis = System.currentTimeMillis() - startTime;
+			counter_copyPart_Failed.incr(millis, logPrefix -> log.error(logPrefix + msgParam + " rethrow .. ex:" + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed copyPart" + msgParam, ex, displayName, req.getDestinationBucketName(), req.getDestinationKey());
+		}
+	}
+
+	// Multipart upload
+	// --------------------------------------------------------------------------------------------
+
+	/**
+	 * facade for <code>s3Client.initiateMultipartUpload(bucketName, key)</code>
+	 * @return uploadId
+	 */
+	public String initiateMultipartUpload(String bucketName, String key) {
+		long startTime = System.currentTimeMillis();
+		try {
+			val req = new InitiateMultipartUploadRequest(bucketName, key);
+			req.setSdkRequestTimeout(requestTimeoutMillis);
+
+			val res = this.s3Client.initiateMultipartUpload(req);
+
+			long millis = System.currentTimeMillis() - startTime;
+			counter_initiateMultipartUpload.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ")"));
+			return res.getUploadId();
 		} catch(Exception ex) {
 			long millis = System.currentTimeMillis() - startTime;
-			counter_getObjectContent_range_Failed.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ") Failed " + ex.getMessage()));
-			throw new WrappedS3ClientException("Failed getObjectContent_range(" + bucketName + ", " + key + ", start:" + start + ", len:" + len + ")", ex, displayName, bucketName, key);
+			counter_initiateMultipartUpload_Failed.incr(millis, logPrefix -> log.error(logPrefix + "(" + bucketName + ", " + key + ") Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed initiateMultipartUpload(" + bucketName + ", " + key + ")", ex, displayName, bucketName, key);
+		}
+	}
+
+	/**
+	 * facade for <code>s3Client.completeMultipartUpload(bucketName, key, uploadId, partETags)</code>
+	 */
+	public void completeMultipartUpload(String bucketName, String key, String uploadId, List<PartETag> partETags) {
+		long startTime = System.currentTimeMillis();
+		try {
+			val req = new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags);
+			req.setSdkRequestTimeout(requestTimeoutMillis);
+
+			this.s3Client.completeMultipartUpload(req);
+
+			long millis = System.currentTimeMillis() - startTime;
+			counter_completeMultipartUpload.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ", parts:" + partETags.size() + ")"));
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_completeMultipartUpload_Failed.incr(millis, logPrefix -> log.error(logPrefix + "(" + bucketName + ", " + key + ") Failed " + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed completeMultipartUpload(" + bucketName + ", " + key + ")", ex, displayName, bucketName, key);
 		}
 	}
+
+	/**
+	 * facade for <code>s3Client.uploadPart(req)</code>, with retries
+	 */
+	public PartETag uploadPart(String bucketName, String key, String uploadId, int partNumber,
+			byte[] data, int off, int len) {
+		val msgParam = "(" + bucketName + ", " + key + ", part:" + partNumber + ", len:" + len + ")";
+		long startTime = System.currentTimeMillis();
+		try {
+			val res = retryPolicy.execute("s3 uploadPart" + msgParam, () -> {
+				// new request per attempt: input stream is consumed
+				val req = new UploadPartRequest()
+						.withBucketName(bucketName).withKey(key)
+						.withUploadId(uploadId)
+						.withPartNumber(partNumber)
+						.withInputStream(new ByteArrayInputStream(data, off, len))
+						.withPartSize(len);
+				req.setSdkRequestTimeout(requestTimeoutMillis);
+				return this.s3Client.uploadPart(req);
+			}, retryListener(counter_uploadPart_FailedRetry, msgParam));
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_uploadPart.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+			return res.getPartETag();
+		} catch(RuntimeException ex) {
+			val millis = System.currentTimeMillis() - startTime;
+			counter_uploadPart_Failed.incr(millis, logPrefix -> log.error(logPrefix + msgParam + " rethrow .. ex:" + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed uploadPart" + msgParam, ex, displayName, bucketName, key);
+		}
+	}
+
+	/**
+	 * facade for <code>s3Client.putObject(bucketName, key, data)</code>, with retries
+	 */
+	public void putObject(String bucketName, String key, byte[] data, int off, int len) {
+		val msgParam = "(" + bucketName + ", " + key + ", len:" + len + ")";
+		long startTime = System.currentTimeMillis();
+		try {
+			retryPolicy.execute("s3 putObject" + msgParam, () -> {
+				// new request per attempt: input stream is consumed
+				val metadata = new ObjectMetadata();
+				metadata.setContentLength(len);
+				val req = new PutObjectRequest(bucketName, key, new ByteArrayInputStream(data, off, len), metadata);
+				req.setSdkRequestTimeout(requestTimeoutMillis);
+				return this.s3Client.putObject(req);
+			}, retryListener(counter_putObject_FailedRetry, msgParam));
+
+			val millis = System.currentTimeMillis() - startTime;
+			counter_putObject.incr(millis, logPrefix -> log.info(logPrefix + msgParam));
+		} catch(RuntimeException ex) {
+			val millis = System.currentTimeMillis() - startTime;
+			counter_putObject_Failed.incr(millis, logPrefix -> log.error(logPrefix + msgParam + " rethrow .. ex:" + ex.getMessage()));
+			throw new WrappedS3ClientException("Failed putObject" + msgParam, ex, displayName, bucketName, key);
+		}
+	}
+
+	/**
+	 * facade for <code>s3Client.abortMultipartUpload(bucketName, key, uploadId)</code>
+	 * failure is only logged (called from error handling code), uncompleted uploads may also be cleaned by bucket lifecycle rule
+	 */
+	public void abortMultipartUpload(String bucketName, String key, String uploadId) {
+		long startTime = System.currentTimeMillis();
+		try {
+			val req = new AbortMultipartUploadRequest(bucketName, key, uploadId);
+			req.setSdkRequestTimeout(requestTimeoutMillis);
+
+			this.s3Client.abortMultipartUpload(req);
+
+			long millis = System.currentTimeMillis() - startTime;
+			counter_abortMultipartUpload.incr(millis, logPrefix -> log.info(logPrefix + "(" + bucketName + ", " + key + ")"));
+		} catch(Exception ex) {
+			long millis = System.currentTimeMillis() - startTime;
+			counter_abortMultipartUpload_Failed.incr(millis, logPrefix -> log.error(logPrefix + "(" + bucketName + ", " + key + ") Failed " + ex.getMessage() + " ..ignore"));
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	private static RetryListener retryListener(LoggingCounter counter_FailedRetry, String msgParam) {
+		return (retry, ex, attemptMillis, backoffMillis) -> counter_FailedRetry.incr(attemptMillis,
+				logPrefix -> log.error(logPrefix + msgParam + " retry [" + retry + "] in " + backoffMillis + " ms.. ex:" + ex.getMessage()));
+	}
+
 }
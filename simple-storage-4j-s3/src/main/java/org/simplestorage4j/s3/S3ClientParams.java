@@ -9,6 +9,8 @@ import lombok.Setter;
 @NoArgsConstructor @AllArgsConstructor
 public class S3ClientParams {
 
+	public static final int MIN_MULTIPART_PART_SIZE = 5 * 1024 * 1024;
+
 	private String name;
 
 	private String endpoint;
@@ -16,6 +18,47 @@ public class S3ClientParams {
 	private String accessKey;
 	private String secretKey;
 
+	/** size of parts for multipart upload (S3 minimum: 5Mo, except last part) */
+	private int multipartPartSize = 16 * 1024 * 1024;
+
+	/** max parts uploading concurrently per output stream, memory used per stream is about (concurrency+1)*partSize */
+	private int multipartUploadConcurrency = 4;
+
+	/** objects bigger than this are read by parallel ranged GETs, smaller ones by a single GET */
+	private int parallelReadThreshold = 16 * 1024 * 1024;
+
+	/** size of first ranged GET of whole object reads, giving object length: small objects are read in 1 request */
+	private int firstReadRangeSize = 1024 * 1024;
+
+	/** size of ranges for parallel ranged GETs */
+	private int parallelReadPartSize = 8 * 1024 * 1024;
+
+	/** max ranged GETs in flight per read */
+	private int parallelReadConcurrency = 8;
+
+	/** thread pool size of S3Client, shared by all concurrent transfers */
+	private int transferThreadPoolSize = 16;
+
+	/** max http connections of S3 client, also thread pool size of async() adapter: more threads would wait for a connection */
+	private int maxConnections = 50;
+
+	/** retries of S3 calls, cf BlobStorageRetryPolicy: attempts, then exponential backoff bounds */
+	private int maxRetryAttempts = 5;
+	private long retryInitialBackoffMillis = 100;
+	private long retryMaxBackoffMillis = 10_000;
+
+	// ------------------------------------------------------------------------
+
+	public S3ClientParams(String name, String endpoint, String region, String accessKey, String secretKey) {
+		this.name = name;
+		this.endpoint = endpoint;
+		this.region = region;
+		this.accessKey = accessKey;
+		this.secretKey = secretKey;
+	}
+
+	// ------------------------------------------------------------------------
+
 	@Override
 	public String toString() {
 		return "{S3ClientParams " + name + ", '" + endpoint + "'" //
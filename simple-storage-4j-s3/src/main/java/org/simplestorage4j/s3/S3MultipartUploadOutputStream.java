@@ -0,0 +1,279 @@
+package org.simplestorage4j.s3;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+import org.simplestorage4j.api.util.BlobStoragePooledBuffer;
+
+import com.amazonaws.services.s3.model.PartETag;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * OutputStream for writing an S3 object using multipart upload
+ *
+ * data is buffered by parts of <code>partSize</code>, full parts are uploaded concurrently (at most
+ * <code>maxInFlightParts</code>, then write() blocks), each part being retried individually.
+ * On close(), the upload is completed, or aborted if any part failed: the object is never partially visible.
+ * Small objects (less than 1 part) are written with a single putObject, without multipart upload.
+ * As S3 allows at most 10000 parts, part size is doubled every <code>PART_SIZE_DOUBLING_PARTS</code> parts (up to
+ * <code>MAX_PART_SIZE</code>), so that objects up to about 5To can be written with default part size.
+ */
+@Slf4j
+public class S3MultipartUploadOutputStream extends OutputStream {
+
+	/** parts count between part size doubling */
+	public static final int PART_SIZE_DOUBLING_PARTS = 1000;
+
+	public static final int MAX_PART_SIZE = 1024 * 1024 * 1024;
+
+	private final S3Client s3Client;
+	private final String bucketName;
+	private final String key;
+
+	private final int initialPartSize;
+	/** size of current part, growing with part number, cf partSizeOf() */
+	private int partSize;
+	private final int maxInFlightParts;
+	private final ExecutorService executor;
+	private final BlobStorageBufferPool bufferPool;
+
+	/** lazily initiated when the first part is full */
+	private String uploadId;
+
+	private int nextPartNumber = 1;
+
+	private BlobStoragePooledBuffer currPart;
+	private int currPartLen;
+
+	private final ArrayDeque<PartUploadTask> inFlightParts = new ArrayDeque<>();
+	private final List<PartETag> partETags = new ArrayList<>();
+
+	private boolean closed;
+
+	// ------------------------------------------------------------------------
+
+	public S3MultipartUploadOutputStream(S3Client s3Client, String bucketName, String key,
+			int partSize, int maxInFlightParts, ExecutorService executor, BlobStorageBufferPool bufferPool) {
+		if (partSize < S3ClientParams.MIN_MULTIPART_PART_SIZE) {
+			throw new IllegalArgumentException("partSize " + partSize + " < min " + S3ClientParams.MIN_MULTIPART_PART_SIZE);
+		}
+		this.s3Client = s3Client;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.initialPartSize = partSize;
+		this.partSize = partSize;
+		this.maxInFlightParts = Math.max(1, maxInFlightParts);
+		this.executor = executor;
+		this.bufferPool = bufferPool;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void write(int b) throws IOException {
+		checkNotClosed();
+		ensureCurrPart();
+		currPart.array()[currPartLen++] = (byte) b;
+		if (currPartLen == partSize) {
+			uploadCurrPart();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkNotClosed();
+		while(len > 0) {
+			ensureCurrPart();
+			val count = Math.min(len, partSize - currPartLen);
+			System.arraycopy(b, off, currPart.array(), currPartLen, count);
+			currPartLen += count;
+			off += count;
+			len -= count;
+			if (currPartLen == partSize) {
+				uploadCurrPart();
+			}
+		}
+	}
+
+	/**
+	 * no-op: data can not be committed partially to S3, cf close()
+	 */
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (uploadId == null) {
+				// small object: single putObject
+				val data = (currPart != null)? currPart.array() : new byte[0];
+				s3Client.putObject(bucketName, key, data, 0, currPartLen);
+			} else {
+				if (currPartLen > 0) {
+					uploadCurrPart();
+				}
+				while(! inFlightParts.isEmpty()) {
+					waitOldestPart();
+				}
+				s3Client.completeMultipartUpload(bucketName, key, uploadId, partETags);
+			}
+		} catch(IOException | RuntimeException ex) {
+			abort();
+			throw (ex instanceof IOException)? (IOException) ex
+					: new IOException("Failed to upload S3 object (" + bucketName + ", " + key + ")", ex);
+		} finally {
+			releaseCurrPart();
+		}
+	}
+
+	/**
+	 * abort upload: cancel in-flight parts, and abort multipart upload if initiated
+	 */
+	public void abort() {
+		closed = true;
+		for(val partTask: inFlightParts) {
+			partTask.cancel(true);
+			partTask.releaseIfNotStarted();
+		}
+		inFlightParts.clear();
+		releaseCurrPart();
+		if (uploadId != null) {
+			log.info("abort multipart upload (" + bucketName + ", " + key + ")");
+			s3Client.abortMultipartUpload(bucketName, key, uploadId);
+			uploadId = null;
+		}
+	}
+
+	/**
+	 * @return size of part, doubled every PART_SIZE_DOUBLING_PARTS parts, up to MAX_PART_SIZE
+	 */
+	public static int partSizeOf(int partNumber, int initialPartSize) {
+		long res = initialPartSize;
+		for(int i = PART_SIZE_DOUBLING_PARTS; i < partNumber && res < MAX_PART_SIZE; i += PART_SIZE_DOUBLING_PARTS) {
+			res *= 2;
+		}
+		return (int) Math.min(res, Math.max(MAX_PART_SIZE, initialPartSize));
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void checkNotClosed() throws IOException {
+		if (closed) {
+			throw new IOException("stream closed, S3 object (" + bucketName + ", " + key + ")");
+		}
+	}
+
+	private void ensureCurrPart() {
+		if (currPart == null) {
+			currPart = bufferPool.borrow(partSize);
+			currPartLen = 0;
+		}
+	}
+
+	private void releaseCurrPart() {
+		if (currPart != null) {
+			currPart.release();
+			currPart = null;
+			currPartLen = 0;
+		}
+	}
+
+	private void uploadCurrPart() throws IOException {
+		try {
+			if (uploadId == null) {
+				uploadId = s3Client.initiateMultipartUpload(bucketName, key);
+			}
+			// bounded memory: wait for oldest part before submitting a new one
+			while(inFlightParts.size() >= maxInFlightParts) {
+				waitOldestPart();
+			}
+		} catch(IOException | RuntimeException ex) {
+			abort();
+			throw ex;
+		}
+		if (nextPartNumber > S3Client.MAX_PART_COUNT) {
+			abort();
+			throw new IOException("Failed to upload S3 object (" + bucketName + ", " + key + "): more than "
+					+ S3Client.MAX_PART_COUNT + " parts, initial part size " + initialPartSize + " too small");
+		}
+		val part = currPart;
+		val partLen = currPartLen;
+		val partNumber = nextPartNumber++;
+		val currUploadId = uploadId; // abort() resets field
+		currPart = null;
+		currPartLen = 0;
+		partSize = partSizeOf(nextPartNumber, initialPartSize);
+		val partTask = new PartUploadTask(part,
+				() -> s3Client.uploadPart(bucketName, key, currUploadId, partNumber, part.array(), 0, partLen));
+		executor.execute(partTask);
+		inFlightParts.addLast(partTask);
+	}
+
+	private void waitOldestPart() throws IOException {
+		val partTask = inFlightParts.pollFirst();
+		try {
+			partETags.add(partTask.get());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while uploading S3 object (" + bucketName + ", " + key + ")");
+		} catch (ExecutionException ex) {
+			throw new IOException("Failed to upload part of S3 object (" + bucketName + ", " + key + ")", ex.getCause());
+		}
+	}
+
+	/**
+	 * part upload task, releasing its pooled buffer exactly once: when run, or by abort() when cancelled before starting
+	 */
+	private static class PartUploadTask extends FutureTask<PartETag> {
+		private final BlobStoragePooledBuffer part;
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		PartUploadTask(BlobStoragePooledBuffer part, Callable<PartETag> upload) {
+			super(upload);
+			this.part = part;
+		}
+
+		@Override
+		public void run() {
+			if (! started.compareAndSet(false, true)) {
+				return; // cancelled, buffer already released
+			}
+			try {
+				super.run();
+			} finally {
+				part.release();
+			}
+		}
+
+		void releaseIfNotStarted() {
+			if (started.compareAndSet(false, true)) {
+				part.release();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{S3MultipartUploadOutputStream (" + bucketName + ", " + key + ")" //
+				+ " parts:" + (nextPartNumber - 1) + ", inFlight:" + inFlightParts.size() //
+				+ "}";
+	}
+
+}
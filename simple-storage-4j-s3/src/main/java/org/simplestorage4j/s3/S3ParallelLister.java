@@ -0,0 +1,238 @@
+package org.simplestorage4j.s3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * parallel listing of all objects under a prefix, for huge buckets
+ *
+ * listing fans out over common prefixes (found using delimiter "/"), each sub-prefix being listed
+ * by a separate task on the executor. Flat prefixes (no sub-prefix, more than 1 page) are split
+ * over the key space, using 1 char after prefix as partition boundaries, cf <code>keySpaceSplitChars</code>.
+ *
+ * results are streamed to callback by batches (of 1 page, at most 1000 objects), never accumulated.
+ * callback is called serially (synchronized), from executor threads.
+ */
+@Slf4j
+public class S3ParallelLister {
+
+	public static final String DEFAULT_KEY_SPACE_SPLIT_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	private final S3Client s3Client;
+
+	private final ExecutorService executor;
+
+	@Getter @Setter
+	private String keySpaceSplitChars = DEFAULT_KEY_SPACE_SPLIT_CHARS;
+
+	@Getter @Setter
+	private int maxKeysPerPage = 1000;
+
+	// ------------------------------------------------------------------------
+
+	public S3ParallelLister(S3Client s3Client, ExecutorService executor) {
+		this.s3Client = s3Client;
+		this.executor = executor;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * list all objects under prefix (recursively), calling batchCallback for each page of objects
+	 * blocks until all listings are done, and rethrow first failure
+	 */
+	public void listAll(String bucketName, String prefix, Consumer<List<S3ObjectSummary>> batchCallback) {
+		val listing = new ParallelListing(bucketName, batchCallback);
+		listing.submitPrefix((prefix != null)? prefix : "");
+		listing.awaitDone();
+	}
+
+	/**
+	 * state of 1 listAll() call
+	 */
+	private class ParallelListing {
+		final String bucketName;
+		final Consumer<List<S3ObjectSummary>> batchCallback;
+
+		final AtomicInteger pendingTaskCount = new AtomicInteger();
+		volatile RuntimeException failure;
+
+		long objectCount; // guarded by batchCallback synchronization on this
+
+		ParallelListing(String bucketName, Consumer<List<S3ObjectSummary>> batchCallback) {
+			this.bucketName = bucketName;
+			this.batchCallback = batchCallback;
+		}
+
+		void submitPrefix(String prefix) {
+			submitTask(() -> listPrefix(prefix));
+		}
+
+		void submitTask(Runnable task) {
+			pendingTaskCount.incrementAndGet();
+			try {
+				executor.submit(() -> {
+					try {
+						if (failure == null) {
+							task.run();
+						}
+					} catch(RuntimeException ex) {
+						if (failure == null) {
+							failure = ex;
+						}
+					} finally {
+						taskDone();
+					}
+				});
+			} catch(RuntimeException ex) {
+				// rejected
+				taskDone();
+				throw ex;
+			}
+		}
+
+		void taskDone() {
+			if (pendingTaskCount.decrementAndGet() == 0) {
+				synchronized(this) {
+					notifyAll();
+				}
+			}
+		}
+
+		void awaitDone() {
+			synchronized(this) {
+				while(pendingTaskCount.get() != 0) {
+					try {
+						wait();
+					} catch (InterruptedException ex) {
+						failure = new RuntimeException("interrupted while listing bucket " + bucketName, ex);
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			log.info("parallel listing of bucket " + bucketName + " done, found " + objectCount + " objects");
+		}
+
+		synchronized void emit(List<S3ObjectSummary> batch) {
+			if (batch.isEmpty() || failure != null) {
+				return;
+			}
+			objectCount += batch.size();
+			batchCallback.accept(batch);
+		}
+
+		/**
+		 * list first page of prefix, fan out sub-prefixes, then continue sequentially,
+		 * or split in key space partitions if prefix is flat
+		 */
+		void listPrefix(String prefix) {
+			val req = newRequest(prefix);
+			val result = s3Client.listObjectsV2(req);
+			val objects = result.getObjectSummaries();
+			emit(objects);
+			val commonPrefixes = result.getCommonPrefixes();
+			for(val commonPrefix: commonPrefixes) {
+				submitPrefix(commonPrefix);
+			}
+			if (! result.isTruncated()) {
+				return;
+			}
+			if (commonPrefixes.isEmpty() && ! objects.isEmpty()) {
+				val lastKey = objects.get(objects.size() - 1).getKey();
+				submitKeySpacePartitions(prefix, lastKey);
+			} else {
+				req.setContinuationToken(result.getNextContinuationToken());
+				listPages(req, null);
+			}
+		}
+
+		/**
+		 * partition keys after lastKey in ranges (lastKey, b1], (b1, b2] ... (bn, +inf)
+		 * where bi = prefix + splitChar, using startAfter
+		 */
+		void submitKeySpacePartitions(String prefix, String lastKey) {
+			val boundaries = new ArrayList<String>();
+			for(val c: keySpaceSplitChars.toCharArray()) {
+				val boundary = prefix + c;
+				if (boundary.compareTo(lastKey) > 0) {
+					boundaries.add(boundary);
+				}
+			}
+			String startAfter = lastKey;
+			for(val boundary: boundaries) {
+				submitPartition(prefix, startAfter, boundary);
+				startAfter = boundary;
+			}
+			submitPartition(prefix, startAfter, null);
+		}
+
+		void submitPartition(String prefix, String startAfter, String lastInclusive) {
+			submitTask(() -> {
+				val req = newRequest(prefix);
+				req.setStartAfter(startAfter);
+				listPages(req, lastInclusive);
+			});
+		}
+
+		/**
+		 * list pages sequentially, until end of listing or lastInclusive key reached
+		 */
+		void listPages(ListObjectsV2Request req, String lastInclusive) {
+			for(;;) {
+				if (failure != null) {
+					return;
+				}
+				val result = s3Client.listObjectsV2(req);
+				boolean reachedEnd = false;
+				List<S3ObjectSummary> objects = result.getObjectSummaries();
+				if (lastInclusive != null && ! objects.isEmpty()
+						&& objects.get(objects.size() - 1).getKey().compareTo(lastInclusive) > 0) {
+					val filtered = new ArrayList<S3ObjectSummary>(objects.size());
+					for(val obj: objects) {
+						if (obj.getKey().compareTo(lastInclusive) <= 0) {
+							filtered.add(obj);
+						}
+					}
+					objects = filtered;
+					reachedEnd = true;
+				}
+				emit(objects);
+				for(val commonPrefix: result.getCommonPrefixes()) {
+					if (lastInclusive != null && commonPrefix.compareTo(lastInclusive) > 0) {
+						reachedEnd = true;
+						continue;
+					}
+					submitPrefix(commonPrefix);
+				}
+				if (reachedEnd || ! result.isTruncated()) {
+					return;
+				}
+				req.setContinuationToken(result.getNextContinuationToken());
+			}
+		}
+
+		ListObjectsV2Request newRequest(String prefix) {
+			return new ListObjectsV2Request()
+					.withBucketName(bucketName)
+					.withPrefix(prefix)
+					.withDelimiter("/")
+					.withMaxKeys(maxKeysPerPage);
+		}
+	}
+
+}
@@ -0,0 +1,348 @@
+package org.simplestorage4j.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+
+/**
+ * in-memory stand-in of S3 for tests, for the subset of apis used by S3Client: objects, ranged GET (with 416 and Content-Range),
+ * paginated ListObjectsV2 (with delimiter), multipart upload.
+ * Requests are counted, and failures can be injected
+ */
+public class InMemoryAmazonS3 extends AbstractAmazonS3 {
+
+	private static class S3Obj {
+		final byte[] data;
+		final Date lastModified = new Date();
+		S3Obj(byte[] data) {
+			this.data = data;
+		}
+	}
+
+	/** key: bucketName + "/" + key */
+	private final ConcurrentSkipListMap<String, S3Obj> objects = new ConcurrentSkipListMap<>();
+
+	/** uploadId -> (partNumber -> data) */
+	private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+	public final AtomicInteger getObjectCount = new AtomicInteger();
+	public final AtomicInteger getObjectMetadataCount = new AtomicInteger();
+	public final AtomicInteger listObjectsV2Count = new AtomicInteger();
+	public final AtomicInteger uploadPartCount = new AtomicInteger();
+	public final AtomicInteger abortMultipartUploadCount = new AtomicInteger();
+
+	/** ranges of GET requests, as [start, end] (end inclusive, -1 when no range) */
+	public final List<long[]> getObjectRanges = Collections.synchronizedList(new ArrayList<>());
+
+	/** when > 0, next uploadPart calls fail with http 500 */
+	public final AtomicInteger uploadPartFailCount = new AtomicInteger();
+
+	/** when > 0, next getObject calls fail with http 500 */
+	public final AtomicInteger getObjectFailCount = new AtomicInteger();
+
+	/** max keys per listObjectsV2 page (1000 for S3), lowered in tests to paginate small listings */
+	public volatile int listMaxKeys = 1000;
+
+	/** sleep in uploadPart, to simulate slow uploads */
+	public volatile long uploadPartSleepMillis;
+
+	// ------------------------------------------------------------------------
+
+	public void putObjectData(String bucketName, String key, byte[] data) {
+		objects.put(bucketName + "/" + key, new S3Obj(data.clone()));
+	}
+
+	public byte[] getObjectData(String bucketName, String key) {
+		S3Obj obj = objects.get(bucketName + "/" + key);
+		return (obj != null)? obj.data.clone() : null;
+	}
+
+	public int getPendingUploadCount() {
+		return uploads.size();
+	}
+
+	private static AmazonS3Exception s3Exception(int statusCode, String errorCode) {
+		AmazonS3Exception ex = new AmazonS3Exception(errorCode);
+		ex.setStatusCode(statusCode);
+		ex.setErrorCode(errorCode);
+		return ex;
+	}
+
+	private S3Obj getObj(String bucketName, String key) {
+		S3Obj obj = objects.get(bucketName + "/" + key);
+		if (obj == null) {
+			throw s3Exception(404, "NoSuchKey");
+		}
+		return obj;
+	}
+
+	private static byte[] readAll(InputStream in) {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} catch(IOException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public S3Object getObject(GetObjectRequest req) {
+		getObjectCount.incrementAndGet();
+		if (getObjectFailCount.getAndUpdate(x -> Math.max(0, x - 1)) > 0) {
+			throw s3Exception(500, "InternalError");
+		}
+		S3Obj obj = getObj(req.getBucketName(), req.getKey());
+		int len = obj.data.length;
+		long[] range = req.getRange();
+		int start = 0;
+		int end = len - 1;
+		if (range != null) {
+			getObjectRanges.add(new long[] { range[0], range[1] });
+			if (range[0] >= len) {
+				throw s3Exception(416, "InvalidRange");
+			}
+			start = (int) range[0];
+			end = (int) Math.min(range[1], len - 1);
+		} else {
+			getObjectRanges.add(new long[] { 0, -1 });
+		}
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength(end - start + 1);
+		metadata.setLastModified(obj.lastModified);
+		if (range != null) {
+			metadata.setHeader(Headers.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + len);
+		}
+		S3Object res = new S3Object();
+		res.setBucketName(req.getBucketName());
+		res.setKey(req.getKey());
+		res.setObjectMetadata(metadata);
+		res.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(obj.data, start, end - start + 1), null));
+		return res;
+	}
+
+	@Override
+	public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest req) {
+		getObjectMetadataCount.incrementAndGet();
+		S3Obj obj = getObj(req.getBucketName(), req.getKey());
+		ObjectMetadata res = new ObjectMetadata();
+		res.setContentLength(obj.data.length);
+		res.setLastModified(obj.lastModified);
+		return res;
+	}
+
+	@Override
+	public PutObjectResult putObject(PutObjectRequest req) {
+		putObjectData(req.getBucketName(), req.getKey(), readAll(req.getInputStream()));
+		return new PutObjectResult();
+	}
+
+	@Override
+	public CopyObjectResult copyObject(CopyObjectRequest req) {
+		S3Obj obj = getObj(req.getSourceBucketName(), req.getSourceKey());
+		putObjectData(req.getDestinationBucketName(), req.getDestinationKey(), obj.data);
+		return new CopyObjectResult();
+	}
+
+	/**
+	 * paginated listing, continuation token is last returned key or common prefix
+	 */
+	@Override
+	public ListObjectsV2Result listObjectsV2(ListObjectsV2Request req) {
+		listObjectsV2Count.incrementAndGet();
+		String bucketPrefix = req.getBucketName() + "/";
+		String prefix = (req.getPrefix() != null)? req.getPrefix() : "";
+		String delimiter = req.getDelimiter();
+		int maxKeys = Math.min(listMaxKeys, (req.getMaxKeys() != null)? req.getMaxKeys() : 1000);
+		String after = req.getContinuationToken();
+		if (after == null) {
+			after = req.getStartAfter();
+		}
+		ListObjectsV2Result res = new ListObjectsV2Result();
+		res.setBucketName(req.getBucketName());
+		res.setPrefix(prefix);
+		TreeSet<String> commonPrefixes = new TreeSet<String>();
+		int count = 0;
+		String lastReturned = null;
+		boolean truncated = false;
+		for(Map.Entry<String, S3Obj> e : objects.tailMap(bucketPrefix + prefix).entrySet()) {
+			if (! e.getKey().startsWith(bucketPrefix + prefix)) {
+				break;
+			}
+			String key = e.getKey().substring(bucketPrefix.length());
+			String commonPrefix = null;
+			if (delimiter != null) {
+				int idx = key.indexOf(delimiter, prefix.length());
+				if (idx != -1) {
+					commonPrefix = key.substring(0, idx + delimiter.length());
+				}
+			}
+			String entryName = (commonPrefix != null)? commonPrefix : key;
+			if (after != null && entryName.compareTo(after) <= 0) {
+				continue;
+			}
+			if (commonPrefix != null && commonPrefixes.contains(commonPrefix)) {
+				continue;
+			}
+			if (count == maxKeys) {
+				truncated = true;
+				break;
+			}
+			count++;
+			lastReturned = entryName;
+			if (commonPrefix != null) {
+				commonPrefixes.add(commonPrefix);
+			} else {
+				S3ObjectSummary summary = new S3ObjectSummary();
+				summary.setBucketName(req.getBucketName());
+				summary.setKey(key);
+				summary.setSize(e.getValue().data.length);
+				summary.setLastModified(e.getValue().lastModified);
+				res.getObjectSummaries().add(summary);
+			}
+		}
+		res.setCommonPrefixes(new ArrayList<>(commonPrefixes));
+		res.setKeyCount(count);
+		res.setTruncated(truncated);
+		if (truncated) {
+			res.setNextContinuationToken(lastReturned);
+		}
+		return res;
+	}
+
+	// multipart upload
+	// ------------------------------------------------------------------------
+
+	@Override
+	public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest req) {
+		String uploadId = UUID.randomUUID().toString();
+		uploads.put(uploadId, new ConcurrentHashMap<>());
+		InitiateMultipartUploadResult res = new InitiateMultipartUploadResult();
+		res.setBucketName(req.getBucketName());
+		res.setKey(req.getKey());
+		res.setUploadId(uploadId);
+		return res;
+	}
+
+	@Override
+	public UploadPartResult uploadPart(UploadPartRequest req) {
+		uploadPartCount.incrementAndGet();
+		if (uploadPartSleepMillis > 0) {
+			try {
+				Thread.sleep(uploadPartSleepMillis);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ex);
+			}
+		}
+		if (uploadPartFailCount.getAndUpdate(x -> Math.max(0, x - 1)) > 0) {
+			throw s3Exception(500, "InternalError");
+		}
+		Map<Integer, byte[]> parts = uploads.get(req.getUploadId());
+		if (parts == null) {
+			throw s3Exception(404, "NoSuchUpload");
+		}
+		byte[] data = readAll(req.getInputStream());
+		if (data.length != req.getPartSize()) {
+			throw s3Exception(400, "IncompleteBody");
+		}
+		parts.put(req.getPartNumber(), data);
+		UploadPartResult res = new UploadPartResult();
+		res.setPartNumber(req.getPartNumber());
+		res.setETag("etag-" + req.getPartNumber());
+		return res;
+	}
+
+	@Override
+	public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest req) {
+		Map<Integer, byte[]> parts = uploads.remove(req.getUploadId());
+		if (parts == null) {
+			throw s3Exception(404, "NoSuchUpload");
+		}
+		TreeMap<Integer, byte[]> sortedParts = new TreeMap<Integer, byte[]>();
+		for(PartETag partETag : req.getPartETags()) {
+			byte[] data = parts.get(partETag.getPartNumber());
+			if (data == null) {
+				throw s3Exception(400, "InvalidPart");
+			}
+			sortedParts.put(partETag.getPartNumber(), data);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(byte[] data : sortedParts.values()) {
+			out.write(data, 0, data.length);
+		}
+		putObjectData(req.getBucketName(), req.getKey(), out.toByteArray());
+		return new CompleteMultipartUploadResult();
+	}
+
+	@Override
+	public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+		abortMultipartUploadCount.incrementAndGet();
+		uploads.remove(req.getUploadId());
+	}
+
+	@Override
+	public boolean doesBucketExistV2(String bucketName) {
+		return true;
+	}
+
+	@Override
+	public void shutdown() {
+		// nothing to release
+	}
+
+	/**
+	 * @return sequence of bytes, with a period not multiple of part sizes
+	 */
+	public static byte[] testData(int len) {
+		byte[] res = new byte[len];
+		for(int i = 0; i < len; i++) {
+			res[i] = (byte) (i % 251);
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.simplestorage4j.s3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+import org.simplestorage4j.api.BlobStorageGroupId;
+import org.simplestorage4j.api.BlobStorageId;
+import org.simplestorage4j.api.BlobStoragePath;
+import org.simplestorage4j.api.iocost.counter.BlobStorageIOTimeCounter;
+import org.simplestorage4j.api.util.BlobStorageIOUtils;
+
+import lombok.val;
+
+public class S3BlobStorageTest {
+
+	protected static final String BUCKET = "test-bucket";
+
+	protected final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+	protected final S3ClientParams s3Params = new S3ClientParams("test", "http://localhost:9000", null, "key", "secret");
+	protected final S3Client s3Client = new S3Client("test", s3Params, s3);
+	protected final FixedBucketS3BlobStorage storage = new FixedBucketS3BlobStorage(
+			BlobStorageId.of("test"), BlobStorageGroupId.of("test"), "test", s3Client, BUCKET);
+
+	@After
+	public void tearDown() {
+		s3Client.close();
+	}
+
+	protected static byte[] readAll(InputStream in) throws IOException {
+		try (val input = in) {
+			val out = new ByteArrayOutputStream();
+			val buffer = new byte[4096];
+			int n;
+			while((n = input.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	// openRead
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testOpenRead_atPosition() throws Exception {
+		val data = InMemoryAmazonS3.testData(1000);
+		s3.putObjectData(BUCKET, "dir/file", data);
+
+		assertArrayEquals(data, readAll(storage.openRead("dir/file", 0)));
+		assertArrayEquals(Arrays.copyOfRange(data, 600, 1000), readAll(storage.openRead("dir/file", 600)));
+	}
+
+	@Test
+	public void testOpenRead_atOrAfterEOF_empty() throws Exception {
+		s3.putObjectData(BUCKET, "dir/file", InMemoryAmazonS3.testData(1000));
+
+		assertEquals(0, readAll(storage.openRead("dir/file", 1000)).length);
+		assertEquals(0, readAll(storage.openRead("dir/file", 5000)).length);
+		assertEquals(2, s3.getObjectCount.get()); // 416 not retried
+	}
+
+	@Test(expected = WrappedS3ClientException.class)
+	public void testOpenRead_notFound() {
+		storage.openRead("dir/notFound", 10);
+	}
+
+	// server-side copy
+	// ------------------------------------------------------------------------
+
+	private FixedBucketS3BlobStorage storageOf(S3ClientParams params) {
+		val client = new S3Client("other", params, s3);
+		return new FixedBucketS3BlobStorage(BlobStorageId.of("other"), BlobStorageGroupId.of("other"), "other", client, BUCKET);
+	}
+
+	@Test
+	public void testSupportsCopyFrom() {
+		assertTrue(storage.supportsCopyFrom(storage));
+		assertTrue(storageOf(new S3ClientParams("other", "http://localhost:9000", null, "key", "secret2"))
+				.supportsCopyFrom(storage));
+		assertFalse(storageOf(new S3ClientParams("other", "http://localhost:9000", null, "otherKey", "secret"))
+				.supportsCopyFrom(storage));
+	}
+
+	@Test
+	public void testSupportsCopyFrom_defaultCredentials_distinctClients() {
+		val params = new S3ClientParams("default", null, null, null, null);
+		val src = storageOf(params);
+		val dest = storageOf(params);
+		assertFalse(dest.supportsCopyFrom(src));
+		assertTrue(src.supportsCopyFrom(src));
+	}
+
+	@Test
+	public void testCopyFrom() {
+		val data = InMemoryAmazonS3.testData(100);
+		s3.putObjectData(BUCKET, "src", data);
+
+		storage.copyFrom(new BlobStoragePath(storage, "src"), "dest", data.length);
+
+		assertArrayEquals(data, s3.getObjectData(BUCKET, "dest"));
+	}
+
+	// readFile
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testReadFile_small_singleRequest() {
+		val data = InMemoryAmazonS3.testData(1000);
+		s3.putObjectData(BUCKET, "small", data);
+
+		assertArrayEquals(data, storage.readFile("small"));
+		assertEquals(1, s3.getObjectCount.get());
+		assertEquals(s3Params.getFirstReadRangeSize() - 1, s3.getObjectRanges.get(0)[1]);
+	}
+
+	@Test
+	public void testReadFile_medium_twoRequests() {
+		val data = InMemoryAmazonS3.testData(3 * s3Params.getFirstReadRangeSize() + 17);
+		s3.putObjectData(BUCKET, "medium", data);
+
+		assertArrayEquals(data, storage.readFile("medium"));
+		assertEquals(2, s3.getObjectCount.get());
+	}
+
+	@Test
+	public void testReadFile_big_parallelRanges() {
+		s3Params.setFirstReadRangeSize(1000);
+		s3Params.setParallelReadThreshold(10_000);
+		s3Params.setParallelReadPartSize(4000);
+		val data = InMemoryAmazonS3.testData(20_500);
+		s3.putObjectData(BUCKET, "big", data);
+
+		assertArrayEquals(data, storage.readFile("big"));
+		assertEquals(1 + 5, s3.getObjectCount.get()); // first range, then 19500 bytes by parts of 4000
+	}
+
+	@Test
+	public void testReadFile_empty() {
+		s3.putObjectData(BUCKET, "empty", new byte[0]);
+
+		assertEquals(0, storage.readFile("empty").length);
+	}
+
+	@Test
+	public void testRetryReadAt_retriedByS3ClientOnly() {
+		s3.putObjectData(BUCKET, "dir/file", InMemoryAmazonS3.testData(1000));
+		s3Client.getRetryPolicy().setMaxAttempts(2);
+		s3Client.getRetryPolicy().setInitialBackoffMillis(1);
+		s3.getObjectFailCount.set(10);
+		try {
+			BlobStorageIOUtils.retryReadAt(storage, "dir/file", 0, 10, new BlobStorageIOTimeCounter());
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+		assertEquals(2, s3.getObjectCount.get()); // not 2 x 5 attempts
+	}
+
+	// pathInfos
+	// ------------------------------------------------------------------------
+
+	private void putDirFiles(int count) {
+		for(int i = 0; i < count; i++) {
+			s3.putObjectData(BUCKET, String.format("dir/f%03d", i), new byte[i]);
+		}
+		s3.putObjectData(BUCKET, "dir/sub/file", new byte[1]);
+	}
+
+	@Test
+	public void testPathInfos_singleListing() {
+		putDirFiles(10);
+		val paths = Arrays.asList("dir/f001", "dir/f005", "dir/f003", "dir/f009", "dir/missing", "dir/sub");
+		val res = storage.pathInfos(paths);
+		assertEquals(paths, new ArrayList<>(res.keySet()));
+		assertEquals(5, res.get("dir/f005").fileLength);
+		assertEquals(9, res.get("dir/f009").fileLength);
+		assertNull(res.get("dir/missing"));
+		assertNull(res.get("dir/sub")); // emulated dir, cf pathInfo()
+		assertEquals(1, s3.listObjectsV2Count.get());
+		assertEquals(0, s3.getObjectMetadataCount.get());
+	}
+
+	@Test
+	public void testPathInfos_stopsListingAfterMaxRequestedName() {
+		s3.listMaxKeys = 10;
+		putDirFiles(100);
+		val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f003", "dir/f004", "dir/f012");
+		val res = storage.pathInfos(paths);
+		assertEquals(12, res.get("dir/f012").fileLength);
+		assertEquals(2, s3.listObjectsV2Count.get());
+		assertEquals(0, s3.getObjectMetadataCount.get());
+	}
+
+	@Test
+	public void testPathInfos_boundedListing_fallbackPathInfo() {
+		s3.listMaxKeys = 10;
+		storage.setPathInfosListMaxPages(2);
+		putDirFiles(100);
+		val paths = Arrays.asList("dir/f001", "dir/f002", "dir/f015", "dir/f090", "dir/f095", "dir/f999");
+		val res = storage.pathInfos(paths);
+		assertEquals(paths, new ArrayList<>(res.keySet()));
+		assertEquals(1, res.get("dir/f001").fileLength);
+		assertEquals(15, res.get("dir/f015").fileLength);
+		assertEquals(90, res.get("dir/f090").fileLength);
+		assertEquals(95, res.get("dir/f095").fileLength);
+		assertNull(res.get("dir/f999"));
+		assertEquals(2, s3.listObjectsV2Count.get());
+		// paths after last listed name
+		assertEquals(3, s3.getObjectMetadataCount.get());
+	}
+
+}
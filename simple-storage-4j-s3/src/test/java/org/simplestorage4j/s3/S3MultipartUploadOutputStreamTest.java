@@ -0,0 +1,122 @@
+package org.simplestorage4j.s3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.simplestorage4j.api.util.BlobStorageBufferPool;
+
+import lombok.val;
+
+public class S3MultipartUploadOutputStreamTest {
+
+	private static final String BUCKET = "test-bucket";
+	private static final int PART_SIZE = S3ClientParams.MIN_MULTIPART_PART_SIZE;
+
+	private final InMemoryAmazonS3 s3 = new InMemoryAmazonS3();
+	private final S3Client s3Client = new S3Client("test",
+			new S3ClientParams("test", "http://localhost:9000", null, "key", "secret"), s3);
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private final BlobStorageBufferPool bufferPool = new BlobStorageBufferPool("test", false,
+			64 * 1024, 8 * 1024 * 1024, 64L * 1024 * 1024);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		s3Client.close();
+	}
+
+	private S3MultipartUploadOutputStream openWrite(String key, int maxInFlightParts) {
+		return new S3MultipartUploadOutputStream(s3Client, BUCKET, key, PART_SIZE, maxInFlightParts, executor, bufferPool);
+	}
+
+	private void assertAllBuffersReleased() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		assertEquals(bufferPool.getBorrowCount(), bufferPool.getReleaseCount());
+	}
+
+	@Test
+	public void testWrite_small_singlePut() throws Exception {
+		val data = InMemoryAmazonS3.testData(1000);
+		try (val out = openWrite("small", 2)) {
+			out.write(data);
+		}
+		assertArrayEquals(data, s3.getObjectData(BUCKET, "small"));
+		assertEquals(0, s3.uploadPartCount.get());
+		assertAllBuffersReleased();
+	}
+
+	@Test
+	public void testWrite_multipart() throws Exception {
+		val data = InMemoryAmazonS3.testData(2 * PART_SIZE + 1234);
+		try (val out = openWrite("big", 2)) {
+			out.write(data, 0, 100);
+			out.write(data[100]);
+			out.write(data, 101, data.length - 101);
+		}
+		assertArrayEquals(data, s3.getObjectData(BUCKET, "big"));
+		assertEquals(3, s3.uploadPartCount.get());
+		assertEquals(0, s3.getPendingUploadCount());
+		assertAllBuffersReleased();
+	}
+
+	@Test
+	public void testWrite_partFailure_aborted() throws Exception {
+		s3Client.getRetryPolicy().setMaxAttempts(1);
+		s3.uploadPartFailCount.set(1);
+		val data = InMemoryAmazonS3.testData(2 * PART_SIZE + 10);
+		val out = openWrite("failed", 2);
+		try {
+			out.write(data);
+			out.close();
+			fail();
+		} catch(IOException ex) {
+			// ok
+		}
+		assertNull(s3.getObjectData(BUCKET, "failed"));
+		assertEquals(0, s3.getPendingUploadCount());
+		assertAllBuffersReleased();
+	}
+
+	@Test
+	public void testAbort_releasesPartsNotStarted() throws Exception {
+		s3.uploadPartSleepMillis = 200;
+		val data = InMemoryAmazonS3.testData(5 * PART_SIZE);
+		val out = openWrite("aborted", 5);
+		out.write(data); // 5 parts in flight, 2 uploading, 3 queued in executor
+
+		out.abort();
+
+		assertEquals(1, s3.abortMultipartUploadCount.get());
+		assertAllBuffersReleased();
+		assertTrue(s3.uploadPartCount.get() < 5);
+		assertNull(s3.getObjectData(BUCKET, "aborted"));
+	}
+
+	@Test
+	public void testPartSizeOf() {
+		val mb = 1024 * 1024;
+		assertEquals(16 * mb, S3MultipartUploadOutputStream.partSizeOf(1, 16 * mb));
+		assertEquals(16 * mb, S3MultipartUploadOutputStream.partSizeOf(1000, 16 * mb));
+		assertEquals(32 * mb, S3MultipartUploadOutputStream.partSizeOf(1001, 16 * mb));
+		assertEquals(S3MultipartUploadOutputStream.MAX_PART_SIZE, S3MultipartUploadOutputStream.partSizeOf(10_000, 16 * mb));
+
+		// max parts with default part size: about 5To
+		long total = 0;
+		for(int partNumber = 1; partNumber <= S3Client.MAX_PART_COUNT; partNumber++) {
+			total += S3MultipartUploadOutputStream.partSizeOf(partNumber, 16 * mb);
+		}
+		assertTrue(total > 5L * 1000 * 1000 * 1000 * 1000);
+	}
+
+}
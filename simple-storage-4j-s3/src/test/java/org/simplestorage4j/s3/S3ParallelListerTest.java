@@ -0,0 +1,125 @@
+package org.simplestorage4j.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+
+import lombok.val;
+
+public class S3ParallelListerTest {
+
+	private static final String BUCKET = "test-bucket";
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static S3Client s3ClientOf(InMemoryAmazonS3 s3) {
+		val res = new S3Client("test", new S3ClientParams("test", "http://localhost:9000", null, "key", "secret"), s3);
+		res.getRetryPolicy().setMaxAttempts(1);
+		return res;
+	}
+
+	/**
+	 * @return listed keys, checking each key is listed only once
+	 */
+	private List<String> listAll(S3ParallelLister lister, String prefix) {
+		val res = new ArrayList<String>();
+		lister.listAll(BUCKET, prefix, batch -> batch.forEach(obj -> res.add(obj.getKey())));
+		assertEquals("duplicate keys", new TreeSet<>(res).size(), res.size());
+		res.sort(null);
+		return res;
+	}
+
+	@Test
+	public void testListAll_nestedPrefixes() {
+		val s3 = new InMemoryAmazonS3();
+		val expected = new ArrayList<String>();
+		for(int i = 0; i < 5; i++) {
+			for(int j = 0; j < 7; j++) {
+				for(int k = 0; k < 3; k++) {
+					val key = "root/dir" + i + "/sub" + j + "/file" + k;
+					s3.putObjectData(BUCKET, key, new byte[1]);
+					expected.add(key);
+				}
+			}
+			val key = "root/dir" + i + "/file";
+			s3.putObjectData(BUCKET, key, new byte[1]);
+			expected.add(key);
+		}
+		s3.putObjectData(BUCKET, "other/file", new byte[1]);
+		expected.sort(null);
+		val lister = new S3ParallelLister(s3ClientOf(s3), executor);
+		lister.setMaxKeysPerPage(4);
+
+		assertEquals(expected, listAll(lister, "root/"));
+	}
+
+	@Test
+	public void testListAll_flatPrefix_keySpacePartitions() {
+		val s3 = new InMemoryAmazonS3();
+		val expected = new ArrayList<String>();
+		for(val c : "0Aaz".toCharArray()) {
+			for(int i = 0; i < 50; i++) {
+				val key = "flat/" + c + "file" + i;
+				s3.putObjectData(BUCKET, key, new byte[1]);
+				expected.add(key);
+			}
+		}
+		s3.putObjectData(BUCKET, "flat/~after-split-chars", new byte[1]);
+		expected.add("flat/~after-split-chars");
+		expected.sort(null);
+		val lister = new S3ParallelLister(s3ClientOf(s3), executor);
+		lister.setMaxKeysPerPage(10);
+
+		assertEquals(expected, listAll(lister, "flat/"));
+	}
+
+	@Test
+	public void testListAll_empty() {
+		val lister = new S3ParallelLister(s3ClientOf(new InMemoryAmazonS3()), executor);
+		assertTrue(listAll(lister, "none/").isEmpty());
+	}
+
+	@Test
+	public void testListAll_failure_rethrown() {
+		val s3 = new InMemoryAmazonS3() {
+			@Override
+			public ListObjectsV2Result listObjectsV2(ListObjectsV2Request req) {
+				if (req.getPrefix().startsWith("root/dir3/")) {
+					val ex = new AmazonS3Exception("AccessDenied");
+					ex.setStatusCode(403);
+					throw ex;
+				}
+				return super.listObjectsV2(req);
+			}
+		};
+		for(int i = 0; i < 5; i++) {
+			s3.putObjectData(BUCKET, "root/dir" + i + "/file", new byte[1]);
+		}
+		val lister = new S3ParallelLister(s3ClientOf(s3), executor);
+		try {
+			listAll(lister, "root/");
+			fail();
+		} catch(RuntimeException ex) {
+			// ok
+		}
+	}
+
+}